@@ -0,0 +1,123 @@
+package com.ulisesbocchio.sharedfutures.benchmarks;
+
+import com.ulisesbocchio.sharedfutures.CompletionDispatcher;
+import com.ulisesbocchio.sharedfutures.SharedFutureInvoker;
+import com.ulisesbocchio.sharedfutures.SharedFuturesRegistry.InFlight;
+import com.ulisesbocchio.sharedfutures.adapter.FutureAdapter;
+import com.ulisesbocchio.sharedfutures.adapter.FutureAdapters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Completion of a shared future with many waiters, each running a dependent stage that burns some CPU, per
+ * {@link CompletionDispatcher} policy. {@link #completeAndAwait()} is the latency until the last waiter's stage ran,
+ * and {@link #complete()} the time the completing thread, usually a client I/O thread, is kept busy.
+ * Both use {@link Level#Invocation} fixtures to register the waiters, which only adds noise at the lowest counts.
+ *
+ * @author ulisesbocchio
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompletionDispatcherBenchmark {
+
+    private static final Object VALUE = new Object();
+
+    @Param({"1", "16", "200", "1000"})
+    private int waiters;
+
+    @Param({"direct", "shared", "dedicated", "fanOut"})
+    private String policy;
+
+    @Param({"100"})
+    private int continuationTokens;
+
+    private final FutureAdapters futureAdapters = FutureAdapters.getDefault();
+    private final FutureAdapter adapter = futureAdapters.getAdapter(CompletableFuture.class);
+    private ExecutorService dedicated;
+    private CompletionDispatcher dispatcher;
+    private CompletableFuture<Object> shared;
+    private CountDownLatch done;
+
+    @Setup
+    public void setup() {
+        switch (policy) {
+            case "shared":
+                dispatcher = CompletionDispatcher.executor(ForkJoinPool.commonPool());
+                break;
+            case "dedicated":
+                int threads = Runtime.getRuntime().availableProcessors();
+                dedicated = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(threads * 1024), new ThreadPoolExecutor.CallerRunsPolicy());
+                dispatcher = CompletionDispatcher.executor(dedicated);
+                break;
+            case "fanOut":
+                dispatcher = CompletionDispatcher.fanOut(ForkJoinPool.commonPool(), 32);
+                break;
+            default:
+                dispatcher = CompletionDispatcher.DIRECT;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (dedicated != null) {
+            dedicated.shutdown();
+        }
+    }
+
+    @Setup(Level.Invocation)
+    @SuppressWarnings("unchecked")
+    public void join() {
+        shared = new CompletableFuture<>();
+        done = new CountDownLatch(waiters);
+        InFlight inFlight = new InFlight(new ConcurrentHashMap<>(), "key", "benchmark", shared, null);
+        for (int i = 0; i < waiters; i++) {
+            ((CompletableFuture<Object>) SharedFutureInvoker.view(inFlight, adapter, futureAdapters, dispatcher))
+                    .thenRun(() -> {
+                        Blackhole.consumeCPU(continuationTokens);
+                        done.countDown();
+                    });
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void drain() throws InterruptedException {
+        done.await();
+    }
+
+    @Benchmark
+    public void completeAndAwait() throws InterruptedException {
+        shared.complete(VALUE);
+        done.await();
+    }
+
+    @Benchmark
+    public boolean complete() {
+        return shared.complete(VALUE);
+    }
+}
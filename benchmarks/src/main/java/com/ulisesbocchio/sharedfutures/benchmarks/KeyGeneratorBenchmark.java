@@ -0,0 +1,104 @@
+package com.ulisesbocchio.sharedfutures.benchmarks;
+
+import com.ulisesbocchio.sharedfutures.spring.CompositeKeyGenerator;
+import com.ulisesbocchio.sharedfutures.spring.DefaultKeyGenerator;
+import com.ulisesbocchio.sharedfutures.spring.HashingKeyGenerator;
+import com.ulisesbocchio.sharedfutures.spring.KeyGenerator;
+import com.ulisesbocchio.sharedfutures.spring.SharedFutureKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of generating a key for the argument types supported out of the box.
+ *
+ * @author ulisesbocchio
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyGeneratorBenchmark {
+
+    @Param({"default", "composite", "hashing"})
+    private String generator;
+
+    @Param({"20", "500"})
+    private int size;
+
+    private KeyGenerator keyGenerator;
+    private Method scalarMethod;
+    private Method collectionMethod;
+    private Method mapMethod;
+    private Method sharedFutureKeyMethod;
+    private List<String> list;
+    private Map<Integer, String> map;
+    private SharedFutureKey sharedFutureKey;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        keyGenerator = "composite".equals(generator) ? new CompositeKeyGenerator()
+                : "hashing".equals(generator) ? new HashingKeyGenerator()
+                : new DefaultKeyGenerator();
+        scalarMethod = getClass().getMethod("scalar", String.class, int.class);
+        collectionMethod = getClass().getMethod("collection", List.class);
+        mapMethod = getClass().getMethod("map", Map.class);
+        sharedFutureKeyMethod = getClass().getMethod("sharedFutureKey", SharedFutureKey.class);
+        list = new ArrayList<>();
+        map = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            list.add("sku-" + i);
+            map.put(i, "value-" + i);
+        }
+        sharedFutureKey = () -> "user-42";
+    }
+
+    @Benchmark
+    public Object scalar() {
+        return keyGenerator.generate(this, scalarMethod, "product-name", 42);
+    }
+
+    @Benchmark
+    public Object collection() {
+        return keyGenerator.generate(this, collectionMethod, list);
+    }
+
+    @Benchmark
+    public Object map() {
+        return keyGenerator.generate(this, mapMethod, map);
+    }
+
+    @Benchmark
+    public Object sharedFutureKey() {
+        return keyGenerator.generate(this, sharedFutureKeyMethod, sharedFutureKey);
+    }
+
+    public void scalar(String name, int count) {
+    }
+
+    public void collection(List<String> list) {
+    }
+
+    public void map(Map<Integer, String> map) {
+    }
+
+    public void sharedFutureKey(SharedFutureKey key) {
+    }
+}
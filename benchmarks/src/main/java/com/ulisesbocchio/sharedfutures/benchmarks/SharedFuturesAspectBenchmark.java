@@ -0,0 +1,155 @@
+package com.ulisesbocchio.sharedfutures.benchmarks;
+
+import com.google.common.util.concurrent.Futures;
+import com.ulisesbocchio.sharedfutures.spring.annotation.EnableSharedFutures;
+import com.ulisesbocchio.sharedfutures.spring.annotation.SharedFuture;
+import com.ulisesbocchio.sharedfutures.spring.annotation.SharingPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.AsyncResult;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end overhead of a {@link SharedFuture} proxy compared with calling the same method on the bare object.
+ * The {@code *Miss} benchmarks return completed futures, so every call executes and removes a shared future, the
+ * {@code *Hit} benchmark returns a future that never completes, so every call finds it in the registry. Misses are
+ * always shared, but for {@code completableFutureAdaptiveMiss}, which opts in to adaptive sharing, finds that sharing
+ * doesn't pay and bypasses it.
+ *
+ * @author ulisesbocchio
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SharedFuturesAspectBenchmark {
+
+    private AnnotationConfigApplicationContext context;
+    private BenchmarkService shared;
+    private BenchmarkService plain;
+
+    @Setup
+    public void setup() {
+        context = new AnnotationConfigApplicationContext(BenchmarkConfig.class);
+        shared = context.getBean(BenchmarkService.class);
+        plain = new DefaultBenchmarkService();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object completableFuturePlain() {
+        return plain.getCompletableFuture("product");
+    }
+
+    @Benchmark
+    public Object completableFutureMiss() {
+        return shared.getCompletableFuture("product");
+    }
+
+    @Benchmark
+    public Object completableFutureAdaptiveMiss() {
+        return shared.getAdaptiveCompletableFuture("product");
+    }
+
+    @Benchmark
+    public Object completableFutureHit() {
+        return shared.getPendingCompletableFuture("product");
+    }
+
+    @Benchmark
+    public Object springListenableFuturePlain() {
+        return plain.getSpringListenableFuture("product");
+    }
+
+    @Benchmark
+    public Object springListenableFutureMiss() {
+        return shared.getSpringListenableFuture("product");
+    }
+
+    @Benchmark
+    public Object guavaListenableFuturePlain() {
+        return plain.getGuavaListenableFuture("product");
+    }
+
+    @Benchmark
+    public Object guavaListenableFutureMiss() {
+        return shared.getGuavaListenableFuture("product");
+    }
+
+    @Configuration
+    @EnableSharedFutures
+    public static class BenchmarkConfig {
+        @Bean
+        public BenchmarkService benchmarkService() {
+            return new DefaultBenchmarkService();
+        }
+    }
+
+    public interface BenchmarkService {
+        CompletableFuture<String> getCompletableFuture(String name);
+
+        CompletableFuture<String> getAdaptiveCompletableFuture(String name);
+
+        CompletableFuture<String> getPendingCompletableFuture(String name);
+
+        ListenableFuture<String> getSpringListenableFuture(String name);
+
+        com.google.common.util.concurrent.ListenableFuture<String> getGuavaListenableFuture(String name);
+    }
+
+    public static class DefaultBenchmarkService implements BenchmarkService {
+
+        private final CompletableFuture<String> pending = new CompletableFuture<>();
+
+        @SharedFuture
+        @Override
+        public CompletableFuture<String> getCompletableFuture(String name) {
+            return CompletableFuture.completedFuture(name);
+        }
+
+        @SharedFuture(sharing = SharingPolicy.ADAPTIVE)
+        @Override
+        public CompletableFuture<String> getAdaptiveCompletableFuture(String name) {
+            return CompletableFuture.completedFuture(name);
+        }
+
+        @SharedFuture
+        @Override
+        public CompletableFuture<String> getPendingCompletableFuture(String name) {
+            return pending;
+        }
+
+        @SharedFuture
+        @Override
+        public ListenableFuture<String> getSpringListenableFuture(String name) {
+            return new AsyncResult<>(name);
+        }
+
+        @SharedFuture
+        @Override
+        public com.google.common.util.concurrent.ListenableFuture<String> getGuavaListenableFuture(String name) {
+            return Futures.immediateFuture(name);
+        }
+    }
+}
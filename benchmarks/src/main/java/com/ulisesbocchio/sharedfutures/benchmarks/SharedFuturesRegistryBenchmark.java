@@ -0,0 +1,108 @@
+package com.ulisesbocchio.sharedfutures.benchmarks;
+
+import com.ulisesbocchio.sharedfutures.BoundedSharedFuturesRegistry;
+import com.ulisesbocchio.sharedfutures.DefaultSharedFuturesRegistry;
+import com.ulisesbocchio.sharedfutures.SharedFuturesRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry operations under contention, for the default registry and for the striped, bounded one with limits high
+ * enough to never reject. Run {@link #main(String[])} to go through 1 to 64 threads, or pass
+ * {@code -t <threads>} to the benchmarks jar.
+ *
+ * @author ulisesbocchio
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SharedFuturesRegistryBenchmark {
+
+    static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+    @Param({"1", "1024", "65536"})
+    private int cardinality;
+
+    @Param({"default", "bounded"})
+    private String implementation;
+
+    private SharedFuturesRegistry registry;
+    private String[] keys;
+    private CompletableFuture<Object> pending;
+
+    @Setup
+    public void setup() {
+        registry = "bounded".equals(implementation)
+                ? BoundedSharedFuturesRegistry.builder().maxInFlight(1 << 20).maxInFlightPerGroup(1 << 20).build()
+                : new DefaultSharedFuturesRegistry();
+        keys = new String[cardinality];
+        pending = new CompletableFuture<>();
+        for (int i = 0; i < cardinality; i++) {
+            keys[i] = "key-" + i;
+        }
+    }
+
+    private String nextKey() {
+        return keys[ThreadLocalRandom.current().nextInt(cardinality)];
+    }
+
+    @Benchmark
+    public Future<?> get() {
+        String key = nextKey();
+        Future<?> future = registry.get(key);
+        if (future == null) {
+            registry.put(key, pending);
+        }
+        return future;
+    }
+
+    @Benchmark
+    public boolean putRemove() {
+        String key = nextKey();
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        registry.put(key, future);
+        return registry.remove(key, future);
+    }
+
+    @Benchmark
+    public Future<?> computeIfAbsent() throws Throwable {
+        return registry.computeIfAbsent(nextKey(), "benchmark", removeFunc -> {
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            future.complete(null);
+            removeFunc.run();
+            return future;
+        });
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : THREADS) {
+            new Runner(new OptionsBuilder()
+                    .include(SharedFuturesRegistryBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .build())
+                    .run();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.ulisesbocchio.sharedfutures.simulator;
+
+import com.ulisesbocchio.sharedfutures.spring.SharedFutureKey;
+
+/**
+ * A call of a trace: when it arrives, which method it calls with which arguments, and how long the backend takes to
+ * answer it if the call reaches the backend. Calls are shared by method and arguments, the latency is not part of the
+ * key.
+ *
+ * @author ulisesbocchio
+ */
+public final class Arrival implements SharedFutureKey {
+
+    private final long atMicros;
+    private final String method;
+    private final String args;
+    private final long latencyMicros;
+
+    public Arrival(long atMicros, String method, String args, long latencyMicros) {
+        this.atMicros = atMicros;
+        this.method = method;
+        this.args = args;
+        this.latencyMicros = latencyMicros;
+    }
+
+    /**
+     * @return microseconds since the start of the trace
+     */
+    public long getAtMicros() {
+        return atMicros;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getArgs() {
+        return args;
+    }
+
+    public long getLatencyMicros() {
+        return latencyMicros;
+    }
+
+    @Override
+    public String getKey() {
+        return method + "(" + args + ")";
+    }
+
+    @Override
+    public String toString() {
+        return atMicros + "us " + getKey() + " latency=" + latencyMicros + "us";
+    }
+}
@@ -0,0 +1,57 @@
+package com.ulisesbocchio.sharedfutures.simulator;
+
+import java.util.Random;
+
+/**
+ * Latency of the mock backend, sampled once per arrival from a seeded {@link Random} so traces are reproducible.
+ *
+ * @author ulisesbocchio
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    /**
+     * z-score of the 99th percentile of the standard normal distribution
+     */
+    double P99_Z = 2.3263478740408408;
+
+    long sampleMicros(Random random);
+
+    static LatencyDistribution fixed(double millis) {
+        long micros = Math.round(millis * 1000);
+        return random -> micros;
+    }
+
+    /**
+     * Log-normal distribution, the usual shape of service latencies, given its median and 99th percentile.
+     */
+    static LatencyDistribution logNormal(double medianMillis, double p99Millis) {
+        if (medianMillis <= 0 || p99Millis < medianMillis) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid log-normal latency with median %sms and p99 %sms", medianMillis, p99Millis));
+        }
+        double mu = Math.log(medianMillis * 1000);
+        double sigma = Math.log(p99Millis / medianMillis) / P99_Z;
+        return random -> Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+    }
+
+    /**
+     * Parses {@code fixed:<ms>} or {@code lognormal:<median ms>,<p99 ms>}.
+     */
+    static LatencyDistribution parse(String spec) {
+        String[] parts = spec.trim().split(":", 2);
+        String[] values = parts.length > 1 ? parts[1].split(",") : new String[0];
+        try {
+            if ("fixed".equalsIgnoreCase(parts[0]) && values.length == 1) {
+                return fixed(Double.parseDouble(values[0]));
+            }
+            if ("lognormal".equalsIgnoreCase(parts[0]) && values.length == 2) {
+                return logNormal(Double.parseDouble(values[0]), Double.parseDouble(values[1]));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid latency distribution: " + spec, e);
+        }
+        throw new IllegalArgumentException("Invalid latency distribution: " + spec
+                + ", expected fixed:<ms> or lognormal:<median ms>,<p99 ms>");
+    }
+}
@@ -0,0 +1,47 @@
+package com.ulisesbocchio.sharedfutures.simulator;
+
+import com.ulisesbocchio.sharedfutures.spring.annotation.SharedFuture;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Backend answering every call after the latency of the arrival that reached it, on the virtual time of a
+ * {@link Simulation}. Always shared, the default, so replays measure what sharing saves rather than the adaptive
+ * bypass. Not thread
+ * safe, like the simulation driving it.
+ *
+ * @author ulisesbocchio
+ */
+public class MockBackend implements SimulatedBackend {
+
+    private Simulation simulation;
+    private final Map<String, long[]> calls = new TreeMap<>();
+
+    /**
+     * Starts a replay on the given simulation, forgetting the calls of the previous one.
+     */
+    public void reset(Simulation simulation) {
+        this.simulation = simulation;
+        this.calls.clear();
+    }
+
+    @SharedFuture
+    @Override
+    public CompletableFuture<String> call(Arrival arrival) {
+        calls.computeIfAbsent(arrival.getMethod(), m -> new long[1])[0]++;
+        CompletableFuture<String> response = new CompletableFuture<>();
+        simulation.schedule(simulation.now() + arrival.getLatencyMicros(), () -> response.complete(arrival.getArgs()));
+        return response;
+    }
+
+    /**
+     * @return calls that reached the backend per method, sorted by method
+     */
+    public Map<String, Long> getCalls() {
+        Map<String, Long> copy = new TreeMap<>();
+        calls.forEach((method, count) -> copy.put(method, count[0]));
+        return copy;
+    }
+}
@@ -0,0 +1,142 @@
+package com.ulisesbocchio.sharedfutures.simulator;
+
+import com.ulisesbocchio.sharedfutures.DefaultSharedFuturesRegistry;
+import com.ulisesbocchio.sharedfutures.SharedFuturesRegistry;
+import com.ulisesbocchio.sharedfutures.spring.DefaultKeyGenerator;
+import com.ulisesbocchio.sharedfutures.spring.SharedFuturesAspect;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Predicts what {@code @SharedFuture} saves on a workload before annotating anything. A recorded or synthetic trace is
+ * replayed twice against a {@link MockBackend}, once calling it directly and once through a {@link SharedFuturesAspect}
+ * proxy sharing calls in a {@link DefaultSharedFuturesRegistry}, and both replays are compared in a
+ * {@link SimulationReport}. Replays run on the virtual time of a {@link Simulation}, on a single thread and without
+ * any external service, so the same trace always yields the same report. Run with {@code --help} for the options.
+ *
+ * @author ulisesbocchio
+ */
+public class SharedFuturesSimulator {
+
+    private static final String USAGE = "Usage: java -jar simulator/target/simulator.jar [options]\n"
+            + "  --trace=<file>          replay a recorded trace of at_ms,method,args[,latency_ms] lines\n"
+            + "  --requests=<n>          calls of the synthetic trace, 100000 by default\n"
+            + "  --rate=<n>              calls per second of the synthetic trace, 5000 by default\n"
+            + "  --methods=<n>           methods of the synthetic trace, 1 by default\n"
+            + "  --keys=<n>              distinct arguments per method of the synthetic trace, 10000 by default\n"
+            + "  --zipf=<exponent>       skew of the synthetic arguments, 1.0 by default, 0 for uniform\n"
+            + "  --latency=<spec>        backend latency, fixed:<ms> or lognormal:<median ms>,<p99 ms>,\n"
+            + "                          lognormal:20,200 by default\n"
+            + "  --seed=<n>              seed of the synthetic trace and sampled latencies, 42 by default\n"
+            + "  --warmup=<n>            replays run before the measured ones, 2 by default\n"
+            + "  --out=<file>            also write the report to a file\n";
+
+    private final int warmups;
+
+    /**
+     * @param warmups replays of each kind run and discarded before the measured ones, so allocation is measured on
+     *                compiled code
+     */
+    public SharedFuturesSimulator(int warmups) {
+        this.warmups = warmups;
+    }
+
+    public SimulationReport simulate(Trace trace) {
+        MockBackend backend = new MockBackend();
+        SharedFuturesRegistry registry = new DefaultSharedFuturesRegistry();
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(backend);
+        proxyFactory.addAspect(new SharedFuturesAspect(registry, new DefaultKeyGenerator()));
+        SimulatedBackend shared = proxyFactory.getProxy();
+        for (int i = 0; i < warmups; i++) {
+            replay(trace, backend, backend, null);
+            replay(trace, shared, backend, registry);
+        }
+        return new SimulationReport(trace.getDescription(), replay(trace, backend, backend, null),
+                replay(trace, shared, backend, registry));
+    }
+
+    /**
+     * @param registry registry of the shared backend, to track its peak size, or null for direct calls
+     */
+    private static SimulationReport.Run replay(Trace trace, SimulatedBackend target, MockBackend backend,
+                                               SharedFuturesRegistry registry) {
+        Simulation simulation = new Simulation();
+        backend.reset(simulation);
+        List<Arrival> arrivals = trace.getArrivals();
+        long[] latencies = new long[arrivals.size()];
+        int peakRegistrySize = 0;
+        long allocatedBefore = allocatedBytes();
+        for (int i = 0; i < arrivals.size(); i++) {
+            Arrival arrival = arrivals.get(i);
+            int index = i;
+            simulation.advanceTo(arrival.getAtMicros());
+            target.call(arrival).whenComplete((response, failure) ->
+                    latencies[index] = simulation.now() - arrival.getAtMicros());
+            if (registry != null) {
+                peakRegistrySize = Math.max(peakRegistrySize, registry.size());
+            }
+        }
+        simulation.drain();
+        long allocatedAfter = allocatedBytes();
+        long allocatedPerRequest = allocatedBefore < 0 || arrivals.isEmpty()
+                ? -1
+                : (allocatedAfter - allocatedBefore) / arrivals.size();
+        return new SimulationReport.Run(arrivals.size(), backend.getCalls(), latencies, peakRegistrySize, allocatedPerRequest);
+    }
+
+    /**
+     * @return bytes allocated so far by the current thread, or -1 if the JVM can't tell
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+            if (allocation.isThreadAllocatedMemorySupported() && allocation.isThreadAllocatedMemoryEnabled()) {
+                return allocation.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                System.err.print(USAGE);
+                System.exit(1);
+            }
+            int equals = arg.indexOf('=');
+            options.put(equals < 0 ? arg.substring(2) : arg.substring(2, equals), equals < 0 ? "" : arg.substring(equals + 1));
+        }
+        if (options.containsKey("help")) {
+            System.out.print(USAGE);
+            return;
+        }
+        LatencyDistribution latency = LatencyDistribution.parse(options.getOrDefault("latency", "lognormal:20,200"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        Trace trace = options.containsKey("trace")
+                ? Trace.read(Paths.get(options.get("trace")), latency, seed)
+                : Trace.synthetic(Integer.parseInt(options.getOrDefault("requests", "100000")),
+                Double.parseDouble(options.getOrDefault("rate", "5000")),
+                Integer.parseInt(options.getOrDefault("methods", "1")),
+                Integer.parseInt(options.getOrDefault("keys", "10000")),
+                Double.parseDouble(options.getOrDefault("zipf", "1.0")),
+                latency, seed);
+        String report = new SharedFuturesSimulator(Integer.parseInt(options.getOrDefault("warmup", "2")))
+                .simulate(trace)
+                .toString();
+        System.out.print(report);
+        if (options.containsKey("out")) {
+            Files.write(Paths.get(options.get("out")), report.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
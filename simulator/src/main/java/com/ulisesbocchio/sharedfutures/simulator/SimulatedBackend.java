@@ -0,0 +1,16 @@
+package com.ulisesbocchio.sharedfutures.simulator;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The backend replayed arrivals are sent to.
+ *
+ * @author ulisesbocchio
+ */
+public interface SimulatedBackend {
+
+    /**
+     * @return a future completed by the {@link Simulation} after the latency of the arrival
+     */
+    CompletableFuture<String> call(Arrival arrival);
+}
@@ -0,0 +1,66 @@
+package com.ulisesbocchio.sharedfutures.simulator;
+
+import java.util.PriorityQueue;
+
+/**
+ * Single threaded event loop running on virtual time, so a replay takes as long as the work it does rather than the
+ * span of its trace, and always orders events the same way. Events scheduled for the same time run in the order they
+ * were scheduled.
+ *
+ * @author ulisesbocchio
+ */
+public final class Simulation {
+
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private long nowMicros;
+    private long sequence;
+
+    /**
+     * @return the virtual time, in microseconds since the start of the trace
+     */
+    public long now() {
+        return nowMicros;
+    }
+
+    public void schedule(long atMicros, Runnable action) {
+        events.add(new Event(Math.max(atMicros, nowMicros), sequence++, action));
+    }
+
+    /**
+     * Runs every event scheduled up to the given time, included, and moves the clock to it.
+     */
+    public void advanceTo(long atMicros) {
+        Event next;
+        while ((next = events.peek()) != null && next.atMicros <= atMicros) {
+            events.poll();
+            nowMicros = next.atMicros;
+            next.action.run();
+        }
+        nowMicros = Math.max(nowMicros, atMicros);
+    }
+
+    /**
+     * Runs every event left, including the ones they schedule.
+     */
+    public void drain() {
+        advanceTo(Long.MAX_VALUE);
+    }
+
+    private static final class Event implements Comparable<Event> {
+        private final long atMicros;
+        private final long sequence;
+        private final Runnable action;
+
+        Event(long atMicros, long sequence, Runnable action) {
+            this.atMicros = atMicros;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Long.compare(atMicros, other.atMicros);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+}
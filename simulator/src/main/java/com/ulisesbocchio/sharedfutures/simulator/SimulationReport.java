@@ -0,0 +1,155 @@
+package com.ulisesbocchio.sharedfutures.simulator;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Outcome of replaying a trace directly against the backend and through {@code @SharedFuture}. Latencies are in
+ * virtual time, so everything but the allocation figures, which depend on how far the JIT got, is the same on every
+ * replay of the same trace.
+ *
+ * @author ulisesbocchio
+ */
+public final class SimulationReport {
+
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final String trace;
+    private final Run direct;
+    private final Run shared;
+
+    public SimulationReport(String trace, Run direct, Run shared) {
+        this.trace = trace;
+        this.direct = direct;
+        this.shared = shared;
+    }
+
+    public Run getDirect() {
+        return direct;
+    }
+
+    public Run getShared() {
+        return shared;
+    }
+
+    /**
+     * @return fraction of the direct backend calls saved by sharing
+     */
+    public double getBackendCallsSaved() {
+        long directCalls = direct.getBackendCalls();
+        return directCalls == 0 ? 0 : 1 - (double) shared.getBackendCalls() / directCalls;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append("Shared Futures simulation\n");
+        report.append("trace: ").append(trace).append("\n\n");
+        row(report, "", "direct", "shared");
+        row(report, "requests", direct.getRequests(), shared.getRequests());
+        row(report, "backend calls", direct.getBackendCalls(), shared.getBackendCalls());
+        row(report, "backend calls saved", "-", percent(getBackendCallsSaved()));
+        row(report, "coalescing ratio", ratio(direct), ratio(shared));
+        for (double percentile : PERCENTILES) {
+            row(report, "latency p" + format(percentile * 100).replaceAll("\\.?0+$", "") + " (ms)",
+                    millis(direct.getLatencyPercentile(percentile)), millis(shared.getLatencyPercentile(percentile)));
+        }
+        row(report, "latency max (ms)", millis(direct.getLatencyPercentile(1)), millis(shared.getLatencyPercentile(1)));
+        row(report, "peak registry size", "-", shared.getPeakRegistrySize());
+        row(report, "allocated per request (B)", allocation(direct), allocation(shared));
+        report.append("\nbackend calls per method\n");
+        Map<String, Long> methods = new TreeMap<>(direct.getBackendCallsPerMethod());
+        for (Map.Entry<String, Long> method : methods.entrySet()) {
+            long directCalls = method.getValue();
+            long sharedCalls = shared.getBackendCallsPerMethod().getOrDefault(method.getKey(), 0L);
+            row(report, "  " + method.getKey(), directCalls,
+                    sharedCalls + " (" + percent(directCalls == 0 ? 0 : 1 - (double) sharedCalls / directCalls) + ")");
+        }
+        return report.toString();
+    }
+
+    private static void row(StringBuilder report, String name, Object direct, Object shared) {
+        report.append(String.format(Locale.ROOT, "%-28s %14s %22s%n", name, direct, shared));
+    }
+
+    private static String ratio(Run run) {
+        return run.getBackendCalls() == 0 ? "-" : format((double) run.getRequests() / run.getBackendCalls()) + "x";
+    }
+
+    private static String percent(double fraction) {
+        return format(fraction * 100) + "%";
+    }
+
+    private static String millis(long micros) {
+        return String.format(Locale.ROOT, "%.3f", micros / 1000.0);
+    }
+
+    private static String allocation(Run run) {
+        return run.getAllocatedBytesPerRequest() < 0 ? "n/a" : String.valueOf(run.getAllocatedBytesPerRequest());
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    /**
+     * One replay of the trace.
+     */
+    public static final class Run {
+        private final int requests;
+        private final Map<String, Long> backendCallsPerMethod;
+        private final long backendCalls;
+        private final long[] sortedLatencies;
+        private final int peakRegistrySize;
+        private final long allocatedBytesPerRequest;
+
+        /**
+         * @param latencies                virtual microseconds each request waited for its response
+         * @param allocatedBytesPerRequest negative if the JVM can't measure allocation
+         */
+        public Run(int requests, Map<String, Long> backendCallsPerMethod, long[] latencies, int peakRegistrySize,
+                   long allocatedBytesPerRequest) {
+            this.requests = requests;
+            this.backendCallsPerMethod = backendCallsPerMethod;
+            this.backendCalls = backendCallsPerMethod.values().stream().mapToLong(Long::longValue).sum();
+            this.sortedLatencies = latencies.clone();
+            Arrays.sort(sortedLatencies);
+            this.peakRegistrySize = peakRegistrySize;
+            this.allocatedBytesPerRequest = allocatedBytesPerRequest;
+        }
+
+        public int getRequests() {
+            return requests;
+        }
+
+        public long getBackendCalls() {
+            return backendCalls;
+        }
+
+        public Map<String, Long> getBackendCallsPerMethod() {
+            return backendCallsPerMethod;
+        }
+
+        /**
+         * @param percentile between 0 and 1
+         * @return latency in virtual microseconds, nearest rank
+         */
+        public long getLatencyPercentile(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile * sortedLatencies.length);
+            return sortedLatencies[Math.min(sortedLatencies.length - 1, Math.max(0, rank - 1))];
+        }
+
+        public int getPeakRegistrySize() {
+            return peakRegistrySize;
+        }
+
+        public long getAllocatedBytesPerRequest() {
+            return allocatedBytesPerRequest;
+        }
+    }
+}
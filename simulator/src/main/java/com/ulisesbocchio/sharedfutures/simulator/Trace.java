@@ -0,0 +1,137 @@
+package com.ulisesbocchio.sharedfutures.simulator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Arrivals replayed by {@link SharedFuturesSimulator}, sorted by arrival time. Recorded traces are read from CSV
+ * files, synthetic ones generated from a seed, so the same inputs always produce the same trace.
+ *
+ * @author ulisesbocchio
+ */
+public final class Trace {
+
+    private final String description;
+    private final List<Arrival> arrivals;
+
+    public Trace(String description, List<Arrival> arrivals) {
+        List<Arrival> sorted = new ArrayList<>(arrivals);
+        sorted.sort(Comparator.comparingLong(Arrival::getAtMicros));
+        this.description = description;
+        this.arrivals = Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * Reads a recorded trace with a {@code at_ms,method,args,latency_ms} line per call. The latency is optional and
+     * sampled from the distribution when missing; lines starting with {@code #} and a header line are skipped, and
+     * arguments containing commas are kept whole when the latency is given.
+     */
+    public static Trace read(Path file, LatencyDistribution latency, long seed) throws IOException {
+        Random random = new Random(seed);
+        List<Arrival> arrivals = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#") || (number == 1 && line.startsWith("at_ms"))) {
+                    continue;
+                }
+                arrivals.add(parse(line, number, latency, random));
+            }
+        }
+        return new Trace(String.format(Locale.ROOT, "%s, %d calls, missing latencies seeded with %d", file, arrivals.size(), seed), arrivals);
+    }
+
+    private static Arrival parse(String line, int number, LatencyDistribution latency, Random random) {
+        int first = line.indexOf(',');
+        int second = first < 0 ? -1 : line.indexOf(',', first + 1);
+        if (second < 0) {
+            throw new IllegalArgumentException(String.format("Line %d: expected at_ms,method,args[,latency_ms] but got: %s", number, line));
+        }
+        try {
+            long atMicros = Math.round(Double.parseDouble(line.substring(0, first).trim()) * 1000);
+            String method = line.substring(first + 1, second).trim();
+            String rest = line.substring(second + 1);
+            int last = rest.lastIndexOf(',');
+            if (last >= 0 && isNumber(rest.substring(last + 1))) {
+                return new Arrival(atMicros, method, rest.substring(0, last).trim(),
+                        Math.round(Double.parseDouble(rest.substring(last + 1).trim()) * 1000));
+            }
+            return new Arrival(atMicros, method, rest.trim(), latency.sampleMicros(random));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Line %d: invalid arrival time in: %s", number, line), e);
+        }
+    }
+
+    private static boolean isNumber(String value) {
+        String trimmed = value.trim();
+        if (trimmed.isEmpty()) {
+            return false;
+        }
+        try {
+            Double.parseDouble(trimmed);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Generates Poisson arrivals whose arguments follow a Zipf distribution, the usual shape of key popularity, spread
+     * evenly across methods.
+     *
+     * @param requests      number of calls
+     * @param ratePerSecond average calls per second
+     * @param keys          distinct arguments per method
+     * @param zipfExponent  skew of the argument popularity, 0 for uniform, around 1 for typical hot keys
+     */
+    public static Trace synthetic(int requests, double ratePerSecond, int methods, int keys, double zipfExponent,
+                                  LatencyDistribution latency, long seed) {
+        Random random = new Random(seed);
+        double[] cdf = zipfCdf(keys, zipfExponent);
+        List<Arrival> arrivals = new ArrayList<>(requests);
+        double atMicros = 0;
+        for (int i = 0; i < requests; i++) {
+            atMicros += -Math.log(1 - random.nextDouble()) * 1000000 / ratePerSecond;
+            int key = Arrays.binarySearch(cdf, random.nextDouble());
+            key = key < 0 ? -key - 1 : key;
+            arrivals.add(new Arrival((long) atMicros, "method" + random.nextInt(Math.max(1, methods)),
+                    "key" + Math.min(key, cdf.length - 1), latency.sampleMicros(random)));
+        }
+        return new Trace(String.format(Locale.ROOT, "synthetic, %d calls at %.0f/s, %d methods, %d keys, zipf %.2f, seed %d",
+                requests, ratePerSecond, methods, keys, zipfExponent, seed), arrivals);
+    }
+
+    private static double[] zipfCdf(int keys, double exponent) {
+        double[] cdf = new double[Math.max(1, keys)];
+        double sum = 0;
+        for (int i = 0; i < cdf.length; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < cdf.length; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public List<Arrival> getArrivals() {
+        return arrivals;
+    }
+}
@@ -0,0 +1,54 @@
+package com.ulisesbocchio.sharedfutures.simulator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * @author ulisesbocchio
+ */
+public class SharedFuturesSimulatorTest {
+
+    @Test
+    public void testOverlappingCallsCoalesce() {
+        Trace trace = new Trace("test", Arrays.asList(
+                new Arrival(0, "get", "1", 20000),
+                new Arrival(5000, "get", "1", 20000),
+                new Arrival(10000, "get", "2", 20000),
+                new Arrival(30000, "get", "1", 20000)));
+        SimulationReport report = new SharedFuturesSimulator(0).simulate(trace);
+        Assert.assertEquals(4, report.getDirect().getBackendCalls());
+        Assert.assertEquals(3, report.getShared().getBackendCalls());
+        Assert.assertEquals(0.25, report.getBackendCallsSaved(), 0.0001);
+        Assert.assertEquals(2, report.getShared().getPeakRegistrySize());
+        Assert.assertEquals(15000, report.getShared().getLatencyPercentile(0));
+        Assert.assertEquals(20000, report.getShared().getLatencyPercentile(1));
+    }
+
+    @Test
+    public void testSameSeedSameReport() {
+        LatencyDistribution latency = LatencyDistribution.logNormal(20, 200);
+        SimulationReport first = new SharedFuturesSimulator(0).simulate(Trace.synthetic(2000, 1000, 2, 100, 1, latency, 7));
+        SimulationReport second = new SharedFuturesSimulator(0).simulate(Trace.synthetic(2000, 1000, 2, 100, 1, latency, 7));
+        Assert.assertEquals(first.getDirect().getBackendCalls(), second.getDirect().getBackendCalls());
+        Assert.assertEquals(first.getShared().getBackendCallsPerMethod(), second.getShared().getBackendCallsPerMethod());
+        Assert.assertEquals(first.getShared().getPeakRegistrySize(), second.getShared().getPeakRegistrySize());
+        for (double percentile : new double[]{0.5, 0.99, 1}) {
+            Assert.assertEquals(first.getShared().getLatencyPercentile(percentile),
+                    second.getShared().getLatencyPercentile(percentile));
+        }
+        Assert.assertTrue(first.getShared().getBackendCalls() < first.getDirect().getBackendCalls());
+    }
+
+    @Test
+    public void testLatencyDistributionParsing() {
+        Assert.assertEquals(20000, LatencyDistribution.parse("fixed:20").sampleMicros(null));
+        Assert.assertNotNull(LatencyDistribution.parse("lognormal:20,200"));
+        try {
+            LatencyDistribution.parse("uniform:1,2");
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.ulisesbocchio.sharedfutures;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SharedFuturesRegistry} that limits the number of futures in flight, overall and per group, and that spreads
+ * its entries over independent stripes, by default one per available core rounded up to a power of two.
+ * Lookups of in-flight futures are never limited; only registering a new future needs a permit, and what happens
+ * when there is none is decided by the {@link RejectionPolicy}.
+ *
+ * @author ulisesbocchio
+ */
+public class BoundedSharedFuturesRegistry implements SharedFuturesRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BoundedSharedFuturesRegistry.class);
+
+    /**
+     * What to do when a new future would exceed a limit.
+     */
+    public enum RejectionPolicy {
+        /** Throw a {@link SharedFuturesRejectedException}. */
+        REJECT,
+        /** Execute the call without sharing it or registering it. */
+        CALLER_RUNS,
+        /** Wait up to the configured time for a permit, then reject. */
+        WAIT
+    }
+
+    private final Map<Object, InFlight>[] stripes;
+    private final int mask;
+    private final Semaphore permits;
+    private final int maxInFlightPerGroup;
+    private final Map<String, Integer> groupLimits;
+    private final Map<String, Semaphore> groupPermits = new ConcurrentHashMap<>();
+    private final RejectionPolicy rejectionPolicy;
+    private final long maxWaitNanos;
+
+    private BoundedSharedFuturesRegistry(Builder builder) {
+        int stripeCount = builder.stripes <= 1 ? 1 : Integer.highestOneBit(builder.stripes - 1) << 1;
+        this.stripes = newStripes(stripeCount);
+        this.mask = stripeCount - 1;
+        this.permits = builder.maxInFlight > 0 ? new Semaphore(builder.maxInFlight) : null;
+        this.maxInFlightPerGroup = builder.maxInFlightPerGroup;
+        this.groupLimits = Collections.unmodifiableMap(new HashMap<>(builder.groupLimits));
+        this.rejectionPolicy = builder.rejectionPolicy;
+        this.maxWaitNanos = builder.maxWaitNanos;
+        LOG.debug("Initialized Bounded Shared Futures Registry with {} stripes", stripeCount);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Map<Object, InFlight>[] newStripes(int count) {
+        Map<Object, InFlight>[] stripes = new Map[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ConcurrentHashMap<>();
+        }
+        return stripes;
+    }
+
+    private Map<Object, InFlight> stripe(Object key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+
+    @Override
+    public Future<?> get(Object key) {
+        return resolve(stripe(key).get(key));
+    }
+
+    @Override
+    public Future<?> put(Object key, Future<?> future) {
+        Map<Object, InFlight> stripe = stripe(key);
+        InFlight previous = stripe.put(key, new InFlight(stripe, key, null, future, null));
+        return removed(previous);
+    }
+
+    @Override
+    public Future<?> remove(Object key) {
+        return removed(stripe(key).remove(key));
+    }
+
+    @Override
+    public boolean remove(Object key, Future<?> future) {
+        Map<Object, InFlight> stripe = stripe(key);
+        InFlight inFlight = stripe.get(key);
+        if (inFlight != null && inFlight.getFuture() == future && stripe.remove(key, inFlight)) {
+            inFlight.removed();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(Object key) {
+        return stripe(key).containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Map<Object, InFlight> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    @Override
+    public Collection<InFlight> inFlight() {
+        Collection<InFlight> inFlight = new ArrayList<>();
+        for (Map<Object, InFlight> stripe : stripes) {
+            inFlight.addAll(stripe.values());
+        }
+        return inFlight;
+    }
+
+    /**
+     * @return number of futures that can still be registered before hitting the overall limit
+     */
+    public int availablePermits() {
+        return permits != null ? permits.availablePermits() : Integer.MAX_VALUE;
+    }
+
+    @Override
+    public InFlight join(Object key, String group, SharedFutureFactory factory) throws Throwable {
+        Map<Object, InFlight> stripe = stripe(key);
+        for (;;) {
+            InFlight existing = stripe.get(key);
+            if (existing == null) {
+                Semaphore groupSemaphore = getGroupPermits(group);
+                if (!acquire(groupSemaphore)) {
+                    return reject(stripe, key, group, factory);
+                }
+                if (!acquire(permits)) {
+                    release(groupSemaphore);
+                    return reject(stripe, key, group, factory);
+                }
+                InFlight inFlight = new InFlight(stripe, key, group, null, () -> {
+                    release(permits);
+                    release(groupSemaphore);
+                });
+                existing = stripe.putIfAbsent(key, inFlight);
+                if (existing == null) {
+                    Future<?> future;
+                    try {
+                        future = factory.create(inFlight);
+                    } catch (Throwable t) {
+                        if (stripe.remove(key, inFlight)) {
+                            inFlight.removed();
+                        }
+                        inFlight.fail(t);
+                        throw t;
+                    }
+                    inFlight.ready(future);
+                    return inFlight;
+                }
+                inFlight.removed();
+            }
+            if (existing.join()) {
+                return existing;
+            }
+            existing.run();
+        }
+    }
+
+    private InFlight reject(Map<Object, InFlight> stripe, Object key, String group, SharedFutureFactory factory) throws Throwable {
+        if (rejectionPolicy == RejectionPolicy.CALLER_RUNS) {
+            LOG.debug("In-flight limit reached, executing without sharing key: {}", key);
+            InFlight unshared = new InFlight(stripe, key, group, null, null);
+            unshared.ready(factory.create(unshared));
+            return unshared;
+        }
+        throw new SharedFuturesRejectedException(
+                String.format("In-flight limit reached for key: %s of group: %s", key, group));
+    }
+
+    private boolean acquire(Semaphore semaphore) throws InterruptedException {
+        if (semaphore == null || semaphore.tryAcquire()) {
+            return true;
+        }
+        return rejectionPolicy == RejectionPolicy.WAIT && semaphore.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static void release(Semaphore semaphore) {
+        if (semaphore != null) {
+            semaphore.release();
+        }
+    }
+
+    private Semaphore getGroupPermits(String group) {
+        if (group == null) {
+            return null;
+        }
+        Semaphore semaphore = groupPermits.get(group);
+        if (semaphore == null) {
+            int limit = groupLimits.getOrDefault(group, maxInFlightPerGroup);
+            if (limit <= 0) {
+                return null;
+            }
+            semaphore = groupPermits.computeIfAbsent(group, g -> new Semaphore(limit));
+        }
+        return semaphore;
+    }
+
+    private Future<?> removed(InFlight inFlight) {
+        if (inFlight == null) {
+            return null;
+        }
+        inFlight.removed();
+        return inFlight.await();
+    }
+
+    private Future<?> resolve(InFlight inFlight) {
+        return inFlight != null ? inFlight.await() : null;
+    }
+
+    public static class Builder {
+        private int stripes = Runtime.getRuntime().availableProcessors();
+        private int maxInFlight;
+        private int maxInFlightPerGroup;
+        private final Map<String, Integer> groupLimits = new HashMap<>();
+        private RejectionPolicy rejectionPolicy = RejectionPolicy.REJECT;
+        private long maxWaitNanos;
+
+        /**
+         * Number of stripes, rounded up to a power of two. Defaults to the number of available processors.
+         */
+        public Builder stripes(int stripes) {
+            this.stripes = stripes;
+            return this;
+        }
+
+        /**
+         * Maximum number of futures in flight overall, zero or less for no limit.
+         */
+        public Builder maxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * Maximum number of futures in flight for each group without a specific limit, zero or less for no limit.
+         */
+        public Builder maxInFlightPerGroup(int maxInFlightPerGroup) {
+            this.maxInFlightPerGroup = maxInFlightPerGroup;
+            return this;
+        }
+
+        /**
+         * Maximum number of futures in flight for a group, like {@code com.example.ProductService#getProduct(String)}.
+         */
+        public Builder maxInFlight(String group, int maxInFlight) {
+            this.groupLimits.put(group, maxInFlight);
+            return this;
+        }
+
+        public Builder rejectionPolicy(RejectionPolicy rejectionPolicy) {
+            this.rejectionPolicy = rejectionPolicy;
+            return this;
+        }
+
+        /**
+         * Time to wait for a permit with {@link RejectionPolicy#WAIT}.
+         */
+        public Builder maxWait(long time, TimeUnit unit) {
+            this.maxWaitNanos = unit.toNanos(time);
+            return this;
+        }
+
+        public BoundedSharedFuturesRegistry build() {
+            return new BoundedSharedFuturesRegistry(this);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.ulisesbocchio.sharedfutures;
+
+import com.ulisesbocchio.sharedfutures.SharedFuturesRegistry.InFlight;
+import com.ulisesbocchio.sharedfutures.adapter.FutureAdapter;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * Decides which threads complete the callers' views of a shared future, and so run their dependent stages.
+ * {@link #DIRECT} completes them on the thread completing the shared future, usually an I/O thread of the client it
+ * comes from, which then runs the continuations of every caller one after the other. {@link #executor(Executor)}
+ * hands each view to an executor instead, and {@link #fanOut(Executor, int)} gathers the views of the shared future
+ * and hands them to an executor in batches, so the completing thread only submits a few tasks however many callers
+ * wait on a hot key. Views of a shared future that already completed are completed by their caller right away.
+ *
+ * @author ulisesbocchio
+ */
+public abstract class CompletionDispatcher {
+
+    public static final CompletionDispatcher DIRECT = new CompletionDispatcher() {
+        @Override
+        public void dispatch(InFlight inFlight, Future<Object> sharedFuture, FutureAdapter adapter,
+                             BiConsumer<Object, Throwable> completion) {
+            adapter.whenComplete(sharedFuture, completion);
+        }
+    };
+
+    /**
+     * @param executor executor every view is completed on, rejected completions run on the completing thread
+     */
+    public static CompletionDispatcher executor(Executor executor) {
+        return new CompletionDispatcher() {
+            @Override
+            public void dispatch(InFlight inFlight, Future<Object> sharedFuture, FutureAdapter adapter,
+                                 BiConsumer<Object, Throwable> completion) {
+                if (sharedFuture.isDone()) {
+                    adapter.whenComplete(sharedFuture, completion);
+                } else {
+                    adapter.whenComplete(sharedFuture, (value, failure) ->
+                            execute(executor, () -> completion.accept(value, failure)));
+                }
+            }
+        };
+    }
+
+    /**
+     * @param executor  executor the batches of views are completed on, rejected batches run on the completing thread
+     * @param batchSize views completed by each task, in the order their callers joined
+     */
+    public static CompletionDispatcher fanOut(Executor executor, int batchSize) {
+        int size = Math.max(1, batchSize);
+        return new CompletionDispatcher() {
+            @Override
+            public void dispatch(InFlight inFlight, Future<Object> sharedFuture, FutureAdapter adapter,
+                                 BiConsumer<Object, Throwable> completion) {
+                if (sharedFuture.isDone()) {
+                    adapter.whenComplete(sharedFuture, completion);
+                    return;
+                }
+                Waiters created = new Waiters(executor, size);
+                Waiters waiters = inFlight.attachCompletions(created);
+                if (waiters == created) {
+                    adapter.whenComplete(sharedFuture, waiters);
+                }
+                if (!waiters.add(completion)) {
+                    adapter.whenComplete(sharedFuture, completion);
+                }
+            }
+        };
+    }
+
+    /**
+     * Completes a view of the shared future of an entry with the outcome of the shared future, once it completes.
+     *
+     * @param adapter    adapter of the shared future
+     * @param completion completes the view, given the value or failure of the shared future
+     */
+    public abstract void dispatch(InFlight inFlight, Future<Object> sharedFuture, FutureAdapter adapter,
+                                  BiConsumer<Object, Throwable> completion);
+
+    private static void execute(Executor executor, Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    /**
+     * Lock free stack of the completions of the views of a shared future, drained once when it completes.
+     */
+    private static final class Waiters implements BiConsumer<Object, Throwable> {
+
+        private static final Node DRAINED = new Node(null, null, 0);
+
+        private final Executor executor;
+        private final int batchSize;
+        private final AtomicReference<Node> head = new AtomicReference<>();
+
+        Waiters(Executor executor, int batchSize) {
+            this.executor = executor;
+            this.batchSize = batchSize;
+        }
+
+        /**
+         * @return false if the shared future already completed and the completion must be run by the caller
+         */
+        boolean add(BiConsumer<Object, Throwable> completion) {
+            for (;;) {
+                Node current = head.get();
+                if (current == DRAINED) {
+                    return false;
+                }
+                if (head.compareAndSet(current, new Node(completion, current, current == null ? 1 : current.count + 1))) {
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public void accept(Object value, Throwable failure) {
+            Node node = head.getAndSet(DRAINED);
+            if (node == null) {
+                return;
+            }
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            BiConsumer<Object, Throwable>[] completions = new BiConsumer[node.count];
+            for (int i = completions.length - 1; node != null; node = node.next, i--) {
+                completions[i] = node.completion;
+            }
+            for (int from = 0; from < completions.length; from += batchSize) {
+                int start = from;
+                int end = Math.min(completions.length, from + batchSize);
+                execute(executor, () -> {
+                    for (int i = start; i < end; i++) {
+                        completions[i].accept(value, failure);
+                    }
+                });
+            }
+        }
+    }
+
+    private static final class Node {
+        private final BiConsumer<Object, Throwable> completion;
+        private final Node next;
+        private final int count;
+
+        Node(BiConsumer<Object, Throwable> completion, Node next, int count) {
+            this.completion = completion;
+            this.next = next;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.ulisesbocchio.sharedfutures;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+/**
+ * Unbounded {@link SharedFuturesRegistry} backed by a single {@link ConcurrentHashMap}.
+ *
+ * @author ulisesbocchio
+ */
+public class DefaultSharedFuturesRegistry implements SharedFuturesRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DefaultSharedFuturesRegistry.class);
+
+    Map<Object, InFlight> registry;
+
+    public DefaultSharedFuturesRegistry() {
+        this.registry = new ConcurrentHashMap<>();
+        LOG.debug("Initialized Shared Futures Registry");
+    }
+
+    /**
+     * @param initialCapacity futures expected in flight at once, to size short-lived registries such as the ones of
+     *                        {@link SharedFuturesRequestScope}
+     */
+    public DefaultSharedFuturesRegistry(int initialCapacity) {
+        this.registry = new ConcurrentHashMap<>(initialCapacity);
+    }
+
+    @Override
+    public Future<?> get(Object key) {
+        return resolve(registry.get(key));
+    }
+
+    @Override
+    public Future<?> put(Object key, Future<?> future) {
+        return resolve(registry.put(key, new InFlight(registry, key, null, future, null)));
+    }
+
+    @Override
+    public Future<?> remove(Object key) {
+        return resolve(registry.remove(key));
+    }
+
+    @Override
+    public boolean remove(Object key, Future<?> future) {
+        InFlight inFlight = registry.get(key);
+        return inFlight != null && inFlight.getFuture() == future && registry.remove(key, inFlight);
+    }
+
+    @Override
+    public boolean contains(Object key) {
+        return registry.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return registry.size();
+    }
+
+    @Override
+    public Collection<InFlight> inFlight() {
+        return Collections.unmodifiableCollection(registry.values());
+    }
+
+    @Override
+    public InFlight join(Object key, String group, SharedFutureFactory factory) throws Throwable {
+        for (;;) {
+            InFlight existing = registry.get(key);
+            if (existing == null) {
+                InFlight inFlight = new InFlight(registry, key, group, null, null);
+                existing = registry.putIfAbsent(key, inFlight);
+                if (existing == null) {
+                    Future<?> future;
+                    try {
+                        future = factory.create(inFlight);
+                    } catch (Throwable t) {
+                        registry.remove(key, inFlight);
+                        inFlight.fail(t);
+                        throw t;
+                    }
+                    inFlight.ready(future);
+                    return inFlight;
+                }
+            }
+            if (existing.join()) {
+                return existing;
+            }
+            existing.run();
+        }
+    }
+
+    private Future<?> resolve(InFlight inFlight) {
+        return inFlight != null ? inFlight.await() : null;
+    }
+}
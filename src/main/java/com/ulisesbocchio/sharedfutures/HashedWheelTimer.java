@@ -0,0 +1,222 @@
+package com.ulisesbocchio.sharedfutures;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Timer for large numbers of short lived timeouts that are mostly cancelled before they expire, like the timeouts of
+ * in-flight shared futures. A single daemon thread, started on first use, advances a wheel of buckets one tick at a
+ * time and runs the tasks of the bucket whose deadline has passed, so scheduling and cancelling are constant time and
+ * there is no thread per timeout. Timeouts fire with tick precision and tasks run on the timer thread, so they must be
+ * short and non blocking.
+ *
+ * @author ulisesbocchio
+ */
+public class HashedWheelTimer implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    /**
+     * A scheduled task.
+     */
+    public interface Timeout {
+        /**
+         * @return false if the task already ran or was cancelled
+         */
+        boolean cancel();
+
+        boolean isExpired();
+
+        boolean isCancelled();
+    }
+
+    private final long tickNanos;
+    private final Queue<WheelTimeout>[] wheel;
+    private final int mask;
+    private final Queue<WheelTimeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final String threadName;
+    private volatile Thread worker;
+    private volatile long startNanos;
+    private volatile boolean stopped;
+
+    /**
+     * Timer with a 1 millisecond tick and 512 buckets.
+     */
+    public HashedWheelTimer() {
+        this(1, TimeUnit.MILLISECONDS, 512);
+    }
+
+    /**
+     * @param tickDuration  precision of the timer
+     * @param ticksPerWheel number of buckets, rounded up to a power of two
+     */
+    public HashedWheelTimer(long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        this(tickDuration, unit, ticksPerWheel, "shared-futures-timer");
+    }
+
+    public HashedWheelTimer(long tickDuration, TimeUnit unit, int ticksPerWheel, String threadName) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive: " + tickDuration);
+        }
+        int buckets = ticksPerWheel <= 1 ? 1 : Integer.highestOneBit(ticksPerWheel - 1) << 1;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheel = newWheel(buckets);
+        this.mask = buckets - 1;
+        this.threadName = threadName;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Queue<WheelTimeout>[] newWheel(int buckets) {
+        Queue<WheelTimeout>[] wheel = new Queue[buckets];
+        for (int i = 0; i < buckets; i++) {
+            wheel[i] = new ArrayDeque<>();
+        }
+        return wheel;
+    }
+
+    /**
+     * Schedules a task to run once after the given delay.
+     *
+     * @throws IllegalStateException if the timer was closed
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        if (stopped) {
+            throw new IllegalStateException("Timer already closed");
+        }
+        start();
+        WheelTimeout timeout = new WheelTimeout(task, System.nanoTime() - startNanos + unit.toNanos(Math.max(0, delay)));
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Stops the timer thread. Pending timeouts never run.
+     */
+    @Override
+    public void close() {
+        stopped = true;
+        Thread worker = this.worker;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private void start() {
+        if (worker == null) {
+            synchronized (this) {
+                if (worker == null) {
+                    startNanos = System.nanoTime();
+                    Thread thread = new Thread(this::run, threadName);
+                    thread.setDaemon(true);
+                    thread.start();
+                    worker = thread;
+                    LOG.debug("Started {} with {} buckets of {} ns", threadName, wheel.length, tickNanos);
+                }
+            }
+        }
+    }
+
+    private void run() {
+        long tick = 0;
+        while (!stopped) {
+            long sleepNanos = startNanos + (tick + 1) * tickNanos - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (stopped) {
+                        break;
+                    }
+                }
+                continue;
+            }
+            transferScheduled(tick);
+            expire(wheel[(int) (tick & mask)]);
+            tick++;
+        }
+        LOG.debug("Stopped {}", threadName);
+    }
+
+    private void transferScheduled(long tick) {
+        WheelTimeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            long deadlineTick = Math.max(timeout.deadlineNanos / tickNanos, tick);
+            timeout.remainingRounds = (deadlineTick - tick) / wheel.length;
+            wheel[(int) (deadlineTick & mask)].add(timeout);
+        }
+    }
+
+    private void expire(Queue<WheelTimeout> bucket) {
+        Iterator<WheelTimeout> timeouts = bucket.iterator();
+        while (timeouts.hasNext()) {
+            WheelTimeout timeout = timeouts.next();
+            if (timeout.isCancelled()) {
+                timeouts.remove();
+            } else if (timeout.remainingRounds <= 0) {
+                timeouts.remove();
+                timeout.expire();
+            } else {
+                timeout.remainingRounds--;
+            }
+        }
+    }
+
+    private static final class WheelTimeout implements Timeout {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<WheelTimeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(WheelTimeout.class, "state");
+
+        private final long deadlineNanos;
+        private volatile Runnable task;
+        private volatile int state = PENDING;
+        private long remainingRounds;
+
+        WheelTimeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (STATE.compareAndSet(this, PENDING, CANCELLED)) {
+                task = null;
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        void expire() {
+            Runnable task = this.task;
+            if (STATE.compareAndSet(this, PENDING, EXPIRED)) {
+                this.task = null;
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    LOG.warn("Timeout task failed", t);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.ulisesbocchio.sharedfutures;
+
+import com.ulisesbocchio.sharedfutures.SharedFuturesRegistry.InFlight;
+import com.ulisesbocchio.sharedfutures.adapter.FutureAdapter;
+import com.ulisesbocchio.sharedfutures.adapter.FutureAdapters;
+import com.ulisesbocchio.sharedfutures.metrics.NoopSharedFuturesMetrics;
+import com.ulisesbocchio.sharedfutures.metrics.SharedFuturesMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Future;
+
+/**
+ * Shares future returning calls through a {@link SharedFuturesRegistry} without an aspect. Used by the wrappers
+ * generated by {@code SharedFuturesProcessor}, which build a typed key for every call and pass the adapter of the
+ * method's return type, resolved once, so a call costs a registry lookup and nothing else.
+ * Every caller gets its own view of the shared future, see {@link #view(InFlight, FutureAdapter, FutureAdapters)}.
+ *
+ * @author ulisesbocchio
+ */
+public class SharedFutureInvoker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedFutureInvoker.class);
+
+    /**
+     * The call a shared future comes from, usually the wrapped method.
+     */
+    @FunctionalInterface
+    public interface Invocation<F extends Future<?>> {
+        F proceed() throws Throwable;
+    }
+
+    private final SharedFuturesRegistry registry;
+    private final FutureAdapters futureAdapters;
+    private SharedFuturesMetrics metrics = NoopSharedFuturesMetrics.INSTANCE;
+
+    public SharedFutureInvoker(SharedFuturesRegistry registry) {
+        this(registry, FutureAdapters.getDefault());
+    }
+
+    public SharedFutureInvoker(SharedFuturesRegistry registry, FutureAdapters futureAdapters) {
+        this.registry = registry;
+        this.futureAdapters = futureAdapters;
+        LOG.debug("Initialized Shared Future Invoker");
+    }
+
+    public void setMetrics(SharedFuturesMetrics metrics) {
+        this.metrics = metrics != null ? metrics : NoopSharedFuturesMetrics.INSTANCE;
+    }
+
+    /**
+     * @param returnType declared return type of a shared method
+     * @return the adapter of the type, or null if no adapter supports it and calls of the method can't be shared
+     */
+    public FutureAdapter getAdapter(Class<?> returnType) {
+        FutureAdapter adapter = futureAdapters.findAdapter(returnType);
+        if (adapter == null) {
+            LOG.warn("No Future Adapter for {}, calls returning it won't be shared", returnType.getName());
+        }
+        return adapter;
+    }
+
+    /**
+     * Joins the future in flight for the key, or proceeds with the invocation and shares the future it returns.
+     * Whatever the invocation throws is rethrown as is, so wrappers declare the same exceptions as the method.
+     *
+     * @param name    name of the method in logs and metrics, like {@code com.example.ProductService#getProduct(String)}
+     * @param adapter adapter of the method's return type, from {@link #getAdapter(Class)}, if null the invocation
+     *                proceeds without sharing
+     * @return a view of the shared future, of the type the method returns
+     */
+    @SuppressWarnings("unchecked")
+    public <F extends Future<?>> F invoke(Object key, String name, FutureAdapter adapter, Invocation<F> invocation) {
+        if (adapter == null) {
+            try {
+                return invocation.proceed();
+            } catch (Throwable t) {
+                throw SharedFutureInvoker.<RuntimeException>rethrow(t);
+            }
+        }
+        boolean[] created = new boolean[1];
+        InFlight inFlight;
+        try {
+            inFlight = registry.join(key, name, removeOnCompletion -> {
+                LOG.debug("Storing future for shared used with key: {}", key);
+                Future<Object> future = (Future<Object>) invocation.proceed();
+                created[0] = true;
+                metrics.execution(name);
+                return futureAdapters.getAdapter(adapter, future).dependent(future, () -> {
+                    removeOnCompletion.run();
+                    metrics.completion(name, System.nanoTime() - removeOnCompletion.getStartNanos(), removeOnCompletion.getWaiters());
+                    LOG.debug("Removing Shared Future after completion with key: {}", key);}, future::cancel);
+            });
+        } catch (Throwable t) {
+            throw SharedFutureInvoker.<RuntimeException>rethrow(t);
+        }
+        if (!created[0]) {
+            metrics.sharedHit(name);
+            LOG.debug("Found existing Shared Future in registry with key: {}", key);
+        }
+        return (F) view(inFlight, adapter, futureAdapters);
+    }
+
+    /**
+     * Every caller gets its own view of the shared future, of the type the method returns. Cancelling a view only
+     * withdraws that caller's interest; the shared future is cancelled, and its entry dropped, when the last interested
+     * caller cancels. The shared future may be of another type than the view, like a result received from another node.
+     *
+     * @param adapter adapter of the method's return type
+     */
+    public static Future<?> view(InFlight inFlight, FutureAdapter adapter, FutureAdapters futureAdapters) {
+        return view(inFlight, adapter, futureAdapters, CompletionDispatcher.DIRECT);
+    }
+
+    /**
+     * Same as {@link #view(InFlight, FutureAdapter, FutureAdapters)}, with the view completed through the dispatcher.
+     */
+    @SuppressWarnings("unchecked")
+    public static Future<?> view(InFlight inFlight, FutureAdapter adapter, FutureAdapters futureAdapters,
+                                 CompletionDispatcher dispatcher) {
+        Future<Object> sharedFuture = (Future<Object>) inFlight.await();
+        Future<Object> view = adapter.incomplete(mayInterruptIfRunning -> {
+            if (inFlight.release()) {
+                LOG.debug("All callers cancelled, cancelling Shared Future with key: {}", inFlight.getKey());
+                inFlight.run();
+                sharedFuture.cancel(mayInterruptIfRunning);
+            }
+        });
+        dispatcher.dispatch(inFlight, sharedFuture, futureAdapters.getAdapter(adapter, sharedFuture), (value, failure) ->
+                adapter.complete(view, value, failure, sharedFuture.isCancelled()));
+        return view;
+    }
+
+    /**
+     * Rethrows checked exceptions without wrapping them; the invocation can only throw what the method declares.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends Throwable> T rethrow(Throwable t) throws T {
+        throw (T) t;
+    }
+}
@@ -0,0 +1,16 @@
+package com.ulisesbocchio.sharedfutures;
+
+/**
+ * Fails the calls of a shared future method while its circuit is open, without executing it. The cause is the failure
+ * that opened the circuit.
+ *
+ * @author ulisesbocchio
+ */
+public class SharedFuturesCircuitOpenException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public SharedFuturesCircuitOpenException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,39 +1,247 @@
 package com.ulisesbocchio.sharedfutures;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
+ * Holds the futures being shared while they are in flight, indexed by key.
+ *
  * @author ulisesbocchio
  */
-public class SharedFuturesRegistry {
+public interface SharedFuturesRegistry {
 
-    private static final Logger LOG = LoggerFactory.getLogger(SharedFuturesRegistry.class);
+    Future<?> get(Object key);
 
-    public SharedFuturesRegistry() {
-        LOG.debug("Initialized Shared Futures Registry");
-    }
+    Future<?> put(Object key, Future<?> future);
+
+    Future<?> remove(Object key);
 
-    Map<String, Future<?>> registry = new ConcurrentHashMap<>();
+    /**
+     * Removes the entry for the given key only if it is currently mapped to the given future.
+     */
+    boolean remove(Object key, Future<?> future);
 
-    public Future<?> get(String key) {
-        return registry.get(key);
+    boolean contains(Object key);
+
+    int size();
+
+    /**
+     * Weakly consistent view of the entries in flight, for introspection. Reading it takes no locks and never blocks
+     * the registry; entries registered or removed while it is read may or may not show up.
+     *
+     * @return the entries in flight, empty for registries that can't list them
+     */
+    default Collection<InFlight> inFlight() {
+        return Collections.emptyList();
     }
 
-    public Future<?> put(String key, Future<?> future) {
-        return registry.put(key, future);
+    /**
+     * Single-flight lookup. Returns the future currently registered for the given key or, if there is none, invokes
+     * the factory exactly once and registers the future it produces. Concurrent callers for the same key that arrive
+     * while the factory is still running wait for it to return and get the same future.
+     * The factory receives the registry entry, which it must run once the produced future completes; running it
+     * removes the entry only if the key still maps to it, so a late completion never evicts a newer future.
+     *
+     * @param group name of the group the key belongs to, usually the shared future method, or null
+     * @return the shared future for the key
+     * @throws Throwable whatever the factory throws; the key is released so a later call can retry
+     */
+    default Future<?> computeIfAbsent(Object key, String group, SharedFutureFactory factory) throws Throwable {
+        return join(key, group, factory).await();
     }
 
-    public Future<?> remove(String key) {
-        return registry.remove(key);
+    default Future<?> computeIfAbsent(Object key, SharedFutureFactory factory) throws Throwable {
+        return computeIfAbsent(key, null, factory);
     }
 
-    public boolean contains(String key) {
-        return registry.containsKey(key);
+    /**
+     * Same as {@link #computeIfAbsent(Object, String, SharedFutureFactory)} but returns the registry entry, with the
+     * caller counted as interested in it. Entries whose interested callers have all {@link InFlight#release()
+     * released} them are never joined; they are dropped and a new future is created instead.
+     */
+    InFlight join(Object key, String group, SharedFutureFactory factory) throws Throwable;
+
+    /**
+     * Creates the future to be shared for a key.
+     */
+    @FunctionalInterface
+    interface SharedFutureFactory {
+        Future<?> create(InFlight removeOnCompletion) throws Throwable;
     }
 
+    /**
+     * A registry entry. Registered under its key as a placeholder while the factory runs and holding the shared
+     * future once it is available. Running it removes it from the registry if its key still maps to it.
+     */
+    final class InFlight implements Runnable {
+
+        private static final AtomicIntegerFieldUpdater<InFlight> WAITERS =
+                AtomicIntegerFieldUpdater.newUpdater(InFlight.class, "waiters");
+        private static final AtomicIntegerFieldUpdater<InFlight> INTEREST =
+                AtomicIntegerFieldUpdater.newUpdater(InFlight.class, "interest");
+        private static final AtomicIntegerFieldUpdater<InFlight> REMOVED =
+                AtomicIntegerFieldUpdater.newUpdater(InFlight.class, "removed");
+        private static final AtomicReferenceFieldUpdater<InFlight, Object> COMPLETIONS =
+                AtomicReferenceFieldUpdater.newUpdater(InFlight.class, Object.class, "completions");
+
+        private final Map<Object, InFlight> owner;
+        private final Object key;
+        private final String group;
+        private final Runnable onRemoval;
+        private final long startNanos = System.nanoTime();
+        private volatile Future<?> future;
+        private volatile Throwable failure;
+        private volatile int waiters;
+        private volatile int interest = 1;
+        private volatile int removed;
+        private volatile Object completions;
+
+        /**
+         * @param owner     map the entry is registered in
+         * @param onRemoval run once when the entry leaves the map, may be null
+         */
+        public InFlight(Map<Object, InFlight> owner, Object key, String group, Future<?> future, Runnable onRemoval) {
+            this.owner = owner;
+            this.key = key;
+            this.group = group;
+            this.future = future;
+            this.onRemoval = onRemoval;
+        }
+
+        public Object getKey() {
+            return key;
+        }
+
+        public String getGroup() {
+            return group;
+        }
+
+        /**
+         * @return {@link System#nanoTime()} at the moment the entry was registered
+         */
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        /**
+         * @return number of callers that were handed the future besides the one that created it
+         */
+        public int getWaiters() {
+            return waiters;
+        }
+
+        /**
+         * @return the shared future, or null while it is being created
+         */
+        public Future<?> getFuture() {
+            return future;
+        }
+
+        @Override
+        public void run() {
+            if (owner.remove(key, this)) {
+                removed();
+            }
+        }
+
+        /**
+         * Must be called by the registry whenever it drops this entry from its map.
+         */
+        public void removed() {
+            if (onRemoval != null && REMOVED.compareAndSet(this, 0, 1)) {
+                onRemoval.run();
+            }
+        }
+
+        /**
+         * Counts the caller as a waiter interested in the shared future, unless every interested caller has already
+         * released it. The creator of the entry is counted as interested from the start.
+         *
+         * @return false if the entry was abandoned and must not be shared anymore
+         */
+        public boolean join() {
+            for (;;) {
+                int current = interest;
+                if (current == 0) {
+                    return false;
+                }
+                if (INTEREST.compareAndSet(this, current, current + 1)) {
+                    WAITERS.incrementAndGet(this);
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Withdraws the interest of one caller.
+         *
+         * @return true if it was the last interested caller, meaning the entry is abandoned
+         */
+        public boolean release() {
+            return INTEREST.decrementAndGet(this) == 0;
+        }
+
+        /**
+         * @return true once every interested caller has released the entry
+         */
+        public boolean isAbandoned() {
+            return interest == 0;
+        }
+
+        /**
+         * Returns the shared future, waiting for its creation if needed.
+         *
+         * @throws IllegalStateException if the creation failed
+         */
+        public Future<?> await() {
+            Future<?> current = future;
+            if (current != null) {
+                return current;
+            }
+            boolean interrupted = false;
+            synchronized (this) {
+                while (future == null && failure == null) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (future == null) {
+                throw new IllegalStateException("Shared future creation failed", failure);
+            }
+            return future;
+        }
+
+        /**
+         * Attaches the completions of the callers' views gathered by a {@link CompletionDispatcher}, once per entry.
+         *
+         * @return the completions attached first, which every view must use
+         */
+        @SuppressWarnings("unchecked")
+        <T> T attachCompletions(T completions) {
+            if (COMPLETIONS.compareAndSet(this, null, completions)) {
+                return completions;
+            }
+            return (T) this.completions;
+        }
+
+        public synchronized void ready(Future<?> future) {
+            this.future = future;
+            notifyAll();
+        }
+
+        public synchronized void fail(Throwable failure) {
+            this.failure = failure;
+            notifyAll();
+        }
+    }
 }
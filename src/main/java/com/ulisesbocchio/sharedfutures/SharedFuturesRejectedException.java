@@ -0,0 +1,17 @@
+package com.ulisesbocchio.sharedfutures;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Thrown when a bounded {@link SharedFuturesRegistry} cannot take a new in-flight future.
+ *
+ * @author ulisesbocchio
+ */
+public class SharedFuturesRejectedException extends RejectedExecutionException {
+
+    private static final long serialVersionUID = 1L;
+
+    public SharedFuturesRejectedException(String message) {
+        super(message);
+    }
+}
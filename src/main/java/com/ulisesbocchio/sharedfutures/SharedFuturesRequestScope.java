@@ -0,0 +1,225 @@
+package com.ulisesbocchio.sharedfutures;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * {@link SharedFuturesScope#REQUEST} scope, sharing calls within a single logical request and never across requests.
+ * A request is begun where it enters the application, for instance in a servlet filter, and ended when it completes:
+ * <pre>
+ * try (SharedFuturesRequestScope.Request request = SharedFuturesRequestScope.begin()) {
+ *     chain.doFilter(servletRequest, servletResponse);
+ * }
+ * </pre>
+ * The request is bound to the thread that began it. Work continuing on other threads, executor tasks or
+ * {@code CompletableFuture} stages completed elsewhere, joins the same request when wrapped with one of the
+ * {@code wrap*} methods, which capture the request current when they are called. Calls made without a request, or
+ * after it ended, are executed without sharing.
+ * <p>
+ * Each request gets its own small registry, created on its first shared call and released when the request ends.
+ *
+ * @author ulisesbocchio
+ */
+public final class SharedFuturesRequestScope implements SharedFuturesScope {
+
+    public static final SharedFuturesRequestScope INSTANCE = new SharedFuturesRequestScope();
+
+    private static final int REGISTRY_INITIAL_CAPACITY = 4;
+    private static final ThreadLocal<Request> CURRENT = new ThreadLocal<>();
+
+    private SharedFuturesRequestScope() {
+    }
+
+    @Override
+    public String getName() {
+        return REQUEST;
+    }
+
+    @Override
+    public SharedFuturesRegistry getRegistry() {
+        Request request = CURRENT.get();
+        return request != null ? request.getRegistry() : null;
+    }
+
+    /**
+     * Begins a request on the calling thread, nested in the current one if there is one. Closing the request ends it
+     * and restores the request that was current before.
+     */
+    public static Request begin() {
+        Request request = new Request(CURRENT.get());
+        CURRENT.set(request);
+        return request;
+    }
+
+    /**
+     * @return the request bound to the calling thread, or null if there is none
+     */
+    public static Request current() {
+        return CURRENT.get();
+    }
+
+    public static Runnable wrap(Runnable task) {
+        Request request = CURRENT.get();
+        return request != null ? request.wrap(task) : task;
+    }
+
+    public static <T> Callable<T> wrapCallable(Callable<T> task) {
+        Request request = CURRENT.get();
+        return request != null ? request.wrapCallable(task) : task;
+    }
+
+    public static <T> Supplier<T> wrapSupplier(Supplier<T> supplier) {
+        Request request = CURRENT.get();
+        return request != null ? request.wrapSupplier(supplier) : supplier;
+    }
+
+    public static <T, R> Function<T, R> wrapFunction(Function<T, R> function) {
+        Request request = CURRENT.get();
+        return request != null ? request.wrapFunction(function) : function;
+    }
+
+    /**
+     * @return an executor running every task in the current request, for instance to pass to the {@code *Async}
+     * methods of {@code CompletableFuture}, or the executor itself if there is no current request
+     */
+    public static Executor wrapExecutor(Executor executor) {
+        Request request = CURRENT.get();
+        return request != null ? request.wrapExecutor(executor) : executor;
+    }
+
+    /**
+     * A logical request, possibly spanning several threads.
+     */
+    public static final class Request implements AutoCloseable {
+        private final Request previous;
+        private final Thread owner;
+        private volatile SharedFuturesRegistry registry;
+        private volatile boolean ended;
+
+        private Request(Request previous) {
+            this.previous = previous;
+            this.owner = Thread.currentThread();
+        }
+
+        /**
+         * @return the registry of the request, created on first use, or null once the request ended
+         */
+        SharedFuturesRegistry getRegistry() {
+            SharedFuturesRegistry current = registry;
+            if (current == null && !ended) {
+                synchronized (this) {
+                    current = registry;
+                    if (current == null && !ended) {
+                        current = new DefaultSharedFuturesRegistry(REGISTRY_INITIAL_CAPACITY);
+                        registry = current;
+                    }
+                }
+            }
+            return current;
+        }
+
+        /**
+         * @return futures of the request in flight, zero once it ended
+         */
+        public int size() {
+            SharedFuturesRegistry current = registry;
+            return current != null ? current.size() : 0;
+        }
+
+        public boolean isEnded() {
+            return ended;
+        }
+
+        /**
+         * Binds the request to the calling thread until the returned attachment is closed, which restores the request
+         * that was bound before.
+         */
+        public Attachment attach() {
+            Request attached = CURRENT.get();
+            CURRENT.set(this);
+            return new Attachment(attached);
+        }
+
+        @SuppressWarnings("try")
+        public Runnable wrap(Runnable task) {
+            return () -> {
+                try (Attachment ignored = attach()) {
+                    task.run();
+                }
+            };
+        }
+
+        @SuppressWarnings("try")
+        public <T> Callable<T> wrapCallable(Callable<T> task) {
+            return () -> {
+                try (Attachment ignored = attach()) {
+                    return task.call();
+                }
+            };
+        }
+
+        @SuppressWarnings("try")
+        public <T> Supplier<T> wrapSupplier(Supplier<T> supplier) {
+            return () -> {
+                try (Attachment ignored = attach()) {
+                    return supplier.get();
+                }
+            };
+        }
+
+        @SuppressWarnings("try")
+        public <T, R> Function<T, R> wrapFunction(Function<T, R> function) {
+            return value -> {
+                try (Attachment ignored = attach()) {
+                    return function.apply(value);
+                }
+            };
+        }
+
+        public Executor wrapExecutor(Executor executor) {
+            return task -> executor.execute(wrap(task));
+        }
+
+        /**
+         * Ends the request: futures still in flight complete for the callers that joined them, but no other call
+         * shares them, and the registry of the request is released. Ends the request from any thread, and also
+         * restores the previous request when called on the thread that began it.
+         */
+        @Override
+        public void close() {
+            synchronized (this) {
+                ended = true;
+                registry = null;
+            }
+            if (Thread.currentThread() == owner && CURRENT.get() == this) {
+                if (previous != null) {
+                    CURRENT.set(previous);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * A request bound to a thread by {@link Request#attach()}.
+     */
+    public static final class Attachment implements AutoCloseable {
+        private final Request previous;
+
+        private Attachment(Request previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.ulisesbocchio.sharedfutures;
+
+/**
+ * Bounds which calls of a {@code @SharedFuture} method can share a future, selected by the method's
+ * {@code scope}. Calls are shared in the registry of the scope active when they are made, and never with calls made
+ * in another scope, so results private to a user or a request don't leak to others. Scopes are registered with the
+ * aspect by name, {@link SharedFuturesRequestScope} is always available as {@link #REQUEST}.
+ *
+ * @author ulisesbocchio
+ */
+public interface SharedFuturesScope {
+
+    /**
+     * Calls are shared with every other call of the application in the aspect's registry, the default.
+     */
+    String GLOBAL = "global";
+
+    /**
+     * Calls are shared within the current {@link SharedFuturesRequestScope.Request} only.
+     */
+    String REQUEST = "request";
+
+    String getName();
+
+    /**
+     * @return the registry of the scope active on the calling thread, or null if there is none, in which case calls
+     * are executed without sharing
+     */
+    SharedFuturesRegistry getRegistry();
+}
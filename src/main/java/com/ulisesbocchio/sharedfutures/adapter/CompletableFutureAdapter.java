@@ -0,0 +1,54 @@
+package com.ulisesbocchio.sharedfutures.adapter;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link FutureAdapter} for {@link CompletableFuture} and its subtypes. Methods declaring one of its supertypes, like a
+ * plain {@link Future}, may return futures of any type, so they aren't adapted.
+ *
+ * @author ulisesbocchio
+ */
+public class CompletableFutureAdapter implements FutureAdapter {
+
+    @Override
+    public Class<?> getFutureType() {
+        return CompletableFuture.class;
+    }
+
+    @Override
+    public <T> Future<T> incomplete(CancellationListener onCancel) {
+        return new DependentCompletableFuture<>(onCancel);
+    }
+
+    @Override
+    public <T> boolean complete(Future<T> future, T value, Throwable failure, boolean cancelled) {
+        CompletableFuture<T> dependent = (CompletableFuture<T>) future;
+        return cancelled ? dependent.completeExceptionally(new CancellationException())
+                : failure != null ? dependent.completeExceptionally(failure) : dependent.complete(value);
+    }
+
+    @Override
+    public <T> void whenComplete(Future<T> future, BiConsumer<? super T, ? super Throwable> action) {
+        ((CompletableFuture<T>) future).whenComplete(action);
+    }
+
+    private static class DependentCompletableFuture<T> extends CompletableFuture<T> {
+        private final CancellationListener onCancel;
+
+        DependentCompletableFuture(CancellationListener onCancel) {
+            this.onCancel = onCancel;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                onCancel.cancelled(mayInterruptIfRunning);
+            }
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.ulisesbocchio.sharedfutures.adapter;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+/**
+ * Teaches shared futures a {@link Future} type: how to observe the completion of its instances and how to create
+ * incomplete ones that report their own cancellation. Adapters are discovered as Spring beans or through
+ * {@link java.util.ServiceLoader} and resolved once per method from its declared return type, see
+ * {@link FutureAdapters}.
+ *
+ * @author ulisesbocchio
+ */
+public interface FutureAdapter {
+
+    /**
+     * Notified when a future created by an adapter is cancelled by its holder.
+     */
+    @FunctionalInterface
+    interface CancellationListener {
+        void cancelled(boolean mayInterruptIfRunning);
+    }
+
+    /**
+     * @return the future type handled by this adapter, like {@code CompletableFuture.class}
+     */
+    Class<?> getFutureType();
+
+    /**
+     * @param type usually the declared return type of a method
+     * @return true if futures of the given type can be observed, and futures created by
+     * {@link #incomplete(CancellationListener)} are assignable to it, so methods declaring it can be shared. By default
+     * the given type must be a subtype of {@link #getFutureType()} that an incomplete future is an instance of, so
+     * narrower types, like Guava's {@code SettableFuture}, aren't supported.
+     */
+    default boolean supports(Class<?> type) {
+        return getFutureType().isAssignableFrom(type) && type.isInstance(incomplete(mayInterruptIfRunning -> { }));
+    }
+
+    /**
+     * @param type the class of a future
+     * @return true if futures of the given class can be observed with {@link #whenComplete(Future, BiConsumer)}. By
+     * default the given class must be a subtype of {@link #getFutureType()}.
+     */
+    default boolean observes(Class<?> type) {
+        return getFutureType().isAssignableFrom(type);
+    }
+
+    /**
+     * Creates an incomplete future of the adapted type, to be completed with
+     * {@link #complete(Future, Object, Throwable, boolean)}.
+     *
+     * @param onCancel notified when the future is cancelled by its holder
+     */
+    <T> Future<T> incomplete(CancellationListener onCancel);
+
+    /**
+     * Completes a future created by {@link #incomplete(CancellationListener)}, quietly cancelling it, without
+     * notifying its listener, if the outcome is a cancellation.
+     *
+     * @return false if the future was already complete
+     */
+    <T> boolean complete(Future<T> future, T value, Throwable failure, boolean cancelled);
+
+    /**
+     * Runs the action once the future completes, with its value or its failure, a {@link CancellationException}
+     * if it was cancelled.
+     */
+    <T> void whenComplete(Future<T> future, BiConsumer<? super T, ? super Throwable> action);
+
+    /**
+     * Creates a future that completes with the outcome of the source, running an action right before, and that
+     * reports its own cancellation instead of cancelling the source. A dependent of a cancelled source is cancelled
+     * too, without reporting it.
+     *
+     * @param onCompletion run once the source completes, before the dependent does, may be null
+     * @param onCancel     notified when the dependent, and not the source, is cancelled
+     */
+    default <T> Future<T> dependent(Future<T> source, Runnable onCompletion, CancellationListener onCancel) {
+        Future<T> dependent = incomplete(onCancel);
+        whenComplete(source, (value, failure) -> {
+            if (onCompletion != null) {
+                onCompletion.run();
+            }
+            complete(dependent, value, failure, source.isCancelled());
+        });
+        return dependent;
+    }
+}
@@ -0,0 +1,134 @@
+package com.ulisesbocchio.sharedfutures.adapter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+/**
+ * Ordered set of {@link FutureAdapter FutureAdapters}: the given ones first, then the ones found through
+ * {@link ServiceLoader}, then the built in ones for {@link java.util.concurrent.CompletableFuture} and Spring's and
+ * Guava's {@code ListenableFuture}. A return type is handled by the first adapter supporting it, a future by the first
+ * adapter observing its class, and both resolutions are cached per type so callers can resolve adapters on every call
+ * without walking the list.
+ *
+ * @author ulisesbocchio
+ */
+public class FutureAdapters {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FutureAdapters.class);
+
+    private final List<FutureAdapter> adapters;
+    private final Map<Class<?>, FutureAdapter> resolved = new ConcurrentHashMap<>();
+    private final Map<Class<?>, FutureAdapter> observers = new ConcurrentHashMap<>();
+
+    /**
+     * Adapters found through {@link ServiceLoader} and the built in ones.
+     */
+    public FutureAdapters() {
+        this(Collections.emptyList());
+    }
+
+    /**
+     * @param adapters adapters taking precedence over the discovered and built in ones
+     */
+    public FutureAdapters(List<? extends FutureAdapter> adapters) {
+        List<FutureAdapter> all = new ArrayList<>(adapters);
+        for (FutureAdapter adapter : ServiceLoader.load(FutureAdapter.class, FutureAdapters.class.getClassLoader())) {
+            LOG.debug("Discovered Future Adapter {}", adapter.getClass().getName());
+            all.add(adapter);
+        }
+        all.add(new CompletableFutureAdapter());
+        all.add(new SpringListenableFutureAdapter());
+        all.add(new GuavaListenableFutureAdapter());
+        this.adapters = Collections.unmodifiableList(all);
+    }
+
+    /**
+     * @return the adapters in order of precedence
+     */
+    public List<FutureAdapter> getAdapters() {
+        return adapters;
+    }
+
+    /**
+     * @param type usually the declared return type of a method
+     * @throws IllegalStateException if no adapter supports the type
+     */
+    public FutureAdapter getAdapter(Class<?> type) {
+        FutureAdapter adapter = findAdapter(type);
+        if (adapter == null) {
+            throw new IllegalStateException("Invalid Future type: " + type.getName());
+        }
+        return adapter;
+    }
+
+    /**
+     * @param type usually the declared return type of a method
+     * @return the adapter supporting the type, or null if there is none, like for a plain {@link Future}
+     */
+    public FutureAdapter findAdapter(Class<?> type) {
+        FutureAdapter adapter = resolved.get(type);
+        return adapter != null ? adapter : resolved.computeIfAbsent(type, this::find);
+    }
+
+    /**
+     * @return the adapter observing the future, to observe its completion or create dependents of it
+     * @throws IllegalStateException if no adapter observes the class of the future
+     */
+    public FutureAdapter getAdapter(Future<?> future) {
+        Class<?> type = future.getClass();
+        FutureAdapter adapter = observers.get(type);
+        if (adapter == null) {
+            adapter = observers.computeIfAbsent(type, this::findObserver);
+        }
+        if (adapter == null) {
+            throw new IllegalStateException("Invalid Future type: " + type.getName());
+        }
+        return adapter;
+    }
+
+    /**
+     * @param preferred adapter to use if it observes the future, usually the one of the method returning it
+     * @throws IllegalStateException if the preferred adapter doesn't observe the future and no adapter observes its class
+     */
+    public FutureAdapter getAdapter(FutureAdapter preferred, Future<?> future) {
+        return preferred != null && (preferred.getFutureType().isInstance(future) || preferred.observes(future.getClass()))
+                ? preferred : getAdapter(future);
+    }
+
+    private FutureAdapter find(Class<?> type) {
+        for (FutureAdapter adapter : adapters) {
+            if (adapter.supports(type)) {
+                return adapter;
+            }
+        }
+        return null;
+    }
+
+    private FutureAdapter findObserver(Class<?> type) {
+        for (FutureAdapter adapter : adapters) {
+            if (adapter.observes(type)) {
+                return adapter;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return adapters found through {@link ServiceLoader} and the built in ones, loaded on first use
+     */
+    public static FutureAdapters getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    private static final class DefaultHolder {
+        private static final FutureAdapters INSTANCE = new FutureAdapters();
+    }
+}
@@ -0,0 +1,82 @@
+package com.ulisesbocchio.sharedfutures.adapter;
+
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link FutureAdapter} for Guava's {@link ListenableFuture}.
+ *
+ * @author ulisesbocchio
+ */
+public class GuavaListenableFutureAdapter implements FutureAdapter {
+
+    @Override
+    public Class<?> getFutureType() {
+        return ListenableFuture.class;
+    }
+
+    @Override
+    public <T> Future<T> incomplete(CancellationListener onCancel) {
+        return new DependentGuavaFuture<>(onCancel);
+    }
+
+    @Override
+    public <T> boolean complete(Future<T> future, T value, Throwable failure, boolean cancelled) {
+        DependentGuavaFuture<T> dependent = (DependentGuavaFuture<T>) future;
+        return cancelled ? dependent.sourceCancelled()
+                : failure != null ? dependent.setException(failure) : dependent.set(value);
+    }
+
+    @Override
+    public <T> void whenComplete(Future<T> future, BiConsumer<? super T, ? super Throwable> action) {
+        Futures.addCallback((ListenableFuture<T>) future, new FutureCallback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                action.accept(result, null);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                action.accept(null, t);
+            }
+        });
+    }
+
+    private static class DependentGuavaFuture<T> extends AbstractFuture<T> {
+        private final CancellationListener onCancel;
+        private volatile boolean sourceCancelled;
+
+        DependentGuavaFuture(CancellationListener onCancel) {
+            this.onCancel = onCancel;
+        }
+
+        boolean sourceCancelled() {
+            sourceCancelled = true;
+            return super.cancel(false);
+        }
+
+        @Override
+        protected boolean set(T value) {
+            return super.set(value);
+        }
+
+        @Override
+        protected boolean setException(Throwable throwable) {
+            return super.setException(throwable);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled && !sourceCancelled) {
+                onCancel.cancelled(mayInterruptIfRunning);
+            }
+            return cancelled;
+        }
+    }
+}
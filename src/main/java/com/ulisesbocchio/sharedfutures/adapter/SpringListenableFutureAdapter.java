@@ -0,0 +1,60 @@
+package com.ulisesbocchio.sharedfutures.adapter;
+
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link FutureAdapter} for Spring's {@link ListenableFuture}.
+ *
+ * @author ulisesbocchio
+ */
+public class SpringListenableFutureAdapter implements FutureAdapter {
+
+    @Override
+    public Class<?> getFutureType() {
+        return ListenableFuture.class;
+    }
+
+    @Override
+    public <T> Future<T> incomplete(CancellationListener onCancel) {
+        return new DependentListenableFuture<>(onCancel);
+    }
+
+    @Override
+    public <T> boolean complete(Future<T> future, T value, Throwable failure, boolean cancelled) {
+        DependentListenableFuture<T> dependent = (DependentListenableFuture<T>) future;
+        return cancelled ? dependent.sourceCancelled()
+                : failure != null ? dependent.setException(failure) : dependent.set(value);
+    }
+
+    @Override
+    public <T> void whenComplete(Future<T> future, BiConsumer<? super T, ? super Throwable> action) {
+        ((ListenableFuture<T>) future).addCallback(value -> action.accept(value, null), failure -> action.accept(null, failure));
+    }
+
+    private static class DependentListenableFuture<T> extends SettableListenableFuture<T> {
+        private final CancellationListener onCancel;
+        private volatile boolean sourceCancelled;
+
+        DependentListenableFuture(CancellationListener onCancel) {
+            this.onCancel = onCancel;
+        }
+
+        boolean sourceCancelled() {
+            sourceCancelled = true;
+            return super.cancel(false);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled && !sourceCancelled) {
+                onCancel.cancelled(mayInterruptIfRunning);
+            }
+            return cancelled;
+        }
+    }
+}
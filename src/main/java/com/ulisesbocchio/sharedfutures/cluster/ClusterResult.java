@@ -0,0 +1,41 @@
+package com.ulisesbocchio.sharedfutures.cluster;
+
+/**
+ * Outcome of a shared future broadcast to the cluster: the serialized value it completed with, or the description of
+ * the failure it completed with.
+ *
+ * @author ulisesbocchio
+ */
+public final class ClusterResult {
+
+    private final byte[] payload;
+    private final String failure;
+
+    private ClusterResult(byte[] payload, String failure) {
+        this.payload = payload;
+        this.failure = failure;
+    }
+
+    public static ClusterResult success(byte[] payload) {
+        return new ClusterResult(payload, null);
+    }
+
+    public static ClusterResult failure(String failure) {
+        return new ClusterResult(null, failure);
+    }
+
+    public boolean isSuccess() {
+        return failure == null;
+    }
+
+    /**
+     * @return the value serialized by a {@link ResultSerializer}, null for failures
+     */
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+}
@@ -0,0 +1,313 @@
+package com.ulisesbocchio.sharedfutures.cluster;
+
+import com.ulisesbocchio.sharedfutures.DefaultSharedFuturesRegistry;
+import com.ulisesbocchio.sharedfutures.HashedWheelTimer;
+import com.ulisesbocchio.sharedfutures.SharedFuturesRegistry;
+import com.ulisesbocchio.sharedfutures.adapter.FutureAdapters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * {@link SharedFuturesRegistry} that shares futures across the nodes of a cluster on top of a local registry, which
+ * keeps sharing them within the node. The first node to claim a key through the {@link ClusterTransport} executes it
+ * and broadcasts its result; the other nodes subscribe to the key and complete their futures with the broadcast
+ * result instead of executing it. A node that doesn't get a result within the fallback timeout, for instance because
+ * the owner died, executes the key locally.
+ * Futures completed with a remote result are {@link CompletableFuture CompletableFutures} holding a deserialized copy
+ * of the value, and remote failures complete them with a {@link RemoteSharedFutureException}.
+ * <p>
+ * Any node able to publish on the transport can make the others deserialize its payloads, so the transport is a trust
+ * boundary: the {@link ResultSerializer}, required by the builder, must only accept the types of the shared values,
+ * like a {@link JdkResultSerializer} restricted to the packages of the application's model.
+ *
+ * @author ulisesbocchio
+ */
+public class ClusterSharedFuturesRegistry implements SharedFuturesRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ClusterSharedFuturesRegistry.class);
+
+    private final SharedFuturesRegistry local;
+    private final ClusterTransport transport;
+    private final ResultSerializer serializer;
+    private final String nodeId;
+    private final long leaseMillis;
+    private final long fallbackMillis;
+    private final Function<Object, String> keyMapper;
+    private final HashedWheelTimer timer;
+    private final Executor fallbackExecutor;
+    private final FutureAdapters futureAdapters;
+
+    private ClusterSharedFuturesRegistry(Builder builder) {
+        this.local = builder.local;
+        this.transport = builder.transport;
+        this.serializer = builder.serializer;
+        this.nodeId = builder.nodeId;
+        this.leaseMillis = builder.leaseMillis;
+        this.fallbackMillis = builder.fallbackMillis;
+        this.keyMapper = builder.keyMapper;
+        this.timer = builder.timer;
+        this.fallbackExecutor = builder.fallbackExecutor;
+        this.futureAdapters = builder.futureAdapters;
+        LOG.debug("Initialized Cluster Shared Futures Registry for node {}", nodeId);
+    }
+
+    /**
+     * @param serializer serializer of the broadcast results, see the trust boundary above
+     */
+    public static Builder builder(ClusterTransport transport, ResultSerializer serializer) {
+        if (serializer == null) {
+            throw new IllegalArgumentException("A result serializer is required");
+        }
+        return new Builder(transport, serializer);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public Future<?> get(Object key) {
+        return local.get(key);
+    }
+
+    @Override
+    public Future<?> put(Object key, Future<?> future) {
+        return local.put(key, future);
+    }
+
+    @Override
+    public Future<?> remove(Object key) {
+        return local.remove(key);
+    }
+
+    @Override
+    public boolean remove(Object key, Future<?> future) {
+        return local.remove(key, future);
+    }
+
+    @Override
+    public boolean contains(Object key) {
+        return local.contains(key);
+    }
+
+    @Override
+    public int size() {
+        return local.size();
+    }
+
+    @Override
+    public Collection<InFlight> inFlight() {
+        return local.inFlight();
+    }
+
+    @Override
+    public InFlight join(Object key, String group, SharedFutureFactory factory) throws Throwable {
+        return local.join(key, group, inFlight -> {
+            String clusterKey = keyMapper.apply(key);
+            if (transport.claim(clusterKey, nodeId, leaseMillis)) {
+                return execute(clusterKey, inFlight, factory);
+            }
+            return subscribe(clusterKey, inFlight, factory);
+        });
+    }
+
+    private Future<?> execute(String clusterKey, InFlight inFlight, SharedFutureFactory factory) throws Throwable {
+        LOG.debug("Node {} claimed key: {}", nodeId, clusterKey);
+        Future<?> future;
+        try {
+            future = factory.create(inFlight);
+        } catch (Throwable t) {
+            transport.release(clusterKey, nodeId);
+            throw t;
+        }
+        futureAdapters.getAdapter(future).whenComplete(future, (value, failure) -> {
+            ClusterResult result = null;
+            try {
+                if (!future.isCancelled()) {
+                    result = failure == null
+                            ? ClusterResult.success(serializer.serialize(value))
+                            : ClusterResult.failure(String.valueOf(failure));
+                }
+            } catch (RuntimeException e) {
+                LOG.warn("Cannot serialize result of key: {}, other nodes will fall back to local execution", clusterKey, e);
+            }
+            // released before publishing: a node subscribing too late for the result can claim the key instead of
+            // waiting for the fallback timeout, while a node that failed to claim it subscribed in time for it
+            try {
+                transport.release(clusterKey, nodeId);
+            } finally {
+                if (result != null) {
+                    publish(clusterKey, result);
+                }
+            }
+        });
+        return future;
+    }
+
+    private void publish(String clusterKey, ClusterResult result) {
+        try {
+            transport.publish(clusterKey, result);
+        } catch (RuntimeException e) {
+            LOG.warn("Cannot publish result of key: {}, other nodes will fall back to local execution", clusterKey, e);
+        }
+    }
+
+    private Future<?> subscribe(String clusterKey, InFlight inFlight, SharedFutureFactory factory) throws Throwable {
+        CompletableFuture<Object> remote = new CompletableFuture<>();
+        ClusterTransport.Subscription subscription = transport.subscribe(clusterKey, result -> {
+            inFlight.run();
+            if (result.isSuccess()) {
+                try {
+                    remote.complete(serializer.deserialize(result.getPayload()));
+                } catch (RuntimeException e) {
+                    remote.completeExceptionally(e);
+                }
+            } else {
+                remote.completeExceptionally(new RemoteSharedFutureException(result.getFailure()));
+            }
+        });
+        if (transport.claim(clusterKey, nodeId, leaseMillis)) {
+            subscription.cancel();
+            return execute(clusterKey, inFlight, factory);
+        }
+        LOG.debug("Node {} waiting for the result of key: {}", nodeId, clusterKey);
+        HashedWheelTimer.Timeout fallback = timer.newTimeout(() -> fallbackExecutor.execute(() ->
+                fallBack(clusterKey, remote, inFlight, factory)), fallbackMillis, TimeUnit.MILLISECONDS);
+        remote.whenComplete((value, failure) -> {
+            subscription.cancel();
+            fallback.cancel();
+        });
+        return remote;
+    }
+
+    private void fallBack(String clusterKey, CompletableFuture<Object> remote, InFlight inFlight, SharedFutureFactory factory) {
+        if (remote.isDone()) {
+            return;
+        }
+        LOG.debug("No result for key: {} after {} ms, executing locally", clusterKey, fallbackMillis);
+        Future<?> future;
+        try {
+            future = factory.create(inFlight);
+        } catch (Throwable t) {
+            inFlight.run();
+            remote.completeExceptionally(t);
+            return;
+        }
+        futureAdapters.getAdapter(future).whenComplete(future, (value, failure) -> {
+            inFlight.run();
+            if (future.isCancelled()) {
+                remote.cancel(false);
+            } else if (failure != null) {
+                remote.completeExceptionally(failure);
+            } else {
+                remote.complete(value);
+            }
+        });
+        remote.whenComplete((value, failure) -> {
+            if (remote.isCancelled()) {
+                future.cancel(true);
+            }
+        });
+    }
+
+    public static class Builder {
+        private final ClusterTransport transport;
+        private final ResultSerializer serializer;
+        private SharedFuturesRegistry local = new DefaultSharedFuturesRegistry();
+        private String nodeId = UUID.randomUUID().toString();
+        private long leaseMillis = TimeUnit.SECONDS.toMillis(30);
+        private long fallbackMillis = TimeUnit.SECONDS.toMillis(5);
+        private Function<Object, String> keyMapper = String::valueOf;
+        private HashedWheelTimer timer;
+        private Executor fallbackExecutor = ForkJoinPool.commonPool();
+        private FutureAdapters futureAdapters = FutureAdapters.getDefault();
+
+        private Builder(ClusterTransport transport, ResultSerializer serializer) {
+            this.transport = transport;
+            this.serializer = serializer;
+        }
+
+        /**
+         * Registry sharing futures within the node, a {@link DefaultSharedFuturesRegistry} by default.
+         */
+        public Builder local(SharedFuturesRegistry local) {
+            this.local = local;
+            return this;
+        }
+
+        /**
+         * Identifier of this node in the cluster, random by default.
+         */
+        public Builder nodeId(String nodeId) {
+            this.nodeId = nodeId;
+            return this;
+        }
+
+        /**
+         * Time a claim on a key is held if the node doesn't release it, 30 seconds by default.
+         */
+        public Builder leaseTime(long time, TimeUnit unit) {
+            this.leaseMillis = unit.toMillis(time);
+            return this;
+        }
+
+        /**
+         * Time to wait for the result of a key claimed by another node before executing it locally, 5 seconds by
+         * default.
+         */
+        public Builder fallbackTimeout(long time, TimeUnit unit) {
+            this.fallbackMillis = unit.toMillis(time);
+            return this;
+        }
+
+        /**
+         * Maps local keys to the keys used across the cluster, {@link String#valueOf(Object)} by default. Keys must
+         * map to the same string on every node.
+         */
+        public Builder keyMapper(Function<Object, String> keyMapper) {
+            this.keyMapper = keyMapper;
+            return this;
+        }
+
+        /**
+         * Timer for the fallback timeouts, a dedicated one by default.
+         */
+        public Builder timer(HashedWheelTimer timer) {
+            this.timer = timer;
+            return this;
+        }
+
+        /**
+         * Executor where keys are executed locally after a fallback timeout, the common fork join pool by default.
+         */
+        public Builder fallbackExecutor(Executor fallbackExecutor) {
+            this.fallbackExecutor = fallbackExecutor;
+            return this;
+        }
+
+        /**
+         * Adapters observing the completion of locally executed futures, {@link FutureAdapters#getDefault()} by
+         * default.
+         */
+        public Builder futureAdapters(FutureAdapters futureAdapters) {
+            this.futureAdapters = futureAdapters;
+            return this;
+        }
+
+        public ClusterSharedFuturesRegistry build() {
+            if (timer == null) {
+                timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 512, "shared-futures-cluster-timer");
+            }
+            return new ClusterSharedFuturesRegistry(this);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.ulisesbocchio.sharedfutures.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * Messaging between the nodes of a cluster sharing futures, as used by {@link ClusterSharedFuturesRegistry}. A node
+ * claims a key with a lease before executing it, and broadcasts the result to the other nodes, which subscribed to the
+ * key instead of executing it. Implementations usually sit on top of a shared store with expiring entries and a
+ * publish/subscribe channel.
+ *
+ * @author ulisesbocchio
+ */
+public interface ClusterTransport {
+
+    /**
+     * Claims the key for the node, unless another node holds an unexpired lease on it.
+     *
+     * @param leaseMillis time after which the claim expires if it isn't released
+     * @return true if the node holds the claim
+     */
+    boolean claim(String key, String nodeId, long leaseMillis);
+
+    /**
+     * Releases the claim of the key if it is held by the node.
+     */
+    void release(String key, String nodeId);
+
+    /**
+     * Broadcasts the result of a key to the nodes subscribed to it.
+     */
+    void publish(String key, ClusterResult result);
+
+    /**
+     * Listens for the results published for a key until the subscription is cancelled.
+     */
+    Subscription subscribe(String key, Consumer<ClusterResult> listener);
+
+    /**
+     * Handle of a {@link #subscribe(String, Consumer)} call.
+     */
+    @FunctionalInterface
+    interface Subscription {
+        void cancel();
+    }
+}
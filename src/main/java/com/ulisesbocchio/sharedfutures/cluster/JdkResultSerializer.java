@@ -0,0 +1,129 @@
+package com.ulisesbocchio.sharedfutures.cluster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * {@link ResultSerializer} based on Java serialization, deflated to keep payloads small. Values must be
+ * {@link java.io.Serializable}. Plug in a serializer of your own for anything more compact or portable.
+ * <p>
+ * Deserializing arbitrary classes from a payload lets whoever can write it run code through gadget classes on the
+ * classpath, so payloads are restricted to the value classes of {@code java.lang}, {@code java.util},
+ * {@code java.time} and {@code java.math}, and to the packages given to the constructor, and anything else fails to
+ * deserialize. Only use {@link #unrestricted()} for payloads nothing but the application itself can write.
+ *
+ * @author ulisesbocchio
+ */
+public class JdkResultSerializer implements ResultSerializer {
+
+    private static final List<String> JDK_PACKAGES = Arrays.asList("java.lang.", "java.util.", "java.time.", "java.math.");
+    private static final List<String> DENIED_PACKAGES = Arrays.asList("java.lang.invoke.", "java.lang.reflect.");
+
+    private final List<String> allowedPackages;
+
+    /**
+     * @param allowedPackages packages, like {@code com.example.model}, whose classes and subpackages' classes may be
+     *                        deserialized besides the JDK value classes
+     */
+    public JdkResultSerializer(String... allowedPackages) {
+        List<String> packages = new ArrayList<>(JDK_PACKAGES);
+        for (String allowedPackage : allowedPackages) {
+            packages.add(allowedPackage.endsWith(".") ? allowedPackage : allowedPackage + ".");
+        }
+        this.allowedPackages = Collections.unmodifiableList(packages);
+    }
+
+    private JdkResultSerializer(List<String> allowedPackages) {
+        this.allowedPackages = allowedPackages;
+    }
+
+    /**
+     * @return a serializer deserializing any class, for trusted payloads only, like a profile written by the
+     * application itself
+     */
+    public static JdkResultSerializer unrestricted() {
+        return new JdkResultSerializer((List<String>) null);
+    }
+
+    @Override
+    public byte[] serialize(Object value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeObject(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot serialize " + value.getClass().getName(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] payload) {
+        try (ObjectInputStream in = new RestrictedObjectInputStream(new InflaterInputStream(new ByteArrayInputStream(payload)))) {
+            return in.readObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot deserialize payload", e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Cannot deserialize payload", e);
+        }
+    }
+
+    boolean isAllowed(String className) {
+        if (allowedPackages == null) {
+            return true;
+        }
+        String name = className.replaceFirst("^\\[+", "");
+        if (name.length() == 1) {
+            return true;
+        }
+        if (name.startsWith("L") && name.endsWith(";")) {
+            name = name.substring(1, name.length() - 1);
+        }
+        for (String denied : DENIED_PACKAGES) {
+            if (name.startsWith(denied)) {
+                return false;
+            }
+        }
+        for (String allowed : allowedPackages) {
+            if (name.startsWith(allowed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private final class RestrictedObjectInputStream extends ObjectInputStream {
+
+        RestrictedObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (!isAllowed(desc.getName())) {
+                throw new InvalidClassException(desc.getName(), "Class not allowed by the result serializer");
+            }
+            return super.resolveClass(desc);
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+            if (allowedPackages != null) {
+                throw new InvalidClassException(String.join(",", interfaces), "Proxies not allowed by the result serializer");
+            }
+            return super.resolveProxyClass(interfaces);
+        }
+    }
+}
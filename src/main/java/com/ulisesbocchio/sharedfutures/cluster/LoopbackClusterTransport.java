@@ -0,0 +1,72 @@
+package com.ulisesbocchio.sharedfutures.cluster;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+/**
+ * In-process {@link ClusterTransport}, for several {@link ClusterSharedFuturesRegistry} nodes living in the same JVM,
+ * like in tests. Results are delivered to subscribers synchronously on the publishing thread.
+ *
+ * @author ulisesbocchio
+ */
+public class LoopbackClusterTransport implements ClusterTransport {
+
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+    private final Map<String, Set<Consumer<ClusterResult>>> subscribers = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean claim(String key, String nodeId, long leaseMillis) {
+        long now = System.currentTimeMillis();
+        Lease lease = leases.compute(key, (k, current) -> current == null || current.expiresAt <= now || current.nodeId.equals(nodeId)
+                ? new Lease(nodeId, now + leaseMillis)
+                : current);
+        return lease.nodeId.equals(nodeId);
+    }
+
+    @Override
+    public void release(String key, String nodeId) {
+        leases.computeIfPresent(key, (k, current) -> current.nodeId.equals(nodeId) ? null : current);
+    }
+
+    @Override
+    public void publish(String key, ClusterResult result) {
+        Set<Consumer<ClusterResult>> listeners = subscribers.get(key);
+        if (listeners != null) {
+            listeners.forEach(listener -> listener.accept(result));
+        }
+    }
+
+    @Override
+    public Subscription subscribe(String key, Consumer<ClusterResult> listener) {
+        subscribers.compute(key, (k, listeners) -> {
+            Set<Consumer<ClusterResult>> set = listeners != null ? listeners : new CopyOnWriteArraySet<>();
+            set.add(listener);
+            return set;
+        });
+        return () -> subscribers.computeIfPresent(key, (k, listeners) -> {
+            listeners.remove(listener);
+            return listeners.isEmpty() ? null : listeners;
+        });
+    }
+
+    /**
+     * @return the node holding an unexpired claim on the key, or null
+     */
+    public String getOwner(String key) {
+        Lease lease = leases.get(key);
+        return lease != null && lease.expiresAt > System.currentTimeMillis() ? lease.nodeId : null;
+    }
+
+    private static final class Lease {
+        private final String nodeId;
+        private final long expiresAt;
+
+        Lease(String nodeId, long expiresAt) {
+            this.nodeId = nodeId;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.ulisesbocchio.sharedfutures.cluster;
+
+/**
+ * Completes a shared future whose execution failed on another node of the cluster.
+ *
+ * @author ulisesbocchio
+ */
+public class RemoteSharedFutureException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RemoteSharedFutureException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package com.ulisesbocchio.sharedfutures.cluster;
+
+/**
+ * Turns the values of shared futures into the payloads broadcast by a {@link ClusterTransport}, and back.
+ *
+ * @author ulisesbocchio
+ */
+public interface ResultSerializer {
+
+    byte[] serialize(Object value);
+
+    Object deserialize(byte[] payload);
+}
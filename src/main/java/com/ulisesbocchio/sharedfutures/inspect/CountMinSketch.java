@@ -0,0 +1,77 @@
+package com.ulisesbocchio.sharedfutures.inspect;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size, lock free count-min sketch estimating how many times each item has been added, by its hash code.
+ * Estimates never undercount, except for aging: once the number of additions reaches ten times the width every counter
+ * is halved, so items that stop being added fade away and the counters never overflow. Concurrent additions while
+ * aging may be lost, which only makes estimates a little more approximate.
+ *
+ * @author ulisesbocchio
+ */
+public final class CountMinSketch {
+
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    private final AtomicLongArray counters;
+    private final int width;
+    private final int mask;
+    private final long agingThreshold;
+    private final AtomicLong additions = new AtomicLong();
+
+    /**
+     * @param width counters per row, rounded up to a power of two; wider sketches collide less
+     */
+    public CountMinSketch(int width) {
+        this.width = width <= 1 ? 1 : Integer.highestOneBit(width - 1) << 1;
+        this.mask = this.width - 1;
+        this.counters = new AtomicLongArray(this.width * SEEDS.length);
+        this.agingThreshold = 10L * this.width;
+    }
+
+    public void add(Object item) {
+        int hash = hash(item);
+        for (int row = 0; row < SEEDS.length; row++) {
+            counters.incrementAndGet(index(hash, row));
+        }
+        if (additions.incrementAndGet() == agingThreshold) {
+            age();
+        }
+    }
+
+    /**
+     * @return the estimated number of times the item was added, since the last aging halved it
+     */
+    public long estimate(Object item) {
+        int hash = hash(item);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < SEEDS.length; row++) {
+            estimate = Math.min(estimate, counters.get(index(hash, row)));
+        }
+        return estimate;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    private void age() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, counters.get(i) >>> 1);
+        }
+        additions.set(agingThreshold / 2);
+    }
+
+    private int index(int hash, int row) {
+        long x = (hash + SEEDS[row]) * SEEDS[row];
+        x ^= x >>> 32;
+        return row * width + ((int) x & mask);
+    }
+
+    private static int hash(Object item) {
+        int h = item != null ? item.hashCode() : 0;
+        return h ^ (h >>> 16);
+    }
+}
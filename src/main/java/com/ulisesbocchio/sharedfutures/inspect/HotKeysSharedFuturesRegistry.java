@@ -0,0 +1,139 @@
+package com.ulisesbocchio.sharedfutures.inspect;
+
+import com.ulisesbocchio.sharedfutures.SharedFuturesRegistry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * {@link SharedFuturesRegistry} decorator that tracks the hottest keys, the ones joined the most, without locks on the
+ * call path: every join is counted in a {@link CountMinSketch} and its key and group written to a fixed size ring of
+ * recent joins. The ring doesn't hold on to the entries themselves, so futures and results aren't kept reachable
+ * after they complete. The ranking is only computed by {@link #getHotKeys(int)}, out of the recent entries
+ * and those in flight, so a key can only rank while it is still being joined.
+ *
+ * @author ulisesbocchio
+ */
+public class HotKeysSharedFuturesRegistry implements SharedFuturesRegistry {
+
+    private final SharedFuturesRegistry delegate;
+    private final CountMinSketch sketch;
+    private final AtomicReferenceArray<Join> recent;
+    private final int recentMask;
+    private final AtomicLong joins = new AtomicLong();
+
+    public HotKeysSharedFuturesRegistry(SharedFuturesRegistry delegate) {
+        this(delegate, 1024, 256);
+    }
+
+    /**
+     * @param sketchWidth counters per row of the sketch, see {@link CountMinSketch#CountMinSketch(int)}
+     * @param recentSize  number of recent joins considered for ranking, rounded up to a power of two
+     */
+    public HotKeysSharedFuturesRegistry(SharedFuturesRegistry delegate, int sketchWidth, int recentSize) {
+        int size = recentSize <= 1 ? 1 : Integer.highestOneBit(recentSize - 1) << 1;
+        this.delegate = delegate;
+        this.sketch = new CountMinSketch(sketchWidth);
+        this.recent = new AtomicReferenceArray<>(size);
+        this.recentMask = size - 1;
+    }
+
+    public SharedFuturesRegistry getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public Future<?> get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public Future<?> put(Object key, Future<?> future) {
+        return delegate.put(key, future);
+    }
+
+    @Override
+    public Future<?> remove(Object key) {
+        return delegate.remove(key);
+    }
+
+    @Override
+    public boolean remove(Object key, Future<?> future) {
+        return delegate.remove(key, future);
+    }
+
+    @Override
+    public boolean contains(Object key) {
+        return delegate.contains(key);
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public Collection<InFlight> inFlight() {
+        return delegate.inFlight();
+    }
+
+    @Override
+    public InFlight join(Object key, String group, SharedFutureFactory factory) throws Throwable {
+        InFlight inFlight = delegate.join(key, group, factory);
+        sketch.add(key);
+        recent.lazySet((int) joins.getAndIncrement() & recentMask, new Join(key, group));
+        return inFlight;
+    }
+
+    /**
+     * @return the estimated number of joins of the key, see {@link CountMinSketch#estimate(Object)}
+     */
+    public long estimate(Object key) {
+        return sketch.estimate(key);
+    }
+
+    /**
+     * Ranks the keys recently joined or in flight by their estimated joins.
+     *
+     * @param limit number of keys returned per group
+     * @return the hottest keys of each group, hottest first, groups in no particular order
+     */
+    public List<SharedFuturesSnapshot.HotKey> getHotKeys(int limit) {
+        Map<Object, String> candidates = new HashMap<>();
+        for (int i = 0; i < recent.length(); i++) {
+            Join join = recent.get(i);
+            if (join != null) {
+                candidates.put(join.key, join.group);
+            }
+        }
+        for (InFlight inFlight : delegate.inFlight()) {
+            candidates.put(inFlight.getKey(), inFlight.getGroup());
+        }
+        Map<String, List<SharedFuturesSnapshot.HotKey>> groups = new HashMap<>();
+        candidates.forEach((key, group) -> groups.computeIfAbsent(String.valueOf(group), g -> new ArrayList<>())
+                .add(new SharedFuturesSnapshot.HotKey(String.valueOf(key), group, sketch.estimate(key))));
+        List<SharedFuturesSnapshot.HotKey> hotKeys = new ArrayList<>();
+        for (List<SharedFuturesSnapshot.HotKey> group : groups.values()) {
+            group.sort(Comparator.comparingLong(SharedFuturesSnapshot.HotKey::getEstimatedJoins).reversed());
+            hotKeys.addAll(group.subList(0, Math.min(limit, group.size())));
+        }
+        return hotKeys;
+    }
+
+    private static final class Join {
+        private final Object key;
+        private final String group;
+
+        private Join(Object key, String group) {
+            this.key = key;
+            this.group = group;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.ulisesbocchio.sharedfutures.inspect;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders {@link SharedFuturesSnapshot snapshots} as plain maps and lists, ready to be written as JSON by whatever
+ * serves them, like an actuator endpoint or a servlet, which only need to call {@link #invoke()}.
+ *
+ * @author ulisesbocchio
+ */
+public class SharedFuturesEndpoint {
+
+    public static final String ID = "sharedfutures";
+
+    private final SharedFuturesInspector inspector;
+
+    public SharedFuturesEndpoint(SharedFuturesInspector inspector) {
+        this.inspector = inspector;
+    }
+
+    public String getId() {
+        return ID;
+    }
+
+    public Map<String, Object> invoke() {
+        SharedFuturesSnapshot snapshot = inspector.snapshot();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("timestamp", snapshot.getTimestamp());
+        result.put("size", snapshot.getEntries().size());
+        List<Map<String, Object>> groups = new ArrayList<>();
+        for (SharedFuturesSnapshot.Group group : snapshot.getGroups()) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("name", group.getName());
+            map.put("inFlight", group.getInFlight());
+            map.put("waiters", group.getWaiters());
+            map.put("oldestAgeMillis", group.getOldestAgeMillis());
+            groups.add(map);
+        }
+        result.put("groups", groups);
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (SharedFuturesSnapshot.Entry entry : snapshot.getEntries()) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("key", entry.getKey());
+            map.put("group", entry.getGroup());
+            map.put("startTimeMillis", entry.getStartTimeMillis());
+            map.put("ageMillis", entry.getAgeMillis());
+            map.put("waiters", entry.getWaiters());
+            map.put("done", entry.isDone());
+            entries.add(map);
+        }
+        result.put("entries", entries);
+        List<Map<String, Object>> hotKeys = new ArrayList<>();
+        for (SharedFuturesSnapshot.HotKey hotKey : snapshot.getHotKeys()) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("key", hotKey.getKey());
+            map.put("group", hotKey.getGroup());
+            map.put("estimatedJoins", hotKey.getEstimatedJoins());
+            hotKeys.add(map);
+        }
+        result.put("hotKeys", hotKeys);
+        return result;
+    }
+}
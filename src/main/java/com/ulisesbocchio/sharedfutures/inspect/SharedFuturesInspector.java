@@ -0,0 +1,88 @@
+package com.ulisesbocchio.sharedfutures.inspect;
+
+import com.ulisesbocchio.sharedfutures.SharedFuturesRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Takes {@link SharedFuturesSnapshot snapshots} of a registry on demand, and exposes them as an MBean once
+ * {@link #registerMBean() registered}. Hot keys are only available when the registry is a
+ * {@link HotKeysSharedFuturesRegistry}.
+ *
+ * @author ulisesbocchio
+ */
+public class SharedFuturesInspector implements SharedFuturesInspectorMXBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedFuturesInspector.class);
+
+    public static final String DEFAULT_OBJECT_NAME = "com.ulisesbocchio.sharedfutures:type=SharedFuturesRegistry";
+
+    private final SharedFuturesRegistry registry;
+    private final int hotKeys;
+    private volatile ObjectName objectName;
+
+    public SharedFuturesInspector(SharedFuturesRegistry registry) {
+        this(registry, 10);
+    }
+
+    /**
+     * @param hotKeys number of hottest keys per group included in snapshots
+     */
+    public SharedFuturesInspector(SharedFuturesRegistry registry, int hotKeys) {
+        this.registry = registry;
+        this.hotKeys = hotKeys;
+    }
+
+    public SharedFuturesSnapshot snapshot() {
+        return SharedFuturesSnapshot.of(registry, hotKeys);
+    }
+
+    @Override
+    public int getSize() {
+        return registry.size();
+    }
+
+    @Override
+    public List<SharedFuturesSnapshot.Entry> getEntries() {
+        return snapshot().getEntries();
+    }
+
+    @Override
+    public List<SharedFuturesSnapshot.Group> getGroups() {
+        return snapshot().getGroups();
+    }
+
+    @Override
+    public List<SharedFuturesSnapshot.HotKey> getHotKeys() {
+        return snapshot().getHotKeys();
+    }
+
+    /**
+     * Registers the inspector in the platform MBean server under {@link #DEFAULT_OBJECT_NAME}.
+     */
+    public void registerMBean() throws JMException {
+        registerMBean(ManagementFactory.getPlatformMBeanServer(), new ObjectName(DEFAULT_OBJECT_NAME));
+    }
+
+    public synchronized void registerMBean(MBeanServer server, ObjectName name) throws JMException {
+        server.registerMBean(this, name);
+        this.objectName = name;
+        LOG.debug("Registered Shared Futures Inspector MBean as {}", name);
+    }
+
+    /**
+     * Unregisters the inspector from the platform MBean server, if it was registered.
+     */
+    public synchronized void unregisterMBean() throws JMException {
+        if (objectName != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            objectName = null;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.ulisesbocchio.sharedfutures.inspect;
+
+import java.util.List;
+
+/**
+ * JMX view of a {@link SharedFuturesSnapshot}, every attribute is read from a new snapshot.
+ *
+ * @author ulisesbocchio
+ */
+public interface SharedFuturesInspectorMXBean {
+
+    int getSize();
+
+    List<SharedFuturesSnapshot.Entry> getEntries();
+
+    List<SharedFuturesSnapshot.Group> getGroups();
+
+    List<SharedFuturesSnapshot.HotKey> getHotKeys();
+}
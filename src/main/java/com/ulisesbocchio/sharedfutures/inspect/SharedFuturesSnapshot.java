@@ -0,0 +1,214 @@
+package com.ulisesbocchio.sharedfutures.inspect;
+
+import com.ulisesbocchio.sharedfutures.SharedFuturesRegistry;
+import com.ulisesbocchio.sharedfutures.SharedFuturesRegistry.InFlight;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time view of the futures in flight in a {@link SharedFuturesRegistry}, read from
+ * {@link SharedFuturesRegistry#inFlight()} without blocking the registry. Entries are sorted oldest first, so stalled
+ * calls come up on top.
+ *
+ * @author ulisesbocchio
+ */
+public final class SharedFuturesSnapshot {
+
+    private final long timestamp;
+    private final List<Entry> entries;
+    private final List<Group> groups;
+    private final List<HotKey> hotKeys;
+
+    private SharedFuturesSnapshot(long timestamp, List<Entry> entries, List<Group> groups, List<HotKey> hotKeys) {
+        this.timestamp = timestamp;
+        this.entries = Collections.unmodifiableList(entries);
+        this.groups = Collections.unmodifiableList(groups);
+        this.hotKeys = Collections.unmodifiableList(hotKeys);
+    }
+
+    /**
+     * @param hotKeys number of hottest keys per group to include, only tracked by a {@link HotKeysSharedFuturesRegistry}
+     */
+    public static SharedFuturesSnapshot of(SharedFuturesRegistry registry, int hotKeys) {
+        long timestamp = System.currentTimeMillis();
+        long now = System.nanoTime();
+        List<Entry> entries = new ArrayList<>();
+        for (InFlight inFlight : registry.inFlight()) {
+            long age = TimeUnit.NANOSECONDS.toMillis(now - inFlight.getStartNanos());
+            Future<?> future = inFlight.getFuture();
+            entries.add(new Entry(String.valueOf(inFlight.getKey()), inFlight.getGroup(), timestamp - age, age,
+                    inFlight.getWaiters(), future != null && future.isDone()));
+        }
+        entries.sort(Comparator.comparingLong(Entry::getAgeMillis).reversed());
+        Map<String, Group> groups = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            groups.computeIfAbsent(entry.group, g -> new Group(g, entry.ageMillis)).add(entry);
+        }
+        return new SharedFuturesSnapshot(timestamp, entries, new ArrayList<>(groups.values()),
+                hotKeys > 0 && registry instanceof HotKeysSharedFuturesRegistry
+                        ? ((HotKeysSharedFuturesRegistry) registry).getHotKeys(hotKeys)
+                        : Collections.<HotKey>emptyList());
+    }
+
+    /**
+     * @return {@link System#currentTimeMillis()} at the moment the snapshot was taken
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return aggregates of the entries of each group, oldest first
+     */
+    public List<Group> getGroups() {
+        return groups;
+    }
+
+    public List<HotKey> getHotKeys() {
+        return hotKeys;
+    }
+
+    /**
+     * A future in flight.
+     */
+    public static final class Entry {
+        private final String key;
+        private final String group;
+        private final long startTimeMillis;
+        private final long ageMillis;
+        private final int waiters;
+        private final boolean done;
+
+        Entry(String key, String group, long startTimeMillis, long ageMillis, int waiters, boolean done) {
+            this.key = key;
+            this.group = group;
+            this.startTimeMillis = startTimeMillis;
+            this.ageMillis = ageMillis;
+            this.waiters = waiters;
+            this.done = done;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return the source of the entry, usually the shared method like
+         * {@code com.example.ProductService#getProduct(String)}
+         */
+        public String getGroup() {
+            return group;
+        }
+
+        public long getStartTimeMillis() {
+            return startTimeMillis;
+        }
+
+        public long getAgeMillis() {
+            return ageMillis;
+        }
+
+        /**
+         * @return number of callers sharing the future besides the one that created it
+         */
+        public int getWaiters() {
+            return waiters;
+        }
+
+        /**
+         * @return true if the future completed and is only waiting to be removed
+         */
+        public boolean isDone() {
+            return done;
+        }
+
+        @Override
+        public String toString() {
+            return group + "[" + key + "] age=" + ageMillis + "ms waiters=" + waiters;
+        }
+    }
+
+    /**
+     * Aggregates of the entries of a group.
+     */
+    public static final class Group {
+        private final String name;
+        private final long oldestAgeMillis;
+        private int inFlight;
+        private long waiters;
+
+        Group(String name, long oldestAgeMillis) {
+            this.name = name;
+            this.oldestAgeMillis = oldestAgeMillis;
+        }
+
+        private void add(Entry entry) {
+            inFlight++;
+            waiters += entry.waiters;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getInFlight() {
+            return inFlight;
+        }
+
+        public long getWaiters() {
+            return waiters;
+        }
+
+        public long getOldestAgeMillis() {
+            return oldestAgeMillis;
+        }
+
+        @Override
+        public String toString() {
+            return name + " inFlight=" + inFlight + " waiters=" + waiters + " oldest=" + oldestAgeMillis + "ms";
+        }
+    }
+
+    /**
+     * A key ranked by how many times it has been joined, see {@link HotKeysSharedFuturesRegistry}.
+     */
+    public static final class HotKey {
+        private final String key;
+        private final String group;
+        private final long estimatedJoins;
+
+        HotKey(String key, String group, long estimatedJoins) {
+            this.key = key;
+            this.group = group;
+            this.estimatedJoins = estimatedJoins;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getGroup() {
+            return group;
+        }
+
+        public long getEstimatedJoins() {
+            return estimatedJoins;
+        }
+
+        @Override
+        public String toString() {
+            return group + "[" + key + "] joins~" + estimatedJoins;
+        }
+    }
+}
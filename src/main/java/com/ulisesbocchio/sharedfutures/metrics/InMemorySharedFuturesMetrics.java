@@ -0,0 +1,261 @@
+package com.ulisesbocchio.sharedfutures.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link SharedFuturesMetrics} kept in memory per method, meant for tests and for exposing through whatever
+ * monitoring is at hand.
+ *
+ * @author ulisesbocchio
+ */
+public class InMemorySharedFuturesMetrics implements SharedFuturesMetrics {
+
+    private final Map<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+
+    @Override
+    public void sharedHit(String name) {
+        getMethodMetrics(name).hits.increment();
+    }
+
+    @Override
+    public void execution(String name) {
+        MethodMetrics metrics = getMethodMetrics(name);
+        metrics.executions.increment();
+        int inFlight = metrics.inFlight.incrementAndGet();
+        metrics.peakInFlight.accumulateAndGet(inFlight, Math::max);
+    }
+
+    @Override
+    public void completion(String name, long inFlightNanos, int waiters) {
+        MethodMetrics metrics = getMethodMetrics(name);
+        metrics.inFlight.decrementAndGet();
+        metrics.timeInFlight.record(inFlightNanos);
+        metrics.waiters.record(waiters);
+    }
+
+    @Override
+    public void keyGeneration(String name, long nanos) {
+        getMethodMetrics(name).keyGeneration.record(nanos);
+    }
+
+    @Override
+    public void hedge(String name, boolean won) {
+        MethodMetrics metrics = getMethodMetrics(name);
+        metrics.hedges.increment();
+        if (won) {
+            metrics.hedgeWins.increment();
+        }
+    }
+
+    @Override
+    public void timeout(String name) {
+        getMethodMetrics(name).timeouts.increment();
+    }
+
+    @Override
+    public void shortCircuit(String name) {
+        getMethodMetrics(name).shortCircuits.increment();
+    }
+
+    @Override
+    public void sharingDecision(String name, boolean bypassed) {
+        MethodMetrics metrics = getMethodMetrics(name);
+        metrics.bypassed = bypassed;
+        if (bypassed) {
+            metrics.bypassDecisions.increment();
+        }
+    }
+
+    @Override
+    public void bypass(String name) {
+        getMethodMetrics(name).bypasses.increment();
+    }
+
+    public MethodMetrics getMethodMetrics(String name) {
+        MethodMetrics metrics = methods.get(name);
+        if (metrics == null) {
+            metrics = methods.computeIfAbsent(name, n -> new MethodMetrics());
+        }
+        return metrics;
+    }
+
+    public Map<String, MethodMetrics> getMethods() {
+        return Collections.unmodifiableMap(methods);
+    }
+
+    /**
+     * Metrics of a single shared future method.
+     */
+    public static class MethodMetrics {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder hedges = new LongAdder();
+        private final LongAdder hedgeWins = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder shortCircuits = new LongAdder();
+        private final LongAdder bypasses = new LongAdder();
+        private final LongAdder bypassDecisions = new LongAdder();
+        private volatile boolean bypassed;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger peakInFlight = new AtomicInteger();
+        private final Histogram waiters = new Histogram();
+        private final Histogram timeInFlight = new Histogram();
+        private final Histogram keyGeneration = new Histogram();
+
+        public long getHits() {
+            return hits.sum();
+        }
+
+        public long getExecutions() {
+            return executions.sum();
+        }
+
+        /**
+         * @return fraction of calls that were served by an in-flight future
+         */
+        public double getHitRatio() {
+            long hits = getHits();
+            long total = hits + getExecutions();
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        /**
+         * @return number of shared futures completed after being hedged, by either execution
+         */
+        public long getHedges() {
+            return hedges.sum();
+        }
+
+        public long getHedgeWins() {
+            return hedgeWins.sum();
+        }
+
+        /**
+         * @return fraction of hedged shared futures that were completed by the hedge
+         */
+        public double getHedgeWinRate() {
+            long hedges = getHedges();
+            return hedges == 0 ? 0 : (double) getHedgeWins() / hedges;
+        }
+
+        public long getTimeouts() {
+            return timeouts.sum();
+        }
+
+        /**
+         * @return number of calls that failed fast while the circuit of the method was open
+         */
+        public long getShortCircuits() {
+            return shortCircuits.sum();
+        }
+
+        /**
+         * @return true while sharing is bypassed for the method
+         */
+        public boolean isBypassed() {
+            return bypassed;
+        }
+
+        /**
+         * @return number of calls that executed the method directly while sharing was bypassed
+         */
+        public long getBypasses() {
+            return bypasses.sum();
+        }
+
+        /**
+         * @return number of times the method started bypassing sharing
+         */
+        public long getBypassDecisions() {
+            return bypassDecisions.sum();
+        }
+
+        public int getPeakInFlight() {
+            return peakInFlight.get();
+        }
+
+        public Histogram getWaiters() {
+            return waiters;
+        }
+
+        /**
+         * @return time in flight, in nanoseconds
+         */
+        public Histogram getTimeInFlight() {
+            return timeInFlight;
+        }
+
+        /**
+         * @return key generation time, in nanoseconds
+         */
+        public Histogram getKeyGeneration() {
+            return keyGeneration;
+        }
+    }
+
+    /**
+     * Lock-free histogram with power of two buckets.
+     */
+    public static class Histogram {
+        private static final int BUCKETS = 64;
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong max = new AtomicLong();
+
+        public void record(long value) {
+            long v = Math.max(0, value);
+            count.increment();
+            total.add(v);
+            buckets.incrementAndGet(Math.min(BUCKETS - 1, BUCKETS - Long.numberOfLeadingZeros(v)));
+            max.accumulateAndGet(v, Math::max);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotal() {
+            return total.sum();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public double getMean() {
+            long count = getCount();
+            return count == 0 ? 0 : (double) getTotal() / count;
+        }
+
+        /**
+         * @return upper bound of the bucket holding the given percentile, between 0 and 1, of the recorded values
+         */
+        public long getPercentile(double percentile) {
+            long count = getCount();
+            if (count == 0) {
+                return 0;
+            }
+            long threshold = (long) Math.ceil(percentile * count);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= threshold) {
+                    return i == 0 ? 0 : Math.min(getMax(), (1L << i) - 1);
+                }
+            }
+            return getMax();
+        }
+    }
+}
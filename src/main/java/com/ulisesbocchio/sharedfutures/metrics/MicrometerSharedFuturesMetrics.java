@@ -0,0 +1,123 @@
+package com.ulisesbocchio.sharedfutures.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link SharedFuturesMetrics} bound to a Micrometer {@link MeterRegistry}. Meters are tagged with the method name
+ * under the {@code method} tag. Requires {@code io.micrometer:micrometer-core} on the classpath.
+ *
+ * @author ulisesbocchio
+ */
+public class MicrometerSharedFuturesMetrics implements SharedFuturesMetrics {
+
+    public static final String PREFIX = "shared.futures";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+
+    public MicrometerSharedFuturesMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void sharedHit(String name) {
+        getMeters(name).hits.increment();
+    }
+
+    @Override
+    public void execution(String name) {
+        Meters meters = getMeters(name);
+        meters.executions.increment();
+        int inFlight = meters.inFlight.incrementAndGet();
+        meters.peakInFlight.accumulateAndGet(inFlight, Math::max);
+    }
+
+    @Override
+    public void completion(String name, long inFlightNanos, int waiters) {
+        Meters meters = getMeters(name);
+        meters.inFlight.decrementAndGet();
+        meters.timeInFlight.record(inFlightNanos, TimeUnit.NANOSECONDS);
+        meters.waiters.record(waiters);
+    }
+
+    @Override
+    public void keyGeneration(String name, long nanos) {
+        getMeters(name).keyGeneration.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void hedge(String name, boolean won) {
+        Meters meters = getMeters(name);
+        (won ? meters.hedgeWins : meters.hedgeLosses).increment();
+    }
+
+    @Override
+    public void timeout(String name) {
+        getMeters(name).timeouts.increment();
+    }
+
+    @Override
+    public void shortCircuit(String name) {
+        getMeters(name).shortCircuits.increment();
+    }
+
+    @Override
+    public void sharingDecision(String name, boolean bypassed) {
+        getMeters(name).bypassed.set(bypassed ? 1 : 0);
+    }
+
+    @Override
+    public void bypass(String name) {
+        getMeters(name).bypasses.increment();
+    }
+
+    private Meters getMeters(String name) {
+        Meters m = meters.get(name);
+        if (m == null) {
+            m = meters.computeIfAbsent(name, n -> new Meters(meterRegistry, Tags.of("method", n)));
+        }
+        return m;
+    }
+
+    private static class Meters {
+        private final Counter hits;
+        private final Counter executions;
+        private final Counter hedgeWins;
+        private final Counter hedgeLosses;
+        private final Counter timeouts;
+        private final Counter shortCircuits;
+        private final Counter bypasses;
+        private final AtomicInteger bypassed = new AtomicInteger();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger peakInFlight = new AtomicInteger();
+        private final DistributionSummary waiters;
+        private final Timer timeInFlight;
+        private final Timer keyGeneration;
+
+        Meters(MeterRegistry registry, Tags tags) {
+            hits = registry.counter(PREFIX + ".hits", tags);
+            executions = registry.counter(PREFIX + ".executions", tags);
+            hedgeWins = registry.counter(PREFIX + ".hedges", tags.and("outcome", "won"));
+            hedgeLosses = registry.counter(PREFIX + ".hedges", tags.and("outcome", "lost"));
+            timeouts = registry.counter(PREFIX + ".timeouts", tags);
+            shortCircuits = registry.counter(PREFIX + ".short.circuits", tags);
+            bypasses = registry.counter(PREFIX + ".bypasses", tags);
+            Gauge.builder(PREFIX + ".bypassed", bypassed, AtomicInteger::get).tags(tags).register(registry);
+            Gauge.builder(PREFIX + ".in.flight", inFlight, AtomicInteger::get).tags(tags).register(registry);
+            Gauge.builder(PREFIX + ".in.flight.peak", peakInFlight, AtomicInteger::get).tags(tags).register(registry);
+            waiters = DistributionSummary.builder(PREFIX + ".waiters").tags(tags).register(registry);
+            timeInFlight = Timer.builder(PREFIX + ".time.in.flight").tags(tags).register(registry);
+            keyGeneration = Timer.builder(PREFIX + ".key.generation").tags(tags).register(registry);
+        }
+    }
+}
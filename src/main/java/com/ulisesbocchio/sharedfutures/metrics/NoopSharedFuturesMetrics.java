@@ -0,0 +1,35 @@
+package com.ulisesbocchio.sharedfutures.metrics;
+
+/**
+ * Default {@link SharedFuturesMetrics}, ignores every event.
+ *
+ * @author ulisesbocchio
+ */
+public final class NoopSharedFuturesMetrics implements SharedFuturesMetrics {
+
+    public static final NoopSharedFuturesMetrics INSTANCE = new NoopSharedFuturesMetrics();
+
+    private NoopSharedFuturesMetrics() {
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public void sharedHit(String name) {
+    }
+
+    @Override
+    public void execution(String name) {
+    }
+
+    @Override
+    public void completion(String name, long inFlightNanos, int waiters) {
+    }
+
+    @Override
+    public void keyGeneration(String name, long nanos) {
+    }
+}
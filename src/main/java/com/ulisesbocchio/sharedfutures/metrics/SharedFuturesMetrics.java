@@ -0,0 +1,75 @@
+package com.ulisesbocchio.sharedfutures.metrics;
+
+/**
+ * Receives instrumentation events for shared future methods. Each event carries the name of the method it belongs
+ * to, as returned by {@code SharedFutureMethodMetadata#getName()}.
+ *
+ * @author ulisesbocchio
+ */
+public interface SharedFuturesMetrics {
+
+    /**
+     * @return false if events can be skipped altogether, so callers don't pay for measuring them
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * A call was handed a future that was already in flight.
+     */
+    void sharedHit(String name);
+
+    /**
+     * A call executed the method and registered a new shared future.
+     */
+    void execution(String name);
+
+    /**
+     * A shared future registered by {@link #execution(String)} completed.
+     *
+     * @param inFlightNanos time between registration and completion
+     * @param waiters       number of calls that shared the future besides the one that executed it
+     */
+    void completion(String name, long inFlightNanos, int waiters);
+
+    /**
+     * Time it took to generate or evaluate the key of a call.
+     */
+    void keyGeneration(String name, long nanos);
+
+    /**
+     * A shared future was hedged with a second execution and one of both completed it.
+     *
+     * @param won true if the hedge completed first
+     */
+    default void hedge(String name, boolean won) {
+    }
+
+    /**
+     * A shared future exceeded its maximum time in flight and was evicted.
+     */
+    default void timeout(String name) {
+    }
+
+    /**
+     * A call failed fast because the circuit of its method is open.
+     */
+    default void shortCircuit(String name) {
+    }
+
+    /**
+     * An adaptive method started or stopped bypassing sharing, see
+     * {@link com.ulisesbocchio.sharedfutures.spring.annotation.SharingPolicy#ADAPTIVE}.
+     *
+     * @param bypassed true if calls are executed directly from now on, false if they are shared again
+     */
+    default void sharingDecision(String name, boolean bypassed) {
+    }
+
+    /**
+     * A call executed the method directly because its sharing was bypassed.
+     */
+    default void bypass(String name) {
+    }
+}
@@ -0,0 +1,476 @@
+package com.ulisesbocchio.sharedfutures.processor;
+
+import com.ulisesbocchio.sharedfutures.SharedFutureInvoker;
+import com.ulisesbocchio.sharedfutures.SharedFuturesScope;
+import com.ulisesbocchio.sharedfutures.adapter.FutureAdapter;
+import com.ulisesbocchio.sharedfutures.spring.KeyNormalizer;
+import com.ulisesbocchio.sharedfutures.spring.SharedFutureKey;
+import com.ulisesbocchio.sharedfutures.spring.annotation.CompletionPolicy;
+import com.ulisesbocchio.sharedfutures.spring.annotation.GenerateSharedFutures;
+import com.ulisesbocchio.sharedfutures.spring.annotation.NormalizeKey;
+import com.ulisesbocchio.sharedfutures.spring.annotation.SharedFuture;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Generates the wrappers of {@link GenerateSharedFutures} classes: a subclass overriding every supported
+ * {@link SharedFuture} method to call {@link SharedFutureInvoker#invoke} with a key class of its own, holding the
+ * arguments in typed fields, and the {@link FutureAdapter} of its return type, resolved once per instance. Nothing is
+ * boxed into arrays or looked up reflectively on a call.
+ * Not registered while the library itself is compiled, which runs with {@code -proc:none}.
+ *
+ * @author ulisesbocchio
+ */
+@SupportedAnnotationTypes("com.ulisesbocchio.sharedfutures.spring.annotation.GenerateSharedFutures")
+public class SharedFuturesProcessor extends AbstractProcessor {
+
+    /**
+     * Appended to the name of the annotated class, prefixed with the names of its enclosing classes, to name its
+     * wrapper.
+     */
+    public static final String WRAPPER_SUFFIX = "_SharedFutures";
+
+    private Types types;
+    private Elements elements;
+    private Messager messager;
+    private TypeMirror futureType;
+    private TypeMirror sharedFutureKeyType;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        this.types = processingEnv.getTypeUtils();
+        this.elements = processingEnv.getElementUtils();
+        this.messager = processingEnv.getMessager();
+        this.futureType = types.erasure(elements.getTypeElement("java.util.concurrent.Future").asType());
+        this.sharedFutureKeyType = elements.getTypeElement(SharedFutureKey.class.getCanonicalName()).asType();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(GenerateSharedFutures.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                messager.printMessage(Diagnostic.Kind.ERROR, "@GenerateSharedFutures only applies to classes", element);
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            Set<Modifier> modifiers = type.getModifiers();
+            if (modifiers.contains(Modifier.FINAL) || modifiers.contains(Modifier.PRIVATE)
+                    || type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS
+                    || type.getNestingKind() == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC)) {
+                messager.printMessage(Diagnostic.Kind.ERROR,
+                        "@GenerateSharedFutures classes must be non final, non private, and top level or static", type);
+                continue;
+            }
+            try {
+                generate(type);
+            } catch (IOException e) {
+                messager.printMessage(Diagnostic.Kind.ERROR, "Cannot write Shared Futures wrapper: " + e.getMessage(), type);
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type) throws IOException {
+        String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        String wrapperName = getWrapperName(type);
+        List<ExecutableElement> methods = new ArrayList<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            SharedFuture annotation = method.getAnnotation(SharedFuture.class);
+            if (annotation == null) {
+                continue;
+            }
+            String unsupported = getUnsupportedReason(method, annotation);
+            if (unsupported != null) {
+                messager.printMessage(Diagnostic.Kind.WARNING,
+                        "Not shared by " + wrapperName + ", left to SharedFuturesAspect: " + unsupported, method);
+                continue;
+            }
+            methods.add(method);
+        }
+        List<String> ids = getMethodIds(methods);
+
+        StringBuilder src = new StringBuilder();
+        src.append("// Generated by ").append(getClass().getName()).append(", do not edit.\n");
+        if (!packageName.isEmpty()) {
+            src.append("package ").append(packageName).append(";\n");
+        }
+        src.append("\n/**\n * Shares the {@code @SharedFuture} methods of {@link ").append(type.getQualifiedName())
+                .append("} through a {@link ").append(SharedFutureInvoker.class.getName()).append("}.\n */\n");
+        if (type.getModifiers().contains(Modifier.PUBLIC)) {
+            src.append("public ");
+        }
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            src.append("abstract ");
+        }
+        src.append("class ").append(wrapperName).append(typeParameters(type.getTypeParameters()))
+                .append(" extends ").append(type.getQualifiedName()).append(typeArguments(type.getTypeParameters()))
+                .append(" {\n\n");
+
+        src.append("    private final ").append(SharedFutureInvoker.class.getName()).append(" sharedFutureInvoker;\n");
+        for (String id : ids) {
+            src.append("    private final ").append(FutureAdapter.class.getName()).append(' ').append(adapterField(id)).append(";\n");
+        }
+
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                continue;
+            }
+            src.append("\n    ").append(visibility(constructor)).append(typeParameters(constructor.getTypeParameters()))
+                    .append(wrapperName).append('(').append(SharedFutureInvoker.class.getName()).append(" sharedFutureInvoker");
+            if (!constructor.getParameters().isEmpty()) {
+                src.append(", ").append(parameters(constructor));
+            }
+            src.append(')').append(throwsClause(constructor)).append(" {\n")
+                    .append("        super(").append(arguments(constructor)).append(");\n")
+                    .append("        this.sharedFutureInvoker = sharedFutureInvoker;\n");
+            for (int i = 0; i < methods.size(); i++) {
+                src.append("        this.").append(adapterField(ids.get(i))).append(" = sharedFutureInvoker.getAdapter(")
+                        .append(types.erasure(methods.get(i).getReturnType())).append(".class);\n");
+            }
+            src.append("    }\n");
+        }
+
+        for (int i = 0; i < methods.size(); i++) {
+            writeMethod(src, type, methods.get(i), ids.get(i));
+        }
+        for (int i = 0; i < methods.size(); i++) {
+            if (methods.get(i).getAnnotation(SharedFuture.class).key().trim().isEmpty()) {
+                writeKeyClass(src, type, methods.get(i), ids.get(i));
+            }
+        }
+        src.append("}\n");
+
+        String qualifiedName = packageName.isEmpty() ? wrapperName : packageName + "." + wrapperName;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            writer.write(src.toString());
+        }
+    }
+
+    private String getUnsupportedReason(ExecutableElement method, SharedFuture annotation) {
+        Set<Modifier> modifiers = method.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.FINAL)) {
+            return "private, static or final methods can't be overridden";
+        }
+        if (!types.isAssignable(types.erasure(method.getReturnType()), futureType)) {
+            return "only methods returning a java.util.concurrent.Future are generated";
+        }
+        String key = annotation.key().trim();
+        if (key.startsWith("#{") && key.endsWith("}")) {
+            return "expression keys are evaluated at runtime";
+        }
+        if (annotation.retainFor() > 0 || annotation.staleWhileRevalidate() > 0 || annotation.timeout() > 0
+                || annotation.hedgePercentile() > 0 || annotation.failureBackoff() > 0
+                || annotation.circuitFailureRate() > 0 || annotation.completion() != CompletionPolicy.DIRECT) {
+            return "retention, timeouts, hedging, failure handling and completion policies are only supported by the aspect";
+        }
+        if (!SharedFuturesScope.GLOBAL.equals(annotation.scope())) {
+            return "scopes other than the global one are only supported by the aspect";
+        }
+        return null;
+    }
+
+    private void writeMethod(StringBuilder src, TypeElement type, ExecutableElement method, String id) {
+        String key = method.getAnnotation(SharedFuture.class).key().trim();
+        String keyExpression = key.isEmpty()
+                ? "new " + keyClass(id) + "(" + arguments(method) + ")"
+                : elements.getConstantExpression(method.getAnnotation(SharedFuture.class).key());
+        src.append("\n    @java.lang.Override\n    ").append(visibility(method))
+                .append(typeParameters(method.getTypeParameters()))
+                .append(method.getReturnType()).append(' ').append(method.getSimpleName())
+                .append('(').append(parameters(method)).append(')').append(throwsClause(method)).append(" {\n")
+                .append("        return this.sharedFutureInvoker.invoke(").append(keyExpression).append(", ")
+                .append(elements.getConstantExpression(getDisplayName(type, method))).append(", this.")
+                .append(adapterField(id)).append(",\n                () -> super.").append(method.getSimpleName())
+                .append('(').append(arguments(method)).append("));\n    }\n");
+    }
+
+    private void writeKeyClass(StringBuilder src, TypeElement type, ExecutableElement method, String id) {
+        List<? extends VariableElement> params = method.getParameters();
+        String keyClass = keyClass(id);
+        src.append("\n    private static final class ").append(keyClass).append(" {\n");
+        for (VariableElement param : params) {
+            NormalizeKey normalizeKey = param.getAnnotation(NormalizeKey.class);
+            if (isNormalized(param)) {
+                src.append("        private static final ").append(KeyNormalizer.class.getName()).append(' ')
+                        .append(normalizerField(param)).append(" = new ").append(KeyNormalizer.class.getName())
+                        .append('(').append(normalizeKey.unordered()).append(", ").append(normalizeKey.distinct())
+                        .append(", ").append(normalizeKey.ignoreCase()).append(");\n");
+            }
+        }
+        for (VariableElement param : params) {
+            src.append("        private final ").append(keyFieldType(param)).append(' ').append(param.getSimpleName()).append(";\n");
+        }
+        src.append("\n        ").append(keyClass).append('(').append(keyParameters(params)).append(") {\n");
+        for (VariableElement param : params) {
+            String name = param.getSimpleName().toString();
+            String value = isSharedFutureKey(param) ? name + " == null ? null : " + name + ".getKey()" : name;
+            src.append("            this.").append(name).append(" = ")
+                    .append(isNormalized(param) ? normalizerField(param) + ".normalize(" + value + ")" : value).append(";\n");
+        }
+        src.append("        }\n\n")
+                .append("        @java.lang.Override\n        public boolean equals(java.lang.Object o) {\n")
+                .append("            if (this == o) {\n                return true;\n            }\n")
+                .append("            if (o == null || getClass() != o.getClass()) {\n                return false;\n            }\n");
+        if (params.isEmpty()) {
+            src.append("            return true;\n");
+        } else {
+            src.append("            ").append(keyClass).append(" other = (").append(keyClass).append(") o;\n")
+                    .append("            return ").append(params.stream().map(this::fieldEquals).collect(Collectors.joining("\n                    && "))).append(";\n");
+        }
+        src.append("        }\n\n")
+                .append("        @java.lang.Override\n        public int hashCode() {\n")
+                .append("            int hash = 1;\n");
+        for (VariableElement param : params) {
+            src.append("            hash = 31 * hash + ").append(fieldHashCode(param)).append(";\n");
+        }
+        src.append("            return hash;\n        }\n\n")
+                .append("        @java.lang.Override\n        public java.lang.String toString() {\n")
+                .append("            return ").append(elements.getConstantExpression(getDisplayName(type, method) + "["));
+        for (int i = 0; i < params.size(); i++) {
+            src.append(i == 0 ? " + " : " + \", \" + ").append(fieldToString(params.get(i)));
+        }
+        src.append(" + \"]\";\n        }\n    }\n");
+    }
+
+    private String fieldEquals(VariableElement param) {
+        String name = param.getSimpleName().toString();
+        TypeMirror type = keyFieldTypeMirror(param);
+        switch (type.getKind()) {
+            case FLOAT:
+                return "java.lang.Float.compare(" + name + ", other." + name + ") == 0";
+            case DOUBLE:
+                return "java.lang.Double.compare(" + name + ", other." + name + ") == 0";
+            case ARRAY:
+                return (isPrimitiveArray(type) ? "java.util.Arrays.equals(" : "java.util.Arrays.deepEquals(") + name + ", other." + name + ")";
+            default:
+                return type.getKind().isPrimitive()
+                        ? name + " == other." + name
+                        : "java.util.Objects.equals(" + name + ", other." + name + ")";
+        }
+    }
+
+    private String fieldHashCode(VariableElement param) {
+        String name = param.getSimpleName().toString();
+        TypeMirror type = keyFieldTypeMirror(param);
+        switch (type.getKind()) {
+            case INT:
+                return name;
+            case BOOLEAN:
+                return "java.lang.Boolean.hashCode(" + name + ")";
+            case BYTE:
+                return "java.lang.Byte.hashCode(" + name + ")";
+            case SHORT:
+                return "java.lang.Short.hashCode(" + name + ")";
+            case CHAR:
+                return "java.lang.Character.hashCode(" + name + ")";
+            case LONG:
+                return "java.lang.Long.hashCode(" + name + ")";
+            case FLOAT:
+                return "java.lang.Float.hashCode(" + name + ")";
+            case DOUBLE:
+                return "java.lang.Double.hashCode(" + name + ")";
+            case ARRAY:
+                return (isPrimitiveArray(type) ? "java.util.Arrays.hashCode(" : "java.util.Arrays.deepHashCode(") + name + ")";
+            default:
+                return "java.util.Objects.hashCode(" + name + ")";
+        }
+    }
+
+    private String fieldToString(VariableElement param) {
+        String name = param.getSimpleName().toString();
+        TypeMirror type = keyFieldTypeMirror(param);
+        if (type.getKind() == TypeKind.ARRAY) {
+            return (isPrimitiveArray(type) ? "java.util.Arrays.toString(" : "java.util.Arrays.deepToString(") + name + ")";
+        }
+        return name;
+    }
+
+    private static boolean isPrimitiveArray(TypeMirror type) {
+        return ((ArrayType) type).getComponentType().getKind().isPrimitive();
+    }
+
+    private boolean isSharedFutureKey(VariableElement param) {
+        return types.isAssignable(param.asType(), sharedFutureKeyType);
+    }
+
+    /**
+     * Only object arguments are normalized, {@link KeyNormalizer} leaves primitives and arrays as they are.
+     */
+    private static boolean isNormalized(VariableElement param) {
+        return param.asType().getKind() == TypeKind.DECLARED
+                && KeyNormalizer.of(param.getAnnotation(NormalizeKey.class)) != null;
+    }
+
+    private static String normalizerField(VariableElement param) {
+        return param.getSimpleName() + "Normalizer";
+    }
+
+    /**
+     * Key classes are static, so they hold arguments by their erasure, by their key for {@link SharedFutureKey}
+     * arguments, or as plain objects when normalized, since a normalized collection comes out as a List.
+     */
+    private TypeMirror keyFieldTypeMirror(VariableElement param) {
+        if (isNormalized(param)) {
+            return elements.getTypeElement("java.lang.Object").asType();
+        }
+        return isSharedFutureKey(param)
+                ? elements.getTypeElement("java.lang.String").asType()
+                : types.erasure(param.asType());
+    }
+
+    private String keyFieldType(VariableElement param) {
+        return keyFieldTypeMirror(param).toString();
+    }
+
+    private String keyParameters(List<? extends VariableElement> params) {
+        return params.stream()
+                .map(param -> types.erasure(param.asType()) + " " + param.getSimpleName())
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Identifies each method in the names of its key class and adapter field, numbering overloads.
+     */
+    private static List<String> getMethodIds(List<ExecutableElement> methods) {
+        List<String> ids = new ArrayList<>();
+        Set<String> used = new HashSet<>();
+        for (ExecutableElement method : methods) {
+            String name = method.getSimpleName().toString();
+            String base = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            String id = base;
+            for (int i = 2; !used.add(id); i++) {
+                id = base + i;
+            }
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    private static String keyClass(String id) {
+        return id + "Key";
+    }
+
+    private static String adapterField(String id) {
+        return Character.toLowerCase(id.charAt(0)) + id.substring(1) + "Adapter";
+    }
+
+    private static String getWrapperName(TypeElement type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        for (Element enclosing = type.getEnclosingElement(); enclosing instanceof TypeElement; enclosing = enclosing.getEnclosingElement()) {
+            name.insert(0, '_').insert(0, enclosing.getSimpleName());
+        }
+        return name.append(WRAPPER_SUFFIX).toString();
+    }
+
+    /**
+     * Same as {@code SharedFutureMethodMetadata#getName()}, like {@code com.example.ProductService#getProduct(String)}.
+     */
+    private String getDisplayName(TypeElement type, ExecutableElement method) {
+        return method.getParameters().stream()
+                .map(param -> getSimpleName(types.erasure(param.asType())))
+                .collect(Collectors.joining(",", elements.getBinaryName(type) + "#" + method.getSimpleName() + "(",
+                        ")"));
+    }
+
+    private static String getSimpleName(TypeMirror type) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            return getSimpleName(((ArrayType) type).getComponentType()) + "[]";
+        }
+        if (type.getKind() == TypeKind.DECLARED) {
+            return ((DeclaredType) type).asElement().getSimpleName().toString();
+        }
+        return type.toString();
+    }
+
+    private static String visibility(ExecutableElement executable) {
+        Set<Modifier> modifiers = executable.getModifiers();
+        return modifiers.contains(Modifier.PUBLIC) ? "public " : modifiers.contains(Modifier.PROTECTED) ? "protected " : "";
+    }
+
+    private static String typeParameters(List<? extends TypeParameterElement> typeParameters) {
+        if (typeParameters.isEmpty()) {
+            return "";
+        }
+        return typeParameters.stream()
+                .map(typeParameter -> {
+                    List<String> bounds = typeParameter.getBounds().stream()
+                            .map(TypeMirror::toString)
+                            .filter(bound -> !bound.equals("java.lang.Object"))
+                            .collect(Collectors.toList());
+                    return bounds.isEmpty() ? typeParameter.getSimpleName().toString()
+                            : typeParameter.getSimpleName() + " extends " + String.join(" & ", bounds);
+                })
+                .collect(Collectors.joining(", ", "<", "> "));
+    }
+
+    private static String typeArguments(List<? extends TypeParameterElement> typeParameters) {
+        if (typeParameters.isEmpty()) {
+            return "";
+        }
+        return typeParameters.stream()
+                .map(typeParameter -> typeParameter.getSimpleName().toString())
+                .collect(Collectors.joining(", ", "<", ">"));
+    }
+
+    private static String parameters(ExecutableElement executable) {
+        List<? extends VariableElement> params = executable.getParameters();
+        List<String> declared = new ArrayList<>();
+        for (int i = 0; i < params.size(); i++) {
+            TypeMirror type = params.get(i).asType();
+            String typeName = executable.isVarArgs() && i == params.size() - 1
+                    ? ((ArrayType) type).getComponentType() + "..."
+                    : type.toString();
+            declared.add(typeName + " " + params.get(i).getSimpleName());
+        }
+        return String.join(", ", declared);
+    }
+
+    private static String arguments(ExecutableElement executable) {
+        return executable.getParameters().stream()
+                .map(param -> param.getSimpleName().toString())
+                .collect(Collectors.joining(", "));
+    }
+
+    private static String throwsClause(ExecutableElement executable) {
+        if (executable.getThrownTypes().isEmpty()) {
+            return "";
+        }
+        return executable.getThrownTypes().stream()
+                .map(TypeMirror::toString)
+                .collect(Collectors.joining(", ", " throws ", ""));
+    }
+}
@@ -0,0 +1,114 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+import com.ulisesbocchio.sharedfutures.metrics.SharedFuturesMetrics;
+import com.ulisesbocchio.sharedfutures.spring.annotation.SharedFuture;
+import com.ulisesbocchio.sharedfutures.spring.annotation.SharingPolicy;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link SharingPolicy#ADAPTIVE} controller of a {@link SharedFuture} method. Every shared call reports whether it
+ * was a hit and the nanoseconds it spent generating its key and joining the registry, and every execution its time in
+ * flight. Once a window of {@link SharedFuture#adaptiveWindow()} calls is sampled, the overhead of the window is
+ * compared with the time in flight its hits saved, priced at the mean time in flight of the last window that had
+ * executions complete. Only after {@link #LOSING_WINDOWS} consecutive windows whose overhead was larger is sharing
+ * bypassed for {@link SharedFuture#adaptiveProbeInterval()} milliseconds, after which new windows are sampled with
+ * sharing on, so a single cold window doesn't turn sharing off. Windows with hits while no execution time was ever
+ * measured are undecided. Counters are reset by the call closing the window, so a few samples of concurrent calls may
+ * be dropped.
+ *
+ * @author ulisesbocchio
+ */
+final class AdaptiveSharing {
+
+    /**
+     * Consecutive windows where sharing cost more than it saved before it is bypassed.
+     */
+    static final int LOSING_WINDOWS = 3;
+
+    private final String name;
+    private final int window;
+    private final long probeNanos;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong overheadNanos = new AtomicLong();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong executionNanos = new AtomicLong();
+    private final AtomicBoolean bypassed = new AtomicBoolean();
+    private volatile long bypassedSinceNanos;
+    private long meanExecutionNanos = -1;
+    private int losingWindows;
+
+    AdaptiveSharing(String name, int window, long probeIntervalMillis) {
+        this.name = name;
+        this.window = Math.max(1, window);
+        this.probeNanos = TimeUnit.MILLISECONDS.toNanos(probeIntervalMillis);
+    }
+
+    /**
+     * @return true while calls must skip sharing, reporting the end of the bypass when the probe interval is over
+     */
+    boolean isBypassed(SharedFuturesMetrics metrics) {
+        if (!bypassed.get()) {
+            return false;
+        }
+        if (System.nanoTime() - bypassedSinceNanos < probeNanos) {
+            return true;
+        }
+        if (bypassed.compareAndSet(true, false)) {
+            metrics.sharingDecision(name, false);
+        }
+        return false;
+    }
+
+    /**
+     * Samples a shared call, deciding whether to bypass sharing if it closes the window.
+     *
+     * @param overheadNanos nanoseconds spent sharing the call, without executing the method
+     */
+    void sampled(boolean hit, long overheadNanos, SharedFuturesMetrics metrics) {
+        if (hit) {
+            hits.incrementAndGet();
+        }
+        this.overheadNanos.addAndGet(overheadNanos);
+        if (calls.incrementAndGet() == window) {
+            decide(metrics);
+        }
+    }
+
+    /**
+     * Samples the time in flight of a successful execution.
+     */
+    void executed(long inFlightNanos) {
+        executions.incrementAndGet();
+        executionNanos.addAndGet(inFlightNanos);
+    }
+
+    private synchronized void decide(SharedFuturesMetrics metrics) {
+        long hits = this.hits.getAndSet(0);
+        long overhead = overheadNanos.getAndSet(0);
+        long executions = this.executions.getAndSet(0);
+        long executionNanos = this.executionNanos.getAndSet(0);
+        calls.set(0);
+        if (executions > 0) {
+            meanExecutionNanos = executionNanos / executions;
+        }
+        if (hits > 0 && meanExecutionNanos < 0) {
+            // nothing to price the hits at yet
+            return;
+        }
+        double saved = hits == 0 ? 0 : (double) hits * meanExecutionNanos;
+        if (overhead <= saved) {
+            losingWindows = 0;
+            return;
+        }
+        if (++losingWindows >= LOSING_WINDOWS) {
+            losingWindows = 0;
+            bypassedSinceNanos = System.nanoTime();
+            bypassed.set(true);
+            metrics.sharingDecision(name, true);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+import com.ulisesbocchio.sharedfutures.SharedFuturesCircuitOpenException;
+import com.ulisesbocchio.sharedfutures.spring.annotation.SharedFuture;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tracks the error rate of the executions of a {@link SharedFuture} method over a rolling window and trips open once
+ * it reaches {@link SharedFuture#circuitFailureRate()}. While open, executions are refused and calls fail fast with a
+ * {@link SharedFuturesCircuitOpenException}. After {@link SharedFuture#circuitOpenFor()} a single trial execution is
+ * let through, half open: if it succeeds the circuit closes, otherwise it opens again.
+ * Outcomes are counted in ten buckets spanning the window, so recording takes no locks.
+ *
+ * @author ulisesbocchio
+ */
+public final class CircuitBreaker {
+
+    private static final int BUCKETS = 10;
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final double failureRate;
+    private final int minCalls;
+    private final long bucketNanos;
+    private final long openNanos;
+    private final AtomicLongArray epochs = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray successes = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray failures = new AtomicLongArray(BUCKETS);
+    private final AtomicReference<Circuit> circuit = new AtomicReference<>(new Circuit(State.CLOSED, 0, null));
+
+    /**
+     * @param failureRate fraction of failed executions, between 0 and 1, that opens the circuit
+     * @param minCalls    executions in the window needed before the failure rate is considered
+     */
+    public CircuitBreaker(String name, double failureRate, int minCalls, long windowMillis, long openMillis) {
+        this.name = name;
+        this.failureRate = failureRate;
+        this.minCalls = Math.max(1, minCalls);
+        this.bucketNanos = Math.max(1, TimeUnit.MILLISECONDS.toNanos(windowMillis) / BUCKETS);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        for (int i = 0; i < BUCKETS; i++) {
+            epochs.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    public State getState() {
+        return circuit.get().state;
+    }
+
+    /**
+     * @return true while executions are refused, without taking the half open trial
+     */
+    public boolean isOpen() {
+        Circuit current = circuit.get();
+        return current.state == State.OPEN && System.nanoTime() - current.sinceNanos < openNanos;
+    }
+
+    /**
+     * Asks for permission to execute the method. Once open for long enough, the first caller is let through as the
+     * half open trial; the trial is given again if it never reports its outcome, like when it is cancelled.
+     *
+     * @return true if the method can be executed
+     */
+    public boolean tryAcquire() {
+        for (;;) {
+            Circuit current = circuit.get();
+            if (current.state == State.CLOSED) {
+                return true;
+            }
+            long now = System.nanoTime();
+            if (now - current.sinceNanos < openNanos) {
+                return false;
+            }
+            if (circuit.compareAndSet(current, new Circuit(State.HALF_OPEN, now, current.failure))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return the failure handed to calls while open, with the failure that opened the circuit as its cause
+     */
+    public SharedFuturesCircuitOpenException getOpenFailure() {
+        return circuit.get().failure;
+    }
+
+    /**
+     * Records the outcome of an execution.
+     *
+     * @param failure what the execution failed with, or null if it succeeded
+     */
+    public void record(Throwable failure) {
+        Circuit current = circuit.get();
+        if (current.state == State.HALF_OPEN) {
+            if (failure == null) {
+                reset();
+                circuit.compareAndSet(current, new Circuit(State.CLOSED, System.nanoTime(), null));
+            } else {
+                circuit.compareAndSet(current, open(failure));
+            }
+            return;
+        }
+        long epoch = System.nanoTime() / bucketNanos;
+        int bucket = (int) Math.floorMod(epoch, (long) BUCKETS);
+        long bucketEpoch = epochs.get(bucket);
+        if (bucketEpoch != epoch && epochs.compareAndSet(bucket, bucketEpoch, epoch)) {
+            successes.set(bucket, 0);
+            failures.set(bucket, 0);
+        }
+        (failure == null ? successes : failures).incrementAndGet(bucket);
+        if (failure != null && current.state == State.CLOSED) {
+            long[] counts = count(epoch);
+            if (counts[0] + counts[1] >= minCalls && counts[1] >= failureRate * (counts[0] + counts[1])) {
+                circuit.compareAndSet(current, open(failure));
+            }
+        }
+    }
+
+    /**
+     * @return fraction of the executions in the window that failed
+     */
+    public double getFailureRate() {
+        long[] counts = count(System.nanoTime() / bucketNanos);
+        long total = counts[0] + counts[1];
+        return total == 0 ? 0 : (double) counts[1] / total;
+    }
+
+    private Circuit open(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        return new Circuit(State.OPEN, System.nanoTime(), new SharedFuturesCircuitOpenException(
+                String.format("Circuit open for %s, failing fast", name), cause));
+    }
+
+    private long[] count(long epoch) {
+        long[] counts = new long[2];
+        for (int i = 0; i < BUCKETS; i++) {
+            long bucketEpoch = epochs.get(i);
+            if (bucketEpoch != Long.MIN_VALUE && bucketEpoch <= epoch && epoch - bucketEpoch < BUCKETS) {
+                counts[0] += successes.get(i);
+                counts[1] += failures.get(i);
+            }
+        }
+        return counts;
+    }
+
+    private void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            epochs.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    private static final class Circuit {
+        private final State state;
+        private final long sinceNanos;
+        private final SharedFuturesCircuitOpenException failure;
+
+        Circuit(State state, long sinceNanos, SharedFuturesCircuitOpenException failure) {
+            this.state = state;
+            this.sinceNanos = sinceNanos;
+            this.failure = failure;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * Structured shared future key made of the target class, the method and the normalized keys of its arguments.
+ * The hash code is computed once at construction.
+ *
+ * @author ulisesbocchio
+ */
+public final class CompositeKey {
+
+    private final Class<?> targetClass;
+    private final Method method;
+    private final Object[] args;
+    private final int hash;
+
+    public CompositeKey(Class<?> targetClass, Method method, Object[] args) {
+        this.targetClass = targetClass;
+        this.method = method;
+        this.args = args;
+        this.hash = 31 * (31 * targetClass.hashCode() + method.hashCode()) + Arrays.hashCode(args);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompositeKey)) {
+            return false;
+        }
+        CompositeKey that = (CompositeKey) o;
+        return hash == that.hash
+                && targetClass == that.targetClass
+                && method.equals(that.method)
+                && Arrays.equals(args, that.args);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(targetClass.getName()).append('#').append(method.getName()).append('(');
+        for (int i = 0; i < args.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(args[i]);
+        }
+        return sb.append(')').toString();
+    }
+
+    /**
+     * Normalized key of a {@link java.util.Collection} or {@link java.util.Map} argument.
+     */
+    static final class Elements {
+        private final Object[] elements;
+        private final int hash;
+
+        Elements(Object[] elements) {
+            this.elements = elements;
+            this.hash = Arrays.hashCode(elements);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof Elements
+                    && hash == ((Elements) o).hash
+                    && Arrays.equals(elements, ((Elements) o).elements);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(elements);
+        }
+    }
+
+    /**
+     * Normalized key of a {@link java.util.Map.Entry}.
+     */
+    static final class Entry {
+        private final Object key;
+        private final Object value;
+        private final int hash;
+
+        Entry(Object key, Object value) {
+            this.key = key;
+            this.value = value;
+            this.hash = 31 * key.hashCode() + value.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof Entry
+                    && hash == ((Entry) o).hash
+                    && key.equals(((Entry) o).key)
+                    && value.equals(((Entry) o).value);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+}
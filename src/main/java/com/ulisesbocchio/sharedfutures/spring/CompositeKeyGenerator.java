@@ -0,0 +1,69 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+import org.apache.commons.lang3.ClassUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * {@link KeyGenerator} that builds a {@link CompositeKey} out of the method and its arguments instead of a hashed
+ * String, avoiding intermediate Strings and digests. Supports the same argument types as
+ * {@link DefaultKeyGenerator}.
+ *
+ * @author ulisesbocchio
+ */
+public class CompositeKeyGenerator implements KeyGenerator {
+    private static final Logger LOG = LoggerFactory.getLogger(CompositeKeyGenerator.class);
+
+    public CompositeKeyGenerator() {
+        LOG.debug("Initialized Composite Key Generator");
+    }
+
+    @Override
+    public CompositeKey generate(Object target, Method method, Object... args) {
+        Object[] keys = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            keys[i] = getParamKey(args[i], target.getClass(), method, i);
+        }
+        CompositeKey key = new CompositeKey(target.getClass(), method, keys);
+        LOG.debug("generated key: {}", key);
+        return key;
+    }
+
+    private Object getParamKey(Object arg, Class<?> targetClass, Method method, int param) {
+        if (arg instanceof SharedFutureKey) {
+            return ((SharedFutureKey) arg).getKey();
+        } else if (arg instanceof String) {
+            return arg;
+        } else if (ClassUtils.isPrimitiveOrWrapper(arg.getClass())) {
+            return arg;
+        } else if (arg instanceof Collection) {
+            return getCollectionParam((Collection<?>) arg, targetClass, method, param);
+        } else if (arg instanceof Map) {
+            return getCollectionParam(((Map<?, ?>) arg).entrySet(), targetClass, method, param);
+        } else if (arg instanceof Map.Entry) {
+            return getMapEntryParam((Map.Entry<?, ?>) arg, targetClass, method, param);
+        }
+        throw new IllegalArgumentException(
+                String.format("Cannot generate key for type: %s found in Argument %s of method %s#%s",
+                        arg.getClass().getName(), method.getParameters()[param].getName(), targetClass.getName(), method.getName()));
+    }
+
+    private Object getMapEntryParam(Map.Entry<?, ?> arg, Class<?> targetClass, Method method, int param) {
+        return new CompositeKey.Entry(
+                getParamKey(arg.getKey(), targetClass, method, param),
+                getParamKey(arg.getValue(), targetClass, method, param));
+    }
+
+    private Object getCollectionParam(Collection<?> col, Class<?> targetClass, Method method, int param) {
+        Object[] elements = new Object[col.size()];
+        int i = 0;
+        for (Object e : col) {
+            elements[i++] = getParamKey(e, targetClass, method, param);
+        }
+        return new CompositeKey.Elements(elements);
+    }
+}
@@ -0,0 +1,24 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+/**
+ * {@link SharedFutureKey} that writes its key material into a {@link KeyEncoder} instead of rendering it as a String,
+ * so {@link HashingKeyGenerator} hashes large arguments without building temporary Strings. Other key generators use
+ * the hash of the encoded key as String.
+ *
+ * @author ulisesbocchio
+ */
+public interface EncodableSharedFutureKey extends SharedFutureKey {
+
+    /**
+     * Writes whatever identifies this argument, for instance with {@link KeyEncoder#putString(CharSequence)} or
+     * {@link KeyEncoder#putKey(Object)} for nested values.
+     */
+    void encode(KeyEncoder encoder);
+
+    @Override
+    default String getKey() {
+        KeyEncoder encoder = KeyEncoder.acquire();
+        encode(encoder);
+        return encoder.finish().toString();
+    }
+}
@@ -0,0 +1,63 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+/**
+ * Fixed size shared future key, the 128 bit hash of everything written to a {@link KeyEncoder}. Takes the same memory
+ * no matter how large the hashed arguments were.
+ *
+ * @author ulisesbocchio
+ */
+public final class HashedKey {
+
+    private final long h1;
+    private final long h2;
+
+    public HashedKey(long h1, long h2) {
+        this.h1 = h1;
+        this.h2 = h2;
+    }
+
+    /**
+     * @return the first 64 bits of the hash, like Guava's {@code HashCode#asLong()}
+     */
+    public long getH1() {
+        return h1;
+    }
+
+    public long getH2() {
+        return h2;
+    }
+
+    /**
+     * @return the hash as 16 little endian bytes, like Guava's {@code HashCode#asBytes()}
+     */
+    public byte[] toBytes() {
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (h1 >>> (i * 8));
+            bytes[i + 8] = (byte) (h2 >>> (i * 8));
+        }
+        return bytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof HashedKey && h1 == ((HashedKey) o).h1 && h2 == ((HashedKey) o).h2;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) h1;
+    }
+
+    /**
+     * @return the hash as 32 hexadecimal digits, in the byte order of {@link #toBytes()}
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(32);
+        for (byte b : toBytes()) {
+            sb.append(Character.forDigit(b >>> 4 & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,47 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link KeyGenerator} that streams the target class, the method and its arguments through a {@link KeyEncoder} and
+ * returns their 128 bit hash as a {@link HashedKey}. Unlike {@link DefaultKeyGenerator} it builds no Strings out of
+ * the arguments, and unlike {@link CompositeKeyGenerator} the key doesn't hold them, so both the garbage per call and
+ * the memory per in-flight key stay constant however large the arguments are. Supports the same argument types as
+ * {@link DefaultKeyGenerator}, and {@link EncodableSharedFutureKey} arguments are encoded without Strings too.
+ *
+ * @author ulisesbocchio
+ */
+public class HashingKeyGenerator implements KeyGenerator {
+    private static final Logger LOG = LoggerFactory.getLogger(HashingKeyGenerator.class);
+
+    private final Map<Method, String> signatures = new ConcurrentHashMap<>();
+
+    public HashingKeyGenerator() {
+        LOG.debug("Initialized Hashing Key Generator");
+    }
+
+    @Override
+    public HashedKey generate(Object target, Method method, Object... args) {
+        String signature = signatures.get(method);
+        if (signature == null) {
+            signature = signatures.computeIfAbsent(method, Method::toString);
+        }
+        KeyEncoder encoder = KeyEncoder.acquire();
+        HashedKey key;
+        try {
+            encoder.putString(target.getClass().getName()).putString(signature);
+            for (Object arg : args) {
+                encoder.putKey(arg);
+            }
+        } finally {
+            key = encoder.finish();
+        }
+        LOG.debug("generated key: {}", key);
+        return key;
+    }
+}
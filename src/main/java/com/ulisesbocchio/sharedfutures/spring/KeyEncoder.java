@@ -0,0 +1,290 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Streams key material into a 128 bit MurmurHash3 (x64 variant, seed 0) through a fixed size buffer that is hashed
+ * every time it fills up, so encoding arguments of any size takes constant memory and produces a fixed size
+ * {@link HashedKey}. Primitive writes are laid out like Guava's {@code Hashing.murmur3_128()} hasher, little endian
+ * and strings as UTF-16 code units, so both produce the same hash for the same writes.
+ * Encoders are reused per thread, see {@link #acquire()}; an instance is not thread safe.
+ *
+ * @author ulisesbocchio
+ */
+public final class KeyEncoder {
+
+    private static final int BUFFER_SIZE = 256;
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+    private static final ThreadLocal<KeyEncoder> ENCODERS = ThreadLocal.withInitial(KeyEncoder::new);
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte BOOLEAN = 2;
+    private static final byte CHAR = 3;
+    private static final byte INTEGER = 4;
+    private static final byte LONG = 5;
+    private static final byte FLOAT = 6;
+    private static final byte DOUBLE = 7;
+    private static final byte COLLECTION = 8;
+    private static final byte MAP = 9;
+    private static final byte ENTRY = 10;
+    private static final byte SHARED_FUTURE_KEY = 11;
+    private static final byte ENCODABLE = 12;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private long length;
+    private long h1;
+    private long h2;
+    private boolean inUse;
+
+    KeyEncoder() {
+    }
+
+    /**
+     * @return the encoder of the current thread, reset, or a new one if it is already encoding a key, like when an
+     * {@link EncodableSharedFutureKey} hashes another key while being encoded. Must be {@link #finish() finished}.
+     */
+    public static KeyEncoder acquire() {
+        KeyEncoder encoder = ENCODERS.get();
+        if (encoder.inUse) {
+            encoder = new KeyEncoder();
+        }
+        encoder.inUse = true;
+        encoder.position = 0;
+        encoder.length = 0;
+        encoder.h1 = 0;
+        encoder.h2 = 0;
+        return encoder;
+    }
+
+    /**
+     * Writes a key argument preceded by its type, so arguments of different types or shapes never encode the same.
+     * Supports the same types as {@link DefaultKeyGenerator} plus {@link EncodableSharedFutureKey} and null.
+     *
+     * @throws IllegalArgumentException if the argument, or any of its elements, is not supported
+     */
+    public KeyEncoder putKey(Object arg) {
+        if (arg == null) {
+            return putByte(NULL);
+        } else if (arg instanceof EncodableSharedFutureKey) {
+            putByte(ENCODABLE);
+            ((EncodableSharedFutureKey) arg).encode(this);
+            return this;
+        } else if (arg instanceof SharedFutureKey) {
+            return putByte(SHARED_FUTURE_KEY).putString(((SharedFutureKey) arg).getKey());
+        } else if (arg instanceof String) {
+            return putByte(STRING).putString((String) arg);
+        } else if (arg instanceof Integer || arg instanceof Short || arg instanceof Byte) {
+            return putByte(INTEGER).putInt(((Number) arg).intValue());
+        } else if (arg instanceof Long) {
+            return putByte(LONG).putLong((Long) arg);
+        } else if (arg instanceof Boolean) {
+            return putByte(BOOLEAN).putBoolean((Boolean) arg);
+        } else if (arg instanceof Character) {
+            return putByte(CHAR).putChar((Character) arg);
+        } else if (arg instanceof Double) {
+            return putByte(DOUBLE).putDouble((Double) arg);
+        } else if (arg instanceof Float) {
+            return putByte(FLOAT).putFloat((Float) arg);
+        } else if (arg instanceof Collection) {
+            Collection<?> collection = (Collection<?>) arg;
+            putByte(COLLECTION).putInt(collection.size());
+            for (Object element : collection) {
+                putKey(element);
+            }
+            return this;
+        } else if (arg instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) arg;
+            putByte(MAP).putInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                putKey(entry.getKey()).putKey(entry.getValue());
+            }
+            return this;
+        } else if (arg instanceof Map.Entry) {
+            return putByte(ENTRY).putKey(((Map.Entry<?, ?>) arg).getKey()).putKey(((Map.Entry<?, ?>) arg).getValue());
+        }
+        throw new IllegalArgumentException("Cannot encode key for type: " + arg.getClass().getName());
+    }
+
+    public KeyEncoder putByte(byte b) {
+        ensure(1);
+        buffer[position++] = b;
+        return this;
+    }
+
+    public KeyEncoder putBoolean(boolean b) {
+        return putByte(b ? (byte) 1 : (byte) 0);
+    }
+
+    public KeyEncoder putChar(char c) {
+        ensure(2);
+        buffer[position++] = (byte) c;
+        buffer[position++] = (byte) (c >>> 8);
+        return this;
+    }
+
+    public KeyEncoder putInt(int i) {
+        ensure(4);
+        for (int shift = 0; shift < 32; shift += 8) {
+            buffer[position++] = (byte) (i >>> shift);
+        }
+        return this;
+    }
+
+    public KeyEncoder putLong(long l) {
+        ensure(8);
+        for (int shift = 0; shift < 64; shift += 8) {
+            buffer[position++] = (byte) (l >>> shift);
+        }
+        return this;
+    }
+
+    public KeyEncoder putFloat(float f) {
+        return putInt(Float.floatToIntBits(f));
+    }
+
+    public KeyEncoder putDouble(double d) {
+        return putLong(Double.doubleToLongBits(d));
+    }
+
+    /**
+     * Writes the length of the string followed by its UTF-16 code units, like Guava's {@code putInt} followed by
+     * {@code putUnencodedChars}.
+     */
+    public KeyEncoder putString(CharSequence s) {
+        putInt(s.length());
+        return putChars(s);
+    }
+
+    /**
+     * Writes the UTF-16 code units of the string without its length, like Guava's {@code putUnencodedChars}.
+     */
+    public KeyEncoder putChars(CharSequence s) {
+        int i = 0;
+        int length = s.length();
+        while (i < length) {
+            if (BUFFER_SIZE - position < 2) {
+                flush();
+            }
+            int end = Math.min(length, i + (BUFFER_SIZE - position) / 2);
+            for (; i < end; i++) {
+                char c = s.charAt(i);
+                buffer[position++] = (byte) c;
+                buffer[position++] = (byte) (c >>> 8);
+            }
+        }
+        return this;
+    }
+
+    public KeyEncoder putBytes(byte[] bytes) {
+        int i = 0;
+        while (i < bytes.length) {
+            if (position == BUFFER_SIZE) {
+                flush();
+            }
+            int count = Math.min(bytes.length - i, BUFFER_SIZE - position);
+            System.arraycopy(bytes, i, buffer, position, count);
+            position += count;
+            i += count;
+        }
+        return this;
+    }
+
+    /**
+     * Hashes what is left in the buffer and releases the encoder.
+     */
+    public HashedKey finish() {
+        flush();
+        long k1 = 0;
+        long k2 = 0;
+        int tail = position;
+        for (int i = tail - 1; i >= 8; i--) {
+            k2 = k2 << 8 | buffer[i] & 0xffL;
+        }
+        for (int i = Math.min(tail, 8) - 1; i >= 0; i--) {
+            k1 = k1 << 8 | buffer[i] & 0xffL;
+        }
+        if (tail > 8) {
+            h2 ^= mixK2(k2);
+        }
+        if (tail > 0) {
+            h1 ^= mixK1(k1);
+        }
+        length += tail;
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        inUse = false;
+        return new HashedKey(h1, h2);
+    }
+
+    private void ensure(int bytes) {
+        if (BUFFER_SIZE - position < bytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Hashes every complete 16 byte block in the buffer and moves the remaining bytes to its start.
+     */
+    private void flush() {
+        int blocks = position >>> 4;
+        for (int i = 0; i < blocks; i++) {
+            int offset = i << 4;
+            processBlock(getLong(offset), getLong(offset + 8));
+        }
+        int processed = blocks << 4;
+        int remaining = position - processed;
+        System.arraycopy(buffer, processed, buffer, 0, remaining);
+        position = remaining;
+        length += processed;
+    }
+
+    private long getLong(int offset) {
+        long l = 0;
+        for (int i = offset + 7; i >= offset; i--) {
+            l = l << 8 | buffer[i] & 0xffL;
+        }
+        return l;
+    }
+
+    private void processBlock(long k1, long k2) {
+        h1 ^= mixK1(k1);
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+        h2 ^= mixK2(k2);
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        return k1 * C2;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        return k2 * C1;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
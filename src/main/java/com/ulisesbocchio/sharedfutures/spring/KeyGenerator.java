@@ -7,5 +7,8 @@ import java.lang.reflect.Method;
  */
 public interface KeyGenerator {
 
-    String generate(Object target, Method method, Object... params);
+    /**
+     * @return the shared future key, any object with consistent {@code equals} and {@code hashCode}
+     */
+    Object generate(Object target, Method method, Object... params);
 }
@@ -0,0 +1,126 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+import com.ulisesbocchio.sharedfutures.spring.annotation.NormalizeKey;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Rewrites an argument into its canonical form, as configured by {@link NormalizeKey}, before a key is generated
+ * from it. Collections come out as Lists and maps as Lists of entries, which every key generator supports. Arguments
+ * that need no normalization are returned as they are.
+ * Elements are sorted by their natural order when they are comparable with each other, by their key for
+ * {@link SharedFutureKey SharedFutureKeys}, and by type, hash code and String form otherwise.
+ *
+ * @author ulisesbocchio
+ */
+public final class KeyNormalizer {
+
+    private static final Comparator<Object> ORDER = KeyNormalizer::compare;
+
+    private final boolean unordered;
+    private final boolean distinct;
+    private final boolean ignoreCase;
+
+    public KeyNormalizer(boolean unordered, boolean distinct, boolean ignoreCase) {
+        this.unordered = unordered || distinct;
+        this.distinct = distinct;
+        this.ignoreCase = ignoreCase;
+    }
+
+    /**
+     * @return the normalizer for the annotation, or null if it is null or normalizes nothing
+     */
+    public static KeyNormalizer of(NormalizeKey annotation) {
+        if (annotation == null || !(annotation.unordered() || annotation.distinct() || annotation.ignoreCase())) {
+            return null;
+        }
+        return new KeyNormalizer(annotation.unordered(), annotation.distinct(), annotation.ignoreCase());
+    }
+
+    public Object normalize(Object arg) {
+        if (arg instanceof String) {
+            return ignoreCase ? ((String) arg).toLowerCase(Locale.ROOT) : arg;
+        } else if (arg instanceof Collection) {
+            return normalize(((Collection<?>) arg).toArray());
+        } else if (arg instanceof Map) {
+            Object[] entries = ((Map<?, ?>) arg).entrySet().toArray();
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = normalizeEntry((Map.Entry<?, ?>) entries[i]);
+            }
+            if (unordered) {
+                Arrays.sort(entries, ORDER);
+            }
+            return Arrays.asList(entries);
+        } else if (arg instanceof Map.Entry) {
+            return normalizeEntry((Map.Entry<?, ?>) arg);
+        }
+        return arg;
+    }
+
+    private List<Object> normalize(Object[] elements) {
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = normalize(elements[i]);
+        }
+        if (!unordered) {
+            return Arrays.asList(elements);
+        }
+        Arrays.sort(elements, ORDER);
+        if (!distinct || elements.length < 2) {
+            return Arrays.asList(elements);
+        }
+        int size = 1;
+        for (int i = 1; i < elements.length; i++) {
+            if (!equal(elements[i], elements[size - 1])) {
+                elements[size++] = elements[i];
+            }
+        }
+        return Arrays.asList(elements).subList(0, size);
+    }
+
+    private Map.Entry<Object, Object> normalizeEntry(Map.Entry<?, ?> entry) {
+        return new AbstractMap.SimpleImmutableEntry<>(normalize(entry.getKey()), normalize(entry.getValue()));
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a instanceof SharedFutureKey && b instanceof SharedFutureKey
+                ? Objects.equals(((SharedFutureKey) a).getKey(), ((SharedFutureKey) b).getKey())
+                : Objects.equals(a, b);
+    }
+
+    private static Object sortKey(Object o) {
+        if (o instanceof SharedFutureKey) {
+            return ((SharedFutureKey) o).getKey();
+        } else if (o instanceof Map.Entry) {
+            return ((Map.Entry<?, ?>) o).getKey();
+        }
+        return o;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(Object a, Object b) {
+        Object ka = sortKey(a);
+        Object kb = sortKey(b);
+        if (ka == null || kb == null) {
+            return ka == kb ? 0 : ka == null ? -1 : 1;
+        }
+        if (ka.getClass() == kb.getClass() && ka instanceof Comparable) {
+            int c = ((Comparable<Object>) ka).compareTo(kb);
+            if (c != 0 || !(a instanceof Map.Entry)) {
+                return c;
+            }
+            return compare(((Map.Entry<?, ?>) a).getValue(), ((Map.Entry<?, ?>) b).getValue());
+        }
+        int c = ka.getClass().getName().compareTo(kb.getClass().getName());
+        if (c == 0) {
+            c = Integer.compare(ka.hashCode(), kb.hashCode());
+        }
+        return c != 0 ? c : ka.toString().compareTo(kb.toString());
+    }
+}
@@ -0,0 +1,60 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+import com.ulisesbocchio.sharedfutures.spring.annotation.SharedFuture;
+
+import java.util.Arrays;
+
+/**
+ * Estimates the {@link SharedFuture#hedgePercentile()} of the latest latencies of a method. Only the last
+ * {@link #SAMPLES} latencies are kept, so the estimate follows shifts in latency instead of being skewed by all
+ * history, and the percentile is computed exactly from them every {@link #RECOMPUTE_EVERY} latencies, so reading it
+ * on every execution is a volatile read.
+ *
+ * @author ulisesbocchio
+ */
+final class LatencyWindow {
+
+    static final int SAMPLES = 256;
+    static final int RECOMPUTE_EVERY = 16;
+
+    private final double percentile;
+    private final long[] samples = new long[SAMPLES];
+    private long count;
+    private volatile long recorded;
+    private volatile long estimate = -1;
+
+    LatencyWindow(double percentile) {
+        this.percentile = percentile;
+    }
+
+    void record(long nanos) {
+        long[] window = null;
+        synchronized (this) {
+            samples[(int) (count % SAMPLES)] = nanos;
+            count++;
+            recorded = count;
+            if (count < RECOMPUTE_EVERY || count % RECOMPUTE_EVERY == 0) {
+                window = Arrays.copyOf(samples, (int) Math.min(count, SAMPLES));
+            }
+        }
+        if (window != null) {
+            Arrays.sort(window);
+            int index = (int) Math.ceil(percentile * window.length) - 1;
+            estimate = window[Math.max(0, Math.min(window.length - 1, index))];
+        }
+    }
+
+    /**
+     * @return number of latencies recorded so far
+     */
+    long getCount() {
+        return recorded;
+    }
+
+    /**
+     * @return the percentile of the latest latencies, or -1 if none was recorded
+     */
+    long getPercentile() {
+        return estimate;
+    }
+}
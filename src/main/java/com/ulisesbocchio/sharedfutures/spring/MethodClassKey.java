@@ -0,0 +1,64 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+
+/**
+ * Cache key of a method invoked on a target class. Under JDK proxies the intercepted method is the one declared by the
+ * interface, shared by every bean implementing it, so per method state is cached per method and target class.
+ *
+ * @author ulisesbocchio
+ */
+final class MethodClassKey {
+
+    private final Method method;
+    private final Class<?> targetClass;
+
+    MethodClassKey(Method method, Class<?> targetClass) {
+        this.method = method;
+        this.targetClass = targetClass;
+    }
+
+    /**
+     * @return the key of the method intercepted at the join point and of the user class of its target, or the
+     * class declaring the method if there is no target
+     */
+    static MethodClassKey of(JoinPoint joinPoint) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Object target = joinPoint.getTarget();
+        return new MethodClassKey(method, target != null ? ClassUtils.getUserClass(target) : method.getDeclaringClass());
+    }
+
+    Method getMethod() {
+        return method;
+    }
+
+    Class<?> getTargetClass() {
+        return targetClass;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof MethodClassKey)) {
+            return false;
+        }
+        MethodClassKey that = (MethodClassKey) other;
+        return method.equals(that.method) && targetClass.equals(that.targetClass);
+    }
+
+    @Override
+    public int hashCode() {
+        return method.hashCode() * 31 + targetClass.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return method + " on " + targetClass.getName();
+    }
+}
@@ -0,0 +1,108 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+import com.google.common.cache.Weigher;
+import com.ulisesbocchio.sharedfutures.spring.SharedFutureMethodMetadata.Retained;
+import com.ulisesbocchio.sharedfutures.spring.annotation.SharedFuture;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Estimates the bytes held by a retained value for {@link SharedFuture#retainMaxBytes()}. Strings, primitive arrays,
+ * collections and maps are walked up to a few levels deep, anything else counts as a small object. The estimate is
+ * only meant to keep the retained values of a method in the right order of magnitude, and is computed once per entry.
+ *
+ * @author ulisesbocchio
+ */
+final class RetainedWeigher implements Weigher<Object, Retained> {
+
+    static final RetainedWeigher INSTANCE = new RetainedWeigher();
+
+    private static final int OBJECT = 16;
+    private static final int REFERENCE = 8;
+    private static final int ENTRY = 32;
+    private static final int MAX_DEPTH = 4;
+
+    private RetainedWeigher() {
+    }
+
+    @Override
+    public int weigh(Object key, Retained value) {
+        return (int) Math.min(Integer.MAX_VALUE, OBJECT + estimate(getValue(value.getFuture()), 0));
+    }
+
+    private static Object getValue(Future<?> future) {
+        if (!future.isDone() || future.isCancelled()) {
+            return null;
+        }
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            return e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    static long estimate(Object value, int depth) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof CharSequence) {
+            return OBJECT * 2 + 2L * ((CharSequence) value).length();
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+            return OBJECT;
+        }
+        if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            Class<?> component = value.getClass().getComponentType();
+            if (component.isPrimitive()) {
+                return OBJECT + (long) length * primitiveSize(component);
+            }
+            long size = OBJECT + (long) length * REFERENCE;
+            if (depth < MAX_DEPTH) {
+                for (int i = 0; i < length; i++) {
+                    size += estimate(Array.get(value, i), depth + 1);
+                }
+            }
+            return size;
+        }
+        if (value instanceof Collection) {
+            long size = OBJECT * 2 + (long) ((Collection<?>) value).size() * ENTRY;
+            if (depth < MAX_DEPTH) {
+                for (Object element : (Collection<?>) value) {
+                    size += estimate(element, depth + 1);
+                }
+            }
+            return size;
+        }
+        if (value instanceof Map) {
+            long size = OBJECT * 4 + (long) ((Map<?, ?>) value).size() * ENTRY;
+            if (depth < MAX_DEPTH) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    size += estimate(entry.getKey(), depth + 1) + estimate(entry.getValue(), depth + 1);
+                }
+            }
+            return size;
+        }
+        return OBJECT * 4;
+    }
+
+    private static int primitiveSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,203 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+import com.ulisesbocchio.sharedfutures.SharedFuturesRegistry;
+import com.ulisesbocchio.sharedfutures.SharedFuturesRegistry.InFlight;
+import com.ulisesbocchio.sharedfutures.adapter.FutureAdapters;
+import com.ulisesbocchio.sharedfutures.metrics.SharedFuturesMetrics;
+import com.ulisesbocchio.sharedfutures.spring.annotation.ElementWiseSharedFuture;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+
+/**
+ * Shares the elements of the {@code Collection} argument of an {@link ElementWiseSharedFuture} method. Resolved once
+ * per method. Every element of a call is joined in the registry under its own key, generated from the arguments of
+ * the call with the element in place of the collection. Elements that weren't in flight are registered by the call
+ * and requested with a single invocation of the method, which removes them from the registry before completing them.
+ *
+ * @author ulisesbocchio
+ */
+final class SharedElements {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedElements.class);
+
+    private final Method method;
+    private final String name;
+    private final int index;
+    private final boolean takesList;
+    private final boolean returnsMap;
+
+    SharedElements(Method method, Class<?> targetClass) {
+        this.method = method;
+        this.name = SharedFutureMethodMetadata.getName(targetClass, method);
+        this.index = getCollectionIndex(method);
+        this.takesList = method.getParameterTypes()[index].isAssignableFrom(ArrayList.class);
+        this.returnsMap = returnsMap(method);
+    }
+
+    private static int getCollectionIndex(Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        for (int i = 0; i < types.length; i++) {
+            if (Collection.class.isAssignableFrom(types[i])
+                    && (types[i].isAssignableFrom(ArrayList.class) || types[i].isAssignableFrom(LinkedHashSet.class))) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Element-wise Shared Future method must take a Collection, List or Set: " + method);
+    }
+
+    private static boolean returnsMap(Method method) {
+        Type returnType = method.getGenericReturnType();
+        if (method.getReturnType() == CompletableFuture.class && returnType instanceof ParameterizedType) {
+            Type result = ((ParameterizedType) returnType).getActualTypeArguments()[0];
+            Class<?> resultClass = result instanceof ParameterizedType
+                    ? (Class<?>) ((ParameterizedType) result).getRawType()
+                    : result instanceof Class ? (Class<?>) result : null;
+            if (resultClass == Map.class || resultClass == List.class) {
+                return resultClass == Map.class;
+            }
+        }
+        throw new IllegalStateException("Element-wise Shared Future method must return a CompletableFuture of a Map or List: " + method);
+    }
+
+    /**
+     * Joins the elements in flight and invokes the method with the missing ones, if any.
+     *
+     * @return a future of the merged result of the call
+     */
+    @SuppressWarnings("unchecked")
+    CompletableFuture<Object> share(ProceedingJoinPoint pjp, SharedFuturesRegistry registry, KeyGenerator keyGenerator,
+                                    FutureAdapters futureAdapters, SharedFuturesMetrics metrics) throws Throwable {
+        Object[] args = pjp.getArgs();
+        Collection<Object> elements = (Collection<Object>) args[index];
+        if (elements == null) {
+            return (CompletableFuture<Object>) pjp.proceed();
+        }
+        Map<Object, CompletableFuture<Object>> futures = new LinkedHashMap<>();
+        Map<Object, CompletableFuture<Object>> missing = new LinkedHashMap<>();
+        List<InFlight> owned = new ArrayList<>();
+        try {
+            for (Object element : elements) {
+                if (!futures.containsKey(element)) {
+                    futures.put(element, join(pjp, registry, keyGenerator, futureAdapters, args, element, missing, owned));
+                }
+            }
+            if (missing.size() < futures.size()) {
+                metrics.sharedHit(name);
+                LOG.debug("Joined {} of {} elements in flight for {}", futures.size() - missing.size(), futures.size(), name);
+            }
+            if (!missing.isEmpty()) {
+                metrics.execution(name);
+                Object[] missingArgs = args.clone();
+                missingArgs[index] = takesList ? new ArrayList<>(missing.keySet()) : new LinkedHashSet<>(missing.keySet());
+                CompletableFuture<Object> call = (CompletableFuture<Object>) pjp.proceed(missingArgs);
+                call.whenComplete((result, failure) -> complete(missing, owned, metrics, result, failure));
+            }
+        } catch (Throwable t) {
+            complete(missing, owned, metrics, null, t);
+            throw t;
+        }
+        return merge(elements, futures);
+    }
+
+    private CompletableFuture<Object> join(ProceedingJoinPoint pjp, SharedFuturesRegistry registry, KeyGenerator keyGenerator,
+                                           FutureAdapters futureAdapters, Object[] args, Object element,
+                                           Map<Object, CompletableFuture<Object>> missing, List<InFlight> owned) throws Throwable {
+        Object[] elementArgs = args.clone();
+        elementArgs[index] = element;
+        Object key = keyGenerator.generate(pjp.getTarget(), method, elementArgs);
+        CompletableFuture<Object> placeholder = new CompletableFuture<>();
+        InFlight inFlight = registry.join(key, name, removeOnCompletion -> placeholder);
+        if (inFlight.getFuture() == placeholder) {
+            missing.put(element, placeholder);
+            owned.add(inFlight);
+            return placeholder;
+        }
+        return toCompletableFuture(inFlight.await(), futureAdapters);
+    }
+
+    /**
+     * Removes the registered elements from the registry and then completes them with their part of the result.
+     */
+    private void complete(Map<Object, CompletableFuture<Object>> missing, List<InFlight> owned, SharedFuturesMetrics metrics,
+                          Object result, Throwable failure) {
+        owned.forEach(InFlight::run);
+        if (!owned.isEmpty()) {
+            metrics.completion(name, System.nanoTime() - owned.get(0).getStartNanos(),
+                    owned.stream().mapToInt(InFlight::getWaiters).sum());
+        }
+        int i = 0;
+        for (Map.Entry<Object, CompletableFuture<Object>> entry : missing.entrySet()) {
+            if (failure != null) {
+                entry.getValue().completeExceptionally(unwrap(failure));
+            } else if (result instanceof Map) {
+                entry.getValue().complete(((Map<?, ?>) result).get(entry.getKey()));
+            } else if (result instanceof List) {
+                List<?> values = (List<?>) result;
+                entry.getValue().complete(i < values.size() ? values.get(i) : null);
+            } else {
+                entry.getValue().complete(null);
+            }
+            i++;
+        }
+        LOG.debug("Removing {} Shared Elements after completion for {}", missing.size(), name);
+    }
+
+    private CompletableFuture<Object> merge(Collection<Object> elements, Map<Object, CompletableFuture<Object>> futures) {
+        CompletableFuture<Object> merged = new CompletableFuture<>();
+        CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).whenComplete((ignored, failure) -> {
+            if (failure != null) {
+                merged.completeExceptionally(unwrap(failure));
+            } else if (returnsMap) {
+                Map<Object, Object> result = new LinkedHashMap<>();
+                futures.forEach((element, future) -> {
+                    Object value = future.join();
+                    if (value != null) {
+                        result.put(element, value);
+                    }
+                });
+                merged.complete(result);
+            } else {
+                List<Object> result = new ArrayList<>(elements.size());
+                for (Object element : elements) {
+                    result.add(futures.get(element).join());
+                }
+                merged.complete(result);
+            }
+        });
+        return merged;
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CompletableFuture<Object> toCompletableFuture(Future<?> future, FutureAdapters futureAdapters) {
+        if (future instanceof CompletableFuture) {
+            return (CompletableFuture<Object>) future;
+        }
+        CompletableFuture<Object> adapted = new CompletableFuture<>();
+        futureAdapters.getAdapter(future).whenComplete((Future<Object>) future, (value, failure) -> {
+            if (failure != null) {
+                adapted.completeExceptionally(failure);
+            } else {
+                adapted.complete(value);
+            }
+        });
+        return adapted;
+    }
+}
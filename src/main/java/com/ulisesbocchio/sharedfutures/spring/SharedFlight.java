@@ -0,0 +1,185 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+import com.ulisesbocchio.sharedfutures.HashedWheelTimer;
+import com.ulisesbocchio.sharedfutures.SharedFuturesRegistry.InFlight;
+import com.ulisesbocchio.sharedfutures.adapter.FutureAdapter;
+import com.ulisesbocchio.sharedfutures.metrics.SharedFuturesMetrics;
+import com.ulisesbocchio.sharedfutures.spring.annotation.SharedFuture;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One execution of a {@link SharedFuture} method, shared by every caller of its key from the moment it is registered
+ * until it is settled. The shared future is settled exactly once, by whichever comes first: the execution, its hedge,
+ * its timeout or the cancellation of every caller. Settling removes the registry entry before completing the shared
+ * future, so a caller observing its completion never joins it again.
+ *
+ * @author ulisesbocchio
+ */
+final class SharedFlight {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedFlight.class);
+
+    private final ProceedingJoinPoint pjp;
+    private final SharedFutureMethodMetadata metadata;
+    private final Object key;
+    private final InFlight inFlight;
+    private final SharedFuturesMetrics metrics;
+    private final FutureAdapter adapter;
+    private final AtomicBoolean settled = new AtomicBoolean();
+    private final Future<Object> primary;
+    private final Future<Object> shared;
+    private volatile Future<Object> hedge;
+    private volatile HashedWheelTimer.Timeout timeout;
+    private volatile HashedWheelTimer.Timeout hedgeTimeout;
+
+    private SharedFlight(ProceedingJoinPoint pjp, SharedFutureMethodMetadata metadata, Object key, InFlight inFlight,
+                         SharedFuturesMetrics metrics, Future<Object> primary) {
+        this.pjp = pjp;
+        this.metadata = metadata;
+        this.key = key;
+        this.inFlight = inFlight;
+        this.metrics = metrics;
+        this.primary = primary;
+        this.adapter = metadata.getFutureAdapter();
+        this.shared = adapter.incomplete(this::cancel);
+    }
+
+    /**
+     * Executes the method and schedules its timeout and hedge, if configured. Both run on the executor, never on the
+     * timer thread, since settling a timed out flight runs the continuations of its callers.
+     *
+     * @return the shared future, of the same type as the one returned by the method
+     */
+    @SuppressWarnings("unchecked")
+    static Future<?> start(ProceedingJoinPoint pjp, SharedFutureMethodMetadata metadata, Object key, InFlight inFlight,
+                           SharedFuturesMetrics metrics, HashedWheelTimer timer, Executor hedgeExecutor) throws Throwable {
+        SharedFlight flight = new SharedFlight(pjp, metadata, key, inFlight, metrics, (Future<Object>) pjp.proceed());
+        metadata.getFutureAdapter(flight.primary).whenComplete(flight.primary, flight::primaryCompleted);
+        if (metadata.isTimingOut()) {
+            flight.timeout = timer.newTimeout(() -> hedgeExecutor.execute(flight::timeOut), metadata.getAnnotation().timeout(),
+                    TimeUnit.MILLISECONDS);
+        }
+        long hedgeDelay = metadata.getHedgeDelayNanos();
+        if (hedgeDelay >= 0) {
+            flight.hedgeTimeout = timer.newTimeout(() -> hedgeExecutor.execute(flight::hedge), hedgeDelay, TimeUnit.NANOSECONDS);
+        }
+        if (flight.settled.get()) {
+            flight.cancelTimeouts();
+        }
+        return flight.shared;
+    }
+
+    private void primaryCompleted(Object value, Throwable failure) {
+        boolean cancelled = primary.isCancelled();
+        settle(primary, value, failure, cancelled, () -> {
+            Future<Object> hedge = this.hedge;
+            if (hedge != null) {
+                hedge.cancel(true);
+                if (!cancelled) {
+                    metrics.hedge(metadata.getName(), false);
+                }
+            }
+        });
+    }
+
+    private void hedge() {
+        if (settled.get()) {
+            return;
+        }
+        LOG.debug("Hedging Shared Future with key: {}", key);
+        Future<Object> hedge;
+        try {
+            @SuppressWarnings("unchecked")
+            Future<Object> proceeded = (Future<Object>) pjp.proceed();
+            hedge = proceeded;
+        } catch (Throwable t) {
+            LOG.debug("Hedge of Shared Future with key: {} failed", key, t);
+            return;
+        }
+        this.hedge = hedge;
+        metadata.getFutureAdapter(hedge).whenComplete(hedge, (value, failure) -> {
+            if (failure == null && !hedge.isCancelled()) {
+                settle(hedge, value, null, false, () -> {
+                    LOG.debug("Hedge completed first for Shared Future with key: {}", key);
+                    metrics.hedge(metadata.getName(), true);
+                    primary.cancel(true);
+                });
+            }
+        });
+        if (settled.get() && !hedge.isDone()) {
+            hedge.cancel(true);
+        }
+    }
+
+    private void timeOut() {
+        if (settled.get()) {
+            return;
+        }
+        TimeoutException failure = new TimeoutException(String.format("Shared Future with key: %s timed out after %d ms",
+                key, metadata.getAnnotation().timeout()));
+        settle(null, null, failure, false, () -> {
+            LOG.debug("Evicting timed out Shared Future with key: {}", key);
+            metrics.timeout(metadata.getName());
+            primary.cancel(true);
+            Future<Object> hedge = this.hedge;
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        });
+    }
+
+    /**
+     * Every caller cancelled, cancel whatever is still running.
+     */
+    private void cancel(boolean mayInterruptIfRunning) {
+        primary.cancel(mayInterruptIfRunning);
+        Future<Object> hedge = this.hedge;
+        if (hedge != null) {
+            hedge.cancel(mayInterruptIfRunning);
+        }
+    }
+
+    /**
+     * @param onSettled run if this call settles the flight, right before the shared future completes
+     */
+    private void settle(Future<Object> source, Object value, Throwable failure, boolean cancelled, Runnable onSettled) {
+        if (!settled.compareAndSet(false, true)) {
+            return;
+        }
+        cancelTimeouts();
+        if (metadata.isRetaining() && source != null && !cancelled) {
+            metadata.retain(key, source, failure == null);
+        }
+        if (!cancelled) {
+            metadata.recordOutcome(key, source, failure);
+        }
+        inFlight.run();
+        long inFlightNanos = System.nanoTime() - inFlight.getStartNanos();
+        if (failure == null && !cancelled) {
+            metadata.recordLatency(inFlightNanos);
+        }
+        metrics.completion(metadata.getName(), inFlightNanos, inFlight.getWaiters());
+        LOG.debug("Removing Shared Future after completion with key: {}", key);
+        onSettled.run();
+        adapter.complete(shared, value, failure, cancelled);
+    }
+
+    private void cancelTimeouts() {
+        HashedWheelTimer.Timeout timeout = this.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        HashedWheelTimer.Timeout hedgeTimeout = this.hedgeTimeout;
+        if (hedgeTimeout != null) {
+            hedgeTimeout.cancel();
+        }
+    }
+}
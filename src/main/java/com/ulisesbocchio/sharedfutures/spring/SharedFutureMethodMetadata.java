@@ -0,0 +1,549 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.ulisesbocchio.sharedfutures.CompletionDispatcher;
+import com.ulisesbocchio.sharedfutures.SharedFuturesCircuitOpenException;
+import com.ulisesbocchio.sharedfutures.SharedFuturesScope;
+import com.ulisesbocchio.sharedfutures.adapter.FutureAdapter;
+import com.ulisesbocchio.sharedfutures.adapter.FutureAdapters;
+import com.ulisesbocchio.sharedfutures.spring.annotation.CompletionPolicy;
+import com.ulisesbocchio.sharedfutures.spring.annotation.NormalizeKey;
+import com.ulisesbocchio.sharedfutures.spring.annotation.SharedFuture;
+import com.ulisesbocchio.sharedfutures.spring.annotation.SharingPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Everything {@link SharedFuturesAspect} needs to know about a {@link SharedFuture} annotated method that doesn't
+ * change between invocations. Built once per {@link Method} and target class and cached by the aspect.
+ *
+ * @author ulisesbocchio
+ */
+public class SharedFutureMethodMetadata {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedFutureMethodMetadata.class);
+
+    /**
+     * Latencies to observe before the hedging delay is computed from them.
+     */
+    static final int HEDGE_MIN_SAMPLES = 20;
+    private static final int COMPLETION_QUEUE_PER_THREAD = 1024;
+    private static final long COMPLETION_KEEP_ALIVE_SECONDS = 60;
+
+    /**
+     * Where the shared future key of a method comes from.
+     */
+    public enum KeyType {
+        /** The annotation key is used as is. */
+        LITERAL,
+        /** The annotation key is a {@code #{...}} SpEL expression evaluated against the target and arguments. */
+        EXPRESSION,
+        /** The key is generated from the arguments by a {@link KeyGenerator}. */
+        GENERATED
+    }
+
+    private final Method method;
+    private final String name;
+    private final SharedFuture annotation;
+    private final KeyType keyType;
+    private final String literalKey;
+    private final Expression expression;
+    private final String[] parameterNames;
+    private final KeyNormalizer[] normalizers;
+    private final KeyGenerator keyGenerator;
+    private final Cache<Object, Retained> retained;
+    private final long freshNanos;
+    private final long refreshAheadNanos;
+    private final LatencyWindow latency;
+    private final Cache<Object, Future<?>> backoff;
+    private final CircuitBreaker circuitBreaker;
+    private volatile ShortCircuit shortCircuit;
+    private volatile CompletionDispatcher completionDispatcher;
+    private final AdaptiveSharing adaptiveSharing;
+    private final SharedFuturesScope scope;
+    private final FutureAdapters futureAdapters;
+    private final FutureAdapter futureAdapter;
+
+    /**
+     * @param scopes scopes other than {@link SharedFuturesScope#GLOBAL} by name
+     * @throws IllegalStateException if its scope is unknown or combined with retention or failure backoff
+     */
+    SharedFutureMethodMetadata(Method method, Class<?> targetClass, SharedFuture annotation, ExpressionParser elParser,
+                               KeyGenerator keyGenerator, FutureAdapters futureAdapters,
+                               Map<String, SharedFuturesScope> scopes) {
+        this.method = method;
+        this.name = getName(targetClass, method);
+        this.annotation = annotation;
+        this.scope = getScope(name, annotation, scopes);
+        this.parameterNames = getParameterNames(method);
+        this.normalizers = getNormalizers(method);
+        String key = annotation.key().trim();
+        if (key.isEmpty()) {
+            this.keyType = KeyType.GENERATED;
+            this.literalKey = null;
+            this.expression = null;
+            this.keyGenerator = keyGenerator;
+        } else if (key.startsWith("#{") && key.endsWith("}")) {
+            this.keyType = KeyType.EXPRESSION;
+            this.literalKey = null;
+            this.expression = elParser.parseExpression(key.substring(2, key.length() - 1));
+            this.keyGenerator = null;
+        } else {
+            this.keyType = KeyType.LITERAL;
+            this.literalKey = annotation.key();
+            this.expression = null;
+            this.keyGenerator = null;
+        }
+        this.retained = createRetained(annotation);
+        this.freshNanos = TimeUnit.MILLISECONDS.toNanos(annotation.retainFor());
+        this.refreshAheadNanos = annotation.refreshAhead() > 0 && annotation.refreshAhead() < 1
+                ? (long) (freshNanos * annotation.refreshAhead())
+                : -1;
+        this.latency = annotation.hedgePercentile() > 0 ? new LatencyWindow(annotation.hedgePercentile()) : null;
+        this.backoff = annotation.failureBackoff() > 0
+                ? CacheBuilder.newBuilder()
+                .maximumSize(annotation.retainMaxEntries())
+                .expireAfterWrite(annotation.failureBackoff(), TimeUnit.MILLISECONDS)
+                .build()
+                : null;
+        this.circuitBreaker = annotation.circuitFailureRate() > 0
+                ? new CircuitBreaker(name, annotation.circuitFailureRate(), annotation.circuitMinCalls(),
+                annotation.circuitWindow(), annotation.circuitOpenFor())
+                : null;
+        this.adaptiveSharing = isAdaptive(method, annotation)
+                ? new AdaptiveSharing(name, annotation.adaptiveWindow(), annotation.adaptiveProbeInterval())
+                : null;
+        this.futureAdapters = futureAdapters;
+        this.futureAdapter = Future.class.isAssignableFrom(method.getReturnType())
+                ? futureAdapters.findAdapter(method.getReturnType())
+                : null;
+        if (futureAdapter == null && Future.class.isAssignableFrom(method.getReturnType())) {
+            LOG.warn("No Future Adapter for {} returned by {}, its calls won't be shared", method.getReturnType().getName(), name);
+        }
+    }
+
+    private static SharedFuturesScope getScope(String name, SharedFuture annotation, Map<String, SharedFuturesScope> scopes) {
+        if (SharedFuturesScope.GLOBAL.equals(annotation.scope())) {
+            return null;
+        }
+        SharedFuturesScope scope = scopes.get(annotation.scope());
+        if (scope == null) {
+            throw new IllegalStateException(String.format("Unknown shared futures scope '%s' of %s", annotation.scope(), name));
+        }
+        if (annotation.retainFor() > 0 || annotation.staleWhileRevalidate() > 0 || annotation.failureBackoff() > 0) {
+            throw new IllegalStateException(String.format(
+                    "%s can't retain futures or back off failures in scope '%s', they would be served across scopes",
+                    name, annotation.scope()));
+        }
+        return scope;
+    }
+
+    private static Cache<Object, Retained> createRetained(SharedFuture annotation) {
+        long retainFor = annotation.retainFor() + annotation.staleWhileRevalidate();
+        if (retainFor <= 0) {
+            return null;
+        }
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().expireAfterWrite(retainFor, TimeUnit.MILLISECONDS);
+        // a single segment, or else the byte budget would be split across segments and large values never retained
+        return annotation.retainMaxBytes() > 0
+                ? builder.concurrencyLevel(1).maximumWeight(annotation.retainMaxBytes()).weigher(RetainedWeigher.INSTANCE).build()
+                : builder.maximumSize(annotation.retainMaxEntries()).build();
+    }
+
+    /**
+     * @return the name of the method in logs and metrics, like {@code com.example.ProductService#getProduct(String)},
+     * after the fully qualified name of the class it is invoked on so classes named alike in different packages don't
+     * share a group
+     */
+    static String getName(Class<?> targetClass, Method method) {
+        StringBuilder name = new StringBuilder(targetClass.getName())
+                .append('#').append(method.getName()).append('(');
+        Class<?>[] types = method.getParameterTypes();
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0) {
+                name.append(',');
+            }
+            name.append(types[i].getSimpleName());
+        }
+        return name.append(')').toString();
+    }
+
+    private static String[] getParameterNames(Method method) {
+        Parameter[] params = method.getParameters();
+        String[] names = new String[params.length];
+        for (int i = 0; i < params.length; i++) {
+            names[i] = params[i].getName();
+        }
+        return names;
+    }
+
+    /**
+     * @return the normalizer of each parameter annotated with {@link NormalizeKey}, or null if there are none
+     */
+    private static KeyNormalizer[] getNormalizers(Method method) {
+        Parameter[] params = method.getParameters();
+        KeyNormalizer[] normalizers = new KeyNormalizer[params.length];
+        boolean any = false;
+        for (int i = 0; i < params.length; i++) {
+            normalizers[i] = KeyNormalizer.of(params[i].getAnnotation(NormalizeKey.class));
+            any |= normalizers[i] != null;
+        }
+        return any ? normalizers : null;
+    }
+
+    public Object getKey(Object target, Object[] args) {
+        if (normalizers != null && keyType != KeyType.LITERAL) {
+            args = normalize(args);
+        }
+        switch (keyType) {
+            case LITERAL:
+                return literalKey;
+            case EXPRESSION:
+                return expression.getValue(createEvaluationContext(target, args), String.class);
+            default:
+                return keyGenerator.generate(target, method, args);
+        }
+    }
+
+    private Object[] normalize(Object[] args) {
+        Object[] normalized = args.clone();
+        for (int i = 0; i < normalizers.length; i++) {
+            if (normalizers[i] != null) {
+                normalized[i] = normalizers[i].normalize(args[i]);
+            }
+        }
+        return normalized;
+    }
+
+    private EvaluationContext createEvaluationContext(Object target, Object[] args) {
+        EvaluationContext ctx = new StandardEvaluationContext(target);
+        for (int i = 0; i < parameterNames.length; i++) {
+            ctx.setVariable(parameterNames[i], args[i]);
+        }
+        return ctx;
+    }
+
+    public boolean isRetaining() {
+        return retained != null;
+    }
+
+    /**
+     * @return the completed future retained for the key, fresh or stale, if any
+     */
+    public Retained getRetained(Object key) {
+        return retained != null ? retained.getIfPresent(key) : null;
+    }
+
+    /**
+     * Keeps a completed future servable for the key, as configured by {@link SharedFuture#retainFor()},
+     * {@link SharedFuture#staleWhileRevalidate()} and {@link SharedFuture#retainFailures()}.
+     */
+    public void retain(Object key, Future<?> future, boolean successful) {
+        if (retained != null && (successful || annotation.retainFailures())) {
+            retained.put(key, new Retained(future, System.nanoTime()));
+        }
+    }
+
+    /**
+     * @return estimated bytes of the values retained for the method, computed on every call
+     */
+    public long getRetainedBytes() {
+        long bytes = 0;
+        if (retained != null) {
+            for (Retained value : retained.asMap().values()) {
+                bytes += RetainedWeigher.INSTANCE.weigh(null, value);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the failed future still served for the key, see {@link SharedFuture#failureBackoff()}, if any
+     */
+    public Future<?> getBackoff(Object key) {
+        return backoff != null ? backoff.getIfPresent(key) : null;
+    }
+
+    /**
+     * Records the outcome of an execution in the circuit of the method, and keeps a failed future servable for the
+     * key during {@link SharedFuture#failureBackoff()}.
+     *
+     * @param future  the failed future to serve, or null to serve a new one failed with the failure
+     * @param failure what the execution failed with, or null if it succeeded
+     */
+    public void recordOutcome(Object key, Future<?> future, Throwable failure) {
+        if (circuitBreaker != null) {
+            circuitBreaker.record(failure);
+        }
+        if (backoff != null && failure != null) {
+            backoff.put(key, future != null ? future : failedFuture(failure));
+        }
+    }
+
+    /**
+     * @return the circuit of the method, or null if {@link SharedFuture#circuitFailureRate()} isn't set
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * @return true while the circuit of the method is open and calls must fail fast
+     */
+    public boolean isShortCircuited() {
+        return circuitBreaker != null && circuitBreaker.isOpen();
+    }
+
+    /**
+     * @return true if the method can be executed, taking the half open trial of its circuit if it is due
+     */
+    public boolean tryExecute() {
+        return circuitBreaker == null || circuitBreaker.tryAcquire();
+    }
+
+    /**
+     * @return a future failed with the {@link SharedFuturesCircuitOpenException} of the current open period of the
+     * circuit, created once per period and shared by every call failing fast
+     */
+    public Future<?> getShortCircuit() {
+        SharedFuturesCircuitOpenException failure = circuitBreaker.getOpenFailure();
+        ShortCircuit current = shortCircuit;
+        if (current == null || failure == null || current.failure != failure) {
+            SharedFuturesCircuitOpenException openFailure = failure != null
+                    ? failure
+                    : new SharedFuturesCircuitOpenException(String.format("Circuit open for %s, failing fast", name), null);
+            current = new ShortCircuit(openFailure, failedFuture(openFailure));
+            shortCircuit = current;
+        }
+        return current.future;
+    }
+
+    /**
+     * @return a future of the return type of the method, or a {@code CompletableFuture} for other methods, that
+     * already failed with the failure
+     */
+    Future<?> failedFuture(Throwable failure) {
+        if (futureAdapter == null) {
+            CompletableFuture<Object> failed = new CompletableFuture<>();
+            failed.completeExceptionally(failure);
+            return failed;
+        }
+        Future<Object> failed = futureAdapter.incomplete(mayInterruptIfRunning -> { });
+        futureAdapter.complete(failed, null, failure, false);
+        return failed;
+    }
+
+    public boolean isTimingOut() {
+        return annotation.timeout() > 0;
+    }
+
+    public boolean isHedging() {
+        return latency != null;
+    }
+
+    /**
+     * Records the time it took to complete a shared future, to compute the hedging delay and what adaptive sharing
+     * saves.
+     */
+    public void recordLatency(long nanos) {
+        if (latency != null) {
+            latency.record(nanos);
+        }
+        if (adaptiveSharing != null) {
+            adaptiveSharing.executed(nanos);
+        }
+    }
+
+    /**
+     * @return the controller of the method if its sharing is {@link SharingPolicy#ADAPTIVE} and can be bypassed
+     * without losing any of its features, or null
+     */
+    AdaptiveSharing getAdaptiveSharing() {
+        return adaptiveSharing;
+    }
+
+    private static boolean isAdaptive(Method method, SharedFuture annotation) {
+        return annotation.sharing() == SharingPolicy.ADAPTIVE
+                && Future.class.isAssignableFrom(method.getReturnType())
+                && annotation.retainFor() <= 0 && annotation.staleWhileRevalidate() <= 0
+                && annotation.timeout() <= 0 && annotation.hedgePercentile() <= 0
+                && annotation.failureBackoff() <= 0 && annotation.circuitFailureRate() <= 0
+                && annotation.completion() == CompletionPolicy.DIRECT
+                && SharedFuturesScope.GLOBAL.equals(annotation.scope());
+    }
+
+    /**
+     * @return the scope calls of the method are shared within, or null for {@link SharedFuturesScope#GLOBAL}
+     */
+    public SharedFuturesScope getScope() {
+        return scope;
+    }
+
+    /**
+     * @return nanoseconds to wait before hedging a shared future, the {@link SharedFuture#hedgePercentile()} of the
+     * latest latencies but no less than {@link SharedFuture#hedgeMinDelay()}, or -1 if it shouldn't be hedged
+     */
+    public long getHedgeDelayNanos() {
+        if (latency == null) {
+            return -1;
+        }
+        long minDelay = TimeUnit.MILLISECONDS.toNanos(annotation.hedgeMinDelay());
+        if (latency.getCount() < HEDGE_MIN_SAMPLES) {
+            return minDelay > 0 ? minDelay : -1;
+        }
+        return Math.max(minDelay, latency.getPercentile());
+    }
+
+    /**
+     * @return the adapter for the declared return type of the method, resolved once, or null if it doesn't return a
+     * {@link Future} or no adapter supports its return type
+     */
+    public FutureAdapter getFutureAdapter() {
+        return futureAdapter;
+    }
+
+    /**
+     * Resolves the {@link CompletionDispatcher} of the method from {@link SharedFuture#completion()} on first use.
+     *
+     * @param completionExecutor executor of {@link CompletionPolicy#SHARED_POOL} and {@link CompletionPolicy#FAN_OUT}
+     */
+    public CompletionDispatcher getCompletionDispatcher(Executor completionExecutor) {
+        CompletionDispatcher dispatcher = completionDispatcher;
+        if (dispatcher == null) {
+            synchronized (this) {
+                dispatcher = completionDispatcher;
+                if (dispatcher == null) {
+                    dispatcher = createCompletionDispatcher(completionExecutor);
+                    completionDispatcher = dispatcher;
+                }
+            }
+        }
+        return dispatcher;
+    }
+
+    private CompletionDispatcher createCompletionDispatcher(Executor completionExecutor) {
+        switch (annotation.completion()) {
+            case SHARED_POOL:
+                return CompletionDispatcher.executor(completionExecutor);
+            case DEDICATED_POOL:
+                return CompletionDispatcher.executor(createCompletionPool());
+            case FAN_OUT:
+                return CompletionDispatcher.fanOut(completionExecutor, annotation.completionBatchSize());
+            default:
+                return CompletionDispatcher.DIRECT;
+        }
+    }
+
+    /**
+     * Daemon threads that time out when idle, so the pool of a method that stops being called costs nothing. Full
+     * queues complete callers on the thread completing the shared future.
+     */
+    private Executor createCompletionPool() {
+        int threads = Math.max(1, annotation.completionThreads());
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, COMPLETION_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * COMPLETION_QUEUE_PER_THREAD), r -> {
+            Thread thread = new Thread(r, "shared-futures-completion-" + method.getName() + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * @return the adapter of the method if the future is of its type, like futures returned by the method, or else
+     * the one for the class of the future, like a result received from another node
+     */
+    public FutureAdapter getFutureAdapter(Future<?> future) {
+        return futureAdapters.getAdapter(futureAdapter, future);
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @return name identifying the method in logs and metrics, like
+     * {@code com.example.ProductService#getProduct(String)}
+     */
+    public String getName() {
+        return name;
+    }
+
+    public SharedFuture getAnnotation() {
+        return annotation;
+    }
+
+    public KeyType getKeyType() {
+        return keyType;
+    }
+
+    public Expression getExpression() {
+        return expression;
+    }
+
+    public String[] getParameterNames() {
+        return parameterNames.clone();
+    }
+
+    public KeyGenerator getKeyGenerator() {
+        return keyGenerator;
+    }
+
+    /**
+     * A completed future retained for a key, fresh for {@link SharedFuture#retainFor()} milliseconds and stale for
+     * {@link SharedFuture#staleWhileRevalidate()} more.
+     */
+    public final class Retained {
+        private final Future<?> future;
+        private final long retainedNanos;
+
+        Retained(Future<?> future, long retainedNanos) {
+            this.future = future;
+            this.retainedNanos = retainedNanos;
+        }
+
+        public Future<?> getFuture() {
+            return future;
+        }
+
+        public boolean isFresh() {
+            return System.nanoTime() - retainedNanos < freshNanos;
+        }
+
+        /**
+         * @return true if the value is stale, or due to be refreshed ahead, so serving it should refresh it
+         */
+        public boolean needsRefresh() {
+            long age = System.nanoTime() - retainedNanos;
+            return age >= freshNanos || refreshAheadNanos >= 0 && age >= refreshAheadNanos;
+        }
+    }
+
+    private static final class ShortCircuit {
+        private final SharedFuturesCircuitOpenException failure;
+        private final Future<?> future;
+
+        ShortCircuit(SharedFuturesCircuitOpenException failure, Future<?> future) {
+            this.failure = failure;
+            this.future = future;
+        }
+    }
+}
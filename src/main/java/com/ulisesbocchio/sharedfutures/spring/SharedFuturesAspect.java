@@ -1,8 +1,20 @@
 package com.ulisesbocchio.sharedfutures.spring;
 
-import com.google.common.util.concurrent.MoreExecutors;
+import com.ulisesbocchio.sharedfutures.HashedWheelTimer;
+import com.ulisesbocchio.sharedfutures.SharedFutureInvoker;
 import com.ulisesbocchio.sharedfutures.SharedFuturesRegistry;
+import com.ulisesbocchio.sharedfutures.SharedFuturesRegistry.InFlight;
+import com.ulisesbocchio.sharedfutures.SharedFuturesRequestScope;
+import com.ulisesbocchio.sharedfutures.SharedFuturesScope;
+import com.ulisesbocchio.sharedfutures.adapter.FutureAdapter;
+import com.ulisesbocchio.sharedfutures.adapter.FutureAdapters;
+import com.ulisesbocchio.sharedfutures.metrics.NoopSharedFuturesMetrics;
+import com.ulisesbocchio.sharedfutures.metrics.SharedFuturesMetrics;
+import com.ulisesbocchio.sharedfutures.spring.SharedFutureMethodMetadata.Retained;
+import com.ulisesbocchio.sharedfutures.spring.annotation.BatchedSharedFuture;
+import com.ulisesbocchio.sharedfutures.spring.annotation.ElementWiseSharedFuture;
 import com.ulisesbocchio.sharedfutures.spring.annotation.SharedFuture;
+import com.ulisesbocchio.sharedfutures.warmstart.WarmStartRecorder;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
@@ -10,17 +22,20 @@ import org.aspectj.lang.annotation.Pointcut;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.expression.EvaluationContext;
-import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
-import org.springframework.expression.spel.support.StandardEvaluationContext;
-import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.ClassUtils;
 
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
-import java.util.Optional;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
 
 /**
@@ -30,102 +45,545 @@ import java.util.concurrent.Future;
 public class SharedFuturesAspect {
 
     private static final Logger LOG = LoggerFactory.getLogger(SharedFuturesAspect.class);
+    private static final String PUBLISHER_CLASS = "org.reactivestreams.Publisher";
+    private static final Class<?> PUBLISHER = ClassUtils.isPresent(PUBLISHER_CLASS, SharedFuturesAspect.class.getClassLoader())
+            ? ClassUtils.resolveClassName(PUBLISHER_CLASS, SharedFuturesAspect.class.getClassLoader()) : null;
 
     private SharedFuturesRegistry registry;
     private KeyGenerator keyGenerator;
-    private ExpressionParser elParser = new SpelExpressionParser();
+    private ExpressionParser elParser;
+    private Map<MethodClassKey, SharedFutureMethodMetadata> metadataCache = new ConcurrentHashMap<>();
+    private Map<MethodClassKey, SharedElements> elementsCache = new ConcurrentHashMap<>();
+    private SharedFuturesMetrics metrics = NoopSharedFuturesMetrics.INSTANCE;
+    private SharedFuturesBatchCollector batchCollector = new SharedFuturesBatchCollector();
+    private HashedWheelTimer timer = new HashedWheelTimer();
+    private Executor hedgeExecutor = ForkJoinPool.commonPool();
+    private Executor completionExecutor = ForkJoinPool.commonPool();
+    private FutureAdapters futureAdapters = FutureAdapters.getDefault();
+    private Map<String, SharedFuturesScope> scopes = new ConcurrentHashMap<>();
+    private WarmStartRecorder warmStartRecorder;
 
     public SharedFuturesAspect(SharedFuturesRegistry registry, KeyGenerator keyGenerator) {
+        this(registry, keyGenerator, SpelCompilerMode.OFF);
+    }
+
+    /**
+     * @param spelCompilerMode compiler mode for key expressions, {@link SpelCompilerMode#IMMEDIATE} or
+     *                         {@link SpelCompilerMode#MIXED} compile hot key expressions to bytecode
+     */
+    public SharedFuturesAspect(SharedFuturesRegistry registry, KeyGenerator keyGenerator, SpelCompilerMode spelCompilerMode) {
         this.registry = registry;
         this.keyGenerator = keyGenerator;
-        LOG.debug("Initialized Shared Futures Aspect");
+        this.elParser = new SpelExpressionParser(new SpelParserConfiguration(spelCompilerMode, getClass().getClassLoader()));
+        addScope(SharedFuturesRequestScope.INSTANCE);
+        LOG.debug("Initialized Shared Futures Aspect with SpEL compiler mode {}", spelCompilerMode);
     }
 
     @Pointcut("execution(public java.util.concurrent.CompletableFuture *(..))")
     private void returnsCompletableFuture(){}
 
-    @Pointcut("execution(public com.google.common.util.concurrent.ListenableFuture *(..))")
-    private void returnsGuavaListenableFuture(){}
+    @Pointcut("execution(public java.util.concurrent.Future+ *(..))")
+    private void returnsFuture(){}
 
-    @Pointcut("execution(public org.springframework.util.concurrent.ListenableFuture *(..))")
-    private void returnsSpringListenableFuture(){}
+    @Pointcut("execution(public (java.util.concurrent.Future+ || java.util.concurrent.CompletionStage+) *(..))")
+    private void returnsAsync(){}
 
-    @Around("@annotation(annotation) && (returnsCompletableFuture() || returnsGuavaListenableFuture() || returnsSpringListenableFuture())")
+    /**
+     * Shares any {@link Future} type with a {@link FutureAdapter}, resolved once per method from its return type.
+     * Methods returning a type without an adapter, like a plain {@link Future}, are called without sharing.
+     */
+    @Around("@annotation(annotation) && returnsFuture()")
     public Future<?> aroundSharedFutures(ProceedingJoinPoint pjp, SharedFuture annotation) throws Throwable {
         LOG.debug("entering shared futures aspect");
-        Object target = pjp.getTarget();
         Method method = ((MethodSignature)pjp.getSignature()).getMethod();
-        Object[] args = pjp.getArgs();
-        String key = getOrGenerateKey(annotation, target, method, args);
-        LOG.debug("Generated key: {} from: {}", key, annotation.key());
-        Future<?> sharedFuture = registry.get(key);
-        if(sharedFuture == null) {
+        SharedFutureMethodMetadata metadata = getMetadata(MethodClassKey.of(pjp), annotation);
+        String name = metadata.getName();
+        if (metadata.getFutureAdapter() == null) {
+            LOG.debug("No Future Adapter for {}, calling {} without sharing", method.getReturnType().getName(), name);
+            return (Future<?>) pjp.proceed();
+        }
+        AdaptiveSharing adaptive = metadata.getAdaptiveSharing();
+        if (adaptive != null && adaptive.isBypassed(metrics)) {
+            metrics.bypass(name);
+            return (Future<?>) pjp.proceed();
+        }
+        SharedFuturesRegistry registry = getRegistry(metadata);
+        if (registry == null) {
+            LOG.debug("No {} scope active, calling {} without sharing", metadata.getAnnotation().scope(), name);
+            return (Future<?>) pjp.proceed();
+        }
+        long start = adaptive != null ? System.nanoTime() : 0L;
+        Object key = generateKey(metadata, pjp);
+        if (metadata.isRetaining()) {
+            Retained retained = metadata.getRetained(key);
+            if (retained != null) {
+                sharedHit(metadata, key, pjp);
+                LOG.debug("Found retained Shared Future with key: {}", key);
+                if (retained.needsRefresh()) {
+                    refresh(registry, pjp, metadata, key);
+                }
+                return retained.getFuture();
+            }
+        }
+        Future<?> backoff = metadata.getBackoff(key);
+        if (backoff != null) {
+            metrics.sharedHit(name);
+            LOG.debug("Found failed Shared Future in backoff with key: {}", key);
+            return backoff;
+        }
+        if (metadata.isShortCircuited()) {
+            metrics.shortCircuit(name);
+            LOG.debug("Circuit open, failing fast Shared Future with key: {}", key);
+            return metadata.getShortCircuit();
+        }
+        boolean[] created = new boolean[1];
+        long[] executionNanos = new long[1];
+        InFlight inFlight = join(registry, pjp, metadata, key, created, executionNanos);
+        if (!created[0]) {
+            sharedHit(metadata, key, pjp);
+            LOG.debug("Found existing Shared Future in registry with key: {}", key);
+        }
+        if (adaptive != null) {
+            // sampled before the view, which makes hits wait for the creator to start the execution
+            adaptive.sampled(!created[0], System.nanoTime() - start - executionNanos[0], metrics);
+        }
+        return SharedFutureInvoker.view(inFlight, metadata.getFutureAdapter(), futureAdapters,
+                metadata.getCompletionDispatcher(completionExecutor));
+    }
+
+    /**
+     * @param executionNanos receives the nanoseconds spent starting the execution, if the call created the entry
+     */
+    private InFlight join(SharedFuturesRegistry registry, ProceedingJoinPoint pjp, SharedFutureMethodMetadata metadata,
+                          Object key, boolean[] created, long[] executionNanos) throws Throwable {
+        return registry.join(key, metadata.getName(), removeOnCompletion -> {
+            long executionStart = System.nanoTime();
+            if (!metadata.tryExecute()) {
+                removeOnCompletion.run();
+                metrics.shortCircuit(metadata.getName());
+                LOG.debug("Circuit open, failing fast Shared Future with key: {}", key);
+                return metadata.getShortCircuit();
+            }
             LOG.debug("Storing future for shared used with key: {}", key);
-            sharedFuture = (Future<?>) pjp.proceed();
-            registry.put(key, subscribeForRemoval(sharedFuture, () -> {
-                registry.remove(key);
-                LOG.debug("Removing Shared Future after completion with key: {}", key);}));
+            Future<?> sharedFuture = SharedFlight.start(pjp, metadata, key, removeOnCompletion, metrics, timer, hedgeExecutor);
+            executionNanos[0] = System.nanoTime() - executionStart;
+            created[0] = true;
+            metrics.execution(metadata.getName());
+            return sharedFuture;
+        });
+    }
+
+    /**
+     * Refreshes a stale retained value in the background, unless a call for the key is already in flight.
+     * The refreshed value is retained once it completes successfully, until then the stale one keeps being served.
+     * A refresh that loses the race to another call withdraws its interest right away, so it neither keeps that call
+     * from being cancelled by its callers nor counts as one of its waiters.
+     */
+    private void refresh(SharedFuturesRegistry registry, ProceedingJoinPoint pjp, SharedFutureMethodMetadata metadata,
+                         Object key) {
+        if (registry.contains(key)) {
+            return;
+        }
+        try {
+            boolean[] created = new boolean[1];
+            InFlight inFlight = join(registry, pjp, metadata, key, created, new long[1]);
+            if (created[0]) {
+                LOG.debug("Refreshing retained Shared Future with key: {}", key);
+            } else if (inFlight.release()) {
+                LOG.debug("All callers cancelled, cancelling Shared Future with key: {}", key);
+                inFlight.run();
+                inFlight.await().cancel(true);
+            }
+        } catch (Throwable t) {
+            LOG.debug("Refresh of retained Shared Future with key: {} failed", key, t);
+        }
+    }
+
+    /**
+     * Shares {@code Mono}, {@code Flux} and any other Reactive Streams {@code Publisher}, see {@link SharedPublishers}.
+     * The registry entry is removed when the publisher terminates, when all its subscribers cancel, or when nobody
+     * subscribes to it within {@link SharedFuture#subscribeTimeout()}. Advised by {@link SharedPublishersAspect}, so
+     * this aspect's pointcuts don't name Reactive Streams types, which may be missing from the classpath.
+     */
+    Object aroundSharedPublishers(ProceedingJoinPoint pjp, SharedFuture annotation) throws Throwable {
+        LOG.debug("entering shared publishers aspect");
+        Method method = ((MethodSignature)pjp.getSignature()).getMethod();
+        SharedFutureMethodMetadata metadata = getMetadata(MethodClassKey.of(pjp), annotation);
+        String name = metadata.getName();
+        SharedFuturesRegistry registry = getRegistry(metadata);
+        if (registry == null) {
+            LOG.debug("No {} scope active, calling {} without sharing", annotation.scope(), name);
+            return pjp.proceed();
+        }
+        Object key = generateKey(metadata, pjp);
+        boolean[] created = new boolean[1];
+        InFlight inFlight = registry.join(key, name, removeOnCompletion -> {
+            LOG.debug("Storing publisher for shared used with key: {}", key);
+            Future<?> sharedFuture = SharedPublishers.share(pjp.proceed(), annotation.replay(), timer,
+                    annotation.subscribeTimeout(), () -> {
+                removeOnCompletion.run();
+                metrics.completion(name, System.nanoTime() - removeOnCompletion.getStartNanos(), removeOnCompletion.getWaiters());
+                LOG.debug("Removing Shared Publisher after release with key: {}", key);});
+            created[0] = true;
+            metrics.execution(name);
+            return sharedFuture;
+        });
+        if (!created[0]) {
+            sharedHit(metadata, key, pjp);
+            LOG.debug("Found existing Shared Publisher in registry with key: {}", key);
+        }
+        return SharedPublishers.toPublisher(inFlight.await(), method.getReturnType());
+    }
+
+    /**
+     * Shares synchronous methods. The first caller executes the method on its own thread while concurrent callers
+     * park until its result is available, which is cheap when they run on virtual threads. Methods returning a
+     * Reactive Streams {@code Publisher} are left to {@link SharedPublishersAspect}.
+     */
+    @Around("@annotation(annotation) && execution(public * *(..)) && !returnsAsync()")
+    public Object aroundSharedBlocking(ProceedingJoinPoint pjp, SharedFuture annotation) throws Throwable {
+        LOG.debug("entering shared blocking aspect");
+        Method method = ((MethodSignature)pjp.getSignature()).getMethod();
+        if (PUBLISHER != null && PUBLISHER.isAssignableFrom(method.getReturnType())) {
+            return pjp.proceed();
+        }
+        SharedFutureMethodMetadata metadata = getMetadata(MethodClassKey.of(pjp), annotation);
+        String name = metadata.getName();
+        SharedFuturesRegistry registry = getRegistry(metadata);
+        if (registry == null) {
+            LOG.debug("No {} scope active, calling {} without sharing", annotation.scope(), name);
+            return pjp.proceed();
+        }
+        Object key = generateKey(metadata, pjp);
+        Retained retained = metadata.isRetaining() ? metadata.getRetained(key) : null;
+        if (retained != null) {
+            sharedHit(metadata, key, pjp);
+            LOG.debug("Found retained Shared Result with key: {}", key);
+            if (retained.needsRefresh()) {
+                refreshBlocking(registry, pjp, metadata, key);
+            }
+            return getResult(retained.getFuture());
+        }
+        Future<?> backoff = metadata.getBackoff(key);
+        if (backoff != null) {
+            metrics.sharedHit(name);
+            LOG.debug("Found failed Shared Result in backoff with key: {}", key);
+            return getResult(backoff);
+        }
+        if (metadata.isShortCircuited()) {
+            metrics.shortCircuit(name);
+            LOG.debug("Circuit open, failing fast Shared Result with key: {}", key);
+            return getResult(metadata.getShortCircuit());
+        }
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        InFlight inFlight = registry.join(key, name, removeOnCompletion -> result);
+        if (inFlight.getFuture() != result) {
+            sharedHit(metadata, key, pjp);
+            LOG.debug("Waiting for Shared Result in flight with key: {}", key);
+            return getResult(inFlight.await());
+        }
+        if (!metadata.tryExecute()) {
+            metrics.shortCircuit(name);
+            LOG.debug("Circuit open, failing fast Shared Result with key: {}", key);
+            Future<?> shortCircuit = metadata.getShortCircuit();
+            inFlight.run();
+            result.completeExceptionally(getFailure(shortCircuit));
+            return getResult(shortCircuit);
+        }
+        return proceedBlocking(pjp, metadata, key, inFlight, result);
+    }
+
+    private Object proceedBlocking(ProceedingJoinPoint pjp, SharedFutureMethodMetadata metadata, Object key,
+                                   InFlight inFlight, CompletableFuture<Object> result) throws Throwable {
+        metrics.execution(metadata.getName());
+        Object value;
+        try {
+            value = pjp.proceed();
+        } catch (Throwable t) {
+            completeBlocking(metadata, key, inFlight, result, null, t);
+            throw t;
+        }
+        completeBlocking(metadata, key, inFlight, result, value, null);
+        return value;
+    }
+
+    /**
+     * Refreshes a stale retained result of a synchronous method on the hedge executor, unless a call for the key is
+     * already in flight, see {@link #refresh}. Callers without a retained result wait for the refresh like for any
+     * other call in flight.
+     */
+    private void refreshBlocking(SharedFuturesRegistry registry, ProceedingJoinPoint pjp,
+                                 SharedFutureMethodMetadata metadata, Object key) {
+        if (registry.contains(key)) {
+            return;
+        }
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        InFlight inFlight;
+        try {
+            inFlight = registry.join(key, metadata.getName(), removeOnCompletion -> result);
+        } catch (Throwable t) {
+            LOG.debug("Refresh of retained Shared Result with key: {} failed", key, t);
+            return;
+        }
+        if (inFlight.getFuture() != result) {
+            inFlight.release();
+            return;
+        }
+        if (!metadata.tryExecute()) {
+            metrics.shortCircuit(metadata.getName());
+            inFlight.run();
+            result.completeExceptionally(getFailure(metadata.getShortCircuit()));
+            return;
+        }
+        LOG.debug("Refreshing retained Shared Result with key: {}", key);
+        try {
+            hedgeExecutor.execute(() -> {
+                try {
+                    proceedBlocking(pjp, metadata, key, inFlight, result);
+                } catch (Throwable t) {
+                    LOG.debug("Refresh of retained Shared Result with key: {} failed", key, t);
+                }
+            });
+        } catch (RuntimeException e) {
+            LOG.debug("Refresh of retained Shared Result with key: {} rejected", key, e);
+            inFlight.run();
+            result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Removes the registry entry and then completes the result for the waiters. The outcome is retained as a future
+     * of its own, completed already, since retained values are weighed when retained.
+     */
+    private void completeBlocking(SharedFutureMethodMetadata metadata, Object key, InFlight inFlight,
+                                  CompletableFuture<Object> result, Object value, Throwable failure) {
+        if (metadata.isRetaining()) {
+            CompletableFuture<Object> outcome = new CompletableFuture<>();
+            if (failure == null) {
+                outcome.complete(value);
+            } else {
+                outcome.completeExceptionally(failure);
+            }
+            metadata.retain(key, outcome, failure == null);
+        }
+        metadata.recordOutcome(key, result, failure);
+        inFlight.run();
+        metrics.completion(metadata.getName(), System.nanoTime() - inFlight.getStartNanos(), inFlight.getWaiters());
+        LOG.debug("Removing Shared Result after completion with key: {}", key);
+        if (failure == null) {
+            result.complete(value);
         } else {
-            LOG.debug("Found existing Shared Future in registry with key: {}", key);
+            result.completeExceptionally(failure);
         }
-        return sharedFuture;
     }
 
-    private <T> Future<T> subscribeForRemoval(Future<T> sharedFuture, Runnable removeFunc) {
-        if (sharedFuture instanceof CompletableFuture) {
-            return getRemovingCompletableFuture((CompletableFuture<T>) sharedFuture, removeFunc);
-        } else if (sharedFuture instanceof ListenableFuture) {
-            return getRemovingListenableFuture((ListenableFuture<T>) sharedFuture, removeFunc);
-        } else if (sharedFuture instanceof com.google.common.util.concurrent.ListenableFuture) {
-            return getRemovingGuavaFuture((com.google.common.util.concurrent.ListenableFuture<T>) sharedFuture, removeFunc);
+    /**
+     * Counts a call served by a future in flight or retained, and records it for the warm start profile unless its
+     * method is scoped, since scoped results are private to their scope.
+     */
+    private void sharedHit(SharedFutureMethodMetadata metadata, Object key, ProceedingJoinPoint pjp) {
+        metrics.sharedHit(metadata.getName());
+        if (warmStartRecorder != null && metadata.getScope() == null) {
+            warmStartRecorder.record(metadata.getMethod(), key, pjp.getArgs());
         }
-        throw new IllegalStateException("Invalid Future type: " + sharedFuture.getClass().getName());
     }
 
-    private <T> Future<T> getRemovingGuavaFuture(com.google.common.util.concurrent.ListenableFuture<T> sharedFuture, final Runnable removeFunc) {
-        sharedFuture.addListener(removeFunc, MoreExecutors.directExecutor());
-        return sharedFuture;
+    private static Object getResult(Future<?> shared) throws Throwable {
+        try {
+            return shared.get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a shared result");
+        }
     }
 
-    private <T> Future<T> getRemovingListenableFuture(ListenableFuture<T> sharedFuture, Runnable removeFunc) {
-        sharedFuture.addCallback(t -> removeFunc.run(), e -> removeFunc.run());
-        return sharedFuture;
+    private static Throwable getFailure(Future<?> failed) {
+        try {
+            failed.get();
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return e;
+        }
     }
 
-    private <T> CompletableFuture<T> getRemovingCompletableFuture(CompletableFuture<T> sharedFuture, Runnable removeFunc) {
-        return sharedFuture.whenComplete((t, e) -> removeFunc.run());
+    @Around("@annotation(annotation) && returnsCompletableFuture()")
+    public Future<?> aroundBatchedSharedFutures(ProceedingJoinPoint pjp, BatchedSharedFuture annotation) throws Throwable {
+        LOG.debug("entering batched shared futures aspect");
+        Object target = pjp.getTarget();
+        Method method = ((MethodSignature)pjp.getSignature()).getMethod();
+        Object[] args = pjp.getArgs();
+        Object key = keyGenerator.generate(target, method, args);
+        LOG.debug("Generated batched key: {}", key);
+        SharedFuturesRegistry registry = getRegistry(annotation.scope(), method);
+        if (registry == null) {
+            LOG.debug("No {} scope active, batching {} on its own", annotation.scope(), method.getName());
+            return batchCollector.add(pjp.getThis(), target, method, annotation, args[0], new Object());
+        }
+        Object scope = registry == this.registry ? null : registry;
+        FutureAdapter adapter = futureAdapters.getAdapter(method.getReturnType());
+        InFlight inFlight = registry.join(key, null, removeOnCompletion -> subscribeForRemoval(adapter,
+                batchCollector.add(pjp.getThis(), target, method, annotation, args[0], scope), () -> {
+                    removeOnCompletion.run();
+                    LOG.debug("Removing Batched Shared Future after completion with key: {}", key);}));
+        return createView(inFlight, adapter);
+    }
+
+    /**
+     * Shares the elements of the collection argument with every call in flight, see {@link SharedElements}.
+     */
+    @Around("@annotation(annotation) && returnsCompletableFuture()")
+    public Future<?> aroundElementWiseSharedFutures(ProceedingJoinPoint pjp, ElementWiseSharedFuture annotation) throws Throwable {
+        LOG.debug("entering element-wise shared futures aspect");
+        MethodClassKey methodKey = MethodClassKey.of(pjp);
+        SharedElements elements = elementsCache.get(methodKey);
+        if (elements == null) {
+            elements = elementsCache.computeIfAbsent(methodKey, k -> new SharedElements(k.getMethod(), k.getTargetClass()));
+        }
+        SharedFuturesRegistry registry = getRegistry(annotation.scope(), methodKey.getMethod());
+        if (registry == null) {
+            LOG.debug("No {} scope active, calling {} without sharing", annotation.scope(), methodKey.getMethod().getName());
+            return (Future<?>) pjp.proceed();
+        }
+        return elements.share(pjp, registry, keyGenerator, futureAdapters, metrics);
     }
 
-    private String getOrGenerateKey(SharedFuture annotation, Object target, Method method, Object[] args) {
-        return Optional.of(annotation)
-                .map(SharedFuture::key)
-                .filter(key -> !key.trim().isEmpty())
-                .map(key -> this.getKeyFromAnnotation(key, target, method, args))
-                .orElseGet(() -> getKeyFromGenerator(target, method, args));
+    /**
+     * Returns a future that completes after the shared future has completed and the removal has run, so callers
+     * never observe a completed future that can still be joined. Cancelling it cancels the shared future.
+     */
+    private <T> Future<T> subscribeForRemoval(FutureAdapter adapter, Future<T> sharedFuture, Runnable removeFunc) {
+        return adapter.dependent(sharedFuture, removeFunc, sharedFuture::cancel);
     }
 
-    private String getKeyFromAnnotation(String key, Object target, Method method, Object[] args) {
-       return Optional.of(key)
-                .filter(k -> !(k.startsWith("#{") && k.endsWith("}")))
-                .orElseGet(() -> getKeyFromExpression(key, target, method, args));
+    /**
+     * Every caller gets its own view of the shared future, see
+     * {@link SharedFutureInvoker#view(InFlight, FutureAdapter, FutureAdapters)}.
+     */
+    private Future<?> createView(InFlight inFlight, FutureAdapter adapter) {
+        return SharedFutureInvoker.view(inFlight, adapter, futureAdapters);
     }
 
-    private String getKeyFromExpression(String expr, Object target, Method method, Object[] args) {
-        String expStr = expr.substring(2, expr.length()-1);
-        Expression exp = elParser.parseExpression(expStr);
-        EvaluationContext ctx = new StandardEvaluationContext(target);
-        populateELContext(ctx, method, args);
-        return exp.getValue(ctx, String.class);
+    public SharedFuturesMetrics getMetrics() {
+        return metrics;
     }
 
-    private void populateELContext(EvaluationContext ctx, Method method, Object[] args) {
-        Parameter[] params = method.getParameters();
-        for(int i = 0; i < params.length; i++) {
-            ctx.setVariable(params[i].getName(), args[i]);
+    public void setMetrics(SharedFuturesMetrics metrics) {
+        this.metrics = metrics != null ? metrics : NoopSharedFuturesMetrics.INSTANCE;
+    }
+
+    public void setBatchCollector(SharedFuturesBatchCollector batchCollector) {
+        this.batchCollector = batchCollector;
+    }
+
+    /**
+     * @param timer timer for the timeouts and hedges of shared futures, shared across keys
+     */
+    public void setTimer(HashedWheelTimer timer) {
+        this.timer = timer;
+    }
+
+    /**
+     * @param hedgeExecutor executor where hedged methods are executed, timed out futures settled and stale results
+     *                      of synchronous methods refreshed, the common fork join pool by default
+     */
+    public void setHedgeExecutor(Executor hedgeExecutor) {
+        this.hedgeExecutor = hedgeExecutor;
+    }
+
+    /**
+     * @param completionExecutor executor where callers are completed by methods with a
+     *                           {@link com.ulisesbocchio.sharedfutures.spring.annotation.CompletionPolicy#SHARED_POOL}
+     *                           or {@link com.ulisesbocchio.sharedfutures.spring.annotation.CompletionPolicy#FAN_OUT}
+     *                           completion, the common fork join pool by default. Must be set before the first shared
+     *                           method is called.
+     */
+    public void setCompletionExecutor(Executor completionExecutor) {
+        this.completionExecutor = completionExecutor;
+    }
+
+    /**
+     * @param futureAdapters adapters for the future types returned by shared methods, {@link FutureAdapters#getDefault()}
+     *                       by default. Must be set before the first shared method is called.
+     */
+    public void setFutureAdapters(FutureAdapters futureAdapters) {
+        this.futureAdapters = futureAdapters;
+    }
+
+    /**
+     * @return the registry calls of the method are shared in, the aspect's one unless the method has a
+     * {@link SharedFuture#scope()}, or null if its scope isn't active and calls can't be shared
+     */
+    private SharedFuturesRegistry getRegistry(SharedFutureMethodMetadata metadata) {
+        SharedFuturesScope scope = metadata.getScope();
+        return scope == null ? registry : scope.getRegistry();
+    }
+
+    /**
+     * @return the registry of the scope named by a {@link BatchedSharedFuture} or {@link ElementWiseSharedFuture}
+     * method, the aspect's one for {@link SharedFuturesScope#GLOBAL}, or null if the scope isn't active
+     * @throws IllegalStateException if the scope is unknown
+     */
+    private SharedFuturesRegistry getRegistry(String scopeName, Method method) {
+        if (SharedFuturesScope.GLOBAL.equals(scopeName)) {
+            return registry;
+        }
+        SharedFuturesScope scope = scopes.get(scopeName);
+        if (scope == null) {
+            throw new IllegalStateException(String.format("Unknown shared futures scope '%s' of %s", scopeName, method));
         }
+        return scope.getRegistry();
     }
 
-    private String getKeyFromGenerator(Object target, Method method, Object[] args) {
-        return keyGenerator.generate(target, method, args);
+    /**
+     * @param scope scope selected by its name in {@link SharedFuture#scope()}, replacing any scope with the same
+     *              name. {@link SharedFuturesRequestScope} is registered by default. Must be added before the first
+     *              shared method of the scope is called.
+     */
+    public void addScope(SharedFuturesScope scope) {
+        scopes.put(scope.getName(), scope);
+    }
+
+    /**
+     * @return whether Reactive Streams is on the classpath, so a {@link SharedPublishersAspect} can be registered
+     */
+    public static boolean isPublisherPresent() {
+        return PUBLISHER != null;
+    }
+
+    /**
+     * @param warmStartRecorder recorder of the calls served by shared futures, for a
+     *                          {@link com.ulisesbocchio.sharedfutures.warmstart.WarmStart} profile, none by default
+     */
+    public void setWarmStartRecorder(WarmStartRecorder warmStartRecorder) {
+        this.warmStartRecorder = warmStartRecorder;
+    }
+
+    private Object generateKey(SharedFutureMethodMetadata metadata, ProceedingJoinPoint pjp) {
+        String name = metadata.getName();
+        boolean measured = metrics.isEnabled();
+        long keyStart = measured ? System.nanoTime() : 0L;
+        Object key = metadata.getKey(pjp.getTarget(), pjp.getArgs());
+        if (measured) {
+            metrics.keyGeneration(name, System.nanoTime() - keyStart);
+        }
+        LOG.debug("Generated key: {} from: {}", key, metadata.getAnnotation().key());
+        return key;
+    }
+
+    /**
+     * Metadata is built per method and target class, beans implementing the same interface don't share it.
+     */
+    SharedFutureMethodMetadata getMetadata(MethodClassKey methodKey, SharedFuture annotation) {
+        SharedFutureMethodMetadata metadata = metadataCache.get(methodKey);
+        if (metadata == null) {
+            metadata = metadataCache.computeIfAbsent(methodKey, k -> new SharedFutureMethodMetadata(k.getMethod(),
+                    k.getTargetClass(), annotation, elParser, keyGenerator, futureAdapters, scopes));
+        }
+        return metadata;
     }
 }
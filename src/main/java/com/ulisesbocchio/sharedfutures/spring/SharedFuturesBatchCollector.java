@@ -0,0 +1,288 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+import com.ulisesbocchio.sharedfutures.spring.annotation.BatchedSharedFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the calls of {@link BatchedSharedFuture} methods into batches and invokes the bulk method once per batch.
+ * Bulk methods are resolved once per target class and method, and invoked through the proxy of the bean when it
+ * exposes them publicly, so advice of other aspects, like transactions or security, applies to bulk calls too. Bulk
+ * methods the proxy doesn't expose, like ones missing from the interfaces of a JDK proxy or non-public ones, are
+ * invoked reflectively on the target, bypassing that advice.
+ *
+ * @author ulisesbocchio
+ */
+public class SharedFuturesBatchCollector implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedFuturesBatchCollector.class);
+
+    private final Map<BatchKey, Batch> pending = new ConcurrentHashMap<>();
+    private final Map<MethodClassKey, BulkMethod> bulkMethods = new ConcurrentHashMap<>();
+    private volatile ScheduledExecutorService scheduler;
+
+    public SharedFuturesBatchCollector() {
+        LOG.debug("Initialized Shared Futures Batch Collector");
+    }
+
+    public SharedFuturesBatchCollector(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Adds an argument to the current batch of the bulk method, invoked on the target.
+     *
+     * @return a future completed with the argument's result once the batch's bulk call completes
+     */
+    public CompletableFuture<Object> add(Object target, Method method, BatchedSharedFuture annotation, Object arg) {
+        return add(target, target, method, annotation, arg);
+    }
+
+    /**
+     * Adds an argument to the current batch of the bulk method, invoked through the proxy if it exposes the method.
+     *
+     * @param proxy the bean the call was made on, the target itself if it isn't proxied
+     * @return a future completed with the argument's result once the batch's bulk call completes
+     */
+    public CompletableFuture<Object> add(Object proxy, Object target, Method method, BatchedSharedFuture annotation,
+                                         Object arg) {
+        return add(proxy, target, method, annotation, arg, null);
+    }
+
+    /**
+     * Adds an argument to the current batch of the bulk method within a scope, invoked through the proxy if it exposes
+     * the method.
+     *
+     * @param proxy the bean the call was made on, the target itself if it isn't proxied
+     * @param scope the scope the call is made in, compared by identity, like the registry of a
+     *              {@link com.ulisesbocchio.sharedfutures.SharedFuturesScope}, or null for the global one. Arguments
+     *              are only batched with arguments of the same scope
+     * @return a future completed with the argument's result once the batch's bulk call completes
+     */
+    public CompletableFuture<Object> add(Object proxy, Object target, Method method, BatchedSharedFuture annotation,
+                                         Object arg, Object scope) {
+        BulkMethod bulkMethod = getBulkMethod(ClassUtils.getUserClass(target), method, annotation);
+        BatchKey batchKey = new BatchKey(target, bulkMethod.method, scope);
+        while (true) {
+            Batch batch = pending.get(batchKey);
+            if (batch == null) {
+                Method proxyMethod = proxy != null && proxy != target ? bulkMethod.getProxyMethod(proxy.getClass()) : null;
+                Batch created = proxyMethod != null
+                        ? new Batch(batchKey, bulkMethod, proxy, proxyMethod, annotation.maxBatchSize())
+                        : new Batch(batchKey, bulkMethod, target, bulkMethod.method, annotation.maxBatchSize());
+                batch = pending.putIfAbsent(batchKey, created);
+                if (batch == null) {
+                    batch = created;
+                    getScheduler().schedule(() -> flush(created), annotation.window(), TimeUnit.MILLISECONDS);
+                }
+            }
+            CompletableFuture<Object> future = batch.add(arg);
+            if (future != null) {
+                if (batch.isFull()) {
+                    flush(batch);
+                }
+                return future;
+            }
+            pending.remove(batchKey, batch);
+        }
+    }
+
+    private void flush(Batch batch) {
+        pending.remove(batch.key, batch);
+        Map<Object, CompletableFuture<Object>> calls = batch.seal();
+        if (calls == null) {
+            return;
+        }
+        LOG.debug("Flushing batch of {} for {}", calls.size(), batch.bulkMethod.method);
+        CompletableFuture<? extends Map<?, ?>> result;
+        try {
+            result = batch.bulkMethod.invoke(batch.receiver, batch.invoked, calls.keySet());
+        } catch (Throwable t) {
+            calls.values().forEach(f -> f.completeExceptionally(t));
+            return;
+        }
+        result.whenComplete((map, e) -> calls.forEach((arg, f) -> {
+            if (e != null) {
+                f.completeExceptionally(e);
+            } else {
+                f.complete(map != null ? map.get(arg) : null);
+            }
+        }));
+    }
+
+    private BulkMethod getBulkMethod(Class<?> targetClass, Method method, BatchedSharedFuture annotation) {
+        MethodClassKey methodKey = new MethodClassKey(method, targetClass);
+        BulkMethod bulkMethod = bulkMethods.get(methodKey);
+        if (bulkMethod == null) {
+            bulkMethod = bulkMethods.computeIfAbsent(methodKey, k -> new BulkMethod(targetClass, method, annotation));
+        }
+        return bulkMethod;
+    }
+
+    private ScheduledExecutorService getScheduler() {
+        ScheduledExecutorService current = scheduler;
+        if (current == null) {
+            synchronized (this) {
+                if (scheduler == null) {
+                    scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread thread = new Thread(r, "shared-futures-batch-collector");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+                current = scheduler;
+            }
+        }
+        return current;
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    private static class BulkMethod {
+        private final Method method;
+        private final boolean takesList;
+        private final Map<Class<?>, Optional<Method>> proxyMethods = new ConcurrentHashMap<>();
+
+        BulkMethod(Class<?> targetClass, Method method, BatchedSharedFuture annotation) {
+            this.method = findBulkMethod(targetClass, annotation.batchMethod());
+            if (this.method == null) {
+                throw new IllegalStateException(String.format(
+                        "No bulk method %s taking a single Collection found in %s for %s",
+                        annotation.batchMethod(), targetClass.getName(), method.getName()));
+            }
+            if (method.getParameterCount() != 1) {
+                throw new IllegalStateException("Batched Shared Future method must take a single argument: " + method);
+            }
+            this.takesList = this.method.getParameterTypes()[0].isAssignableFrom(ArrayList.class);
+            ReflectionUtils.makeAccessible(this.method);
+        }
+
+        private static Method findBulkMethod(Class<?> targetClass, String name) {
+            for (Method candidate : ReflectionUtils.getAllDeclaredMethods(targetClass)) {
+                if (candidate.getName().equals(name) && candidate.getParameterCount() == 1
+                        && CompletableFuture.class.isAssignableFrom(candidate.getReturnType())) {
+                    Class<?> paramType = candidate.getParameterTypes()[0];
+                    if (paramType.isAssignableFrom(ArrayList.class) || paramType.isAssignableFrom(LinkedHashSet.class)) {
+                        return candidate;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return the public method of the proxy class with the signature of the bulk method, or null if there is none
+         */
+        Method getProxyMethod(Class<?> proxyClass) {
+            if (!Modifier.isPublic(method.getModifiers())) {
+                return null;
+            }
+            return proxyMethods.computeIfAbsent(proxyClass, c -> {
+                try {
+                    return Optional.of(c.getMethod(method.getName(), method.getParameterTypes()));
+                } catch (NoSuchMethodException e) {
+                    LOG.debug("Bulk method {} not exposed by proxy {}, invoking it on the target", method, c.getName());
+                    return Optional.empty();
+                }
+            }).orElse(null);
+        }
+
+        @SuppressWarnings("unchecked")
+        CompletableFuture<? extends Map<?, ?>> invoke(Object receiver, Method invoked, Collection<Object> args) throws Throwable {
+            Collection<Object> bulkArgs = takesList ? new ArrayList<>(args) : new LinkedHashSet<>(args);
+            try {
+                return (CompletableFuture<? extends Map<?, ?>>) invoked.invoke(receiver, bulkArgs);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private static class Batch {
+        private final BatchKey key;
+        private final BulkMethod bulkMethod;
+        private final Object receiver;
+        private final Method invoked;
+        private final int maxSize;
+        private Map<Object, CompletableFuture<Object>> calls = new LinkedHashMap<>();
+
+        /**
+         * @param receiver the proxy or target the bulk method is invoked on
+         * @param invoked  the bulk method, or its counterpart on the proxy class
+         */
+        Batch(BatchKey key, BulkMethod bulkMethod, Object receiver, Method invoked, int maxSize) {
+            this.key = key;
+            this.bulkMethod = bulkMethod;
+            this.receiver = receiver;
+            this.invoked = invoked;
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * @return the future for the argument, or null if the batch has been flushed already
+         */
+        synchronized CompletableFuture<Object> add(Object arg) {
+            if (calls == null || calls.size() >= maxSize) {
+                return null;
+            }
+            return calls.computeIfAbsent(arg, a -> new CompletableFuture<>());
+        }
+
+        synchronized boolean isFull() {
+            return calls != null && calls.size() >= maxSize;
+        }
+
+        synchronized Map<Object, CompletableFuture<Object>> seal() {
+            Map<Object, CompletableFuture<Object>> sealed = calls;
+            calls = null;
+            return sealed;
+        }
+    }
+
+    private static class BatchKey {
+        private final Object target;
+        private final Method method;
+        private final Object scope;
+
+        BatchKey(Object target, Method method, Object scope) {
+            this.target = target;
+            this.method = method;
+            this.scope = scope;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof BatchKey && target == ((BatchKey) o).target && method.equals(((BatchKey) o).method)
+                    && scope == ((BatchKey) o).scope;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(target), method, System.identityHashCode(scope));
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+import com.ulisesbocchio.sharedfutures.HashedWheelTimer;
+import com.ulisesbocchio.sharedfutures.spring.annotation.SharedFuture;
+import org.reactivestreams.Publisher;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shares Reactive Streams publishers returned by {@link SharedFuture} methods. Only loaded when such a method is
+ * called, so Reactor is needed on the classpath only by applications using it.
+ * The source is subscribed once, on the first subscription, and its elements are replayed to later subscribers, the
+ * single value, or error, of a {@link Mono}, or a bounded number of elements of any other {@link Publisher}, shared as
+ * a {@link Flux}. The shared publisher is held by a future that completes once the source terminates, which is what
+ * the registry sees.
+ * <p>
+ * A shared publisher is released, and its registry entry removed, when the source terminates, when every subscriber
+ * cancels before it does, which cancels the source too, or when nobody subscribes to it within the subscribe timeout,
+ * so callers that never subscribe can't pin the key. Callers subscribing to a publisher released before terminating
+ * subscribe to the source on their own.
+ *
+ * @author ulisesbocchio
+ */
+final class SharedPublishers {
+
+    private SharedPublishers() {
+    }
+
+    /**
+     * @param source                 the publisher returned by the method
+     * @param replay                 number of elements replayed to subscribers of a shared {@link Flux}
+     * @param timer                  timer of the subscribe timeout
+     * @param subscribeTimeoutMillis time the publisher is shared without subscribers before the first subscription,
+     *                               or forever if not positive
+     * @param onRelease              run once when the publisher is released, before a terminal signal of the source
+     *                               reaches subscribers
+     * @return a future holding the shared publisher
+     */
+    static Future<?> share(Object source, int replay, HashedWheelTimer timer, long subscribeTimeoutMillis,
+                           Runnable onRelease) {
+        SharedPublisher shared = new SharedPublisher((Publisher<?>) source, source instanceof Mono ? 1 : replay, onRelease);
+        if (subscribeTimeoutMillis > 0) {
+            timer.newTimeout(shared::subscribeTimedOut, subscribeTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        return shared;
+    }
+
+    /**
+     * @return the publisher held by a shared future, adapted to the return type of the method
+     * @throws IllegalStateException if the shared future can't be adapted, like the result of a {@link Flux} broadcast
+     *                               by another node
+     */
+    @SuppressWarnings("unchecked")
+    static Publisher<?> toPublisher(Future<?> shared, Class<?> returnType) {
+        if (shared instanceof SharedPublisher) {
+            return ((SharedPublisher) shared).publisher;
+        }
+        if (shared instanceof CompletableFuture && returnType.isAssignableFrom(Mono.class)) {
+            return Mono.fromFuture((CompletableFuture<Object>) shared);
+        }
+        throw new IllegalStateException("Cannot adapt " + shared.getClass().getName() + " to " + returnType.getName());
+    }
+
+    private static final class SharedPublisher extends CompletableFuture<Object> {
+        /**
+         * Subscriber count of a publisher released before its source terminated.
+         */
+        private static final int ABANDONED = -1;
+
+        private final Flux<Object> source;
+        private final Flux<Object> connectable;
+        private final Publisher<?> publisher;
+        private final Runnable onRelease;
+        private final AtomicInteger subscribers = new AtomicInteger();
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile boolean terminated;
+        private volatile Disposable connection;
+
+        @SuppressWarnings("unchecked")
+        SharedPublisher(Publisher<?> source, int replay, Runnable onRelease) {
+            this.source = Flux.from((Publisher<Object>) source);
+            this.onRelease = onRelease;
+            // a Mono terminates with its value, before it reaches subscribers
+            Publisher<Object> terminating = source instanceof Mono
+                    ? ((Mono<Object>) source).doOnTerminate(this::terminated)
+                    : this.source.doOnTerminate(this::terminated);
+            this.connectable = Flux.from(terminating).replay(replay)
+                    .autoConnect(1, connection -> this.connection = connection);
+            Flux<Object> shared = Flux.defer(this::subscribe);
+            this.publisher = source instanceof Mono ? Mono.fromDirect(shared) : shared;
+        }
+
+        private Flux<Object> subscribe() {
+            for (;;) {
+                int current = subscribers.get();
+                if (current == ABANDONED) {
+                    return source;
+                }
+                if (subscribers.compareAndSet(current, current + 1)) {
+                    return connectable.doFinally(this::unsubscribed);
+                }
+            }
+        }
+
+        private void unsubscribed(SignalType signal) {
+            if (subscribers.decrementAndGet() == 0 && !terminated && subscribers.compareAndSet(0, ABANDONED)) {
+                abandon();
+            }
+        }
+
+        private void subscribeTimedOut() {
+            if (!terminated && subscribers.compareAndSet(0, ABANDONED)) {
+                abandon();
+            }
+        }
+
+        private void terminated() {
+            terminated = true;
+            release();
+            complete(null);
+        }
+
+        private void abandon() {
+            Disposable connection = this.connection;
+            if (connection != null) {
+                connection.dispose();
+            }
+            release();
+            cancel(false);
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                onRelease.run();
+            }
+        }
+    }
+}
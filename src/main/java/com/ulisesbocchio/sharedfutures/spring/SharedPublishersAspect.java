@@ -0,0 +1,29 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+import com.ulisesbocchio.sharedfutures.spring.annotation.SharedFuture;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+/**
+ * Shares {@link SharedFuture} methods returning a Reactive Streams {@code Publisher}, like Reactor's {@code Mono} and
+ * {@code Flux}, in the registry of a {@link SharedFuturesAspect}. Kept apart because its pointcut names
+ * {@code org.reactivestreams.Publisher}, which fails to resolve, failing every advised method, when Reactive Streams
+ * isn't on the classpath, so only register it when {@link SharedFuturesAspect#isPublisherPresent()}.
+ *
+ * @author ulisesbocchio
+ */
+@Aspect
+public class SharedPublishersAspect {
+
+    private final SharedFuturesAspect sharedFuturesAspect;
+
+    public SharedPublishersAspect(SharedFuturesAspect sharedFuturesAspect) {
+        this.sharedFuturesAspect = sharedFuturesAspect;
+    }
+
+    @Around("@annotation(annotation) && execution(public org.reactivestreams.Publisher+ *(..))")
+    public Object aroundSharedPublishers(ProceedingJoinPoint pjp, SharedFuture annotation) throws Throwable {
+        return sharedFuturesAspect.aroundSharedPublishers(pjp, annotation);
+    }
+}
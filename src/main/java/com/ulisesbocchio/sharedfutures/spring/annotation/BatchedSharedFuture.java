@@ -0,0 +1,48 @@
+package com.ulisesbocchio.sharedfutures.spring.annotation;
+
+import com.ulisesbocchio.sharedfutures.SharedFuturesScope;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a single argument, {@code CompletableFuture} returning method whose concurrent calls are coalesced into
+ * calls to a bulk method of the same bean. Calls with identical keys share one future like with {@link SharedFuture},
+ * distinct keys are collected for up to {@link #window()} milliseconds or {@link #maxBatchSize()} elements, the bulk
+ * method is invoked once with all of them, and its result is fanned out to each call.
+ * The annotated method itself is never invoked.
+ * <p>
+ * The bulk method must take a single {@code Collection}, {@code List} or {@code Set} of the argument type and return
+ * a {@code CompletableFuture} of a {@code Map} from each argument to its result. Arguments missing from the map
+ * complete with {@code null}.
+ *
+ * @author ulisesbocchio
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface BatchedSharedFuture {
+
+    /**
+     * Name of the bulk method.
+     */
+    String batchMethod();
+
+    /**
+     * Milliseconds to wait for more calls after the first call of a batch.
+     */
+    long window() default 10;
+
+    /**
+     * Number of distinct arguments that triggers the bulk call right away.
+     */
+    int maxBatchSize() default 100;
+
+    /**
+     * Name of the {@link SharedFuturesScope} calls are shared and batched within, {@link SharedFuturesScope#GLOBAL}
+     * by default, like {@link SharedFuture#scope()}. Calls are never batched with calls made in another scope, and
+     * calls made outside an active scope are sent in a bulk call of their own.
+     */
+    String scope() default SharedFuturesScope.GLOBAL;
+}
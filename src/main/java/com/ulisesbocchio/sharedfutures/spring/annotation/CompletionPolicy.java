@@ -0,0 +1,32 @@
+package com.ulisesbocchio.sharedfutures.spring.annotation;
+
+/**
+ * Threads the callers' futures of a {@link SharedFuture} method are completed on, and so where their dependent stages
+ * run, see {@link com.ulisesbocchio.sharedfutures.CompletionDispatcher}.
+ *
+ * @author ulisesbocchio
+ */
+public enum CompletionPolicy {
+
+    /**
+     * The thread completing the shared future completes every caller, one after the other.
+     */
+    DIRECT,
+
+    /**
+     * Every caller is completed on the completion executor of the aspect, the common fork join pool by default.
+     */
+    SHARED_POOL,
+
+    /**
+     * Every caller is completed on a pool of {@link SharedFuture#completionThreads()} threads of the method, with a
+     * bounded queue; once full, the thread completing the shared future completes the caller itself.
+     */
+    DEDICATED_POOL,
+
+    /**
+     * Callers are completed in batches of {@link SharedFuture#completionBatchSize()}, each batch a single task on the
+     * completion executor of the aspect.
+     */
+    FAN_OUT
+}
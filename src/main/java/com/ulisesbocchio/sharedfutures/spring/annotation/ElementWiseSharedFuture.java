@@ -0,0 +1,34 @@
+package com.ulisesbocchio.sharedfutures.spring.annotation;
+
+import com.ulisesbocchio.sharedfutures.SharedFuturesScope;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@code CompletableFuture} returning method whose {@code Collection} argument maps element-wise to its
+ * result, so calls share the elements they have in common instead of whole calls. Each element is registered under
+ * its own key while in flight; a call joins the elements already in flight, even as part of a larger call, invokes
+ * the method only with the missing ones and merges both into its result. A call whose elements are all in flight
+ * doesn't invoke the method at all.
+ * <p>
+ * The first {@code Collection}, {@code List} or {@code Set} parameter is the one shared element-wise; the other
+ * arguments take part in the key of every element. The method must return a {@code CompletableFuture} of either a
+ * {@code Map} from each element to its result, where missing elements are left out of the merged map, or a
+ * {@code List} with the result of each element in the order they were passed, where missing elements are null.
+ * Cancelling the returned future doesn't cancel the calls it joined.
+ *
+ * @author ulisesbocchio
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ElementWiseSharedFuture {
+
+    /**
+     * Name of the {@link SharedFuturesScope} elements are shared within, {@link SharedFuturesScope#GLOBAL} by default,
+     * like {@link SharedFuture#scope()}. Calls made outside an active scope are executed without sharing.
+     */
+    String scope() default SharedFuturesScope.GLOBAL;
+}
@@ -1,7 +1,13 @@
 package com.ulisesbocchio.sharedfutures.spring.annotation;
 
+import com.ulisesbocchio.sharedfutures.inspect.HotKeysSharedFuturesRegistry;
+import com.ulisesbocchio.sharedfutures.inspect.SharedFuturesInspector;
+import com.ulisesbocchio.sharedfutures.spring.DefaultKeyGenerator;
+import com.ulisesbocchio.sharedfutures.spring.KeyGenerator;
+import com.ulisesbocchio.sharedfutures.warmstart.WarmStart;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.expression.spel.SpelCompilerMode;
 
 import java.lang.annotation.*;
 
@@ -15,4 +21,47 @@ import java.lang.annotation.*;
 @Configuration
 @Import({EnableSharedFuturesAutoConfiguration.class})
 public @interface EnableSharedFutures {
+
+    /**
+     * Compiler mode used for {@code #{...}} keys of {@link SharedFuture} methods.
+     */
+    SpelCompilerMode spelCompilerMode() default SpelCompilerMode.OFF;
+
+    /**
+     * {@link KeyGenerator} used for {@link SharedFuture} methods that don't specify a key. Must have a public
+     * no-args constructor.
+     */
+    Class<? extends KeyGenerator> keyGenerator() default DefaultKeyGenerator.class;
+
+    /**
+     * Number of hottest keys per method included in registry snapshots. When positive the registry is wrapped in a
+     * {@link HotKeysSharedFuturesRegistry} that tracks them.
+     */
+    int hotKeys() default 0;
+
+    /**
+     * Whether to register the {@link SharedFuturesInspector} in the platform MBean server.
+     */
+    boolean jmx() default false;
+
+    /**
+     * File where the hottest shared calls are persisted and prefetched from when the application starts, see
+     * {@link WarmStart}. Empty, the default, disables warm starts.
+     */
+    String warmStartFile() default "";
+
+    /**
+     * Hottest calls of each method kept in the warm start profile.
+     */
+    int warmStartCalls() default 100;
+
+    /**
+     * Milliseconds between writes of the warm start profile, which is also written on shutdown.
+     */
+    long warmStartFlushInterval() default 60000;
+
+    /**
+     * Calls per second made when prefetching the warm start profile.
+     */
+    double warmStartRate() default 50;
 }
@@ -1,31 +1,213 @@
 package com.ulisesbocchio.sharedfutures.spring.annotation;
 
+import com.ulisesbocchio.sharedfutures.DefaultSharedFuturesRegistry;
+import com.ulisesbocchio.sharedfutures.HashedWheelTimer;
+import com.ulisesbocchio.sharedfutures.SharedFutureInvoker;
 import com.ulisesbocchio.sharedfutures.SharedFuturesRegistry;
+import com.ulisesbocchio.sharedfutures.SharedFuturesScope;
+import com.ulisesbocchio.sharedfutures.adapter.FutureAdapter;
+import com.ulisesbocchio.sharedfutures.adapter.FutureAdapters;
+import com.ulisesbocchio.sharedfutures.inspect.HotKeysSharedFuturesRegistry;
+import com.ulisesbocchio.sharedfutures.inspect.SharedFuturesEndpoint;
+import com.ulisesbocchio.sharedfutures.inspect.SharedFuturesInspector;
+import com.ulisesbocchio.sharedfutures.metrics.SharedFuturesMetrics;
 import com.ulisesbocchio.sharedfutures.spring.DefaultKeyGenerator;
+import com.ulisesbocchio.sharedfutures.spring.KeyGenerator;
 import com.ulisesbocchio.sharedfutures.spring.SharedFuturesAspect;
+import com.ulisesbocchio.sharedfutures.spring.SharedFuturesBatchCollector;
+import com.ulisesbocchio.sharedfutures.spring.SharedPublishersAspect;
+import com.ulisesbocchio.sharedfutures.warmstart.WarmStart;
+import com.ulisesbocchio.sharedfutures.warmstart.WarmStartRecorder;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.ImportAware;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.annotation.AnnotationAttributes;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.expression.spel.SpelCompilerMode;
+
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * @ulisesbocchio
  */
 @Configuration
 @EnableAspectJAutoProxy
-public class EnableSharedFuturesAutoConfiguration {
+public class EnableSharedFuturesAutoConfiguration implements ImportAware, ApplicationListener<ContextRefreshedEvent>,
+        DisposableBean {
+
+    private AnnotationAttributes enableSharedFutures;
+    private WarmStart warmStart;
+    private boolean prefetched;
+
+    @Autowired(required = false)
+    private SharedFuturesMetrics sharedFuturesMetrics;
+
+    @Autowired(required = false)
+    private SharedFuturesConfigurer configurer;
+
+    @Autowired(required = false)
+    private List<FutureAdapter> futureAdapters;
+
+    @Autowired(required = false)
+    private List<SharedFuturesScope> sharedFuturesScopes;
+
+    @Override
+    public void setImportMetadata(AnnotationMetadata importMetadata) {
+        this.enableSharedFutures = AnnotationAttributes.fromMap(
+                importMetadata.getAnnotationAttributes(EnableSharedFutures.class.getName(), false));
+    }
 
     @Bean
     public SharedFuturesAspect sharedFuturesAspect() {
-        return new SharedFuturesAspect(sharedFuturesRegistry(), defaultKeyGenerator());
+        SharedFuturesAspect aspect = new SharedFuturesAspect(sharedFuturesRegistry(), sharedFuturesKeyGenerator(), getSpelCompilerMode());
+        aspect.setMetrics(sharedFuturesMetrics);
+        aspect.setBatchCollector(sharedFuturesBatchCollector());
+        aspect.setTimer(sharedFuturesTimer());
+        aspect.setFutureAdapters(sharedFuturesFutureAdapters());
+        Executor completionExecutor = configurer != null ? configurer.getCompletionExecutor() : null;
+        if (completionExecutor != null) {
+            aspect.setCompletionExecutor(completionExecutor);
+        }
+        if (sharedFuturesScopes != null) {
+            sharedFuturesScopes.forEach(aspect::addScope);
+        }
+        WarmStart warmStart = getWarmStart();
+        if (warmStart != null) {
+            aspect.setWarmStartRecorder(warmStart.getRecorder());
+        }
+        return aspect;
+    }
+
+    /**
+     * Shares methods returning Reactive Streams publishers, only registered when they are on the classpath.
+     */
+    @Bean
+    @Conditional(PublisherPresentCondition.class)
+    public SharedPublishersAspect sharedPublishersAspect() {
+        return new SharedPublishersAspect(sharedFuturesAspect());
+    }
+
+    /**
+     * Prefetches the warm start profile in the background once the context is ready.
+     */
+    @Override
+    public synchronized void onApplicationEvent(ContextRefreshedEvent event) {
+        WarmStart warmStart = getWarmStart();
+        if (warmStart != null && !prefetched) {
+            prefetched = true;
+            ApplicationContext context = event.getApplicationContext();
+            warmStart.prefetchAsync(type -> {
+                try {
+                    return context.getBean(type);
+                } catch (BeansException e) {
+                    return null;
+                }
+            });
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (warmStart != null) {
+            warmStart.close();
+        }
+    }
+
+    private synchronized WarmStart getWarmStart() {
+        String file = enableSharedFutures != null ? enableSharedFutures.getString("warmStartFile") : "";
+        if (warmStart == null && !file.isEmpty()) {
+            warmStart = new WarmStart(new WarmStartRecorder(), Paths.get(file),
+                    enableSharedFutures.<Integer>getNumber("warmStartCalls"),
+                    enableSharedFutures.<Double>getNumber("warmStartRate"));
+            warmStart.start(enableSharedFutures.<Long>getNumber("warmStartFlushInterval"));
+        }
+        return warmStart;
+    }
+
+    /**
+     * Invoker for the wrappers generated from {@link GenerateSharedFutures} classes, sharing the aspect's registry.
+     */
+    @Bean
+    public SharedFutureInvoker sharedFutureInvoker() {
+        SharedFutureInvoker invoker = new SharedFutureInvoker(sharedFuturesRegistry(), sharedFuturesFutureAdapters());
+        invoker.setMetrics(sharedFuturesMetrics);
+        return invoker;
     }
 
     @Bean
     public SharedFuturesRegistry sharedFuturesRegistry() {
-        return new SharedFuturesRegistry();
+        SharedFuturesRegistry registry = configurer != null ? configurer.getSharedFuturesRegistry() : null;
+        if (registry == null) {
+            registry = new DefaultSharedFuturesRegistry();
+        }
+        return getHotKeys() > 0 ? new HotKeysSharedFuturesRegistry(registry) : registry;
+    }
+
+    @Bean(destroyMethod = "unregisterMBean")
+    public SharedFuturesInspector sharedFuturesInspector() throws Exception {
+        SharedFuturesInspector inspector = new SharedFuturesInspector(sharedFuturesRegistry(), getHotKeys());
+        if (enableSharedFutures != null && enableSharedFutures.getBoolean("jmx")) {
+            inspector.registerMBean();
+        }
+        return inspector;
+    }
+
+    @Bean
+    public SharedFuturesEndpoint sharedFuturesEndpoint() throws Exception {
+        return new SharedFuturesEndpoint(sharedFuturesInspector());
+    }
+
+    @Bean
+    public SharedFuturesBatchCollector sharedFuturesBatchCollector() {
+        return new SharedFuturesBatchCollector();
+    }
+
+    @Bean
+    public HashedWheelTimer sharedFuturesTimer() {
+        return new HashedWheelTimer();
     }
 
     @Bean
-    public DefaultKeyGenerator defaultKeyGenerator() {
-        return new DefaultKeyGenerator();
+    public FutureAdapters sharedFuturesFutureAdapters() {
+        return new FutureAdapters(futureAdapters != null ? futureAdapters : Collections.<FutureAdapter>emptyList());
+    }
+
+    @Bean
+    public KeyGenerator sharedFuturesKeyGenerator() {
+        return enableSharedFutures != null
+                ? BeanUtils.instantiateClass(enableSharedFutures.<KeyGenerator>getClass("keyGenerator"))
+                : new DefaultKeyGenerator();
+    }
+
+    private int getHotKeys() {
+        return enableSharedFutures != null ? enableSharedFutures.<Integer>getNumber("hotKeys") : 0;
+    }
+
+    private SpelCompilerMode getSpelCompilerMode() {
+        return enableSharedFutures != null
+                ? enableSharedFutures.<SpelCompilerMode>getEnum("spelCompilerMode")
+                : SpelCompilerMode.OFF;
+    }
+
+    static class PublisherPresentCondition implements Condition {
+        @Override
+        public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+            return SharedFuturesAspect.isPublisherPresent();
+        }
     }
 }
@@ -0,0 +1,24 @@
+package com.ulisesbocchio.sharedfutures.spring.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates, at build time, a subclass of the annotated class named {@code <Class>_SharedFutures} that shares its
+ * {@link SharedFuture} methods returning futures without an aspect or a proxy: every call builds a typed key from its
+ * arguments and goes straight to the registry through a {@link com.ulisesbocchio.sharedfutures.SharedFutureInvoker},
+ * taken as the first argument of each constructor.
+ * Keys are built from the arguments' {@code equals} and {@code hashCode}, or from
+ * {@link com.ulisesbocchio.sharedfutures.spring.SharedFutureKey#getKey()} for arguments implementing it. Methods
+ * using expression keys, retention, timeouts or hedging, or returning anything but futures, are not overridden and
+ * are left to {@code SharedFuturesAspect}.
+ * Requires the library on the annotation processor path, which is the classpath by default.
+ *
+ * @author ulisesbocchio
+ */
+@Target({ElementType.TYPE})
+@Retention(RetentionPolicy.SOURCE)
+public @interface GenerateSharedFutures {
+}
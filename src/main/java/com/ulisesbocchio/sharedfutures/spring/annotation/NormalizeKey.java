@@ -0,0 +1,34 @@
+package com.ulisesbocchio.sharedfutures.spring.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Normalizes a parameter of a {@link SharedFuture} method before its key is generated, so calls with equivalent
+ * arguments share the same future even if the arguments differ in order or case. Applies to generated and expression
+ * keys, and to the wrappers generated from {@link GenerateSharedFutures} classes.
+ *
+ * @author ulisesbocchio
+ */
+@Target({ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface NormalizeKey {
+
+    /**
+     * Sorts the elements of collections, and the entries of maps by key, so their iteration order doesn't matter.
+     */
+    boolean unordered() default false;
+
+    /**
+     * Treats collections as sets, sorting them and dropping duplicate elements, so {@code [b, a, b]} and
+     * {@code [a, b]} share a key.
+     */
+    boolean distinct() default false;
+
+    /**
+     * Lower cases Strings, including the elements of collections and maps.
+     */
+    boolean ignoreCase() default false;
+}
@@ -1,5 +1,7 @@
 package com.ulisesbocchio.sharedfutures.spring.annotation;
 
+import com.ulisesbocchio.sharedfutures.SharedFuturesScope;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -12,4 +14,144 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface SharedFuture {
     String key() default "";
+
+    /**
+     * Milliseconds a completed future keeps being served for its key after completion. Zero, the default, removes
+     * futures as soon as they complete.
+     */
+    long retainFor() default 0;
+
+    /**
+     * Whether futures that completed exceptionally are retained too when {@link #retainFor()} is set.
+     */
+    boolean retainFailures() default false;
+
+    /**
+     * Maximum number of completed futures retained for the method, least recently used ones are evicted first.
+     */
+    int retainMaxEntries() default 1000;
+
+    /**
+     * Maximum estimated bytes of the values retained for the method, zero or less to only bound the number of entries
+     * with {@link #retainMaxEntries()}. Sizes are a rough estimate of Strings, arrays, collections and maps of them.
+     */
+    long retainMaxBytes() default 0;
+
+    /**
+     * Milliseconds a retained value keeps being served once it is older than {@link #retainFor()}. While stale, the
+     * first caller triggers a refresh shared like any other call, every caller gets the stale value immediately, and
+     * the refreshed value replaces it once it completes. Zero, the default, serves retained values only while fresh.
+     * Synchronous methods are refreshed on the aspect's hedge executor. Doesn't apply to Reactive Streams publishers.
+     */
+    long staleWhileRevalidate() default 0;
+
+    /**
+     * Fraction of {@link #retainFor()}, between 0 and 1, after which serving a fresh value also refreshes it in the
+     * background, so hot keys are refreshed before they go stale. Zero, the default, disables refresh ahead.
+     * Doesn't apply to Reactive Streams publishers.
+     */
+    double refreshAhead() default 0;
+
+    /**
+     * Milliseconds a failed future keeps being served for its key, so calls arriving right after a failure share it
+     * instead of hitting the failing dependency again. Zero, the default, removes failed futures right away.
+     * Only applies to methods returning futures and blocking methods.
+     */
+    long failureBackoff() default 0;
+
+    /**
+     * Fraction of failed executions, between 0 and 1, over the last {@link #circuitWindow()} milliseconds that opens
+     * the circuit of the method. While open, calls fail fast with a
+     * {@link com.ulisesbocchio.sharedfutures.SharedFuturesCircuitOpenException} without executing the method. Zero,
+     * the default, disables the circuit. Only applies to methods returning futures and blocking methods.
+     */
+    double circuitFailureRate() default 0;
+
+    /**
+     * Executions within {@link #circuitWindow()} needed before the circuit can open.
+     */
+    int circuitMinCalls() default 20;
+
+    /**
+     * Milliseconds of executions the failure rate is computed over.
+     */
+    long circuitWindow() default 10000;
+
+    /**
+     * Milliseconds the circuit stays open before a single trial execution is let through to close it.
+     */
+    long circuitOpenFor() default 5000;
+
+    /**
+     * Maximum milliseconds a shared future stays in flight. Once exceeded, the future is removed, so the next call
+     * executes the method again, every caller's future completes exceptionally with a
+     * {@link java.util.concurrent.TimeoutException} and the hung future is cancelled. Zero, the default, waits forever.
+     */
+    long timeout() default 0;
+
+    /**
+     * Percentile of the method's observed latency, between 0 and 1, after which a shared future that hasn't completed
+     * yet is hedged: the method is executed once more and every caller gets whichever execution completes first, the
+     * other one is cancelled. Zero, the default, disables hedging.
+     */
+    double hedgePercentile() default 0;
+
+    /**
+     * Minimum milliseconds before hedging, also the hedging delay while too few latencies have been observed to
+     * compute {@link #hedgePercentile()}. When zero, no call is hedged until enough latencies were observed.
+     */
+    long hedgeMinDelay() default 0;
+
+    /**
+     * Threads the callers' futures are completed on once the shared future completes. {@link CompletionPolicy#DIRECT},
+     * the default, completes them on the thread completing the shared future. Only applies to methods returning futures.
+     */
+    CompletionPolicy completion() default CompletionPolicy.DIRECT;
+
+    /**
+     * Threads of the pool of the method with {@link CompletionPolicy#DEDICATED_POOL}.
+     */
+    int completionThreads() default 4;
+
+    /**
+     * Callers completed by each task with {@link CompletionPolicy#FAN_OUT}.
+     */
+    int completionBatchSize() default 32;
+
+    /**
+     * Whether every call is shared, {@link SharingPolicy#ALWAYS} by default, or sharing is bypassed while it doesn't
+     * pay off with {@link SharingPolicy#ADAPTIVE}, see {@link SharingPolicy}.
+     */
+    SharingPolicy sharing() default SharingPolicy.ALWAYS;
+
+    /**
+     * Calls sampled before each {@link SharingPolicy#ADAPTIVE} decision.
+     */
+    int adaptiveWindow() default 1000;
+
+    /**
+     * Milliseconds sharing stays bypassed before a new window of calls is sampled with sharing on.
+     */
+    long adaptiveProbeInterval() default 10000;
+
+    /**
+     * Name of the {@link SharedFuturesScope} calls are shared within, {@link SharedFuturesScope#GLOBAL} by default.
+     * {@link SharedFuturesScope#REQUEST} shares calls within the current
+     * {@link com.ulisesbocchio.sharedfutures.SharedFuturesRequestScope} request only, for results private to it, and
+     * any other name selects a scope registered with the aspect. Scoped methods can't retain futures or back off
+     * failures, which are kept per method across scopes, and are never bypassed by {@link SharingPolicy#ADAPTIVE}.
+     */
+    String scope() default SharedFuturesScope.GLOBAL;
+
+    /**
+     * Number of elements of a shared {@code Flux}, or any other Reactive Streams {@code Publisher} but {@code Mono},
+     * replayed to callers subscribing after they were emitted.
+     */
+    int replay() default 256;
+
+    /**
+     * Milliseconds a shared Reactive Streams {@code Publisher} stays shared while nobody has subscribed to it, so
+     * callers that never subscribe don't keep its key in the registry. Not positive to wait forever.
+     */
+    long subscribeTimeout() default 30000;
 }
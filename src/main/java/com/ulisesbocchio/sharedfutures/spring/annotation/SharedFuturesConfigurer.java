@@ -0,0 +1,29 @@
+package com.ulisesbocchio.sharedfutures.spring.annotation;
+
+import com.ulisesbocchio.sharedfutures.SharedFuturesRegistry;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Implemented by beans of an {@link EnableSharedFutures} application that want to replace the components set up by
+ * {@link EnableSharedFuturesAutoConfiguration}. Returning null keeps the default.
+ *
+ * @author ulisesbocchio
+ */
+public interface SharedFuturesConfigurer {
+
+    /**
+     * @return the registry to use instead of a {@link com.ulisesbocchio.sharedfutures.DefaultSharedFuturesRegistry}
+     */
+    default SharedFuturesRegistry getSharedFuturesRegistry() {
+        return null;
+    }
+
+    /**
+     * @return the executor to complete callers on with {@link CompletionPolicy#SHARED_POOL} and
+     * {@link CompletionPolicy#FAN_OUT} instead of the common fork join pool
+     */
+    default Executor getCompletionExecutor() {
+        return null;
+    }
+}
@@ -0,0 +1,24 @@
+package com.ulisesbocchio.sharedfutures.spring.annotation;
+
+/**
+ * Whether calls to a {@link SharedFuture} method always go through the registry.
+ *
+ * @author ulisesbocchio
+ */
+public enum SharingPolicy {
+
+    /**
+     * Calls are sampled in windows of {@link SharedFuture#adaptiveWindow()} calls and, when generating keys and
+     * joining the registry cost more than the executions saved by the shared hits of a window, the method is called
+     * directly for {@link SharedFuture#adaptiveProbeInterval()} milliseconds before sampling again. Only methods
+     * returning futures without retention, timeouts, hedging, failure handling, a completion policy or a
+     * {@link SharedFuture#scope()} other than the global one are bypassed. Opt in only for methods whose keys hardly
+     * ever collide: while bypassed, a burst of calls for the same key reaches the method once per call.
+     */
+    ADAPTIVE,
+
+    /**
+     * Every call is shared, the default.
+     */
+    ALWAYS
+}
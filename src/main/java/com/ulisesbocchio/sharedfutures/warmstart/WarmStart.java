@@ -0,0 +1,176 @@
+package com.ulisesbocchio.sharedfutures.warmstart;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.ulisesbocchio.sharedfutures.cluster.JdkResultSerializer;
+import com.ulisesbocchio.sharedfutures.cluster.ResultSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.ClassUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Keeps a {@link WarmStartProfile} of the hottest shared calls on disk and prefetches them when the application
+ * starts, so the first requests after a deploy find them in flight or retained instead of stampeding the backends.
+ * The profile recorded by the {@link WarmStartRecorder} is written every flush interval and on {@link #close()}, and
+ * {@link #prefetch(Function)} makes the calls of the last profile written through the shared methods' proxies, so
+ * they are shared like any other call, no faster than the prefetch rate.
+ * <p>
+ * Arguments are stored with an unrestricted {@link JdkResultSerializer} by default, only methods with serializable
+ * arguments are prefetched. The profile file is trusted: it must only be writable by the application, or else a
+ * serializer restricted to the argument types must be given.
+ *
+ * @author ulisesbocchio
+ */
+public class WarmStart implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WarmStart.class);
+
+    private final WarmStartRecorder recorder;
+    private final Path file;
+    private final int callsPerMethod;
+    private final double prefetchRate;
+    private final ResultSerializer serializer;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "shared-futures-warm-start");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long flushedHits;
+
+    public WarmStart(WarmStartRecorder recorder, Path file, int callsPerMethod, double prefetchRate) {
+        this(recorder, file, callsPerMethod, prefetchRate, JdkResultSerializer.unrestricted());
+    }
+
+    /**
+     * @param callsPerMethod hottest calls of each method kept in the profile
+     * @param prefetchRate   calls per second made by {@link #prefetch(Function)}
+     * @param serializer     serializer of the calls' arguments
+     */
+    public WarmStart(WarmStartRecorder recorder, Path file, int callsPerMethod, double prefetchRate,
+                     ResultSerializer serializer) {
+        this.recorder = recorder;
+        this.file = file;
+        this.callsPerMethod = callsPerMethod;
+        this.prefetchRate = prefetchRate;
+        this.serializer = serializer;
+    }
+
+    public WarmStartRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Writes the profile every flush interval, in the background.
+     */
+    public void start(long flushIntervalMillis) {
+        scheduler.scheduleWithFixedDelay(this::tryFlush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Prefetches the calls of the profile in the background, see {@link #prefetch(Function)}.
+     */
+    public void prefetchAsync(Function<Class<?>, Object> targets) {
+        scheduler.execute(() -> prefetch(targets));
+    }
+
+    /**
+     * Makes the calls of the profile on disk, no faster than the prefetch rate. Calls whose method or target can't be
+     * resolved, or whose arguments can't be deserialized, are skipped, and the outcome of every call is ignored.
+     *
+     * @param targets resolves the object to call methods of the given declaring type on, the proxy of a shared bean
+     * @return calls made
+     */
+    public int prefetch(Function<Class<?>, Object> targets) {
+        WarmStartProfile profile;
+        try {
+            profile = WarmStartProfile.read(file);
+        } catch (IOException e) {
+            LOG.warn("Cannot read warm start profile {}, skipping prefetch", file, e);
+            return 0;
+        }
+        if (profile.isEmpty()) {
+            return 0;
+        }
+        LOG.info("Prefetching {} shared calls from {} at {} calls per second", profile.getCalls().size(), file, prefetchRate);
+        RateLimiter rateLimiter = RateLimiter.create(prefetchRate);
+        int prefetched = 0;
+        for (WarmStartProfile.Call call : profile.getCalls()) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            rateLimiter.acquire();
+            if (prefetch(call, targets)) {
+                prefetched++;
+            }
+        }
+        LOG.info("Prefetched {} shared calls from {}", prefetched, file);
+        return prefetched;
+    }
+
+    private boolean prefetch(WarmStartProfile.Call call, Function<Class<?>, Object> targets) {
+        try {
+            ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+            Class<?> type = ClassUtils.forName(call.getDeclaringType(), classLoader);
+            String[] parameterTypeNames = call.getParameterTypes();
+            Class<?>[] parameterTypes = new Class<?>[parameterTypeNames.length];
+            for (int i = 0; i < parameterTypeNames.length; i++) {
+                parameterTypes[i] = ClassUtils.forName(parameterTypeNames[i], classLoader);
+            }
+            Method method = type.getMethod(call.getMethodName(), parameterTypes);
+            Object target = targets.apply(type);
+            if (target == null) {
+                LOG.debug("No target to prefetch {} on", call);
+                return false;
+            }
+            method.invoke(target, (Object[]) serializer.deserialize(call.getArguments()));
+            return true;
+        } catch (InvocationTargetException e) {
+            LOG.debug("Prefetch of {} failed", call, e.getCause());
+            return true;
+        } catch (Exception | LinkageError e) {
+            LOG.debug("Cannot prefetch {}", call, e);
+            return false;
+        }
+    }
+
+    /**
+     * Writes the profile if there were shared hits since it was last written, so a node that hasn't seen traffic yet
+     * doesn't replace the profile of its previous run.
+     */
+    public synchronized void flush() throws IOException {
+        long hits = recorder.getHits();
+        if (hits == flushedHits) {
+            return;
+        }
+        WarmStartProfile profile = recorder.getProfile(callsPerMethod, serializer);
+        profile.write(file);
+        flushedHits = hits;
+        LOG.debug("Wrote {} shared calls to warm start profile {}", profile.getCalls().size(), file);
+    }
+
+    private void tryFlush() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Cannot write warm start profile {}", file, e);
+        }
+    }
+
+    /**
+     * Stops flushing and prefetching, and writes the profile one last time.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        tryFlush();
+    }
+}
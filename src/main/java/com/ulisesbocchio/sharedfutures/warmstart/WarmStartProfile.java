@@ -0,0 +1,210 @@
+package com.ulisesbocchio.sharedfutures.warmstart;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The hottest calls of each shared method, persisted so a node can prefetch them when it starts. Profiles are stored
+ * in a compact binary file written and read through a memory map: a header with a magic number, the format version and
+ * the number of calls, followed by each call's declaring type, method name, parameter types, estimated shared hits
+ * and serialized arguments. Files are replaced atomically, so readers never see a partially written profile.
+ *
+ * @author ulisesbocchio
+ */
+public final class WarmStartProfile {
+
+    static final int MAGIC = 0x53465753;
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+
+    private final List<Call> calls;
+
+    public WarmStartProfile(List<Call> calls) {
+        this.calls = Collections.unmodifiableList(new ArrayList<>(calls));
+    }
+
+    /**
+     * @return the calls of the profile, hottest first within each method
+     */
+    public List<Call> getCalls() {
+        return calls;
+    }
+
+    public boolean isEmpty() {
+        return calls.isEmpty();
+    }
+
+    /**
+     * Writes the profile to a temporary file next to the given one, then moves it over the given one.
+     */
+    public void write(Path file) throws IOException {
+        List<byte[][]> encoded = new ArrayList<>(calls.size());
+        long size = HEADER_BYTES;
+        for (Call call : calls) {
+            byte[][] fields = call.encode();
+            encoded.add(fields);
+            size += Call.FIXED_BYTES + 4L * fields.length;
+            for (byte[] field : fields) {
+                size += field.length;
+            }
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Warm start profile too large: " + size + " bytes");
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(calls.size());
+            for (int i = 0; i < calls.size(); i++) {
+                calls.get(i).write(buffer, encoded.get(i));
+            }
+            buffer.force();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the profile stored in the file, or an empty profile if the file doesn't exist
+     * @throws IOException if the file can't be read or isn't a profile of a supported version
+     */
+    public static WarmStartProfile read(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return new WarmStartProfile(Collections.<Call>emptyList());
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a warm start profile: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException(String.format("Unsupported warm start profile version %d: %s", version, file));
+            }
+            int count = buffer.getInt();
+            List<Call> calls = new ArrayList<>(Math.max(0, Math.min(count, 4096)));
+            for (int i = 0; i < count; i++) {
+                calls.add(Call.read(buffer));
+            }
+            return new WarmStartProfile(calls);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Truncated warm start profile: " + file, e);
+        }
+    }
+
+    /**
+     * A shared method call, with everything needed to make it again.
+     */
+    public static final class Call {
+        /**
+         * bytes of the hits and of the number of parameter types
+         */
+        private static final int FIXED_BYTES = 12;
+
+        private final String declaringType;
+        private final String methodName;
+        private final String[] parameterTypes;
+        private final long hits;
+        private final byte[] arguments;
+
+        /**
+         * @param declaringType  name of the class or interface declaring the method
+         * @param parameterTypes names of the parameter types of the method, as returned by {@link Class#getName()}
+         * @param hits           estimated shared hits of the call
+         * @param arguments      serialized arguments of the call
+         */
+        public Call(String declaringType, String methodName, String[] parameterTypes, long hits, byte[] arguments) {
+            this.declaringType = declaringType;
+            this.methodName = methodName;
+            this.parameterTypes = parameterTypes.clone();
+            this.hits = hits;
+            this.arguments = arguments;
+        }
+
+        public String getDeclaringType() {
+            return declaringType;
+        }
+
+        public String getMethodName() {
+            return methodName;
+        }
+
+        public String[] getParameterTypes() {
+            return parameterTypes.clone();
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public byte[] getArguments() {
+            return arguments;
+        }
+
+        /**
+         * @return the variable length fields: declaring type, method name, parameter types and arguments
+         */
+        private byte[][] encode() {
+            byte[][] fields = new byte[parameterTypes.length + 3][];
+            fields[0] = declaringType.getBytes(StandardCharsets.UTF_8);
+            fields[1] = methodName.getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < parameterTypes.length; i++) {
+                fields[i + 2] = parameterTypes[i].getBytes(StandardCharsets.UTF_8);
+            }
+            fields[fields.length - 1] = arguments;
+            return fields;
+        }
+
+        private void write(ByteBuffer buffer, byte[][] fields) {
+            buffer.putLong(hits).putInt(parameterTypes.length);
+            for (byte[] field : fields) {
+                buffer.putInt(field.length).put(field);
+            }
+        }
+
+        private static Call read(ByteBuffer buffer) {
+            long hits = buffer.getLong();
+            int parameterCount = buffer.getInt();
+            if (parameterCount < 0 || parameterCount > 255) {
+                throw new IllegalArgumentException("Invalid parameter count " + parameterCount);
+            }
+            String declaringType = new String(readField(buffer), StandardCharsets.UTF_8);
+            String methodName = new String(readField(buffer), StandardCharsets.UTF_8);
+            String[] parameterTypes = new String[parameterCount];
+            for (int i = 0; i < parameterCount; i++) {
+                parameterTypes[i] = new String(readField(buffer), StandardCharsets.UTF_8);
+            }
+            return new Call(declaringType, methodName, parameterTypes, hits, readField(buffer));
+        }
+
+        private static byte[] readField(ByteBuffer buffer) {
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IllegalArgumentException("Invalid field length " + length);
+            }
+            byte[] field = new byte[length];
+            buffer.get(field);
+            return field;
+        }
+
+        @Override
+        public String toString() {
+            return declaringType + "#" + methodName + "(" + String.join(",", parameterTypes) + ") hits=" + hits;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.ulisesbocchio.sharedfutures.warmstart;
+
+import com.ulisesbocchio.sharedfutures.cluster.ResultSerializer;
+import com.ulisesbocchio.sharedfutures.inspect.CountMinSketch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Tracks the most shared calls of each method with bounded memory, the same way
+ * {@link com.ulisesbocchio.sharedfutures.inspect.HotKeysSharedFuturesRegistry} tracks hot keys: every shared hit is
+ * counted in a {@link CountMinSketch} and written, with the method and arguments needed to make the call again, to a
+ * fixed size ring of recent hits. Nothing is locked on the call path, and calls are only ranked and their arguments
+ * serialized by {@link #getProfile(int, ResultSerializer)}.
+ *
+ * @author ulisesbocchio
+ */
+public class WarmStartRecorder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WarmStartRecorder.class);
+
+    private final CountMinSketch sketch;
+    private final AtomicReferenceArray<Hit> recent;
+    private final int recentMask;
+    private final AtomicLong hits = new AtomicLong();
+
+    public WarmStartRecorder() {
+        this(1024, 1024);
+    }
+
+    /**
+     * @param sketchWidth counters per row of the sketch, see {@link CountMinSketch#CountMinSketch(int)}
+     * @param recentSize  number of recent hits considered for ranking, rounded up to a power of two
+     */
+    public WarmStartRecorder(int sketchWidth, int recentSize) {
+        int size = recentSize <= 1 ? 1 : Integer.highestOneBit(recentSize - 1) << 1;
+        this.sketch = new CountMinSketch(sketchWidth);
+        this.recent = new AtomicReferenceArray<>(size);
+        this.recentMask = size - 1;
+    }
+
+    /**
+     * Records a call that found its key shared, in flight or retained.
+     *
+     * @param args arguments of the call, not copied, so they must not be modified afterwards
+     */
+    public void record(Method method, Object key, Object[] args) {
+        sketch.add(key);
+        recent.lazySet((int) hits.getAndIncrement() & recentMask, new Hit(method, key, args));
+    }
+
+    /**
+     * @return shared hits recorded so far
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Ranks the calls recently shared by their estimated hits. Calls whose arguments can't be serialized are left out.
+     *
+     * @param limit number of calls kept per method
+     */
+    public WarmStartProfile getProfile(int limit, ResultSerializer serializer) {
+        Map<Object, Hit> candidates = new HashMap<>();
+        for (int i = 0; i < recent.length(); i++) {
+            Hit hit = recent.get(i);
+            if (hit != null) {
+                candidates.put(hit.key, hit);
+            }
+        }
+        Map<Method, List<Hit>> methods = new HashMap<>();
+        candidates.values().forEach(hit -> methods.computeIfAbsent(hit.method, m -> new ArrayList<>()).add(hit));
+        List<WarmStartProfile.Call> calls = new ArrayList<>();
+        for (List<Hit> method : methods.values()) {
+            method.sort(Comparator.comparingLong((Hit hit) -> sketch.estimate(hit.key)).reversed());
+            int kept = 0;
+            for (Hit hit : method) {
+                if (kept == limit) {
+                    break;
+                }
+                WarmStartProfile.Call call = toCall(hit, serializer);
+                if (call != null) {
+                    calls.add(call);
+                    kept++;
+                }
+            }
+        }
+        return new WarmStartProfile(calls);
+    }
+
+    private WarmStartProfile.Call toCall(Hit hit, ResultSerializer serializer) {
+        byte[] arguments;
+        try {
+            arguments = serializer.serialize(hit.args);
+        } catch (RuntimeException e) {
+            LOG.debug("Leaving key: {} out of the warm start profile, its arguments can't be serialized", hit.key, e);
+            return null;
+        }
+        Class<?>[] types = hit.method.getParameterTypes();
+        String[] parameterTypes = new String[types.length];
+        for (int i = 0; i < types.length; i++) {
+            parameterTypes[i] = types[i].getName();
+        }
+        return new WarmStartProfile.Call(hit.method.getDeclaringClass().getName(), hit.method.getName(), parameterTypes,
+                sketch.estimate(hit.key), arguments);
+    }
+
+    private static final class Hit {
+        private final Method method;
+        private final Object key;
+        private final Object[] args;
+
+        private Hit(Method method, Object key, Object[] args) {
+            this.method = method;
+            this.key = key;
+            this.args = args;
+        }
+    }
+}
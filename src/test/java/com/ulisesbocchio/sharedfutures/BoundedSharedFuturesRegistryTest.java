@@ -0,0 +1,123 @@
+package com.ulisesbocchio.sharedfutures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author ulisesbocchio
+ */
+public class BoundedSharedFuturesRegistryTest {
+
+    @Test
+    public void testPutGetRemove() {
+        BoundedSharedFuturesRegistry registry = BoundedSharedFuturesRegistry.builder().stripes(4).build();
+        CompletableFuture<Object> future = CompletableFuture.completedFuture(null);
+        registry.put("key", future);
+        Assert.assertTrue(registry.contains("key"));
+        Assert.assertEquals(future, registry.get("key"));
+        Assert.assertEquals(1, registry.size());
+        Assert.assertTrue(registry.remove("key", future));
+        Assert.assertFalse(registry.contains("key"));
+    }
+
+    @Test
+    public void testSharesInFlightFutures() throws Throwable {
+        BoundedSharedFuturesRegistry registry = BoundedSharedFuturesRegistry.builder().maxInFlight(1).build();
+        AtomicInteger invocations = new AtomicInteger();
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        Future<?> first = registry.computeIfAbsent("key", "group", removeFunc -> {
+            invocations.incrementAndGet();
+            return future.whenComplete((t, e) -> removeFunc.run());
+        });
+        Future<?> second = registry.computeIfAbsent("key", "group", removeFunc -> {
+            invocations.incrementAndGet();
+            return null;
+        });
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, invocations.get());
+        Assert.assertEquals(0, registry.availablePermits());
+        future.complete(null);
+        Assert.assertEquals(1, registry.availablePermits());
+        Assert.assertFalse(registry.contains("key"));
+    }
+
+    @Test
+    public void testRejectsOverOverallLimit() throws Throwable {
+        BoundedSharedFuturesRegistry registry = BoundedSharedFuturesRegistry.builder().maxInFlight(1).build();
+        registry.computeIfAbsent("one", "group", removeFunc -> new CompletableFuture<>());
+        try {
+            registry.computeIfAbsent("two", "group", removeFunc -> new CompletableFuture<>());
+            Assert.fail();
+        } catch (SharedFuturesRejectedException e) {
+            Assert.assertFalse(registry.contains("two"));
+        }
+    }
+
+    @Test
+    public void testRejectsOverGroupLimit() throws Throwable {
+        BoundedSharedFuturesRegistry registry = BoundedSharedFuturesRegistry.builder()
+                .maxInFlightPerGroup(10)
+                .maxInFlight("limited", 1)
+                .build();
+        registry.computeIfAbsent("one", "limited", removeFunc -> new CompletableFuture<>());
+        registry.computeIfAbsent("two", "other", removeFunc -> new CompletableFuture<>());
+        try {
+            registry.computeIfAbsent("three", "limited", removeFunc -> new CompletableFuture<>());
+            Assert.fail();
+        } catch (SharedFuturesRejectedException e) {
+            Assert.assertEquals(2, registry.size());
+        }
+    }
+
+    @Test
+    public void testCallerRunsOverLimit() throws Throwable {
+        BoundedSharedFuturesRegistry registry = BoundedSharedFuturesRegistry.builder()
+                .maxInFlight(1)
+                .rejectionPolicy(BoundedSharedFuturesRegistry.RejectionPolicy.CALLER_RUNS)
+                .build();
+        registry.computeIfAbsent("one", "group", removeFunc -> new CompletableFuture<>());
+        CompletableFuture<Object> unshared = new CompletableFuture<>();
+        Assert.assertSame(unshared, registry.computeIfAbsent("two", "group", removeFunc -> unshared));
+        Assert.assertFalse(registry.contains("two"));
+    }
+
+    @Test
+    public void testWaitsForPermit() throws Throwable {
+        BoundedSharedFuturesRegistry registry = BoundedSharedFuturesRegistry.builder()
+                .maxInFlight(1)
+                .rejectionPolicy(BoundedSharedFuturesRegistry.RejectionPolicy.WAIT)
+                .maxWait(1, TimeUnit.SECONDS)
+                .build();
+        CompletableFuture<Object> first = new CompletableFuture<>();
+        registry.computeIfAbsent("one", "group", removeFunc -> first.whenComplete((t, e) -> removeFunc.run()));
+        CompletableFuture.runAsync(() -> {
+            try {
+                Thread.sleep(50L);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            first.complete(null);
+        });
+        CompletableFuture<Object> second = new CompletableFuture<>();
+        Assert.assertSame(second, registry.computeIfAbsent("two", "group", removeFunc -> second));
+        Assert.assertTrue(registry.contains("two"));
+    }
+
+    @Test
+    public void testFactoryFailureReleasesPermit() throws Throwable {
+        BoundedSharedFuturesRegistry registry = BoundedSharedFuturesRegistry.builder().maxInFlight(1).build();
+        try {
+            registry.computeIfAbsent("key", "group", removeFunc -> {
+                throw new IllegalArgumentException("boom");
+            });
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals(1, registry.availablePermits());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.ulisesbocchio.sharedfutures;
+
+import com.ulisesbocchio.sharedfutures.SharedFuturesRegistry.InFlight;
+import com.ulisesbocchio.sharedfutures.adapter.FutureAdapter;
+import com.ulisesbocchio.sharedfutures.adapter.FutureAdapters;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author ulisesbocchio
+ */
+public class CompletionDispatcherTest {
+
+    private final FutureAdapters futureAdapters = FutureAdapters.getDefault();
+    private final FutureAdapter adapter = futureAdapters.getAdapter(CompletableFuture.class);
+
+    @Test
+    public void testDirect() throws Exception {
+        CompletableFuture<Object> shared = new CompletableFuture<>();
+        InFlight inFlight = new InFlight(new ConcurrentHashMap<>(), "key", null, shared, null);
+        List<CompletableFuture<String>> threads = views(inFlight, CompletionDispatcher.DIRECT, 3);
+        shared.complete("value");
+        for (CompletableFuture<String> thread : threads) {
+            Assert.assertEquals(Thread.currentThread().getName(), thread.get(1, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testExecutor() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2, r -> new Thread(r, "completion"));
+        CompletableFuture<Object> shared = new CompletableFuture<>();
+        InFlight inFlight = new InFlight(new ConcurrentHashMap<>(), "key", null, shared, null);
+        List<CompletableFuture<String>> threads = views(inFlight, CompletionDispatcher.executor(executor), 3);
+        shared.complete("value");
+        for (CompletableFuture<String> thread : threads) {
+            Assert.assertEquals("completion", thread.get(1, TimeUnit.SECONDS));
+        }
+        Assert.assertEquals(Thread.currentThread().getName(),
+                views(inFlight, CompletionDispatcher.executor(executor), 1).get(0).get(1, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    public void testFanOut() throws Exception {
+        AtomicInteger tasks = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4, r -> new Thread(r, "completion"));
+        CompletionDispatcher dispatcher = CompletionDispatcher.fanOut(task -> {
+            tasks.incrementAndGet();
+            executor.execute(task);
+        }, 8);
+        CompletableFuture<Object> shared = new CompletableFuture<>();
+        InFlight inFlight = new InFlight(new ConcurrentHashMap<>(), "key", null, shared, null);
+        List<CompletableFuture<String>> threads = views(inFlight, dispatcher, 20);
+        Set<Object> values = ConcurrentHashMap.newKeySet();
+        shared.complete("value");
+        for (CompletableFuture<String> thread : threads) {
+            values.add(thread.get(1, TimeUnit.SECONDS));
+        }
+        Assert.assertEquals(1, values.size());
+        Assert.assertTrue(values.contains("completion"));
+        Assert.assertEquals(3, tasks.get());
+        Assert.assertEquals(Thread.currentThread().getName(), views(inFlight, dispatcher, 1).get(0).get(1, TimeUnit.SECONDS));
+        Assert.assertEquals(3, tasks.get());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testFanOutFailure() throws Exception {
+        CompletableFuture<Object> shared = new CompletableFuture<>();
+        InFlight inFlight = new InFlight(new ConcurrentHashMap<>(), "key", null, shared, null);
+        CompletionDispatcher dispatcher = CompletionDispatcher.fanOut(Runnable::run, 2);
+        List<Future<?>> views = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            views.add(SharedFutureInvoker.view(inFlight, adapter, futureAdapters, dispatcher));
+        }
+        IllegalStateException failure = new IllegalStateException("boom");
+        shared.completeExceptionally(failure);
+        for (Future<?> view : views) {
+            Assert.assertTrue(view.isDone());
+            Assert.assertSame(failure, ((CompletableFuture<?>) view).handle((v, t) -> t).get());
+        }
+    }
+
+    /**
+     * @return for every view, the name of the thread that completed it
+     */
+    private List<CompletableFuture<String>> views(InFlight inFlight, CompletionDispatcher dispatcher, int count) {
+        List<CompletableFuture<String>> threads = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            @SuppressWarnings("unchecked")
+            CompletableFuture<Object> view = (CompletableFuture<Object>) SharedFutureInvoker.view(inFlight, adapter, futureAdapters, dispatcher);
+            threads.add(view.thenApply(value -> Thread.currentThread().getName()));
+        }
+        return threads;
+    }
+}
@@ -0,0 +1,157 @@
+package com.ulisesbocchio.sharedfutures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * @author ulisesbocchio
+ */
+public class DefaultSharedFuturesRegistryTest {
+
+    @Test
+    public void testPut() {
+        SharedFuturesRegistry registry = new DefaultSharedFuturesRegistry();
+        CompletableFuture<Object> future = CompletableFuture.completedFuture(null);
+        registry.put("key", future);
+        Assert.assertTrue(registry.contains("key"));
+    }
+
+    @Test
+    public void testGet() {
+        SharedFuturesRegistry registry = new DefaultSharedFuturesRegistry();
+        CompletableFuture<Object> future = CompletableFuture.completedFuture(null);
+        registry.put("key", future);
+        Assert.assertEquals(future, registry.get("key"));
+    }
+
+    @Test
+    public void testRemove() {
+        SharedFuturesRegistry registry = new DefaultSharedFuturesRegistry();
+        CompletableFuture<Object> future = CompletableFuture.completedFuture(null);
+        registry.put("key", future);
+        Assert.assertTrue(registry.contains("key"));
+        registry.remove("key");
+        Assert.assertFalse(registry.contains("key"));
+    }
+
+    @Test
+    public void testComputeIfAbsent_singleFlight() throws Exception {
+        SharedFuturesRegistry registry = new DefaultSharedFuturesRegistry();
+        AtomicInteger invocations = new AtomicInteger();
+        CompletableFuture<Object> shared = new CompletableFuture<>();
+        int threads = 64;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Future<?>>> results = IntStream.range(0, threads)
+                .mapToObj(i -> executor.<Future<?>>submit(() -> {
+                    start.await();
+                    try {
+                        return registry.computeIfAbsent("key", removeFunc -> {
+                            invocations.incrementAndGet();
+                            Thread.sleep(10L);
+                            return shared.whenComplete((t, e) -> removeFunc.run());
+                        });
+                    } catch (Throwable t) {
+                        throw new IllegalStateException(t);
+                    }
+                }))
+                .collect(Collectors.toList());
+        start.countDown();
+        Future<?> first = results.get(0).get();
+        for (Future<Future<?>> result : results) {
+            Assert.assertSame(first, result.get());
+        }
+        Assert.assertEquals(1, invocations.get());
+        Assert.assertTrue(registry.contains("key"));
+        shared.complete(null);
+        Assert.assertFalse(registry.contains("key"));
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testComputeIfAbsent_lateCompletionKeepsNewerFuture() throws Throwable {
+        SharedFuturesRegistry registry = new DefaultSharedFuturesRegistry();
+        CompletableFuture<Object> first = new CompletableFuture<>();
+        Runnable[] firstRemoval = new Runnable[1];
+        registry.computeIfAbsent("key", removeFunc -> {
+            firstRemoval[0] = removeFunc;
+            return first;
+        });
+        registry.remove("key");
+        CompletableFuture<Object> second = new CompletableFuture<>();
+        registry.computeIfAbsent("key", removeFunc -> second);
+        firstRemoval[0].run();
+        Assert.assertSame(second, registry.get("key"));
+    }
+
+    @Test
+    public void testComputeIfAbsent_completedDuringCreation() throws Throwable {
+        SharedFuturesRegistry registry = new DefaultSharedFuturesRegistry();
+        Future<?> future = registry.computeIfAbsent("key", removeFunc -> {
+            CompletableFuture<Object> done = CompletableFuture.completedFuture(null);
+            return done.whenComplete((t, e) -> removeFunc.run());
+        });
+        Assert.assertTrue(future.isDone());
+        Assert.assertFalse(registry.contains("key"));
+    }
+
+    @Test
+    public void testComputeIfAbsent_factoryFailureReleasesKey() throws Throwable {
+        SharedFuturesRegistry registry = new DefaultSharedFuturesRegistry();
+        try {
+            registry.computeIfAbsent("key", removeFunc -> {
+                throw new IllegalArgumentException("boom");
+            });
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertFalse(registry.contains("key"));
+        }
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        Assert.assertSame(future, registry.computeIfAbsent("key", removeFunc -> future));
+    }
+
+    @Test
+    public void testComputeIfAbsent_countsWaiters() throws Throwable {
+        SharedFuturesRegistry registry = new DefaultSharedFuturesRegistry();
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        SharedFuturesRegistry.InFlight[] inFlight = new SharedFuturesRegistry.InFlight[1];
+        registry.computeIfAbsent("key", removeFunc -> {
+            inFlight[0] = removeFunc;
+            return future;
+        });
+        registry.computeIfAbsent("key", removeFunc -> null);
+        registry.computeIfAbsent("key", removeFunc -> null);
+        Assert.assertEquals(2, inFlight[0].getWaiters());
+        Assert.assertEquals("key", inFlight[0].getKey());
+        Assert.assertEquals(1, registry.size());
+        inFlight[0].run();
+        Assert.assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void testJoin_releasedByEveryCallerIsNotJoined() throws Throwable {
+        SharedFuturesRegistry registry = new DefaultSharedFuturesRegistry();
+        CompletableFuture<Object> first = new CompletableFuture<>();
+        CompletableFuture<Object> second = new CompletableFuture<>();
+        SharedFuturesRegistry.InFlight creator = registry.join("key", null, removeFunc -> first);
+        SharedFuturesRegistry.InFlight waiter = registry.join("key", null, removeFunc -> second);
+        Assert.assertSame(creator, waiter);
+        Assert.assertFalse(creator.release());
+        Assert.assertTrue(creator.release());
+        Assert.assertTrue(creator.isAbandoned());
+        Assert.assertSame(second, registry.join("key", null, removeFunc -> second).await());
+        Assert.assertEquals(1, registry.size());
+    }
+}
@@ -0,0 +1,68 @@
+package com.ulisesbocchio.sharedfutures;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author ulisesbocchio
+ */
+public class HashedWheelTimerTest {
+
+    private final HashedWheelTimer timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 8);
+
+    @After
+    public void tearDown() {
+        timer.close();
+    }
+
+    @Test
+    public void testNewTimeout_expires() throws InterruptedException {
+        CountDownLatch expired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(expired::countDown, 20, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(expired.await(2, TimeUnit.SECONDS));
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+        Assert.assertTrue(timeout.isExpired());
+        Assert.assertFalse(timeout.cancel());
+    }
+
+    @Test
+    public void testNewTimeout_longerThanOneRound() throws InterruptedException {
+        CountDownLatch expired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        timer.newTimeout(expired::countDown, 30, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(expired.await(2, TimeUnit.SECONDS));
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(30));
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(runs::incrementAndGet, 10, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(timeout.cancel());
+        Assert.assertTrue(timeout.isCancelled());
+        Thread.sleep(50L);
+        Assert.assertEquals(0, runs.get());
+    }
+
+    @Test
+    public void testNewTimeout_many() throws InterruptedException {
+        int count = 1000;
+        CountDownLatch expired = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            timer.newTimeout(expired::countDown, i % 50, TimeUnit.MILLISECONDS);
+        }
+        Assert.assertTrue(expired.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNewTimeout_closed() {
+        timer.close();
+        timer.newTimeout(() -> { }, 10, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,63 @@
+package com.ulisesbocchio.sharedfutures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * @author ulisesbocchio
+ */
+public class SharedFuturesRequestScopeTest {
+
+    @Test
+    public void testNoRequest() {
+        Assert.assertNull(SharedFuturesRequestScope.current());
+        Assert.assertNull(SharedFuturesRequestScope.INSTANCE.getRegistry());
+    }
+
+    @Test
+    public void testRegistryPerRequest() {
+        try (SharedFuturesRequestScope.Request request = SharedFuturesRequestScope.begin()) {
+            SharedFuturesRegistry registry = SharedFuturesRequestScope.INSTANCE.getRegistry();
+            Assert.assertNotNull(registry);
+            Assert.assertSame(registry, SharedFuturesRequestScope.INSTANCE.getRegistry());
+            try (SharedFuturesRequestScope.Request nested = SharedFuturesRequestScope.begin()) {
+                Assert.assertSame(nested, SharedFuturesRequestScope.current());
+                Assert.assertNotSame(registry, SharedFuturesRequestScope.INSTANCE.getRegistry());
+            }
+            Assert.assertSame(request, SharedFuturesRequestScope.current());
+            Assert.assertSame(registry, SharedFuturesRequestScope.INSTANCE.getRegistry());
+        }
+        Assert.assertNull(SharedFuturesRequestScope.current());
+    }
+
+    @Test
+    public void testEndedRequestDoesNotShare() {
+        SharedFuturesRequestScope.Request request = SharedFuturesRequestScope.begin();
+        Runnable task = SharedFuturesRequestScope.wrap(() ->
+                Assert.assertNull(SharedFuturesRequestScope.INSTANCE.getRegistry()));
+        request.close();
+        Assert.assertTrue(request.isEnded());
+        task.run();
+        Assert.assertNull(SharedFuturesRequestScope.current());
+    }
+
+    @Test
+    public void testPropagatesAcrossThreads() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (SharedFuturesRequestScope.Request request = SharedFuturesRequestScope.begin()) {
+            SharedFuturesRegistry registry = SharedFuturesRequestScope.INSTANCE.getRegistry();
+            Assert.assertSame(registry, CompletableFuture.supplyAsync(SharedFuturesRequestScope.INSTANCE::getRegistry,
+                    SharedFuturesRequestScope.wrapExecutor(executor)).get());
+            Assert.assertSame(request, CompletableFuture.completedFuture(null)
+                    .thenApplyAsync(SharedFuturesRequestScope.wrapFunction(value -> SharedFuturesRequestScope.current()), executor)
+                    .get());
+            Assert.assertNull(executor.submit(SharedFuturesRequestScope::current).get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.ulisesbocchio.sharedfutures.adapter;
+
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.util.concurrent.ListenableFutureTask;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/**
+ * @author ulisesbocchio
+ */
+public class FutureAdaptersTest {
+
+    private final FutureAdapters adapters = new FutureAdapters();
+
+    @Test
+    public void testGetAdapter_builtIn() {
+        Assert.assertTrue(adapters.getAdapter(CompletableFuture.class) instanceof CompletableFutureAdapter);
+        Assert.assertTrue(adapters.getAdapter(org.springframework.util.concurrent.ListenableFuture.class) instanceof SpringListenableFutureAdapter);
+        Assert.assertTrue(adapters.getAdapter(SettableListenableFuture.class) instanceof SpringListenableFutureAdapter);
+        Assert.assertTrue(adapters.getAdapter(com.google.common.util.concurrent.ListenableFuture.class) instanceof GuavaListenableFutureAdapter);
+        Assert.assertTrue(adapters.getAdapter(SettableFuture.create()) instanceof GuavaListenableFutureAdapter);
+    }
+
+    @Test
+    public void testGetAdapter_discovered() {
+        Assert.assertTrue(adapters.getAdapter(CallbackFuture.class) instanceof CallbackFutureAdapter);
+    }
+
+    @Test
+    public void testGetAdapter_givenTakePrecedence() {
+        CompletableFutureAdapter custom = new CompletableFutureAdapter();
+        FutureAdapters adapters = new FutureAdapters(Collections.singletonList(custom));
+        Assert.assertSame(custom, adapters.getAdapter(CompletableFuture.class));
+        Assert.assertSame(custom, adapters.getAdapter(CompletableFuture.class));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testGetAdapter_unsupported() {
+        adapters.getAdapter(FutureTask.class);
+    }
+
+    @Test
+    public void testFindAdapter_supertypesOfCompletableFutureUnsupported() {
+        Assert.assertNull(adapters.findAdapter(Future.class));
+        Assert.assertNull(adapters.findAdapter(CompletionStage.class));
+        Assert.assertNull(adapters.findAdapter(FutureTask.class));
+        Assert.assertTrue(adapters.findAdapter(CompletableFuture.class) instanceof CompletableFutureAdapter);
+    }
+
+    @Test
+    public void testFindAdapter_typesNarrowerThanIncompleteFuturesUnsupported() {
+        Assert.assertNull(adapters.findAdapter(ListenableFutureTask.class));
+        Assert.assertNull(adapters.findAdapter(SettableFuture.class));
+        Assert.assertNull(adapters.findAdapter(com.google.common.util.concurrent.ListenableFutureTask.class));
+        Assert.assertTrue(adapters.getAdapter(new ListenableFutureTask<>(() -> "value")) instanceof SpringListenableFutureAdapter);
+        Assert.assertTrue(adapters.getAdapter(SettableFuture.create()) instanceof GuavaListenableFutureAdapter);
+    }
+
+    @Test
+    public void testDependent_completesWithSource() throws Exception {
+        CompletableFuture<String> cf = new CompletableFuture<>();
+        SettableListenableFuture<String> spring = new SettableListenableFuture<>();
+        SettableFuture<String> guava = SettableFuture.create();
+        CallbackFuture<String> callback = new CallbackFuture<>(() -> "value");
+        List<Future<String>> dependents = new ArrayList<>();
+        for (Future<String> source : new Future[]{cf, spring, guava, callback}) {
+            Future<String> dependent = adapters.getAdapter(source).dependent(source, null, m -> Assert.fail());
+            Assert.assertFalse(dependent.isDone());
+            dependents.add(dependent);
+        }
+        cf.complete("value");
+        spring.set("value");
+        guava.set("value");
+        callback.run();
+        for (Future<String> dependent : dependents) {
+            Assert.assertEquals("value", dependent.get());
+        }
+    }
+
+    @Test
+    public void testDependent_cancelledDependentNotifiesAndKeepsSource() {
+        for (Future<String> source : new Future[]{new CompletableFuture<>(), new SettableListenableFuture<>(),
+                SettableFuture.create(), new CallbackFuture<>(() -> "value")}) {
+            AtomicBoolean notified = new AtomicBoolean();
+            Future<String> dependent = adapters.getAdapter(source).dependent(source, null, m -> notified.set(true));
+            Assert.assertTrue(dependent.cancel(true));
+            Assert.assertTrue(notified.get());
+            Assert.assertFalse(source.isDone());
+        }
+    }
+
+    @Test
+    public void testDependent_cancelledSourceIsNotNotified() {
+        for (Future<String> source : new Future[]{new CompletableFuture<>(), new SettableListenableFuture<>(),
+                SettableFuture.create(), new CallbackFuture<>(() -> "value")}) {
+            Future<String> dependent = adapters.getAdapter(source).dependent(source, null, m -> Assert.fail());
+            source.cancel(true);
+            Assert.assertTrue(dependent.isCancelled());
+        }
+    }
+
+    /**
+     * A future type unknown to the library, adapted by {@link CallbackFutureAdapter}.
+     */
+    public static class CallbackFuture<T> extends FutureTask<T> {
+        private final List<Runnable> callbacks = new ArrayList<>();
+        private boolean done;
+
+        public CallbackFuture(Callable<T> callable) {
+            super(callable);
+        }
+
+        public void addCallback(Runnable callback) {
+            synchronized (callbacks) {
+                if (!done) {
+                    callbacks.add(callback);
+                    return;
+                }
+            }
+            callback.run();
+        }
+
+        @Override
+        protected void done() {
+            synchronized (callbacks) {
+                done = true;
+            }
+            callbacks.forEach(Runnable::run);
+        }
+
+        @Override
+        public void set(T value) {
+            super.set(value);
+        }
+
+        @Override
+        public void setException(Throwable t) {
+            super.setException(t);
+        }
+    }
+
+    /**
+     * Registered through {@code META-INF/services}.
+     */
+    public static class CallbackFutureAdapter implements FutureAdapter {
+
+        @Override
+        public Class<?> getFutureType() {
+            return CallbackFuture.class;
+        }
+
+        @Override
+        public <T> Future<T> incomplete(CancellationListener onCancel) {
+            return new DependentCallbackFuture<>(onCancel);
+        }
+
+        @Override
+        public <T> boolean complete(Future<T> future, T value, Throwable failure, boolean cancelled) {
+            DependentCallbackFuture<T> dependent = (DependentCallbackFuture<T>) future;
+            if (dependent.isDone()) {
+                return false;
+            }
+            if (cancelled) {
+                return dependent.sourceCancelled();
+            } else if (failure != null) {
+                dependent.setException(failure);
+            } else {
+                dependent.set(value);
+            }
+            return true;
+        }
+
+        @Override
+        public <T> void whenComplete(Future<T> future, BiConsumer<? super T, ? super Throwable> action) {
+            ((CallbackFuture<T>) future).addCallback(() -> {
+                try {
+                    action.accept(future.get(), null);
+                } catch (ExecutionException e) {
+                    action.accept(null, e.getCause());
+                } catch (CancellationException e) {
+                    action.accept(null, e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    action.accept(null, e);
+                }
+            });
+        }
+
+        private static class DependentCallbackFuture<T> extends CallbackFuture<T> {
+            private final CancellationListener onCancel;
+            private volatile boolean sourceCancelled;
+
+            DependentCallbackFuture(CancellationListener onCancel) {
+                super(() -> {
+                    throw new IllegalStateException("Completed by its adapter");
+                });
+                this.onCancel = onCancel;
+            }
+
+            boolean sourceCancelled() {
+                sourceCancelled = true;
+                return super.cancel(false);
+            }
+
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                boolean cancelled = super.cancel(mayInterruptIfRunning);
+                if (cancelled && !sourceCancelled) {
+                    onCancel.cancelled(mayInterruptIfRunning);
+                }
+                return cancelled;
+            }
+        }
+    }
+}
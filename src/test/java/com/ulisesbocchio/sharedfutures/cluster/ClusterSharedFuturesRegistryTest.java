@@ -0,0 +1,164 @@
+package com.ulisesbocchio.sharedfutures.cluster;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.InvalidClassException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author ulisesbocchio
+ */
+public class ClusterSharedFuturesRegistryTest {
+
+    private final LoopbackClusterTransport transport = new LoopbackClusterTransport();
+
+    @Test
+    public void testRemoteNodeGetsOwnerResult() throws Throwable {
+        ClusterSharedFuturesRegistry nodeA = node("a", 5000);
+        ClusterSharedFuturesRegistry nodeB = node("b", 5000);
+        CompletableFuture<Object> owned = new CompletableFuture<>();
+        AtomicInteger executions = new AtomicInteger();
+        Future<?> shared = nodeA.computeIfAbsent("key", removeFunc -> {
+            executions.incrementAndGet();
+            return owned.whenComplete((v, t) -> removeFunc.run());
+        });
+        Future<?> remote = nodeB.computeIfAbsent("key", removeFunc -> {
+            executions.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        Assert.assertEquals("a", transport.getOwner("key"));
+        Assert.assertFalse(remote.isDone());
+        owned.complete("value");
+        Assert.assertEquals("value", remote.get(2, TimeUnit.SECONDS));
+        Assert.assertEquals("value", shared.get());
+        Assert.assertEquals(1, executions.get());
+        Assert.assertEquals(0, nodeA.size());
+        Assert.assertEquals(0, nodeB.size());
+        Assert.assertNull(transport.getOwner("key"));
+    }
+
+    @Test
+    public void testRemoteNodeGetsOwnerFailure() throws Throwable {
+        ClusterSharedFuturesRegistry nodeA = node("a", 5000);
+        ClusterSharedFuturesRegistry nodeB = node("b", 5000);
+        CompletableFuture<Object> owned = new CompletableFuture<>();
+        nodeA.computeIfAbsent("key", removeFunc -> owned);
+        Future<?> remote = nodeB.computeIfAbsent("key", removeFunc -> new CompletableFuture<>());
+        owned.completeExceptionally(new IllegalStateException("boom"));
+        try {
+            remote.get(2, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof RemoteSharedFutureException);
+            Assert.assertTrue(e.getCause().getMessage().contains("boom"));
+        }
+    }
+
+    @Test
+    public void testNodeJoiningAfterThePublishDoesNotWaitForTheFallback() throws Throwable {
+        AtomicReference<Runnable> afterPublish = new AtomicReference<>();
+        LoopbackClusterTransport transport = new LoopbackClusterTransport() {
+            @Override
+            public void publish(String key, ClusterResult result) {
+                super.publish(key, result);
+                Runnable hook = afterPublish.getAndSet(null);
+                if (hook != null) {
+                    hook.run();
+                }
+            }
+        };
+        ClusterSharedFuturesRegistry nodeA = node(transport, "a", 10000);
+        ClusterSharedFuturesRegistry nodeB = node(transport, "b", 10000);
+        CompletableFuture<Object> owned = new CompletableFuture<>();
+        nodeA.computeIfAbsent("key", removeFunc -> owned.whenComplete((v, t) -> removeFunc.run()));
+        AtomicReference<Future<?>> late = new AtomicReference<>();
+        afterPublish.set(() -> {
+            try {
+                late.set(nodeB.computeIfAbsent("key", removeFunc -> CompletableFuture.completedFuture("late")));
+            } catch (Throwable t) {
+                throw new AssertionError(t);
+            }
+        });
+        owned.complete("value");
+        Assert.assertEquals("late", late.get().get(1, TimeUnit.SECONDS));
+        Assert.assertNull(transport.getOwner("key"));
+    }
+
+    @Test
+    public void testFallbackToLocalExecution() throws Throwable {
+        Assert.assertTrue(transport.claim("key", "dead", TimeUnit.MINUTES.toMillis(1)));
+        ClusterSharedFuturesRegistry node = node("b", 50);
+        Future<?> future = node.computeIfAbsent("key", removeFunc -> CompletableFuture.completedFuture("local"));
+        Assert.assertEquals("local", future.get(2, TimeUnit.SECONDS));
+        Assert.assertEquals(0, node.size());
+    }
+
+    @Test
+    public void testLocalSharingWithinNode() throws Throwable {
+        ClusterSharedFuturesRegistry node = node("a", 5000);
+        CompletableFuture<Object> owned = new CompletableFuture<>();
+        Assert.assertSame(owned, node.computeIfAbsent("key", removeFunc -> owned));
+        Assert.assertSame(owned, node.computeIfAbsent("key", removeFunc -> new CompletableFuture<>()));
+    }
+
+    @Test
+    public void testJdkResultSerializer() {
+        ResultSerializer serializer = new JdkResultSerializer();
+        List<String> value = Arrays.asList("a", "b", "c");
+        Assert.assertEquals(value, serializer.deserialize(serializer.serialize(value)));
+        Assert.assertNull(serializer.deserialize(serializer.serialize(null)));
+    }
+
+    @Test
+    public void testJdkResultSerializer_restrictedToAllowedPackages() {
+        Value value = new Value("a");
+        try {
+            new JdkResultSerializer().deserialize(new JdkResultSerializer().serialize(value));
+            Assert.fail();
+        } catch (UncheckedIOException e) {
+            Assert.assertTrue(e.getCause() instanceof InvalidClassException);
+        }
+        Assert.assertEquals("a", ((Value) new JdkResultSerializer("com.ulisesbocchio.sharedfutures.cluster")
+                .deserialize(new JdkResultSerializer().serialize(value))).name);
+        Assert.assertEquals("a", ((Value) JdkResultSerializer.unrestricted()
+                .deserialize(new JdkResultSerializer().serialize(value))).name);
+        Assert.assertTrue(new JdkResultSerializer().isAllowed("[Ljava.lang.String;"));
+        Assert.assertTrue(new JdkResultSerializer().isAllowed("[I"));
+        Assert.assertFalse(new JdkResultSerializer().isAllowed("java.lang.invoke.SerializedLambda"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSerializerRequired() {
+        ClusterSharedFuturesRegistry.builder(transport, null);
+    }
+
+    private static class Value implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final String name;
+
+        Value(String name) {
+            this.name = name;
+        }
+    }
+
+    private ClusterSharedFuturesRegistry node(String nodeId, long fallbackMillis) {
+        return node(transport, nodeId, fallbackMillis);
+    }
+
+    private ClusterSharedFuturesRegistry node(ClusterTransport transport, String nodeId, long fallbackMillis) {
+        return ClusterSharedFuturesRegistry.builder(transport, new JdkResultSerializer())
+                .nodeId(nodeId)
+                .fallbackTimeout(fallbackMillis, TimeUnit.MILLISECONDS)
+                .build();
+    }
+}
@@ -0,0 +1,46 @@
+package com.ulisesbocchio.sharedfutures.inspect;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author ulisesbocchio
+ */
+public class CountMinSketchTest {
+
+    @Test
+    public void testEstimateNeverUndercounts() {
+        CountMinSketch sketch = new CountMinSketch(1000);
+        Assert.assertEquals(1024, sketch.getWidth());
+        for (int i = 0; i < 500; i++) {
+            for (int j = 0; j <= i % 10; j++) {
+                sketch.add("key-" + i);
+            }
+        }
+        for (int i = 0; i < 500; i++) {
+            Assert.assertTrue(sketch.estimate("key-" + i) >= i % 10 + 1);
+        }
+        Assert.assertEquals(0, sketch.estimate("missing"), 2);
+    }
+
+    @Test
+    public void testHotKeysStandOut() {
+        CountMinSketch sketch = new CountMinSketch(256);
+        for (int i = 0; i < 2000; i++) {
+            sketch.add("hot");
+            sketch.add("cold-" + i);
+        }
+        Assert.assertTrue(sketch.estimate("hot") > 10 * sketch.estimate("cold-1999"));
+    }
+
+    @Test
+    public void testAging() {
+        CountMinSketch sketch = new CountMinSketch(16);
+        for (int i = 0; i < 159; i++) {
+            sketch.add("key");
+        }
+        Assert.assertEquals(159, sketch.estimate("key"));
+        sketch.add("key");
+        Assert.assertEquals(80, sketch.estimate("key"));
+    }
+}
@@ -0,0 +1,123 @@
+package com.ulisesbocchio.sharedfutures.inspect;
+
+import com.ulisesbocchio.sharedfutures.BoundedSharedFuturesRegistry;
+import com.ulisesbocchio.sharedfutures.DefaultSharedFuturesRegistry;
+import com.ulisesbocchio.sharedfutures.SharedFuturesRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author ulisesbocchio
+ */
+public class SharedFuturesInspectorTest {
+
+    @Test
+    public void testSnapshot() throws Throwable {
+        for (SharedFuturesRegistry registry : new SharedFuturesRegistry[]{
+                new DefaultSharedFuturesRegistry(), BoundedSharedFuturesRegistry.builder().stripes(4).build()}) {
+            CompletableFuture<Object> old = new CompletableFuture<>();
+            registry.join("old", "Service#get(String)", inFlight -> old);
+            Thread.sleep(20L);
+            registry.join("a", "Service#get(String)", inFlight -> new CompletableFuture<>());
+            registry.join("a", "Service#get(String)", inFlight -> new CompletableFuture<>());
+            registry.join("b", "Service#list()", inFlight -> CompletableFuture.completedFuture(1));
+            SharedFuturesSnapshot snapshot = new SharedFuturesInspector(registry).snapshot();
+            Assert.assertEquals(3, snapshot.getEntries().size());
+            SharedFuturesSnapshot.Entry oldest = snapshot.getEntries().get(0);
+            Assert.assertEquals("old", oldest.getKey());
+            Assert.assertEquals("Service#get(String)", oldest.getGroup());
+            Assert.assertTrue(oldest.getAgeMillis() >= 20);
+            Assert.assertEquals(snapshot.getTimestamp() - oldest.getAgeMillis(), oldest.getStartTimeMillis());
+            Assert.assertEquals(2, snapshot.getGroups().size());
+            SharedFuturesSnapshot.Group group = snapshot.getGroups().get(0);
+            Assert.assertEquals("Service#get(String)", group.getName());
+            Assert.assertEquals(2, group.getInFlight());
+            Assert.assertEquals(1, group.getWaiters());
+            Assert.assertEquals(oldest.getAgeMillis(), group.getOldestAgeMillis());
+            Assert.assertTrue(snapshot.getEntries().stream().anyMatch(e -> e.getKey().equals("b") && e.isDone()));
+            Assert.assertTrue(snapshot.getHotKeys().isEmpty());
+        }
+    }
+
+    @Test
+    public void testHotKeys() throws Throwable {
+        HotKeysSharedFuturesRegistry registry = new HotKeysSharedFuturesRegistry(new DefaultSharedFuturesRegistry(), 256, 64);
+        for (int i = 0; i < 100; i++) {
+            registry.join("hot", "Service#get(String)", inFlight -> CompletableFuture.completedFuture(1)).run();
+            registry.join("warm", "Service#get(String)", inFlight -> CompletableFuture.completedFuture(1)).run();
+            registry.join("warm", "Service#get(String)", inFlight -> CompletableFuture.completedFuture(1)).run();
+            registry.join("cold-" + i, "Service#get(String)", inFlight -> CompletableFuture.completedFuture(1)).run();
+            registry.join("other", "Service#list()", inFlight -> CompletableFuture.completedFuture(1)).run();
+        }
+        Assert.assertEquals(0, registry.size());
+        Assert.assertTrue(registry.estimate("warm") >= 200);
+        List<SharedFuturesSnapshot.HotKey> hotKeys = new SharedFuturesInspector(registry, 2).getHotKeys();
+        Assert.assertEquals(3, hotKeys.size());
+        SharedFuturesSnapshot.HotKey first = hotKeys.stream()
+                .filter(k -> k.getGroup().equals("Service#get(String)")).findFirst().get();
+        Assert.assertEquals("warm", first.getKey());
+        Assert.assertTrue(hotKeys.stream().anyMatch(k -> k.getKey().equals("hot")));
+        Assert.assertTrue(hotKeys.stream().anyMatch(k -> k.getKey().equals("other") && k.getEstimatedJoins() >= 100));
+    }
+
+    @Test
+    public void testHotKeysDontRetainResults() throws Throwable {
+        HotKeysSharedFuturesRegistry registry = new HotKeysSharedFuturesRegistry(new DefaultSharedFuturesRegistry());
+        WeakReference<Object> result = join(registry);
+        for (int i = 0; i < 10 && result.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assert.assertNull(result.get());
+        Assert.assertEquals("key", registry.getHotKeys(1).get(0).getKey());
+    }
+
+    private static WeakReference<Object> join(SharedFuturesRegistry registry) throws Throwable {
+        Object result = new byte[1024];
+        registry.join("key", "Service#get(String)", inFlight -> CompletableFuture.completedFuture(result)).run();
+        return new WeakReference<>(result);
+    }
+
+    @Test
+    public void testMBean() throws Throwable {
+        SharedFuturesRegistry registry = new DefaultSharedFuturesRegistry();
+        registry.join("a", "Service#get(String)", inFlight -> new CompletableFuture<>());
+        SharedFuturesInspector inspector = new SharedFuturesInspector(registry);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(SharedFuturesInspector.DEFAULT_OBJECT_NAME);
+        inspector.registerMBean();
+        try {
+            Assert.assertEquals(1, server.getAttribute(name, "Size"));
+            CompositeData[] entries = (CompositeData[]) server.getAttribute(name, "Entries");
+            Assert.assertEquals("a", entries[0].get("key"));
+            Assert.assertEquals("Service#get(String)", entries[0].get("group"));
+        } finally {
+            inspector.unregisterMBean();
+        }
+        Assert.assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testEndpoint() throws Throwable {
+        SharedFuturesRegistry registry = new HotKeysSharedFuturesRegistry(new DefaultSharedFuturesRegistry());
+        registry.join("a", "Service#get(String)", inFlight -> new CompletableFuture<>());
+        Map<String, Object> result = new SharedFuturesEndpoint(new SharedFuturesInspector(registry)).invoke();
+        Assert.assertEquals(1, result.get("size"));
+        Map<String, Object> entry = ((List<Map<String, Object>>) result.get("entries")).get(0);
+        Assert.assertEquals("a", entry.get("key"));
+        Assert.assertEquals(0, entry.get("waiters"));
+        Map<String, Object> hotKey = ((List<Map<String, Object>>) result.get("hotKeys")).get(0);
+        Assert.assertEquals(1L, hotKey.get("estimatedJoins"));
+        Assert.assertEquals(1, ((List<?>) result.get("groups")).size());
+    }
+}
@@ -0,0 +1,53 @@
+package com.ulisesbocchio.sharedfutures.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author ulisesbocchio
+ */
+public class InMemorySharedFuturesMetricsTest {
+
+    @Test
+    public void testHitsAndExecutions() {
+        InMemorySharedFuturesMetrics metrics = new InMemorySharedFuturesMetrics();
+        metrics.execution("m");
+        metrics.sharedHit("m");
+        metrics.sharedHit("m");
+        metrics.sharedHit("m");
+        InMemorySharedFuturesMetrics.MethodMetrics m = metrics.getMethodMetrics("m");
+        Assert.assertEquals(1, m.getExecutions());
+        Assert.assertEquals(3, m.getHits());
+        Assert.assertEquals(0.75, m.getHitRatio(), 0.0001);
+    }
+
+    @Test
+    public void testInFlight() {
+        InMemorySharedFuturesMetrics metrics = new InMemorySharedFuturesMetrics();
+        metrics.execution("m");
+        metrics.execution("m");
+        metrics.completion("m", 100, 3);
+        metrics.execution("m");
+        InMemorySharedFuturesMetrics.MethodMetrics m = metrics.getMethodMetrics("m");
+        Assert.assertEquals(2, m.getInFlight());
+        Assert.assertEquals(2, m.getPeakInFlight());
+        Assert.assertEquals(1, m.getWaiters().getCount());
+        Assert.assertEquals(3, m.getWaiters().getMax());
+        Assert.assertEquals(100, m.getTimeInFlight().getTotal());
+        Assert.assertEquals(0, metrics.getMethodMetrics("other").getInFlight());
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        InMemorySharedFuturesMetrics.Histogram histogram = new InMemorySharedFuturesMetrics.Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        Assert.assertEquals(100, histogram.getCount());
+        Assert.assertEquals(50.5, histogram.getMean(), 0.0001);
+        Assert.assertEquals(100, histogram.getMax());
+        Assert.assertEquals(63, histogram.getPercentile(0.5));
+        Assert.assertEquals(100, histogram.getPercentile(0.99));
+        Assert.assertEquals(0, new InMemorySharedFuturesMetrics.Histogram().getPercentile(0.99));
+    }
+}
@@ -0,0 +1,31 @@
+package com.ulisesbocchio.sharedfutures.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author ulisesbocchio
+ */
+public class MicrometerSharedFuturesMetricsTest {
+
+    @Test
+    public void testMeters() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MicrometerSharedFuturesMetrics metrics = new MicrometerSharedFuturesMetrics(registry);
+        metrics.keyGeneration("m", 1000);
+        metrics.execution("m");
+        metrics.execution("m");
+        metrics.sharedHit("m");
+        metrics.completion("m", TimeUnit.MILLISECONDS.toNanos(5), 1);
+        Assert.assertEquals(1, registry.get("shared.futures.hits").tag("method", "m").counter().count(), 0);
+        Assert.assertEquals(2, registry.get("shared.futures.executions").tag("method", "m").counter().count(), 0);
+        Assert.assertEquals(1, registry.get("shared.futures.in.flight").tag("method", "m").gauge().value(), 0);
+        Assert.assertEquals(2, registry.get("shared.futures.in.flight.peak").tag("method", "m").gauge().value(), 0);
+        Assert.assertEquals(1, registry.get("shared.futures.waiters").tag("method", "m").summary().totalAmount(), 0);
+        Assert.assertEquals(5, registry.get("shared.futures.time.in.flight").tag("method", "m").timer().totalTime(TimeUnit.MILLISECONDS), 0.001);
+        Assert.assertEquals(1, registry.get("shared.futures.key.generation").tag("method", "m").timer().count());
+    }
+}
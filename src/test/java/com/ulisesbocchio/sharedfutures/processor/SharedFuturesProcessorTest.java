@@ -0,0 +1,184 @@
+package com.ulisesbocchio.sharedfutures.processor;
+
+import com.ulisesbocchio.sharedfutures.DefaultSharedFuturesRegistry;
+import com.ulisesbocchio.sharedfutures.SharedFutureInvoker;
+import com.ulisesbocchio.sharedfutures.spring.SharedFutureKey;
+import com.ulisesbocchio.sharedfutures.spring.annotation.GenerateSharedFutures;
+import com.ulisesbocchio.sharedfutures.spring.annotation.NormalizeKey;
+import com.ulisesbocchio.sharedfutures.spring.annotation.SharedFuture;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author ulisesbocchio
+ */
+public class SharedFuturesProcessorTest {
+
+    private final DefaultSharedFuturesRegistry registry = new DefaultSharedFuturesRegistry();
+    private final ProductService service = new SharedFuturesProcessorTest_ProductService_SharedFutures(
+            new SharedFutureInvoker(registry), "product-");
+
+    @Test
+    public void testShared() throws ExecutionException, InterruptedException {
+        CompletableFuture<String> one = service.getProduct("a");
+        CompletableFuture<String> one2 = service.getProduct("a");
+        CompletableFuture<String> other = service.getProduct("b");
+        Assert.assertEquals("product-a", one.get());
+        Assert.assertEquals("product-a", one2.get());
+        Assert.assertEquals("product-b", other.get());
+        Assert.assertEquals(2, service.invocations.get());
+        Assert.assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void testShared_overloadsHaveDistinctKeys() throws ExecutionException, InterruptedException {
+        CompletableFuture<String> one = service.getProduct("a");
+        CompletableFuture<String> versioned = service.getProduct("a", 2);
+        CompletableFuture<String> versioned2 = service.getProduct("a", 2);
+        Assert.assertEquals("product-a", one.get());
+        Assert.assertEquals("product-a-2", versioned.get());
+        Assert.assertEquals("product-a-2", versioned2.get());
+        Assert.assertEquals(2, service.invocations.get());
+    }
+
+    @Test
+    public void testShared_sharedFutureKey() throws ExecutionException, InterruptedException {
+        CompletableFuture<String> one = service.getCart(new User("u1"));
+        CompletableFuture<String> one2 = service.getCart(new User("u1"));
+        Assert.assertEquals("cart-u1", one.get());
+        Assert.assertEquals("cart-u1", one2.get());
+        Assert.assertEquals(1, service.invocations.get());
+    }
+
+    @Test
+    public void testShared_literalKey() throws ExecutionException, InterruptedException {
+        CompletableFuture<String> one = service.getCatalog(1);
+        CompletableFuture<String> one2 = service.getCatalog(2);
+        Assert.assertEquals("catalog-1", one.get());
+        Assert.assertEquals("catalog-1", one2.get());
+        Assert.assertEquals(1, service.invocations.get());
+    }
+
+    @Test
+    public void testShared_cancelledViewKeepsSharedFuture() throws ExecutionException, InterruptedException {
+        CompletableFuture<String> one = service.getProduct("a");
+        CompletableFuture<String> one2 = service.getProduct("a");
+        Assert.assertTrue(one.cancel(true));
+        Assert.assertEquals("product-a", one2.get());
+        Assert.assertEquals(1, service.invocations.get());
+    }
+
+    @Test
+    public void testShared_normalizedKey() throws ExecutionException, InterruptedException {
+        CompletableFuture<String> one = service.getProducts(Arrays.asList("b", "A", "a"));
+        CompletableFuture<String> one2 = service.getProducts(Arrays.asList("a", "B"));
+        Assert.assertEquals("[b, A, a]", one.get());
+        Assert.assertEquals("[b, A, a]", one2.get());
+        Assert.assertEquals(1, service.invocations.get());
+    }
+
+    @Test(expected = IOException.class)
+    public void testShared_checkedException() throws IOException {
+        service.getChecked(null);
+    }
+
+    @Test
+    public void testUnsupportedMethodsAreNotOverridden() throws ExecutionException, InterruptedException {
+        for (String name : new String[]{"getRetained", "getBlocking"}) {
+            try {
+                service.getClass().getDeclaredMethod(name);
+                Assert.fail(name + " should not be overridden");
+            } catch (NoSuchMethodException e) {
+                // left to the aspect
+            }
+        }
+        service.getRetained().get();
+        service.getRetained().get();
+        Assert.assertEquals(2, service.invocations.get());
+    }
+
+    @GenerateSharedFutures
+    public static class ProductService {
+        private final AtomicInteger invocations = new AtomicInteger();
+        private final String prefix;
+
+        public ProductService(String prefix) {
+            this.prefix = prefix;
+        }
+
+        private <T> CompletableFuture<T> later(T value) {
+            invocations.incrementAndGet();
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    Thread.sleep(100L);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return value;
+            });
+        }
+
+        @SharedFuture
+        public CompletableFuture<String> getProduct(String id) {
+            return later(prefix + id);
+        }
+
+        @SharedFuture
+        public CompletableFuture<String> getProduct(String id, int version) {
+            return later(prefix + id + "-" + version);
+        }
+
+        @SharedFuture
+        public CompletableFuture<String> getCart(User user) {
+            return later("cart-" + user.getKey());
+        }
+
+        @SharedFuture
+        public CompletableFuture<String> getProducts(@NormalizeKey(distinct = true, ignoreCase = true) List<String> ids) {
+            return later(ids.toString());
+        }
+
+        @SharedFuture(key = "catalog")
+        public CompletableFuture<String> getCatalog(int page) {
+            return later("catalog-" + page);
+        }
+
+        @SharedFuture
+        public CompletableFuture<String> getChecked(String id) throws IOException {
+            if (id == null) {
+                throw new IOException("no id");
+            }
+            return later(id);
+        }
+
+        @SharedFuture(retainFor = 100)
+        public CompletableFuture<String> getRetained() {
+            return later("retained");
+        }
+
+        @SharedFuture
+        public String getBlocking() {
+            return "blocking";
+        }
+    }
+
+    public static class User implements SharedFutureKey {
+        private final String id;
+
+        User(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String getKey() {
+            return id;
+        }
+    }
+}
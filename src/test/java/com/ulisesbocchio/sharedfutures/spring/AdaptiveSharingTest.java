@@ -0,0 +1,102 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+import com.ulisesbocchio.sharedfutures.metrics.InMemorySharedFuturesMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author ulisesbocchio
+ */
+public class AdaptiveSharingTest {
+
+    private final InMemorySharedFuturesMetrics metrics = new InMemorySharedFuturesMetrics();
+
+    @Test
+    public void testBypassesAfterConsecutiveWindowsWithoutHits() {
+        AdaptiveSharing sharing = new AdaptiveSharing("test", 10, 10000);
+        for (int window = 0; window < AdaptiveSharing.LOSING_WINDOWS; window++) {
+            Assert.assertFalse(sharing.isBypassed(metrics));
+            for (int i = 0; i < 10; i++) {
+                sharing.executed(1000000);
+                sharing.sampled(false, 1000, metrics);
+            }
+        }
+        Assert.assertTrue(sharing.isBypassed(metrics));
+        Assert.assertTrue(metrics.getMethodMetrics("test").isBypassed());
+        Assert.assertEquals(1, metrics.getMethodMetrics("test").getBypassDecisions());
+    }
+
+    @Test
+    public void testSingleColdWindowKeepsSharing() {
+        AdaptiveSharing sharing = new AdaptiveSharing("test", 10, 10000);
+        for (int window = 0; window < AdaptiveSharing.LOSING_WINDOWS * 2; window++) {
+            boolean cold = window % 2 == 0;
+            for (int i = 0; i < 10; i++) {
+                if (i % 5 == 0) {
+                    sharing.executed(1000000);
+                }
+                sharing.sampled(!cold && i % 5 != 0, 10000, metrics);
+            }
+        }
+        Assert.assertFalse(sharing.isBypassed(metrics));
+    }
+
+    @Test
+    public void testKeepsSharingWhenHitsPay() {
+        AdaptiveSharing sharing = new AdaptiveSharing("test", 10, 10000);
+        for (int i = 0; i < 10 * AdaptiveSharing.LOSING_WINDOWS; i++) {
+            if (i % 5 == 0) {
+                sharing.executed(1000000);
+            }
+            sharing.sampled(i % 5 != 0, 10000, metrics);
+        }
+        Assert.assertFalse(sharing.isBypassed(metrics));
+        Assert.assertFalse(metrics.getMethodMetrics("test").isBypassed());
+    }
+
+    @Test
+    public void testBypassesWhenHitsSaveLessThanTheOverhead() {
+        AdaptiveSharing sharing = new AdaptiveSharing("test", 10, 10000);
+        for (int i = 0; i < 10 * AdaptiveSharing.LOSING_WINDOWS; i++) {
+            if (i % 10 != 0) {
+                sharing.executed(1000);
+            }
+            sharing.sampled(i % 10 == 0, 10000, metrics);
+        }
+        Assert.assertTrue(sharing.isBypassed(metrics));
+    }
+
+    @Test
+    public void testHitsWithoutFinishedExecutionsArePricedAtTheLastMeanTime() {
+        AdaptiveSharing sharing = new AdaptiveSharing("test", 10, 10000);
+        sharing.executed(1000);
+        for (int i = 0; i < 10 * AdaptiveSharing.LOSING_WINDOWS; i++) {
+            sharing.sampled(true, 10000, metrics);
+        }
+        Assert.assertTrue(sharing.isBypassed(metrics));
+    }
+
+    @Test
+    public void testHitsWithoutAnyMeasuredExecutionAreUndecided() {
+        AdaptiveSharing sharing = new AdaptiveSharing("test", 10, 10000);
+        for (int i = 0; i < 10 * AdaptiveSharing.LOSING_WINDOWS * 2; i++) {
+            sharing.sampled(true, 1000000, metrics);
+        }
+        Assert.assertFalse(sharing.isBypassed(metrics));
+    }
+
+    @Test
+    public void testProbesAgain() throws InterruptedException {
+        AdaptiveSharing sharing = new AdaptiveSharing("test", 1, 50);
+        for (int i = 0; i < AdaptiveSharing.LOSING_WINDOWS; i++) {
+            sharing.sampled(false, 1000, metrics);
+        }
+        Assert.assertTrue(sharing.isBypassed(metrics));
+        Thread.sleep(80);
+        Assert.assertFalse(sharing.isBypassed(metrics));
+        Assert.assertFalse(metrics.getMethodMetrics("test").isBypassed());
+        sharing.executed(1000000);
+        sharing.sampled(true, 1000, metrics);
+        Assert.assertFalse(sharing.isBypassed(metrics));
+    }
+}
@@ -0,0 +1,70 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author ulisesbocchio
+ */
+public class CircuitBreakerTest {
+
+    @Test
+    public void testOpensOnFailureRate() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 0.5, 4, 10000, 10000);
+        breaker.record(null);
+        breaker.record(new IllegalStateException("1"));
+        breaker.record(new IllegalStateException("2"));
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        Assert.assertTrue(breaker.tryAcquire());
+        IllegalStateException failure = new IllegalStateException("3");
+        breaker.record(failure);
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assert.assertTrue(breaker.isOpen());
+        Assert.assertFalse(breaker.tryAcquire());
+        Assert.assertSame(failure, breaker.getOpenFailure().getCause());
+    }
+
+    @Test
+    public void testStaysClosedBelowFailureRate() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 0.5, 4, 10000, 10000);
+        for (int i = 0; i < 10; i++) {
+            breaker.record(null);
+            breaker.record(i % 2 == 0 ? new IllegalStateException() : null);
+        }
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        Assert.assertEquals(0.25, breaker.getFailureRate(), 0.001);
+    }
+
+    @Test
+    public void testHalfOpenTrial() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, 1, 10000, 50);
+        breaker.record(new IllegalStateException());
+        Assert.assertFalse(breaker.tryAcquire());
+        Thread.sleep(80);
+        Assert.assertFalse(breaker.isOpen());
+        Assert.assertTrue(breaker.tryAcquire());
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        Assert.assertFalse(breaker.tryAcquire());
+        breaker.record(new IllegalStateException());
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assert.assertFalse(breaker.tryAcquire());
+        Thread.sleep(80);
+        Assert.assertTrue(breaker.tryAcquire());
+        breaker.record(null);
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        Assert.assertEquals(0, breaker.getFailureRate(), 0);
+        Assert.assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testFailuresLeaveTheWindow() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker("test", 0.6, 2, 100, 10000);
+        breaker.record(new IllegalStateException());
+        Thread.sleep(150);
+        breaker.record(null);
+        breaker.record(new IllegalStateException());
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.record(new IllegalStateException());
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
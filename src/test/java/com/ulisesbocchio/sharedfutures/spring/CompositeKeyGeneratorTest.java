@@ -0,0 +1,125 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author ulisesbocchio
+ */
+public class CompositeKeyGeneratorTest {
+
+    private CompositeKeyGenerator generator = new CompositeKeyGenerator();
+
+    @Test
+    public void testKeyNoParams() throws NoSuchMethodException {
+        Method method = String.class.getMethod("toLowerCase");
+        CompositeKey key = generator.generate("", method);
+        Assert.assertEquals(generator.generate("", method), key);
+        Assert.assertEquals("java.lang.String#toLowerCase()", key.toString());
+    }
+
+    @Test
+    public void testSimpleKey() throws NoSuchMethodException {
+        Method method = String.class.getMethod("endsWith", String.class);
+        assertSameKey(generator.generate("", method, "blah!"), generator.generate("", method, new String("blah!")));
+        Assert.assertNotEquals(generator.generate("", method, "blah!"), generator.generate("", method, "bleh!"));
+    }
+
+    @Test
+    public void testDifferentMethods() throws NoSuchMethodException {
+        Assert.assertNotEquals(generator.generate("", String.class.getMethod("endsWith", String.class), "blah!"),
+                generator.generate("", String.class.getMethod("startsWith", String.class), "blah!"));
+    }
+
+    @Test
+    public void testSharedFutureKey() throws NoSuchMethodException {
+        Method method = this.getClass().getMethod("someMethod", SharedFutureKey.class);
+        assertSameKey(generator.generate(this, method, (SharedFutureKey) () -> "blah!"),
+                generator.generate(this, method, (SharedFutureKey) () -> "blah!"));
+        Assert.assertEquals(this.getClass().getName() + "#someMethod(blah!)",
+                generator.generate(this, method, (SharedFutureKey) () -> "blah!").toString());
+    }
+
+    @Test
+    public void testPrimitives() throws NoSuchMethodException {
+        Method method = this.getClass().getMethod("primitives", long.class, Long.class, int.class, boolean.class, Boolean.class);
+        assertSameKey(generator.generate(this, method, 1L, 2L, 3, true, Boolean.FALSE),
+                generator.generate(this, method, 1L, 2L, 3, true, Boolean.FALSE));
+        Assert.assertNotEquals(generator.generate(this, method, 1L, 2L, 3, true, Boolean.FALSE),
+                generator.generate(this, method, 1L, 2L, 3, true, Boolean.TRUE));
+    }
+
+    @Test
+    public void testCollection() throws NoSuchMethodException {
+        Method method = this.getClass().getMethod("collection", List.class);
+        assertSameKey(generator.generate(this, method, ImmutableList.of("one", "two", "three")),
+                generator.generate(this, method, ImmutableList.of("one", "two", "three")));
+        Assert.assertNotEquals(generator.generate(this, method, ImmutableList.of("one", "two", "three")),
+                generator.generate(this, method, ImmutableList.of("one", "two")));
+        Assert.assertEquals(this.getClass().getName() + "#collection([one, two, three])",
+                generator.generate(this, method, ImmutableList.of("one", "two", "three")).toString());
+    }
+
+    @Test
+    public void testCollectionOfSharedFutureKey() throws NoSuchMethodException {
+        Method method = this.getClass().getMethod("keyCollection", List.class);
+        assertSameKey(generator.generate(this, method, ImmutableList.<SharedFutureKey>of(() -> "one", () -> "two")),
+                generator.generate(this, method, ImmutableList.<SharedFutureKey>of(() -> "one", () -> "two")));
+    }
+
+    @Test
+    public void testMap() throws NoSuchMethodException {
+        Method method = this.getClass().getMethod("map", Map.class);
+        assertSameKey(generator.generate(this, method, ImmutableMap.of(1, "one", 2, "two")),
+                generator.generate(this, method, ImmutableMap.of(1, "one", 2, "two")));
+        Assert.assertNotEquals(generator.generate(this, method, ImmutableMap.of(1, "one", 2, "two")),
+                generator.generate(this, method, ImmutableMap.of(1, "one", 2, "three")));
+        Assert.assertEquals(this.getClass().getName() + "#map([1=one, 2=two])",
+                generator.generate(this, method, ImmutableMap.of(1, "one", 2, "two")).toString());
+    }
+
+    @Test
+    public void testMapOfSharedKeys() throws NoSuchMethodException {
+        Method method = this.getClass().getMethod("keyMap", Map.class);
+        assertSameKey(generator.generate(this, method, ImmutableMap.<SharedFutureKey, String>of(() -> "1", "one")),
+                generator.generate(this, method, ImmutableMap.<SharedFutureKey, String>of(() -> "1", "one")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedType() throws NoSuchMethodException {
+        Method method = this.getClass().getMethod("unsupported", Object.class);
+        generator.generate(this, method, new Object());
+    }
+
+    private void assertSameKey(CompositeKey expected, CompositeKey actual) {
+        Assert.assertEquals(expected, actual);
+        Assert.assertEquals(expected.hashCode(), actual.hashCode());
+    }
+
+    public void primitives(long a, Long b, int c, boolean d, Boolean e) {
+    }
+
+    public void collection(List<String> list) {
+    }
+
+    public void keyCollection(List<SharedFutureKey> list) {
+    }
+
+    public void someMethod(SharedFutureKey key) {
+    }
+
+    public void map(Map<Integer, String> map) {
+    }
+
+    public void keyMap(Map<SharedFutureKey, String> map) {
+    }
+
+    public void unsupported(Object o) {
+    }
+}
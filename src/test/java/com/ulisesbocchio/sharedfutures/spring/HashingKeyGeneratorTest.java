@@ -0,0 +1,98 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author ulisesbocchio
+ */
+public class HashingKeyGeneratorTest {
+
+    private HashingKeyGenerator generator = new HashingKeyGenerator();
+
+    @Test
+    public void testKeyNoParams() throws NoSuchMethodException {
+        Method method = String.class.getMethod("toLowerCase");
+        Assert.assertEquals(generator.generate("", method), generator.generate("", method));
+        Assert.assertEquals(32, generator.generate("", method).toString().length());
+    }
+
+    @Test
+    public void testSimpleKey() throws NoSuchMethodException {
+        Method method = String.class.getMethod("endsWith", String.class);
+        Assert.assertEquals(generator.generate("", method, "blah!"), generator.generate("", method, new String("blah!")));
+        Assert.assertNotEquals(generator.generate("", method, "blah!"), generator.generate("", method, "bleh!"));
+    }
+
+    @Test
+    public void testDifferentMethods() throws NoSuchMethodException {
+        Assert.assertNotEquals(generator.generate("", String.class.getMethod("endsWith", String.class), "blah!"),
+                generator.generate("", String.class.getMethod("startsWith", String.class), "blah!"));
+        Assert.assertNotEquals(generator.generate(this, getClass().getMethod("collection", List.class), ImmutableList.of("one")),
+                generator.generate(this, getClass().getMethod("collection", Set.class), ImmutableList.of("one")));
+    }
+
+    @Test
+    public void testSharedFutureKey() throws NoSuchMethodException {
+        Method method = this.getClass().getMethod("someMethod", SharedFutureKey.class);
+        Assert.assertEquals(generator.generate(this, method, (SharedFutureKey) () -> "blah!"),
+                generator.generate(this, method, (SharedFutureKey) () -> "blah!"));
+    }
+
+    @Test
+    public void testEncodableSharedFutureKey() throws NoSuchMethodException {
+        Method method = this.getClass().getMethod("someMethod", SharedFutureKey.class);
+        EncodableSharedFutureKey one = encoder -> encoder.putLong(42L).putString("blah!");
+        EncodableSharedFutureKey two = encoder -> encoder.putLong(43L).putString("blah!");
+        Assert.assertEquals(generator.generate(this, method, one), generator.generate(this, method, one));
+        Assert.assertNotEquals(generator.generate(this, method, one), generator.generate(this, method, two));
+        Assert.assertEquals(one.getKey(), KeyEncoder.acquire().putLong(42L).putString("blah!").finish().toString());
+    }
+
+    @Test
+    public void testLargeCollection() throws NoSuchMethodException {
+        Method method = this.getClass().getMethod("collection", List.class);
+        List<String> skus = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            skus.add("sku-" + i);
+        }
+        List<String> same = new ArrayList<>(skus);
+        Assert.assertEquals(generator.generate(this, method, skus), generator.generate(this, method, same));
+        same.set(499, "sku-x");
+        Assert.assertNotEquals(generator.generate(this, method, skus), generator.generate(this, method, same));
+    }
+
+    @Test
+    public void testMap() throws NoSuchMethodException {
+        Method method = this.getClass().getMethod("map", Map.class);
+        Assert.assertEquals(generator.generate(this, method, ImmutableMap.of(1, "one", 2, "two")),
+                generator.generate(this, method, ImmutableMap.of(1, "one", 2, "two")));
+        Assert.assertNotEquals(generator.generate(this, method, ImmutableMap.of(1, "one", 2, "two")),
+                generator.generate(this, method, ImmutableMap.of(1, "one", 2, "three")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedType() throws NoSuchMethodException {
+        generator.generate(this, this.getClass().getMethod("someMethod", SharedFutureKey.class), new Object());
+    }
+
+    public void someMethod(SharedFutureKey key) {
+    }
+
+    public void collection(List<String> list) {
+    }
+
+    public void collection(Set<String> set) {
+    }
+
+    public void map(Map<Integer, String> map) {
+    }
+}
@@ -0,0 +1,69 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * @author ulisesbocchio
+ */
+public class KeyEncoderTest {
+
+    @Test
+    public void testMatchesGuavaMurmur3_everyTailLength() {
+        Random random = new Random(42);
+        for (int length = 0; length < 600; length++) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            assertSameHash(Hashing.murmur3_128().hashBytes(bytes), KeyEncoder.acquire().putBytes(bytes).finish());
+        }
+    }
+
+    @Test
+    public void testMatchesGuavaMurmur3_primitives() {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        KeyEncoder encoder = KeyEncoder.acquire();
+        for (int i = 0; i < 100; i++) {
+            hasher.putInt(i).putLong(i * 31L).putByte((byte) i).putChar((char) ('a' + i)).putBoolean(i % 2 == 0)
+                    .putDouble(i / 3.0).putFloat(i / 7f).putInt(("sku-" + i).length()).putUnencodedChars("sku-" + i);
+            encoder.putInt(i).putLong(i * 31L).putByte((byte) i).putChar((char) ('a' + i)).putBoolean(i % 2 == 0)
+                    .putDouble(i / 3.0).putFloat(i / 7f).putString("sku-" + i);
+        }
+        assertSameHash(hasher.hash(), encoder.finish());
+    }
+
+    @Test
+    public void testNestedAcquire() {
+        KeyEncoder outer = KeyEncoder.acquire().putString("outer");
+        String inner = ((EncodableSharedFutureKey) encoder -> encoder.putString("inner")).getKey();
+        Assert.assertEquals(KeyEncoder.acquire().putString("inner").finish().toString(), inner);
+        Assert.assertEquals(KeyEncoder.acquire().putString("outer").finish(), outer.finish());
+    }
+
+    @Test
+    public void testPutKey_typesDontCollide() {
+        Assert.assertNotEquals(KeyEncoder.acquire().putKey("1").finish(), KeyEncoder.acquire().putKey(1).finish());
+        Assert.assertNotEquals(KeyEncoder.acquire().putKey(1).finish(), KeyEncoder.acquire().putKey(1L).finish());
+        Assert.assertNotEquals(KeyEncoder.acquire().putKey("ab").putKey("c").finish(),
+                KeyEncoder.acquire().putKey("a").putKey("bc").finish());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPutKey_unsupported() {
+        try {
+            KeyEncoder.acquire().putKey(new Object());
+        } finally {
+            Assert.assertNotNull(KeyEncoder.acquire().finish());
+        }
+    }
+
+    private static void assertSameHash(HashCode expected, HashedKey actual) {
+        Assert.assertEquals(expected.asLong(), actual.getH1());
+        Assert.assertArrayEquals(expected.asBytes(), actual.toBytes());
+        Assert.assertEquals(expected.toString(), actual.toString());
+    }
+}
@@ -0,0 +1,71 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author ulisesbocchio
+ */
+public class KeyNormalizerTest {
+
+    @Test
+    public void testUnordered() {
+        KeyNormalizer normalizer = new KeyNormalizer(true, false, false);
+        Assert.assertEquals(ImmutableList.of("a", "b", "b"), normalizer.normalize(ImmutableList.of("b", "a", "b")));
+        Assert.assertEquals(normalizer.normalize(ImmutableSet.of(3, 1, 2)), normalizer.normalize(ImmutableSet.of(1, 2, 3)));
+        Assert.assertEquals("B", normalizer.normalize("B"));
+    }
+
+    @Test
+    public void testDistinct() {
+        KeyNormalizer normalizer = new KeyNormalizer(false, true, false);
+        Assert.assertEquals(ImmutableList.of("a", "b"), normalizer.normalize(ImmutableList.of("b", "a", "b", "a")));
+        Assert.assertEquals(normalizer.normalize(ImmutableList.of("a", "b")), normalizer.normalize(ImmutableSet.of("b", "a")));
+        Assert.assertEquals(ImmutableList.of(), normalizer.normalize(ImmutableList.of()));
+    }
+
+    @Test
+    public void testIgnoreCase() {
+        KeyNormalizer normalizer = new KeyNormalizer(false, false, true);
+        Assert.assertEquals("sku-a", normalizer.normalize("SKU-a"));
+        Assert.assertEquals(ImmutableList.of("b", "a"), normalizer.normalize(ImmutableList.of("B", "a")));
+        Assert.assertEquals(Arrays.asList(new AbstractMap.SimpleImmutableEntry<>("k", "v")),
+                normalizer.normalize(ImmutableMap.of("K", "V")));
+        Assert.assertEquals(1, normalizer.normalize(1));
+    }
+
+    @Test
+    public void testUnorderedMap() {
+        KeyNormalizer normalizer = new KeyNormalizer(true, false, false);
+        Assert.assertEquals(normalizer.normalize(ImmutableMap.of(2, "two", 1, "one")),
+                normalizer.normalize(ImmutableMap.of(1, "one", 2, "two")));
+        Assert.assertNotEquals(normalizer.normalize(ImmutableMap.of(2, "two", 1, "one")),
+                normalizer.normalize(ImmutableMap.of(1, "one", 2, "three")));
+    }
+
+    @Test
+    public void testSharedFutureKeysAndMixedTypes() {
+        KeyNormalizer normalizer = new KeyNormalizer(false, true, false);
+        List<?> keys = (List<?>) normalizer.normalize(ImmutableList.of(key("b"), key("a"), key("b")));
+        Assert.assertEquals(2, keys.size());
+        Assert.assertEquals("a", ((SharedFutureKey) keys.get(0)).getKey());
+        Assert.assertEquals(normalizer.normalize(ImmutableList.of(1, "a", 2L, 1)), normalizer.normalize(ImmutableList.of("a", 2L, 1)));
+        Assert.assertEquals(normalizer.normalize(Arrays.asList(null, "a")), normalizer.normalize(Arrays.asList("a", null, null)));
+    }
+
+    @Test
+    public void testOf() {
+        Assert.assertNull(KeyNormalizer.of(null));
+    }
+
+    private static SharedFutureKey key(String key) {
+        return () -> key;
+    }
+}
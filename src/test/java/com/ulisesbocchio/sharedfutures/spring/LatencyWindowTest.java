@@ -0,0 +1,40 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author ulisesbocchio
+ */
+public class LatencyWindowTest {
+
+    @Test
+    public void testPercentileOfTheRecordedLatencies() {
+        LatencyWindow window = new LatencyWindow(0.9);
+        Assert.assertEquals(-1, window.getPercentile());
+        for (int i = 1; i <= 160; i++) {
+            window.record(i * 1000);
+        }
+        Assert.assertEquals(160, window.getCount());
+        Assert.assertEquals(144000, window.getPercentile());
+    }
+
+    @Test
+    public void testFollowsShiftsInLatency() {
+        LatencyWindow window = new LatencyWindow(0.95);
+        for (int i = 0; i < LatencyWindow.SAMPLES * 4; i++) {
+            window.record(1000000000);
+        }
+        for (int i = 0; i < LatencyWindow.SAMPLES; i++) {
+            window.record(3000);
+        }
+        Assert.assertEquals(3000, window.getPercentile());
+    }
+
+    @Test
+    public void testSingleLatency() {
+        LatencyWindow window = new LatencyWindow(0.99);
+        window.record(5000);
+        Assert.assertEquals(5000, window.getPercentile());
+    }
+}
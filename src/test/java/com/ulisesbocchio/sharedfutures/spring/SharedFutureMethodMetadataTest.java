@@ -0,0 +1,208 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.ulisesbocchio.sharedfutures.DefaultSharedFuturesRegistry;
+import com.ulisesbocchio.sharedfutures.SharedFuturesRequestScope;
+import com.ulisesbocchio.sharedfutures.SharedFuturesScope;
+import com.ulisesbocchio.sharedfutures.spring.annotation.NormalizeKey;
+import com.ulisesbocchio.sharedfutures.spring.annotation.SharedFuture;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.expression.spel.SpelCompilerMode;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author ulisesbocchio
+ */
+public class SharedFutureMethodMetadataTest {
+
+    @Test
+    public void testGeneratedKey() throws NoSuchMethodException {
+        SharedFutureMethodMetadata metadata = getMetadata(SpelCompilerMode.OFF, "generated", String.class);
+        Assert.assertEquals(SharedFutureMethodMetadata.KeyType.GENERATED, metadata.getKeyType());
+        Assert.assertEquals(new DefaultKeyGenerator().generate(this, metadata.getMethod(), "blah!"),
+                metadata.getKey(this, new Object[]{"blah!"}));
+    }
+
+    @Test
+    public void testLiteralKey() throws NoSuchMethodException {
+        SharedFutureMethodMetadata metadata = getMetadata(SpelCompilerMode.OFF, "literal", String.class);
+        Assert.assertEquals(SharedFutureMethodMetadata.KeyType.LITERAL, metadata.getKeyType());
+        Assert.assertEquals("literal-key", metadata.getKey(this, new Object[]{"blah!"}));
+    }
+
+    @Test
+    public void testExpressionKey() throws NoSuchMethodException {
+        SharedFutureMethodMetadata metadata = getMetadata(SpelCompilerMode.OFF, "expression", String.class, int.class);
+        Assert.assertEquals(SharedFutureMethodMetadata.KeyType.EXPRESSION, metadata.getKeyType());
+        Assert.assertArrayEquals(new String[]{"arg0", "arg1"}, metadata.getParameterNames());
+        Assert.assertEquals("prefix-blah!-3", metadata.getKey(this, new Object[]{"blah!", 3}));
+    }
+
+    @Test
+    public void testCompiledExpressionKey() throws NoSuchMethodException {
+        SharedFutureMethodMetadata metadata = getMetadata(SpelCompilerMode.IMMEDIATE, "expression", String.class, int.class);
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals("prefix-blah!-" + i, metadata.getKey(this, new Object[]{"blah!", i}));
+        }
+    }
+
+    @Test
+    public void testNormalizedKey() throws NoSuchMethodException {
+        SharedFutureMethodMetadata metadata = getMetadata(SpelCompilerMode.OFF, "normalized", List.class, String.class);
+        Object[] args = {ImmutableList.of("b", "a"), "Blah!"};
+        Assert.assertEquals(metadata.getKey(this, args), metadata.getKey(this, new Object[]{ImmutableList.of("a", "b"), "Blah!"}));
+        Assert.assertNotEquals(metadata.getKey(this, args), metadata.getKey(this, new Object[]{ImmutableList.of("a", "b"), "blah!"}));
+        Assert.assertEquals(ImmutableList.of("b", "a"), args[0]);
+        SharedFutureMethodMetadata expression = getMetadata(SpelCompilerMode.OFF, "normalizedExpression", List.class);
+        Assert.assertEquals("[a, b]", expression.getKey(this, new Object[]{ImmutableList.of("B", "a", "b")}));
+    }
+
+    @Test
+    public void testRetainMaxBytes() throws NoSuchMethodException {
+        SharedFutureMethodMetadata metadata = getMetadata(SpelCompilerMode.OFF, "weighed", String.class);
+        for (int i = 0; i < 10; i++) {
+            metadata.retain("key-" + i, CompletableFuture.completedFuture(Strings.repeat("x", 1000)), true);
+        }
+        long bytes = metadata.getRetainedBytes();
+        Assert.assertTrue(bytes > 2000 && bytes <= 8000);
+        Assert.assertNotNull(metadata.getRetained("key-9"));
+        Assert.assertNull(metadata.getRetained("key-0"));
+    }
+
+    @Test
+    public void testStaleWhileRevalidate() throws NoSuchMethodException, InterruptedException {
+        SharedFutureMethodMetadata metadata = getMetadata(SpelCompilerMode.OFF, "stale", String.class);
+        metadata.retain("key", CompletableFuture.completedFuture("value"), true);
+        SharedFutureMethodMetadata.Retained retained = metadata.getRetained("key");
+        Assert.assertTrue(retained.isFresh());
+        Assert.assertFalse(retained.needsRefresh());
+        Thread.sleep(60L);
+        Assert.assertTrue(retained.isFresh());
+        Assert.assertTrue(retained.needsRefresh());
+        Thread.sleep(60L);
+        Assert.assertFalse(retained.isFresh());
+        Assert.assertSame(retained, metadata.getRetained("key"));
+    }
+
+    @Test
+    public void testMetadataIsCached() throws NoSuchMethodException {
+        SharedFuturesAspect aspect = new SharedFuturesAspect(new DefaultSharedFuturesRegistry(), new DefaultKeyGenerator());
+        Method method = getClass().getMethod("literal", String.class);
+        SharedFuture annotation = method.getAnnotation(SharedFuture.class);
+        Assert.assertSame(aspect.getMetadata(new MethodClassKey(method, getClass()), annotation),
+                aspect.getMetadata(new MethodClassKey(method, getClass()), annotation));
+        Assert.assertNotSame(aspect.getMetadata(new MethodClassKey(method, getClass()), annotation),
+                aspect.getMetadata(new MethodClassKey(method, Object.class), annotation));
+        Assert.assertEquals("java.lang.Object#literal(String)",
+                aspect.getMetadata(new MethodClassKey(method, Object.class), annotation).getName());
+    }
+
+    @Test
+    public void testNameQualifiesClass() throws NoSuchMethodException {
+        Method method = getClass().getMethod("literal", String.class);
+        Assert.assertEquals("java.util.Date#literal(String)", SharedFutureMethodMetadata.getName(java.util.Date.class, method));
+        Assert.assertEquals("java.sql.Date#literal(String)", SharedFutureMethodMetadata.getName(java.sql.Date.class, method));
+    }
+
+    @Test
+    public void testHedgeDelay() throws NoSuchMethodException {
+        Assert.assertEquals(-1, getMetadata(SpelCompilerMode.OFF, "literal", String.class).getHedgeDelayNanos());
+        SharedFutureMethodMetadata metadata = getMetadata(SpelCompilerMode.OFF, "hedged", String.class);
+        Assert.assertTrue(metadata.isHedging());
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(5), metadata.getHedgeDelayNanos());
+        for (int i = 0; i < SharedFutureMethodMetadata.HEDGE_MIN_SAMPLES; i++) {
+            metadata.recordLatency(TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        long delay = metadata.getHedgeDelayNanos();
+        Assert.assertTrue(delay >= TimeUnit.MILLISECONDS.toNanos(50) && delay <= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void testScopes() throws NoSuchMethodException {
+        Assert.assertNull(getMetadata(SpelCompilerMode.OFF, "literal", String.class).getScope());
+        Assert.assertSame(SharedFuturesRequestScope.INSTANCE, getMetadata(SpelCompilerMode.OFF, "requestScoped", String.class).getScope());
+        try {
+            getMetadata(SpelCompilerMode.OFF, "unknownScope", String.class);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains("'tenant'"));
+        }
+        try {
+            getMetadata(SpelCompilerMode.OFF, "retainedRequestScoped", String.class);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains("retain"));
+        }
+    }
+
+    private SharedFutureMethodMetadata getMetadata(SpelCompilerMode mode, String name, Class<?>... types) throws NoSuchMethodException {
+        SharedFuturesAspect aspect = new SharedFuturesAspect(new DefaultSharedFuturesRegistry(), new DefaultKeyGenerator(), mode);
+        Method method = getClass().getMethod(name, types);
+        return aspect.getMetadata(new MethodClassKey(method, getClass()), method.getAnnotation(SharedFuture.class));
+    }
+
+    public String getPrefix() {
+        return "prefix";
+    }
+
+    @SharedFuture
+    public CompletableFuture<String> generated(String value) {
+        return null;
+    }
+
+    @SharedFuture(key = "literal-key")
+    public CompletableFuture<String> literal(String value) {
+        return null;
+    }
+
+    @SharedFuture(scope = SharedFuturesScope.REQUEST)
+    public CompletableFuture<String> requestScoped(String value) {
+        return null;
+    }
+
+    @SharedFuture(scope = "tenant")
+    public CompletableFuture<String> unknownScope(String value) {
+        return null;
+    }
+
+    @SharedFuture(scope = SharedFuturesScope.REQUEST, retainFor = 1000)
+    public CompletableFuture<String> retainedRequestScoped(String value) {
+        return null;
+    }
+
+    @SharedFuture(key = "#{prefix + '-' + #arg0 + '-' + #arg1}")
+    public CompletableFuture<String> expression(String value, int count) {
+        return null;
+    }
+
+    @SharedFuture
+    public CompletableFuture<String> normalized(@NormalizeKey(unordered = true) List<String> values, String value) {
+        return null;
+    }
+
+    @SharedFuture(key = "#{#arg0.toString()}")
+    public CompletableFuture<String> normalizedExpression(@NormalizeKey(distinct = true, ignoreCase = true) List<String> values) {
+        return null;
+    }
+
+    @SharedFuture(retainFor = 10000, retainMaxBytes = 8000)
+    public CompletableFuture<String> weighed(String value) {
+        return null;
+    }
+
+    @SharedFuture(retainFor = 100, staleWhileRevalidate = 10000, refreshAhead = 0.5)
+    public CompletableFuture<String> stale(String value) {
+        return null;
+    }
+
+    @SharedFuture(hedgePercentile = 0.9, hedgeMinDelay = 5)
+    public CompletableFuture<String> hedged(String value) {
+        return null;
+    }
+}
@@ -1,13 +1,26 @@
 package com.ulisesbocchio.sharedfutures.spring;
 
+import com.google.common.base.Strings;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.ulisesbocchio.sharedfutures.DefaultSharedFuturesRegistry;
+import com.ulisesbocchio.sharedfutures.SharedFuturesCircuitOpenException;
+import com.ulisesbocchio.sharedfutures.SharedFuturesRequestScope;
+import com.ulisesbocchio.sharedfutures.SharedFuturesScope;
+import com.ulisesbocchio.sharedfutures.adapter.FutureAdaptersTest.CallbackFuture;
+import com.ulisesbocchio.sharedfutures.metrics.InMemorySharedFuturesMetrics;
+import com.ulisesbocchio.sharedfutures.spring.annotation.BatchedSharedFuture;
+import com.ulisesbocchio.sharedfutures.spring.annotation.CompletionPolicy;
+import com.ulisesbocchio.sharedfutures.spring.annotation.ElementWiseSharedFuture;
 import com.ulisesbocchio.sharedfutures.spring.annotation.EnableSharedFutures;
 import com.ulisesbocchio.sharedfutures.spring.annotation.SharedFuture;
+import com.ulisesbocchio.sharedfutures.spring.annotation.SharingPolicy;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -17,12 +30,30 @@ import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.util.concurrent.ListenableFuture;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * @author ulisesbocchio
@@ -34,6 +65,15 @@ public class SharedFuturesAspectTest {
     @Autowired
     private ISharedFuturesService service;
 
+    @Autowired
+    private InMemorySharedFuturesMetrics metrics;
+
+    @Autowired
+    private Map<String, IGreeter> greeters;
+
+    @Autowired
+    private SharedFuturesAspect aspect;
+
     @Before
     public void beforeTest(){
         service.reset();
@@ -89,6 +129,44 @@ public class SharedFuturesAspectTest {
         Assert.assertEquals(2, two2Int);
     }
 
+    @Test
+    public void testSharedFuturesService_adaptedFuture() throws ExecutionException, InterruptedException {
+        CallbackFuture<Integer> one = service.getIntCallback();
+        CallbackFuture<Integer> one2 = service.getIntCallback();
+        Assert.assertEquals(1, (int) one.get());
+        Assert.assertEquals(1, (int) one2.get());
+        Assert.assertEquals(1, service.getInvocations());
+    }
+
+    @Test
+    public void testImplementationsOfTheSameInterfaceDontShareMetadata() throws ExecutionException, InterruptedException {
+        CompletableFuture<String> first = greeters.get("firstGreeter").greet();
+        CompletableFuture<String> second = greeters.get("secondGreeter").greet();
+        Assert.assertEquals("first", first.get());
+        Assert.assertEquals("second", second.get());
+        Assert.assertEquals(1, metrics.getMethodMetrics(FirstGreeter.class.getName() + "#greet()").getExecutions());
+        Assert.assertEquals(1, metrics.getMethodMetrics(SecondGreeter.class.getName() + "#greet()").getExecutions());
+    }
+
+    @Test
+    public void testSharedFuturesService_plainFutureNotShared() throws ExecutionException, InterruptedException {
+        Future<Integer> one = service.getIntPlainFuture();
+        Future<Integer> one2 = service.getIntPlainFuture();
+        Assert.assertTrue(one instanceof FutureTask);
+        Assert.assertTrue(one2 instanceof FutureTask);
+        Assert.assertNotEquals(one.get(), one2.get());
+        Assert.assertEquals(2, service.getInvocations());
+    }
+
+    @Test
+    public void testSharedFuturesService_narrowerFutureTypeNotShared() throws ExecutionException, InterruptedException {
+        SettableFuture<Integer> one = service.getIntSettableFuture();
+        SettableFuture<Integer> one2 = service.getIntSettableFuture();
+        Assert.assertNotSame(one, one2);
+        Assert.assertNotEquals(one.get(), one2.get());
+        Assert.assertEquals(2, service.getInvocations());
+    }
+
     @Test
     public void testSharedFuturesService_withParams() throws ExecutionException, InterruptedException {
         CompletableFuture<Integer> one = service.getInt(10);
@@ -105,6 +183,515 @@ public class SharedFuturesAspectTest {
         Assert.assertEquals(102, two2Int);
     }
 
+    @Test
+    public void testSharedFuturesService_concurrentBurst() throws ExecutionException, InterruptedException {
+        int threads = 32;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<CompletableFuture<Integer>>> results = IntStream.range(0, threads)
+                .mapToObj(i -> executor.submit(() -> {
+                    start.await();
+                    return service.getInt();
+                }))
+                .collect(Collectors.toList());
+        start.countDown();
+        for (Future<CompletableFuture<Integer>> result : results) {
+            Assert.assertEquals(1, (int) result.get().get());
+        }
+        Assert.assertEquals(1, service.getInvocations());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testSharedFuturesService_metrics() throws ExecutionException, InterruptedException {
+        InMemorySharedFuturesMetrics.MethodMetrics methodMetrics =
+                metrics.getMethodMetrics(SharedFuturesService.class.getName() + "#getInt(int)");
+        long hits = methodMetrics.getHits();
+        long executions = methodMetrics.getExecutions();
+        long completions = methodMetrics.getWaiters().getCount();
+        long waiters = methodMetrics.getWaiters().getTotal();
+        CompletableFuture<Integer> one = service.getInt(5);
+        CompletableFuture<Integer> one2 = service.getInt(5);
+        CompletableFuture<Integer> one3 = service.getInt(5);
+        Assert.assertEquals(1, methodMetrics.getInFlight());
+        one.get();
+        one2.get();
+        one3.get();
+        Assert.assertEquals(hits + 2, methodMetrics.getHits());
+        Assert.assertEquals(executions + 1, methodMetrics.getExecutions());
+        Assert.assertEquals(completions + 1, methodMetrics.getWaiters().getCount());
+        Assert.assertEquals(waiters + 2, methodMetrics.getWaiters().getTotal());
+        Assert.assertEquals(0, methodMetrics.getInFlight());
+        Assert.assertTrue(methodMetrics.getPeakInFlight() >= 1);
+        Assert.assertTrue(methodMetrics.getTimeInFlight().getMax() >= TimeUnit.MILLISECONDS.toNanos(100));
+        Assert.assertTrue(methodMetrics.getKeyGeneration().getCount() >= 3);
+    }
+
+    @Test
+    public void testSharedFuturesService_retained() throws ExecutionException, InterruptedException {
+        int first = service.getRetainedInt().get();
+        Assert.assertEquals(first, (int) service.getRetainedInt().get());
+        Assert.assertEquals(first, (int) service.getRetainedInt().get());
+        Thread.sleep(300L);
+        Assert.assertEquals(first + 1, (int) service.getRetainedInt().get());
+    }
+
+    @Test
+    public void testSharedFuturesService_staleWhileRevalidate() throws ExecutionException, InterruptedException {
+        int first = service.getStaleInt().get();
+        Thread.sleep(350L);
+        CompletableFuture<Integer> stale = service.getStaleInt();
+        Assert.assertTrue(stale.isDone());
+        Assert.assertEquals(first, (int) stale.get());
+        Assert.assertEquals(first, (int) service.getStaleInt().get());
+        Thread.sleep(200L);
+        Assert.assertEquals(first + 1, (int) service.getStaleInt().get());
+        Assert.assertEquals(2, service.getInvocations());
+        Assert.assertEquals(0,
+                metrics.getMethodMetrics(SharedFuturesService.class.getName() + "#getStaleInt()").getWaiters().getMax());
+    }
+
+    @Test
+    public void testSharedFuturesService_blockingRetainMaxBytes() throws NoSuchMethodException {
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(1000, service.getLargeBlocking(i).length());
+        }
+        SharedFutureMethodMetadata metadata = aspect.getMetadata(new MethodClassKey(
+                ISharedFuturesService.class.getMethod("getLargeBlocking", int.class), SharedFuturesService.class), null);
+        long bytes = metadata.getRetainedBytes();
+        Assert.assertTrue(bytes > 2000 && bytes <= 8000);
+    }
+
+    @Test
+    public void testSharedFuturesService_blockingStaleWhileRevalidate() throws InterruptedException {
+        int first = service.getStaleBlocking();
+        Thread.sleep(350L);
+        long start = System.nanoTime();
+        Assert.assertEquals(first, service.getStaleBlocking());
+        Assert.assertEquals(first, service.getStaleBlocking());
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+        Thread.sleep(200L);
+        Assert.assertEquals(first + 1, service.getStaleBlocking());
+        Assert.assertEquals(2, service.getInvocations());
+    }
+
+    @Test
+    public void testSharedFuturesService_refreshAhead() throws ExecutionException, InterruptedException {
+        int first = service.getRefreshedAheadInt().get();
+        Thread.sleep(350L);
+        CompletableFuture<Integer> refreshing = service.getRefreshedAheadInt();
+        Assert.assertTrue(refreshing.isDone());
+        Assert.assertEquals(first, (int) refreshing.get());
+        Thread.sleep(200L);
+        CompletableFuture<Integer> refreshed = service.getRefreshedAheadInt();
+        Assert.assertTrue(refreshed.isDone());
+        Assert.assertEquals(first + 1, (int) refreshed.get());
+    }
+
+    @Test
+    public void testSharedFuturesService_retainedFailuresAreNotServed() throws InterruptedException {
+        int invocations = service.getInvocations();
+        for (int i = 0; i < 2; i++) {
+            try {
+                service.getFailingRetained().get();
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+        Assert.assertEquals(invocations + 2, service.getInvocations());
+    }
+
+    @Test
+    public void testSharedFuturesService_failureBackoff() throws InterruptedException {
+        int invocations = service.getInvocations();
+        Throwable failure = null;
+        for (int i = 0; i < 3; i++) {
+            try {
+                service.getBackedOffFailure().get();
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+                Assert.assertTrue(failure == null || failure == e.getCause());
+                failure = e.getCause();
+            }
+        }
+        Assert.assertEquals(invocations + 1, service.getInvocations());
+    }
+
+    @Test
+    public void testSharedFuturesService_circuitOpens() throws InterruptedException {
+        int invocations = service.getInvocations();
+        for (int i = 0; i < 2; i++) {
+            try {
+                service.getCircuitBrokenInt().get();
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+        for (int i = 0; i < 2; i++) {
+            try {
+                service.getCircuitBrokenInt().get();
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof SharedFuturesCircuitOpenException);
+                Assert.assertTrue(e.getCause().getCause() instanceof IllegalStateException);
+            }
+        }
+        Assert.assertEquals(invocations + 2, service.getInvocations());
+    }
+
+    @Test
+    public void testSharedFuturesService_blockingCircuitOpens() {
+        for (int i = 0; i < 2; i++) {
+            try {
+                service.getCircuitBrokenBlocking();
+                Assert.fail();
+            } catch (IllegalStateException e) {
+                Assert.assertEquals("boom", e.getMessage());
+            }
+        }
+        try {
+            service.getCircuitBrokenBlocking();
+            Assert.fail();
+        } catch (SharedFuturesCircuitOpenException e) {
+            Assert.assertEquals("boom", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testSharedFuturesService_fanOutCompletion() throws ExecutionException, InterruptedException {
+        List<CompletableFuture<String>> threads = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            threads.add(service.getFannedOutInt().thenApply(value -> value + "@" + Thread.currentThread().getName()));
+        }
+        service.getLastFuture().complete(3);
+        for (CompletableFuture<String> thread : threads) {
+            String completion = thread.get();
+            Assert.assertTrue(completion.startsWith("3@"));
+            Assert.assertNotEquals("3@" + Thread.currentThread().getName(), completion);
+        }
+        Assert.assertEquals(1, service.getInvocations());
+    }
+
+    @Test
+    public void testSharedFuturesService_requestScope() throws Exception {
+        CompletableFuture<Integer> unscoped = service.getRequestScopedInt();
+        service.getRequestScopedInt();
+        Assert.assertEquals(2, service.getInvocations());
+        CompletableFuture<Integer> first;
+        CompletableFuture<Integer> joinedAsync;
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (SharedFuturesRequestScope.Request request = SharedFuturesRequestScope.begin()) {
+            first = service.getRequestScopedInt();
+            CompletableFuture<Integer> firstFuture = service.getLastFuture();
+            service.getRequestScopedInt();
+            joinedAsync = CompletableFuture.supplyAsync(SharedFuturesRequestScope.wrapSupplier(service::getRequestScopedInt),
+                    executor).get();
+            try (SharedFuturesRequestScope.Request other = SharedFuturesRequestScope.begin()) {
+                service.getRequestScopedInt();
+                Assert.assertEquals(4, service.getInvocations());
+            }
+            Assert.assertSame(request, SharedFuturesRequestScope.current());
+            Assert.assertFalse(joinedAsync.isDone());
+            Assert.assertEquals(1, request.size());
+            firstFuture.complete(5);
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(5, (int) first.get());
+        Assert.assertEquals(5, (int) joinedAsync.get());
+        Assert.assertEquals(4, service.getInvocations());
+        Assert.assertNull(SharedFuturesRequestScope.current());
+        Assert.assertFalse(unscoped.isDone());
+    }
+
+    @Test
+    public void testSharedFuturesService_adaptiveBypass() throws ExecutionException, InterruptedException {
+        InMemorySharedFuturesMetrics.MethodMetrics methodMetrics =
+                metrics.getMethodMetrics(SharedFuturesService.class.getName() + "#getAdaptiveInt(int)");
+        for (int i = 0; i < 15; i++) {
+            Assert.assertEquals(i, (int) service.getAdaptiveInt(i).get());
+            Assert.assertEquals(i >= 14, methodMetrics.isBypassed());
+        }
+        Assert.assertEquals(15, methodMetrics.getExecutions());
+        Assert.assertEquals(17, (int) service.getAdaptiveInt(17).get());
+        Assert.assertEquals(1, methodMetrics.getBypasses());
+        Assert.assertEquals(15, methodMetrics.getExecutions());
+    }
+
+    @Test
+    public void testSharedFuturesService_cancelledViewKeepsSharedFuture() throws ExecutionException, InterruptedException {
+        CompletableFuture<Integer> one = service.getCancellableInt();
+        CompletableFuture<Integer> one2 = service.getCancellableInt();
+        Assert.assertNotSame(one, one2);
+        Assert.assertTrue(one.cancel(true));
+        Assert.assertTrue(one.isCancelled());
+        Assert.assertEquals(1, (int) one2.get());
+        Assert.assertFalse(service.getLastFuture().isCancelled());
+        Assert.assertEquals(1, service.getInvocations());
+    }
+
+    @Test
+    public void testSharedFuturesService_lastCancelledViewCancelsSharedFuture() throws ExecutionException, InterruptedException {
+        CompletableFuture<Integer> one = service.getCancellableInt();
+        CompletableFuture<Integer> one2 = service.getCancellableInt();
+        CompletableFuture<Integer> cancelled = service.getLastFuture();
+        one.cancel(true);
+        one2.cancel(true);
+        Assert.assertTrue(cancelled.isCancelled());
+        CompletableFuture<Integer> two = service.getCancellableInt();
+        Assert.assertNotSame(cancelled, service.getLastFuture());
+        Assert.assertEquals(2, service.getInvocations());
+        Assert.assertEquals(1, (int) two.get());
+    }
+
+    @Test
+    public void testSharedFuturesService_cancelledListenableViews() throws ExecutionException, InterruptedException {
+        ListenableFuture<Integer> one = service.getIntListenable();
+        ListenableFuture<Integer> one2 = service.getIntListenable();
+        Assert.assertTrue(one.cancel(true));
+        Assert.assertEquals(1, (int) one2.get());
+        com.google.common.util.concurrent.ListenableFuture<Integer> two = service.getIntGuavaListenable();
+        com.google.common.util.concurrent.ListenableFuture<Integer> two2 = service.getIntGuavaListenable();
+        Assert.assertTrue(two.cancel(true));
+        Assert.assertEquals(2, (int) two2.get());
+    }
+
+    @Test
+    public void testSharedFuturesService_timeout() throws InterruptedException {
+        InMemorySharedFuturesMetrics.MethodMetrics methodMetrics =
+                metrics.getMethodMetrics(SharedFuturesService.class.getName() + "#getHangingInt()");
+        long timeouts = methodMetrics.getTimeouts();
+        CompletableFuture<Integer> one = service.getHangingInt();
+        CompletableFuture<Integer> one2 = service.getHangingInt();
+        AtomicReference<String> continuationThread = new AtomicReference<>();
+        one.whenComplete((value, failure) -> continuationThread.set(Thread.currentThread().getName()));
+        for (CompletableFuture<Integer> future : Arrays.asList(one, one2)) {
+            try {
+                future.get(2, TimeUnit.SECONDS);
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof TimeoutException);
+            } catch (TimeoutException e) {
+                Assert.fail("Shared future didn't time out");
+            }
+        }
+        Assert.assertTrue(service.getLastFuture().isCancelled());
+        Assert.assertNotEquals("shared-futures-timer", continuationThread.get());
+        Assert.assertEquals(timeouts + 1, methodMetrics.getTimeouts());
+        service.getHangingInt();
+        Assert.assertEquals(2, service.getInvocations());
+    }
+
+    @Test
+    public void testSharedFuturesService_hedge() throws Exception {
+        InMemorySharedFuturesMetrics.MethodMetrics methodMetrics =
+                metrics.getMethodMetrics(SharedFuturesService.class.getName() + "#getHedgedInt()");
+        long hedgeWins = methodMetrics.getHedgeWins();
+        CompletableFuture<Integer> one = service.getHedgedInt();
+        CompletableFuture<Integer> one2 = service.getHedgedInt();
+        CompletableFuture<Integer> hung = service.getLastFuture();
+        Assert.assertEquals(7, (int) one.get(2, TimeUnit.SECONDS));
+        Assert.assertEquals(7, (int) one2.get(2, TimeUnit.SECONDS));
+        Assert.assertEquals(2, service.getInvocations());
+        Assert.assertTrue(hung.isCancelled());
+        Assert.assertEquals(hedgeWins + 1, methodMetrics.getHedgeWins());
+    }
+
+    @Test
+    public void testSharedFuturesService_mono() {
+        Mono<Integer> one = service.getMono();
+        Mono<Integer> one2 = service.getMono();
+        Assert.assertEquals(1, (int) one.block());
+        Assert.assertEquals(1, (int) one2.block());
+        Assert.assertEquals(1, service.getInvocations());
+        Assert.assertEquals(2, (int) service.getMono().block());
+        Assert.assertEquals(2, service.getInvocations());
+    }
+
+    @Test
+    public void testPublishersAreLeftToTheirOwnAspect() throws Exception {
+        SharedFuturesService target = new SharedFuturesService();
+        target.afterPropertiesSet();
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+        proxyFactory.addAspect(new SharedFuturesAspect(new DefaultSharedFuturesRegistry(), new DefaultKeyGenerator()));
+        ISharedFuturesService proxy = proxyFactory.getProxy();
+        Mono<Integer> one = proxy.getMono();
+        Mono<Integer> one2 = proxy.getMono();
+        Assert.assertEquals(2, target.getInvocations());
+        Assert.assertNotEquals(one.block(), one2.block());
+    }
+
+    @Test
+    public void testSharedFuturesService_flux() {
+        Flux<Integer> one = service.getFlux();
+        Flux<Integer> one2 = service.getFlux();
+        List<Integer> values = one.collectList().block();
+        Assert.assertEquals(Arrays.asList(1, 2, 3), values);
+        Assert.assertEquals(values, one2.collectList().block());
+        Assert.assertEquals(1, service.getInvocations());
+        Assert.assertEquals(Arrays.asList(4, 5, 6), service.getFlux().collectList().block());
+        Assert.assertEquals(2, service.getInvocations());
+    }
+
+    @Test
+    public void testSharedFuturesService_publisherCancelledByEverySubscriberIsReleased() throws InterruptedException {
+        Mono<Integer> one = service.getHangingMono();
+        Mono<Integer> one2 = service.getHangingMono();
+        Disposable first = one.subscribe();
+        Disposable second = one2.subscribe();
+        Assert.assertEquals(1, service.getInvocations());
+        first.dispose();
+        Assert.assertFalse(service.isHangingMonoCancelled());
+        second.dispose();
+        Assert.assertTrue(service.isHangingMonoCancelled());
+        service.getHangingMono().subscribe().dispose();
+        Assert.assertEquals(2, service.getInvocations());
+    }
+
+    @Test
+    public void testSharedFuturesService_unsubscribedPublisherIsReleased() throws InterruptedException {
+        Mono<Integer> unsubscribed = service.getUnsubscribedMono();
+        Assert.assertEquals(1, service.getInvocations());
+        Thread.sleep(150L);
+        Assert.assertEquals(2, (int) service.getUnsubscribedMono().block());
+        Assert.assertEquals(2, service.getInvocations());
+        Assert.assertEquals(1, (int) unsubscribed.block());
+    }
+
+    @Test
+    public void testSharedFuturesService_blocking() throws InterruptedException, ExecutionException {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = IntStream.range(0, threads)
+                .mapToObj(i -> executor.submit(() -> {
+                    start.await();
+                    return service.getBlockingInt();
+                }))
+                .collect(Collectors.toList());
+        start.countDown();
+        for (Future<Integer> result : results) {
+            Assert.assertEquals(1, (int) result.get());
+        }
+        Assert.assertEquals(1, service.getInvocations());
+        Assert.assertEquals(2, service.getBlockingInt());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testSharedFuturesService_blockingFailure() {
+        try {
+            service.getFailingBlocking();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("boom", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testBatchedSharedFuturesService() throws ExecutionException, InterruptedException {
+        CompletableFuture<String> a = service.getName("a");
+        CompletableFuture<String> b = service.getName("b");
+        CompletableFuture<String> a2 = service.getName("a");
+        Assert.assertNotSame(a, a2);
+        Assert.assertEquals("name-a", a.get());
+        Assert.assertEquals("name-b", b.get());
+        Assert.assertEquals("name-a", a2.get());
+        Assert.assertEquals(1, service.getBatches().size());
+        Assert.assertEquals(2, service.getBatches().get(0).size());
+    }
+
+    @Test
+    public void testBatchedSharedFuturesService_maxBatchSize() throws ExecutionException, InterruptedException {
+        List<CompletableFuture<String>> names = IntStream.range(0, 4)
+                .mapToObj(i -> service.getName("id" + i))
+                .collect(Collectors.toList());
+        for (int i = 0; i < names.size(); i++) {
+            Assert.assertEquals("name-id" + i, names.get(i).get());
+        }
+        Assert.assertEquals(2, service.getBatches().size());
+        Assert.assertEquals(3, service.getBatches().get(0).size());
+        Assert.assertEquals(1, service.getBatches().get(1).size());
+    }
+
+    @Test
+    public void testBatchedSharedFuturesService_requestScope() throws ExecutionException, InterruptedException {
+        List<CompletableFuture<String>> names = new ArrayList<>();
+        try (SharedFuturesRequestScope.Request request = SharedFuturesRequestScope.begin()) {
+            names.add(service.getRequestScopedName("a"));
+            names.add(service.getRequestScopedName("b"));
+            names.add(service.getRequestScopedName("a"));
+            try (SharedFuturesRequestScope.Request other = SharedFuturesRequestScope.begin()) {
+                names.add(service.getRequestScopedName("a"));
+            }
+        }
+        names.add(service.getRequestScopedName("a"));
+        Assert.assertEquals(Arrays.asList("name-a", "name-b", "name-a", "name-a", "name-a"),
+                names.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+        Assert.assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("a"), Arrays.asList("a")),
+                service.getBatches());
+    }
+
+    @Test
+    public void testElementWiseSharedFuturesService() throws ExecutionException, InterruptedException {
+        CompletableFuture<Map<String, String>> all = service.getNamesElementWise(Arrays.asList("a", "b", "c", "d"));
+        CompletableFuture<Map<String, String>> subset = service.getNamesElementWise(Arrays.asList("c", "b"));
+        CompletableFuture<Map<String, String>> overlapping = service.getNamesElementWise(Arrays.asList("d", "e", "e"));
+        Assert.assertEquals(Arrays.asList("a", "b", "c", "d"), new ArrayList<>(all.get().keySet()));
+        Assert.assertEquals("name-b", subset.get().get("b"));
+        Assert.assertEquals(Arrays.asList("c", "b"), new ArrayList<>(subset.get().keySet()));
+        Assert.assertEquals(Arrays.asList("d", "e"), new ArrayList<>(overlapping.get().keySet()));
+        Assert.assertEquals("name-e", overlapping.get().get("e"));
+        Assert.assertEquals(Arrays.asList(Arrays.asList("a", "b", "c", "d"), Arrays.asList("e")), service.getBatches());
+        service.getNamesElementWise(Arrays.asList("a")).get();
+        Assert.assertEquals(3, service.getBatches().size());
+    }
+
+    @Test
+    public void testElementWiseSharedFuturesService_list() throws ExecutionException, InterruptedException {
+        CompletableFuture<List<String>> all = service.getNameListElementWise(Arrays.asList("a", "b", "c"));
+        CompletableFuture<List<String>> overlapping = service.getNameListElementWise(Arrays.asList("c", "x", "a", "c"));
+        Assert.assertEquals(Arrays.asList("name-a", "name-b", "name-c"), all.get());
+        Assert.assertEquals(Arrays.asList("name-c", "name-x", "name-a", "name-c"), overlapping.get());
+        Assert.assertEquals(Arrays.asList(Arrays.asList("a", "b", "c"), Arrays.asList("x")), service.getBatches());
+    }
+
+    @Test
+    public void testElementWiseSharedFuturesService_requestScope() throws ExecutionException, InterruptedException {
+        CompletableFuture<List<String>> first;
+        CompletableFuture<List<String>> overlapping;
+        try (SharedFuturesRequestScope.Request request = SharedFuturesRequestScope.begin()) {
+            first = service.getRequestScopedNameList(Arrays.asList("a", "b"));
+            overlapping = service.getRequestScopedNameList(Arrays.asList("b", "c"));
+            try (SharedFuturesRequestScope.Request other = SharedFuturesRequestScope.begin()) {
+                service.getRequestScopedNameList(Arrays.asList("a")).get();
+            }
+        }
+        service.getRequestScopedNameList(Arrays.asList("b")).get();
+        Assert.assertEquals(Arrays.asList("name-a", "name-b"), first.get());
+        Assert.assertEquals(Arrays.asList("name-b", "name-c"), overlapping.get());
+        Assert.assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c"), Arrays.asList("a"), Arrays.asList("b")),
+                service.getBatches());
+    }
+
+    @Test
+    public void testElementWiseSharedFuturesService_failure() throws InterruptedException {
+        CompletableFuture<List<String>> all = service.getNameListElementWise(Arrays.asList("a", "fail"));
+        CompletableFuture<List<String>> joined = service.getNameListElementWise(Arrays.asList("a"));
+        for (CompletableFuture<List<String>> future : Arrays.asList(all, joined)) {
+            try {
+                future.get();
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertEquals("boom", e.getCause().getMessage());
+            }
+        }
+        Assert.assertEquals(1, service.getBatches().size());
+    }
+
     @Configuration
     @EnableAspectJAutoProxy
     @EnableSharedFutures
@@ -113,11 +700,57 @@ public class SharedFuturesAspectTest {
         SharedFuturesService sharedFuturesService() {
             return new SharedFuturesService();
         }
+
+        @Bean
+        InMemorySharedFuturesMetrics sharedFuturesMetrics() {
+            return new InMemorySharedFuturesMetrics();
+        }
+
+        @Bean
+        FirstGreeter firstGreeter() {
+            return new FirstGreeter();
+        }
+
+        @Bean
+        SecondGreeter secondGreeter() {
+            return new SecondGreeter();
+        }
+    }
+
+    public interface IGreeter {
+        CompletableFuture<String> greet();
+    }
+
+    public static class FirstGreeter implements IGreeter {
+        @SharedFuture(key = "first")
+        @Override
+        public CompletableFuture<String> greet() {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    Thread.sleep(100L);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return "first";
+            });
+        }
+    }
+
+    public static class SecondGreeter implements IGreeter {
+        @SharedFuture(key = "second")
+        @Override
+        public CompletableFuture<String> greet() {
+            return CompletableFuture.completedFuture("second");
+        }
     }
 
     public static class SharedFuturesService implements ISharedFuturesService, InitializingBean {
 
         private AtomicInteger i = new AtomicInteger(1);
+        private AtomicInteger invocations = new AtomicInteger();
+        private List<Collection<String>> batches = new CopyOnWriteArrayList<>();
+        private volatile CompletableFuture<Integer> lastFuture;
+        private volatile boolean hangingMonoCancelled;
         private ExecutorService eService = Executors.newFixedThreadPool(5);
         private ThreadPoolTaskExecutor springService = new ThreadPoolTaskExecutor();
         private ListeningExecutorService guavaService = MoreExecutors.listeningDecorator(eService);
@@ -131,6 +764,23 @@ public class SharedFuturesAspectTest {
         @Override
         public void reset() {
             i.set(1);
+            invocations.set(0);
+            batches.clear();
+        }
+
+        @Override
+        public List<Collection<String>> getBatches() {
+            return batches;
+        }
+
+        @Override
+        public int getInvocations() {
+            return invocations.get();
+        }
+
+        @Override
+        public CompletableFuture<Integer> getLastFuture() {
+            return lastFuture;
         }
 
         private int getInternal() {
@@ -146,6 +796,7 @@ public class SharedFuturesAspectTest {
         @SharedFuture
         @Override
         public CompletableFuture<Integer> getInt() {
+            invocations.incrementAndGet();
             return CompletableFuture.supplyAsync(this::getInternal);
         }
 
@@ -155,6 +806,250 @@ public class SharedFuturesAspectTest {
             return CompletableFuture.supplyAsync(() -> i + getInternal());
         }
 
+        @SharedFuture
+        @Override
+        public CompletableFuture<Integer> getCancellableInt() {
+            invocations.incrementAndGet();
+            lastFuture = CompletableFuture.supplyAsync(() -> {
+                try {
+                    Thread.sleep(100L);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return 1;
+            });
+            return lastFuture;
+        }
+
+        @SharedFuture
+        @Override
+        public Mono<Integer> getMono() {
+            invocations.incrementAndGet();
+            return Mono.fromCallable(this::getInternal).subscribeOn(Schedulers.boundedElastic());
+        }
+
+        @SharedFuture
+        @Override
+        public Mono<Integer> getHangingMono() {
+            invocations.incrementAndGet();
+            hangingMonoCancelled = false;
+            return Mono.<Integer>never().doOnCancel(() -> hangingMonoCancelled = true);
+        }
+
+        @Override
+        public boolean isHangingMonoCancelled() {
+            return hangingMonoCancelled;
+        }
+
+        @SharedFuture(subscribeTimeout = 50)
+        @Override
+        public Mono<Integer> getUnsubscribedMono() {
+            int invocation = invocations.incrementAndGet();
+            return Mono.just(invocation);
+        }
+
+        @SharedFuture
+        @Override
+        public Flux<Integer> getFlux() {
+            invocations.incrementAndGet();
+            return Flux.range(0, 3).map(n -> getInternal()).subscribeOn(Schedulers.boundedElastic());
+        }
+
+        @SharedFuture
+        @Override
+        public int getBlockingInt() {
+            invocations.incrementAndGet();
+            return getInternal();
+        }
+
+        @SharedFuture
+        @Override
+        public int getFailingBlocking() {
+            throw new IllegalStateException("boom");
+        }
+
+        @SharedFuture(timeout = 100)
+        @Override
+        public CompletableFuture<Integer> getHangingInt() {
+            invocations.incrementAndGet();
+            lastFuture = new CompletableFuture<>();
+            return lastFuture;
+        }
+
+        @SharedFuture(hedgePercentile = 0.99, hedgeMinDelay = 50)
+        @Override
+        public CompletableFuture<Integer> getHedgedInt() {
+            if (invocations.getAndIncrement() == 0) {
+                lastFuture = new CompletableFuture<>();
+                return lastFuture;
+            }
+            return CompletableFuture.completedFuture(7);
+        }
+
+        @SharedFuture(retainFor = 200)
+        @Override
+        public CompletableFuture<Integer> getRetainedInt() {
+            return CompletableFuture.supplyAsync(this::getInternal);
+        }
+
+        @SharedFuture(retainFor = 300, staleWhileRevalidate = 10000)
+        @Override
+        public CompletableFuture<Integer> getStaleInt() {
+            invocations.incrementAndGet();
+            return CompletableFuture.supplyAsync(this::getInternal);
+        }
+
+        @SharedFuture(retainFor = 300, staleWhileRevalidate = 10000)
+        @Override
+        public int getStaleBlocking() {
+            invocations.incrementAndGet();
+            return getInternal();
+        }
+
+        @SharedFuture(retainFor = 10000, retainMaxBytes = 8000)
+        @Override
+        public String getLargeBlocking(int i) {
+            return Strings.repeat(String.valueOf(i), 1000);
+        }
+
+        @SharedFuture(retainFor = 1000, refreshAhead = 0.3)
+        @Override
+        public CompletableFuture<Integer> getRefreshedAheadInt() {
+            return CompletableFuture.supplyAsync(this::getInternal);
+        }
+
+        @SharedFuture(retainFor = 200)
+        @Override
+        public CompletableFuture<Integer> getFailingRetained() {
+            invocations.incrementAndGet();
+            return CompletableFuture.supplyAsync(() -> {
+                throw new IllegalStateException("boom");
+            });
+        }
+
+        @SharedFuture(completion = CompletionPolicy.FAN_OUT, completionBatchSize = 4)
+        @Override
+        public CompletableFuture<Integer> getFannedOutInt() {
+            invocations.incrementAndGet();
+            lastFuture = new CompletableFuture<>();
+            return lastFuture;
+        }
+
+        @SharedFuture(scope = SharedFuturesScope.REQUEST)
+        @Override
+        public CompletableFuture<Integer> getRequestScopedInt() {
+            invocations.incrementAndGet();
+            lastFuture = new CompletableFuture<>();
+            return lastFuture;
+        }
+
+        @SharedFuture(sharing = SharingPolicy.ADAPTIVE, adaptiveWindow = 5, adaptiveProbeInterval = 10000)
+        @Override
+        public CompletableFuture<Integer> getAdaptiveInt(int i) {
+            return CompletableFuture.completedFuture(i);
+        }
+
+        @SharedFuture(failureBackoff = 10000)
+        @Override
+        public CompletableFuture<Integer> getBackedOffFailure() {
+            invocations.incrementAndGet();
+            return CompletableFuture.supplyAsync(() -> {
+                throw new IllegalStateException("boom");
+            });
+        }
+
+        @SharedFuture(circuitFailureRate = 1, circuitMinCalls = 2, circuitOpenFor = 10000)
+        @Override
+        public CompletableFuture<Integer> getCircuitBrokenInt() {
+            invocations.incrementAndGet();
+            return CompletableFuture.supplyAsync(() -> {
+                throw new IllegalStateException("boom");
+            });
+        }
+
+        @SharedFuture(circuitFailureRate = 1, circuitMinCalls = 2, circuitOpenFor = 10000)
+        @Override
+        public int getCircuitBrokenBlocking() {
+            throw new IllegalStateException("boom");
+        }
+
+        @BatchedSharedFuture(batchMethod = "getNames", window = 50, maxBatchSize = 3)
+        @Override
+        public CompletableFuture<String> getName(String id) {
+            throw new UnsupportedOperationException();
+        }
+
+        public CompletableFuture<Map<String, String>> getNames(Collection<String> ids) {
+            batches.add(new ArrayList<>(ids));
+            return CompletableFuture.supplyAsync(() -> ids.stream().collect(Collectors.toMap(id -> id, id -> "name-" + id)));
+        }
+
+        @BatchedSharedFuture(batchMethod = "getNames", window = 50, scope = SharedFuturesScope.REQUEST)
+        @Override
+        public CompletableFuture<String> getRequestScopedName(String id) {
+            throw new UnsupportedOperationException();
+        }
+
+        @ElementWiseSharedFuture(scope = SharedFuturesScope.REQUEST)
+        @Override
+        public CompletableFuture<List<String>> getRequestScopedNameList(List<String> ids) {
+            batches.add(new ArrayList<>(ids));
+            return CompletableFuture.supplyAsync(() -> {
+                getInternal();
+                return ids.stream().map(id -> "name-" + id).collect(Collectors.toList());
+            });
+        }
+
+        @ElementWiseSharedFuture
+        @Override
+        public CompletableFuture<Map<String, String>> getNamesElementWise(List<String> ids) {
+            batches.add(new ArrayList<>(ids));
+            return CompletableFuture.supplyAsync(() -> {
+                getInternal();
+                return ids.stream().collect(Collectors.toMap(id -> id, id -> "name-" + id));
+            });
+        }
+
+        @ElementWiseSharedFuture
+        @Override
+        public CompletableFuture<List<String>> getNameListElementWise(Collection<String> ids) {
+            batches.add(new ArrayList<>(ids));
+            return CompletableFuture.supplyAsync(() -> {
+                getInternal();
+                if (ids.contains("fail")) {
+                    throw new IllegalStateException("boom");
+                }
+                return ids.stream().map(id -> "name-" + id).collect(Collectors.toList());
+            });
+        }
+
+        @SharedFuture
+        @Override
+        public CallbackFuture<Integer> getIntCallback() {
+            invocations.incrementAndGet();
+            CallbackFuture<Integer> future = new CallbackFuture<>(this::getInternal);
+            eService.execute(future);
+            return future;
+        }
+
+        @SharedFuture
+        @Override
+        public SettableFuture<Integer> getIntSettableFuture() {
+            invocations.incrementAndGet();
+            SettableFuture<Integer> future = SettableFuture.create();
+            eService.execute(() -> future.set(getInternal()));
+            return future;
+        }
+
+        @SharedFuture
+        @Override
+        public Future<Integer> getIntPlainFuture() {
+            invocations.incrementAndGet();
+            FutureTask<Integer> future = new FutureTask<>(this::getInternal);
+            eService.execute(future);
+            return future;
+        }
+
         @SharedFuture
         @Override
         public ListenableFuture<Integer> getIntListenable() {
@@ -170,8 +1065,41 @@ public class SharedFuturesAspectTest {
 
     public static interface ISharedFuturesService {
         void reset();
+        int getInvocations();
+        CompletableFuture<Integer> getLastFuture();
+        List<Collection<String>> getBatches();
+        CompletableFuture<String> getName(String id);
+        CompletableFuture<Map<String, String>> getNamesElementWise(List<String> ids);
+        CompletableFuture<List<String>> getNameListElementWise(Collection<String> ids);
+        CompletableFuture<String> getRequestScopedName(String id);
+        CompletableFuture<List<String>> getRequestScopedNameList(List<String> ids);
         CompletableFuture<Integer> getInt();
         CompletableFuture<Integer> getInt(int i);
+        CompletableFuture<Integer> getCancellableInt();
+        CompletableFuture<Integer> getHangingInt();
+        Mono<Integer> getMono();
+        Mono<Integer> getHangingMono();
+        boolean isHangingMonoCancelled();
+        Mono<Integer> getUnsubscribedMono();
+        Flux<Integer> getFlux();
+        int getBlockingInt();
+        int getFailingBlocking();
+        String getLargeBlocking(int i);
+        int getStaleBlocking();
+        CompletableFuture<Integer> getHedgedInt();
+        CompletableFuture<Integer> getRetainedInt();
+        CompletableFuture<Integer> getStaleInt();
+        CompletableFuture<Integer> getRefreshedAheadInt();
+        CompletableFuture<Integer> getFailingRetained();
+        CompletableFuture<Integer> getFannedOutInt();
+        CompletableFuture<Integer> getRequestScopedInt();
+        CompletableFuture<Integer> getAdaptiveInt(int i);
+        CompletableFuture<Integer> getBackedOffFailure();
+        CompletableFuture<Integer> getCircuitBrokenInt();
+        int getCircuitBrokenBlocking();
+        CallbackFuture<Integer> getIntCallback();
+        Future<Integer> getIntPlainFuture();
+        SettableFuture<Integer> getIntSettableFuture();
         ListenableFuture<Integer> getIntListenable();
         com.google.common.util.concurrent.ListenableFuture<Integer> getIntGuavaListenable();
     }
@@ -0,0 +1,105 @@
+package com.ulisesbocchio.sharedfutures.spring;
+
+import com.ulisesbocchio.sharedfutures.spring.annotation.BatchedSharedFuture;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * @author ulisesbocchio
+ */
+public class SharedFuturesBatchCollectorTest {
+
+    private final SharedFuturesBatchCollector collector = new SharedFuturesBatchCollector();
+
+    @After
+    public void destroy() {
+        collector.destroy();
+    }
+
+    @Test
+    public void testImplementationsOfTheSameInterfaceUseTheirOwnBulkMethod() throws Exception {
+        Method get = Repository.class.getMethod("get", String.class);
+        Assert.assertEquals("first-a", add(new FirstRepository(), get, "a").get());
+        Assert.assertEquals("second-a", add(new SecondRepository(), get, "a").get());
+    }
+
+    @Test
+    public void testBulkMethodInvokedThroughTheProxy() throws Exception {
+        FirstRepository target = new FirstRepository();
+        AtomicInteger proxied = new AtomicInteger();
+        Repository proxy = (Repository) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Repository.class},
+                (p, method, args) -> {
+                    proxied.incrementAndGet();
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        Method get = Repository.class.getMethod("get", String.class);
+        BatchedSharedFuture annotation = FirstRepository.class.getMethod("get", String.class).getAnnotation(BatchedSharedFuture.class);
+        CompletableFuture<Object> a = collector.add(proxy, target, get, annotation, "a");
+        CompletableFuture<Object> b = collector.add(proxy, target, get, annotation, "b");
+        Assert.assertEquals("first-a", a.get());
+        Assert.assertEquals("first-b", b.get());
+        Assert.assertEquals(1, proxied.get());
+        Assert.assertEquals(1, target.bulkCalls.get());
+    }
+
+    private CompletableFuture<Object> add(Repository target, Method method, String arg) throws NoSuchMethodException {
+        BatchedSharedFuture annotation = target.getClass().getMethod(method.getName(), method.getParameterTypes())
+                .getAnnotation(BatchedSharedFuture.class);
+        return collector.add(target, method, annotation, arg);
+    }
+
+    public interface Repository {
+        CompletableFuture<String> get(String id);
+
+        CompletableFuture<Map<String, String>> loadAll(Collection<String> ids);
+    }
+
+    public static class FirstRepository implements Repository {
+        private final AtomicInteger bulkCalls = new AtomicInteger();
+
+        @BatchedSharedFuture(batchMethod = "loadAll", window = 20)
+        @Override
+        public CompletableFuture<String> get(String id) {
+            return null;
+        }
+
+        @Override
+        public CompletableFuture<Map<String, String>> loadAll(Collection<String> ids) {
+            bulkCalls.incrementAndGet();
+            return CompletableFuture.completedFuture(ids.stream().collect(Collectors.toMap(Function.identity(), id -> "first-" + id)));
+        }
+    }
+
+    public static class SecondRepository implements Repository {
+
+        @BatchedSharedFuture(batchMethod = "fetchAll", window = 20)
+        @Override
+        public CompletableFuture<String> get(String id) {
+            return null;
+        }
+
+        @Override
+        public CompletableFuture<Map<String, String>> loadAll(Collection<String> ids) {
+            throw new UnsupportedOperationException();
+        }
+
+        public CompletableFuture<Map<String, String>> fetchAll(Collection<String> ids) {
+            return CompletableFuture.completedFuture(ids.stream().collect(Collectors.toMap(Function.identity(), id -> "second-" + id)));
+        }
+    }
+}
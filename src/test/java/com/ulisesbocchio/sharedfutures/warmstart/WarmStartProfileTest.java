@@ -0,0 +1,66 @@
+package com.ulisesbocchio.sharedfutures.warmstart;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * @author ulisesbocchio
+ */
+public class WarmStartProfileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("profiles/warm-start.bin");
+        WarmStartProfile profile = new WarmStartProfile(Arrays.asList(
+                new WarmStartProfile.Call("com.example.Service", "get", new String[]{"java.lang.String", "int"}, 42, new byte[]{1, 2, 3}),
+                new WarmStartProfile.Call("com.example.Service", "list", new String[0], 7, new byte[0])));
+        profile.write(file);
+        WarmStartProfile read = WarmStartProfile.read(file);
+        Assert.assertEquals(2, read.getCalls().size());
+        WarmStartProfile.Call call = read.getCalls().get(0);
+        Assert.assertEquals("com.example.Service", call.getDeclaringType());
+        Assert.assertEquals("get", call.getMethodName());
+        Assert.assertArrayEquals(new String[]{"java.lang.String", "int"}, call.getParameterTypes());
+        Assert.assertEquals(42, call.getHits());
+        Assert.assertArrayEquals(new byte[]{1, 2, 3}, call.getArguments());
+        Assert.assertEquals(0, read.getCalls().get(1).getParameterTypes().length);
+        Assert.assertFalse(Files.exists(file.resolveSibling("warm-start.bin.tmp")));
+    }
+
+    @Test
+    public void testMissingFileIsEmpty() throws IOException {
+        Assert.assertTrue(WarmStartProfile.read(folder.getRoot().toPath().resolve("missing.bin")).isEmpty());
+    }
+
+    @Test
+    public void testRejectsOtherFiles() throws IOException {
+        Path file = folder.newFile("other.bin").toPath();
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+        try {
+            WarmStartProfile.read(file);
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Not a warm start profile"));
+        }
+        new WarmStartProfile(Arrays.asList(new WarmStartProfile.Call("com.example.Service", "get", new String[0], 1, new byte[8])))
+                .write(file);
+        byte[] truncated = Arrays.copyOf(Files.readAllBytes(file), 30);
+        Files.write(file, truncated);
+        try {
+            WarmStartProfile.read(file);
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Truncated warm start profile"));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.ulisesbocchio.sharedfutures.warmstart;
+
+import com.ulisesbocchio.sharedfutures.DefaultSharedFuturesRegistry;
+import com.ulisesbocchio.sharedfutures.SharedFuturesRequestScope;
+import com.ulisesbocchio.sharedfutures.SharedFuturesScope;
+import com.ulisesbocchio.sharedfutures.cluster.JdkResultSerializer;
+import com.ulisesbocchio.sharedfutures.spring.DefaultKeyGenerator;
+import com.ulisesbocchio.sharedfutures.spring.SharedFuturesAspect;
+import com.ulisesbocchio.sharedfutures.spring.annotation.SharedFuture;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * @author ulisesbocchio
+ */
+public class WarmStartTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testProfileKeepsHottestCallsPerMethod() throws NoSuchMethodException {
+        WarmStartRecorder recorder = new WarmStartRecorder();
+        Method get = Service.class.getMethod("get", String.class);
+        Method scoped = Service.class.getMethod("getScoped", String.class);
+        for (int i = 0; i < 3; i++) {
+            recorder.record(get, "a", new Object[]{"a"});
+        }
+        recorder.record(get, "b", new Object[]{"b"});
+        recorder.record(scoped, "c", new Object[]{new Object()});
+        WarmStartProfile profile = recorder.getProfile(1, new JdkResultSerializer());
+        Assert.assertEquals(1, profile.getCalls().size());
+        WarmStartProfile.Call call = profile.getCalls().get(0);
+        Assert.assertEquals("get", call.getMethodName());
+        Assert.assertEquals(3, call.getHits());
+        Assert.assertArrayEquals(new Object[]{"a"}, (Object[]) new JdkResultSerializer().deserialize(call.getArguments()));
+    }
+
+    @Test
+    public void testPrefetchesHotCallsOnRestart() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("warm-start.bin");
+        WarmStart warmStart = new WarmStart(new WarmStartRecorder(), file, 10, 1000);
+        Service service = new Service();
+        Service proxy = createProxy(service, warmStart.getRecorder());
+        proxy.get("a");
+        proxy.get("a");
+        proxy.get("b");
+        try (SharedFuturesRequestScope.Request request = SharedFuturesRequestScope.begin()) {
+            proxy.getScoped("c");
+            proxy.getScoped("c");
+        }
+        warmStart.close();
+
+        WarmStart restarted = new WarmStart(new WarmStartRecorder(), file, 10, 1000);
+        restarted.flush();
+        Service restartedService = new Service();
+        Service restartedProxy = createProxy(restartedService, restarted.getRecorder());
+        Assert.assertEquals(1, restarted.prefetch(type -> type == Service.class ? restartedProxy : null));
+        Assert.assertEquals(1, restartedService.calls.size());
+        Assert.assertEquals("a", restartedService.calls.get(0));
+        restartedProxy.get("a");
+        Assert.assertEquals(1, restartedService.calls.size());
+        restarted.close();
+    }
+
+    private static Service createProxy(Service service, WarmStartRecorder recorder) {
+        SharedFuturesAspect aspect = new SharedFuturesAspect(new DefaultSharedFuturesRegistry(), new DefaultKeyGenerator());
+        aspect.setWarmStartRecorder(recorder);
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(service);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(aspect);
+        return proxyFactory.getProxy();
+    }
+
+    public static class Service {
+        private final List<String> calls = new CopyOnWriteArrayList<>();
+
+        @SharedFuture
+        public CompletableFuture<String> get(String id) {
+            calls.add(id);
+            return new CompletableFuture<>();
+        }
+
+        @SharedFuture(scope = SharedFuturesScope.REQUEST)
+        public CompletableFuture<String> getScoped(String id) {
+            calls.add(id);
+            return new CompletableFuture<>();
+        }
+    }
+}